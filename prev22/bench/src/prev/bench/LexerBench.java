@@ -0,0 +1,106 @@
+package prev.bench;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.antlr.v4.runtime.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.*;
+
+import prev.*;
+import prev.phase.lexan.*;
+
+/**
+ * Benchmarks of lexical analysis by the ANTLR lexer and by the hand-written
+ * lexer (see {@link LexAn}).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LexerBench {
+
+	/**
+	 * The program being lexed.
+	 */
+	@State(Scope.Benchmark)
+	public static class Program {
+
+		/**
+		 * The name of the program (see {@link Programs}) or {@code synthetic} for a
+		 * large program produced by {@link ProgramGenerator}.
+		 */
+		@Param({ "show_queens", "extra_avl", "synthetic" })
+		public String program;
+
+		/** The lexer. */
+		@Param({ "antlr", "fast" })
+		public String lexer;
+
+		/** The name of the source file. */
+		String srcFileName;
+
+		/** The source text. */
+		String srcText;
+
+		@Setup(Level.Trial)
+		public void load() {
+			if (program.equals("synthetic")) {
+				ProgramGenerator generator = new ProgramGenerator();
+				generator.set("statements", "400");
+				srcFileName = "synthetic.p22";
+				srcText = generator.generate();
+			} else {
+				srcFileName = Programs.srcFileName(program);
+				srcText = Programs.srcText(program);
+			}
+		}
+
+	}
+
+	/**
+	 * A fresh compilation session.
+	 */
+	@State(Scope.Thread)
+	public static class Fresh {
+
+		/** The compilation session. */
+		CompilationSession session;
+
+		@Setup(Level.Invocation)
+		public void prepare(Program program) {
+			HashMap<String, String> cmdLine = new HashMap<String, String>();
+			cmdLine.put("--src-file-name", program.srcFileName);
+			cmdLine.put("--target-phase", "lexan");
+			cmdLine.put("--lexer", program.lexer);
+			session = new CompilationSession(cmdLine);
+			session.srcText = program.srcText;
+		}
+
+		@TearDown(Level.Invocation)
+		public void close() {
+			session.close();
+			session = null;
+		}
+
+	}
+
+	/**
+	 * Measures lexing the entire program.
+	 *
+	 * @param fresh A fresh compilation session.
+	 * @param sink  Consumes the tokens.
+	 */
+	@Benchmark
+	public void lexan(Fresh fresh, Blackhole sink) {
+		try (LexAn lexan = new LexAn()) {
+			Token token;
+			do {
+				token = lexan.lexer.nextToken();
+				sink.consume(token);
+			} while (token.getType() != Token.EOF);
+		}
+	}
+
+}
@@ -0,0 +1,125 @@
+package prev.bench;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+
+import org.antlr.v4.runtime.*;
+
+import prev.*;
+import prev.common.report.*;
+import prev.phase.lexan.*;
+
+/**
+ * A differential test of the hand-written lexer against the ANTLR lexer.
+ *
+ * Every source is lexed with {@code --lexer=check} (see {@link LexAn}), i.e.,
+ * by both lexers, and the first source the lexers disagree on is printed out.
+ * The sources are the programs given on the command line (by default all
+ * programs in {@code ../prg}), mutations of them and random sequences of
+ * lexemes, including erroneous ones.
+ */
+public class LexerDiff {
+
+	/** Fragments random sources are built of. */
+	private static final String[] fragments = { "'", "\"", "\\", "\n", "\r", "\t", " ", "#", "0", "1", "9", "a",
+			"Z", "_", "=", "!", "<", ">", "{", "}", "[", "]", "(", ")", "^", ".", ",", ":", ";", "&", "|", "*", "/",
+			"%", "+", "-", "~", "\u0001", "\u007f", "\u00e9", "\u20ac", "\ud834\udd1e", "none", "true", "nil",
+			"while", "00", "'\\''", "'''", "\"\\\"", "        " };
+
+	/**
+	 * Lexes a source by both lexers.
+	 *
+	 * @param srcFileName The name of the source file.
+	 * @param src         The source.
+	 * @return {@code true} if the lexers agree.
+	 */
+	private static boolean agree(String srcFileName, byte[] src) throws IOException {
+		Path file = Files.createTempFile("lexer-diff", ".p22");
+		ByteArrayOutputStream err = new ByteArrayOutputStream();
+		try {
+			Files.write(file, src);
+			HashMap<String, String> cmdLine = new HashMap<String, String>();
+			cmdLine.put("--src-file-name", file.toString());
+			cmdLine.put("--target-phase", "lexan");
+			cmdLine.put("--lexer", "check");
+			CompilationSession session = new CompilationSession(cmdLine, System.out, new PrintStream(err));
+			try (LexAn lexan = new LexAn()) {
+				while (lexan.lexer.nextToken().getType() != Token.EOF) {
+				}
+			} finally {
+				session.close();
+			}
+			return true;
+		} catch (Report.Error __) {
+			System.err.println(":-( " + srcFileName + ":");
+			System.err.write(src);
+			System.err.println();
+			System.err.print(err.toString(StandardCharsets.UTF_8));
+			return false;
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	/**
+	 * Runs the differential test.
+	 *
+	 * @param args Source files (by default all programs in {@code ../prg}) and
+	 *             optionally {@code --seed=n} and {@code --count=n}, the number of
+	 *             random sources.
+	 */
+	public static void main(String[] args) throws IOException {
+		long seed = 0;
+		int count = 10000;
+		Vector<Path> files = new Vector<Path>();
+		for (String arg : args) {
+			if (arg.startsWith("--seed="))
+				seed = Long.parseLong(arg.substring(7));
+			else if (arg.startsWith("--count="))
+				count = Integer.parseInt(arg.substring(8));
+			else
+				files.add(Path.of(arg));
+		}
+		if (files.isEmpty()) {
+			try (DirectoryStream<Path> prg = Files.newDirectoryStream(Path.of("../prg"), "*.p22")) {
+				prg.forEach(files::add);
+			}
+		}
+
+		Random random = new Random(seed);
+		int numSources = 0;
+		for (Path file : files) {
+			byte[] src = Files.readAllBytes(file);
+			numSources++;
+			if (!agree(file.toString(), src))
+				System.exit(1);
+
+			// Mutations: single bytes replaced by random fragments.
+			for (int i = 0; i < 10; i++) {
+				String text = new String(src, StandardCharsets.UTF_8);
+				int pos = random.nextInt(text.length() + 1);
+				text = text.substring(0, pos) + fragments[random.nextInt(fragments.length)]
+						+ text.substring(Math.min(pos + 1, text.length()));
+				numSources++;
+				if (!agree(file + " (mutated)", text.getBytes(StandardCharsets.UTF_8)))
+					System.exit(1);
+			}
+		}
+		for (int i = 0; i < count; i++) {
+			StringBuilder text = new StringBuilder();
+			for (int n = random.nextInt(40); n >= 0; n--)
+				text.append(fragments[random.nextInt(fragments.length)]);
+			byte[] src = text.toString().getBytes(StandardCharsets.UTF_8);
+			// Some sources are not valid UTF-8.
+			if ((src.length > 0) && (random.nextInt(10) == 0))
+				src[random.nextInt(src.length)] = (byte) (0x80 + random.nextInt(0x80));
+			numSources++;
+			if (!agree("random source " + i, src))
+				System.exit(1);
+		}
+		System.out.println(":-) The lexers agree on " + numSources + " sources.");
+	}
+
+}
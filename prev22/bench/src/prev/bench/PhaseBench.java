@@ -0,0 +1,126 @@
+package prev.bench;
+
+import java.util.concurrent.*;
+
+import org.openjdk.jmh.annotations.*;
+
+import prev.*;
+
+/**
+ * Benchmarks of the compiler's phases, each in isolation, and of the entire
+ * compilation.
+ *
+ * Every invocation gets a fresh compilation session in which all preceding
+ * phases have already been run, so no state leaks from one invocation into
+ * the next and only the measured phase is timed.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PhaseBench {
+
+	/**
+	 * The program being compiled.
+	 */
+	@State(Scope.Benchmark)
+	public static class Program {
+
+		/** The name of the program (see {@link Programs}). */
+		@Param({ "show_queens", "extra_avl", "extra_quicksort", "extra_permutations" })
+		public String program;
+
+		/** The number of registers. */
+		@Param({ "8", "32" })
+		public int nregs;
+
+		/** The name of the source file. */
+		String srcFileName;
+
+		/** The source text. */
+		String srcText;
+
+		@Setup(Level.Trial)
+		public void load() {
+			srcFileName = Programs.srcFileName(program);
+			srcText = Programs.srcText(program);
+		}
+
+	}
+
+	/**
+	 * A compilation session in which all phases preceding the measured one have
+	 * already been run.
+	 */
+	@State(Scope.Thread)
+	public static class Prepared {
+
+		/** The measured phase (see {@link Pipeline#phases}). */
+		@Param({ "synan", "abstr", "seman", "memory", "imcgen", "imclin", "asmgen", "livean", "regall", "all" })
+		public String phase;
+
+		/** The compilation session. */
+		CompilationSession session;
+
+		@Setup(Level.Invocation)
+		public void prepare(Program program) {
+			session = Pipeline.open(program.srcFileName, program.srcText, program.nregs);
+			Pipeline.runBefore(session, phase);
+		}
+
+		@TearDown(Level.Invocation)
+		public void close() {
+			session.close();
+			session = null;
+		}
+
+	}
+
+	/**
+	 * A fresh compilation session.
+	 */
+	@State(Scope.Thread)
+	public static class Fresh {
+
+		/** The compilation session. */
+		CompilationSession session;
+
+		@Setup(Level.Invocation)
+		public void prepare(Program program) {
+			session = Pipeline.open(program.srcFileName, program.srcText, program.nregs);
+		}
+
+		@TearDown(Level.Invocation)
+		public void close() {
+			session.close();
+			session = null;
+		}
+
+	}
+
+	/**
+	 * Measures a single phase.
+	 *
+	 * @param prepared The compilation session prepared for the phase.
+	 * @return The compilation session (to keep the results alive).
+	 */
+	@Benchmark
+	public CompilationSession phase(Prepared prepared) {
+		Pipeline.run(prepared.session, prepared.phase);
+		return prepared.session;
+	}
+
+	/**
+	 * Measures the entire compilation.
+	 *
+	 * @param fresh A fresh compilation session.
+	 * @return The compilation session (to keep the results alive).
+	 */
+	@Benchmark
+	public CompilationSession endToEnd(Fresh fresh) {
+		prev.Compiler.compile(fresh.session);
+		return fresh.session;
+	}
+
+}
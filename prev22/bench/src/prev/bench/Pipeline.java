@@ -0,0 +1,139 @@
+package prev.bench;
+
+import java.io.*;
+import java.util.*;
+
+import prev.*;
+import prev.phase.abstr.*;
+import prev.phase.all.*;
+import prev.phase.asmgen.*;
+import prev.phase.imcgen.*;
+import prev.phase.imclin.*;
+import prev.phase.livean.*;
+import prev.phase.memory.*;
+import prev.phase.regall.*;
+import prev.phase.seman.*;
+import prev.phase.synan.*;
+import prev.phase.lexan.*;
+
+/**
+ * The compiler's phases, one by one and without logging, so that each of them
+ * can be run and measured separately (see {@link prev.Compiler#compile}).
+ */
+public class Pipeline {
+
+	/** The phases in the order they are run in. */
+	public static final String[] phases = { "synan", "abstr", "seman", "memory", "imcgen", "imclin", "asmgen",
+			"livean", "regall", "all" };
+
+	/**
+	 * Opens a new compilation session for the specified source text and binds it
+	 * to the current thread.
+	 *
+	 * @param srcFileName The name of the source file.
+	 * @param srcText     The source text.
+	 * @param nregs       The number of registers.
+	 * @return The new compilation session.
+	 */
+	public static CompilationSession open(String srcFileName, String srcText, int nregs) {
+		HashMap<String, String> cmdLine = new HashMap<String, String>();
+		cmdLine.put("--src-file-name", srcFileName);
+		cmdLine.put("--dst-file-name", srcFileName.replaceFirst("\\.[^./]*$", "") + ".mms");
+		cmdLine.put("--target-phase", "all");
+		cmdLine.put("--nregs", Integer.toString(nregs));
+		CompilationSession session = new CompilationSession(cmdLine);
+		session.srcText = srcText;
+		session.dstWriter = Writer.nullWriter();
+		return session;
+	}
+
+	/**
+	 * Runs all phases preceding the specified phase.
+	 *
+	 * @param session The compilation session bound to the current thread.
+	 * @param phase   The name of the phase.
+	 */
+	public static void runBefore(CompilationSession session, String phase) {
+		for (String prevPhase : phases) {
+			if (prevPhase.equals(phase))
+				return;
+			run(session, prevPhase);
+		}
+	}
+
+	/**
+	 * Runs the specified phase.
+	 *
+	 * @param session The compilation session bound to the current thread.
+	 * @param phase   The name of the phase.
+	 */
+	public static void run(CompilationSession session, String phase) {
+		switch (phase) {
+		case "synan":
+			try (LexAn lexan = new LexAn(); SynAn synan = new SynAn(lexan)) {
+				session.synanTree = synan.parse();
+			}
+			break;
+		case "abstr":
+			session.abstrTree = session.synanTree.ast;
+			session.synanTree = null;
+			break;
+		case "seman":
+			SemAn seman = new SemAn();
+			try {
+				session.abstrTree.accept(new NameResolver(), null);
+				session.abstrTree.accept(new TypeResolver(), null);
+				session.abstrTree.accept(new AddrResolver(), null);
+			} finally {
+				seman.close();
+			}
+			break;
+		case "memory":
+			Memory memory = new Memory();
+			try {
+				session.abstrTree.accept(new MemEvaluator(), null);
+			} finally {
+				memory.close();
+			}
+			break;
+		case "imcgen":
+			ImcGen imcgen = new ImcGen();
+			try {
+				session.abstrTree.accept(new CodeGenerator(), null);
+			} finally {
+				imcgen.close();
+			}
+			break;
+		case "imclin":
+			ImcLin imclin = new ImcLin();
+			try {
+				session.abstrTree.accept(new ChunkGenerator(), null);
+			} finally {
+				imclin.close();
+			}
+			break;
+		case "asmgen":
+			try (AsmGen asmgen = new AsmGen()) {
+				asmgen.genAsmCodes();
+			}
+			break;
+		case "livean":
+			try (LiveAn livean = new LiveAn()) {
+				livean.compLifetimes();
+			}
+			break;
+		case "regall":
+			try (RegAll regall = new RegAll(Integer.decode(session.cmdLineArgValue("--nregs")))) {
+				regall.allocate();
+				session.tempToReg = regall.tempToReg;
+			}
+			break;
+		case "all":
+			new MMIXTranslator(session.cmdLineArgValue("--dst-file-name"), session.tempToReg).translate();
+			break;
+		default:
+			throw new IllegalArgumentException(phase);
+		}
+	}
+
+}
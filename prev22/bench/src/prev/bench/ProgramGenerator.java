@@ -0,0 +1,337 @@
+package prev.bench;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * A generator of synthetic PREV'22 programs.
+ *
+ * The generated programs are valid, type-correct and self-contained, and they
+ * terminate when run. Their size and shape are controlled by a few knobs so
+ * that the compile time and memory of each phase can be related to the size of
+ * the input:
+ *
+ * <ul>
+ * <li>{@code functions}: the number of top-level functions; each of them calls
+ * the preceding one and {@code main} calls the last one;</li>
+ * <li>{@code statements}: the number of statements per function (assignments,
+ * conditionals and loops);</li>
+ * <li>{@code exprDepth}: the maximal depth of expressions;</li>
+ * <li>{@code whereDepth}: the nesting depth of {@code where}, i.e., the number
+ * of functions nested one within another within each top-level function; nested
+ * functions access variables of all enclosing functions;</li>
+ * <li>{@code liveVars}: the number of local variables of each function, all of
+ * which are live from the start of the function to its end;</li>
+ * <li>{@code loopDepth}: the maximal nesting depth of loops;</li>
+ * <li>{@code globals}: the number of global variables;</li>
+ * <li>{@code fields}: the number of components of the global record.</li>
+ * </ul>
+ *
+ * The same knobs and the same seed always produce the same program, and as
+ * every variable is stored into before it is read, the program computes the
+ * same result every time it is run.
+ */
+public class ProgramGenerator {
+
+	/** The number of top-level functions (apart from {@code main}). */
+	public int functions = 8;
+
+	/** The number of statements per function. */
+	public int statements = 50;
+
+	/** The maximal depth of expressions. */
+	public int exprDepth = 3;
+
+	/** The nesting depth of {@code where}. */
+	public int whereDepth = 1;
+
+	/** The number of local variables of each function. */
+	public int liveVars = 8;
+
+	/** The maximal nesting depth of loops. */
+	public int loopDepth = 2;
+
+	/** The number of global variables. */
+	public int globals = 16;
+
+	/** The number of components of the global record. */
+	public int fields = 8;
+
+	/** The seed of the pseudo-random number generator. */
+	public long seed = 0;
+
+	/** The pseudo-random number generator. */
+	private Random random;
+
+	/** The program being generated. */
+	private StringBuilder src;
+
+	/**
+	 * Sets a knob.
+	 *
+	 * @param knob  The name of the knob.
+	 * @param value The value of the knob.
+	 */
+	public void set(String knob, String value) {
+		switch (knob) {
+		case "functions" -> functions = Math.max(1, Integer.parseInt(value));
+		case "statements" -> statements = Math.max(0, Integer.parseInt(value));
+		case "exprDepth" -> exprDepth = Math.max(0, Integer.parseInt(value));
+		case "whereDepth" -> whereDepth = Math.max(0, Integer.parseInt(value));
+		case "liveVars" -> liveVars = Math.max(1, Integer.parseInt(value));
+		case "loopDepth" -> loopDepth = Math.max(0, Integer.parseInt(value));
+		case "globals" -> globals = Math.max(0, Integer.parseInt(value));
+		case "fields" -> fields = Math.max(0, Integer.parseInt(value));
+		case "seed" -> seed = Long.parseLong(value);
+		default -> throw new IllegalArgumentException("Unknown knob '" + knob + "'.");
+		}
+	}
+
+	/**
+	 * Generates a program.
+	 *
+	 * @return The source text of the program.
+	 */
+	public String generate() {
+		random = new Random(seed);
+		src = new StringBuilder();
+
+		Vector<String> globalVars = new Vector<String>();
+		if (fields > 0) {
+			src.append("typ Rec = {");
+			for (int f = 0; f < fields; f++)
+				src.append(f == 0 ? "" : ", ").append("f" + f + " : int");
+			src.append("}\n\n");
+			src.append("var rec : Rec\n");
+			for (int f = 0; f < fields; f++)
+				globalVars.add("rec.f" + f);
+		}
+		for (int g = 0; g < globals; g++) {
+			src.append("var g" + g + " : int\n");
+			globalVars.add("g" + g);
+		}
+		src.append("\n");
+
+		// Globals are initialized first so that every run computes the same result.
+		if (globalVars.isEmpty())
+			src.append("fun main() : int = f" + (functions - 1) + "(1, 2)\n");
+		else {
+			src.append("fun main() : int = {\n");
+			for (int v = 0; v < globalVars.size(); v++)
+				line(1, globalVars.get(v) + " = " + v + ";");
+			line(1, "f" + (functions - 1) + "(1, 2);");
+			src.append("}\n");
+		}
+		for (int f = 0; f < functions; f++) {
+			src.append("\n");
+			genFun(0, "f" + f, "", new String[] { "a", "b" }, globalVars, f == 0 ? null : "f" + (f - 1), 0);
+		}
+
+		String program = src.toString();
+		src = null;
+		random = null;
+		return program;
+	}
+
+	/**
+	 * Generates a function together with all functions nested within it.
+	 *
+	 * @param indent     The indentation.
+	 * @param name       The name of the function.
+	 * @param prefix     The prefix of the names of local variables.
+	 * @param pars       The names of parameters.
+	 * @param outerVars  Variables declared outside the function.
+	 * @param callee     The top-level function called by this function or
+	 *                   {@code null} if none.
+	 * @param whereLevel The nesting depth of the function.
+	 */
+	private void genFun(int indent, String name, String prefix, String[] pars, Vector<String> outerVars,
+			String callee, int whereLevel) {
+		Vector<String> locals = new Vector<String>();
+		for (int v = 0; v < liveVars; v++)
+			locals.add(prefix + "v" + v);
+		String[] counters = new String[loopDepth];
+		for (int l = 0; l < loopDepth; l++)
+			counters[l] = prefix + "c" + l;
+		String nested = whereLevel < whereDepth ? name + "_" + (whereLevel + 1) : null;
+
+		Vector<String> readable = new Vector<String>();
+		readable.addAll(Arrays.asList(pars));
+		readable.addAll(locals);
+		readable.addAll(outerVars);
+		Vector<String> writable = new Vector<String>();
+		writable.addAll(locals);
+		writable.addAll(outerVars);
+
+		line(indent, "fun " + name + "(" + String.join(" : int, ", pars) + " : int) : int = {");
+		Vector<String> init = new Vector<String>(Arrays.asList(pars));
+		for (String local : locals) {
+			line(indent + 1, local + " = " + genExpr(exprDepth, init) + ";");
+			init.add(local);
+		}
+		if (callee != null)
+			line(indent + 1, locals.get(0) + " = " + locals.get(0) + " + " + callee + "(" + genExpr(exprDepth, readable)
+					+ ", " + genExpr(exprDepth, readable) + ");");
+		if (nested != null)
+			line(indent + 1, locals.get(locals.size() - 1) + " = " + locals.get(locals.size() - 1) + " + " + nested
+					+ "(" + genExpr(exprDepth, readable) + ");");
+		genStmts(indent + 1, statements, 0, counters, readable, writable);
+		line(indent + 1, String.join(" + ", locals) + ";");
+		line(indent, "} where {");
+		for (String local : locals)
+			line(indent + 1, "var " + local + " : int");
+		for (String counter : counters)
+			line(indent + 1, "var " + counter + " : int");
+		if (nested != null) {
+			Vector<String> nestedOuterVars = new Vector<String>(locals);
+			nestedOuterVars.addAll(outerVars);
+			src.append("\n");
+			genFun(indent + 1, nested, prefix + "w" + (whereLevel + 1) + "_", new String[] { prefix + "x" },
+					nestedOuterVars, null, whereLevel + 1);
+		}
+		line(indent, "}");
+	}
+
+	/**
+	 * Generates a sequence of statements.
+	 *
+	 * @param indent    The indentation.
+	 * @param count     The number of statements.
+	 * @param loopLevel The nesting depth of loops.
+	 * @param counters  Loop counters, one per nesting depth.
+	 * @param readable  Variables that can be read.
+	 * @param writable  Variables that can be written to.
+	 */
+	private void genStmts(int indent, int count, int loopLevel, String[] counters, Vector<String> readable,
+			Vector<String> writable) {
+		while (count > 0) {
+			int kind = random.nextInt(10);
+			if ((kind < 2) && (loopLevel < counters.length) && (count > 1)) {
+				// A loop running exactly twice.
+				int bodyCount = 1 + random.nextInt(Math.min(count - 1, 8));
+				String counter = counters[loopLevel];
+				line(indent, counter + " = 0;");
+				line(indent, "while (" + counter + " < 2) do {");
+				genStmts(indent + 1, bodyCount, loopLevel + 1, counters, readable, writable);
+				line(indent + 1, counter + " = " + counter + " + 1;");
+				line(indent, "};");
+				count -= bodyCount + 1;
+			} else if ((kind < 4) && (count > 1)) {
+				// A conditional with both branches.
+				int thenCount = 1 + random.nextInt(Math.min(count - 1, 4));
+				int elseCount = random.nextInt(Math.min(count - thenCount, 4) + 1);
+				line(indent, "if " + genCond(readable) + " then {");
+				genStmts(indent + 1, thenCount, loopLevel, counters, readable, writable);
+				if (elseCount == 0)
+					line(indent, "} else none;");
+				else {
+					line(indent, "} else {");
+					genStmts(indent + 1, elseCount, loopLevel, counters, readable, writable);
+					line(indent, "};");
+				}
+				count -= thenCount + elseCount;
+			} else {
+				line(indent, pick(writable) + " = " + genExpr(exprDepth, readable) + ";");
+				count -= 1;
+			}
+		}
+	}
+
+	/**
+	 * Generates a condition.
+	 *
+	 * @param readable Variables that can be read.
+	 * @return The condition.
+	 */
+	private String genCond(Vector<String> readable) {
+		final String[] opers = { "==", "!=", "<", ">", "<=", ">=" };
+		String cond = "(" + genExpr(exprDepth - 1, readable) + " " + opers[random.nextInt(opers.length)] + " "
+				+ genExpr(exprDepth - 1, readable) + ")";
+		if (random.nextInt(4) == 0)
+			cond = "(" + cond + (random.nextBoolean() ? " & " : " | ") + genCond(readable) + ")";
+		return cond;
+	}
+
+	/**
+	 * Generates an integer expression.
+	 *
+	 * @param depth    The maximal depth of the expression.
+	 * @param readable Variables that can be read.
+	 * @return The expression.
+	 */
+	private String genExpr(int depth, Vector<String> readable) {
+		if ((depth <= 0) || (random.nextInt(4) == 0)) {
+			if (readable.isEmpty() || (random.nextInt(4) == 0))
+				return Integer.toString(random.nextInt(100));
+			return pick(readable);
+		}
+		switch (random.nextInt(6)) {
+		case 0:
+			// Division by a nonzero constant only.
+			return "(" + genExpr(depth - 1, readable) + (random.nextBoolean() ? " / " : " % ")
+					+ (1 + random.nextInt(9)) + ")";
+		case 1:
+			return "(" + genExpr(depth - 1, readable) + " * " + genExpr(depth - 1, readable) + ")";
+		case 2:
+			return "(" + genExpr(depth - 1, readable) + " - " + genExpr(depth - 1, readable) + ")";
+		default:
+			return "(" + genExpr(depth - 1, readable) + " + " + genExpr(depth - 1, readable) + ")";
+		}
+	}
+
+	/**
+	 * Picks a random variable.
+	 *
+	 * @param vars The variables.
+	 * @return The chosen variable.
+	 */
+	private String pick(Vector<String> vars) {
+		return vars.get(random.nextInt(vars.size()));
+	}
+
+	/**
+	 * Appends an indented line to the program.
+	 *
+	 * @param indent The indentation.
+	 * @param line   The line.
+	 */
+	private void line(int indent, String line) {
+		src.append("\t".repeat(indent)).append(line).append("\n");
+	}
+
+	/**
+	 * Writes a generated program to a file or to the standard output.
+	 *
+	 * @param args Knobs as {@code --knob=value} and optionally
+	 *             {@code --out=file}.
+	 */
+	public static void main(String[] args) throws IOException {
+		ProgramGenerator generator = new ProgramGenerator();
+		String out = null;
+		for (String arg : args) {
+			if (!arg.matches("--[a-zA-Z]+=.*")) {
+				System.err.println(":-( Invalid argument '" + arg + "'.");
+				System.exit(1);
+			}
+			String knob = arg.substring(2, arg.indexOf('='));
+			String value = arg.substring(arg.indexOf('=') + 1);
+			if (knob.equals("out")) {
+				out = value;
+				continue;
+			}
+			try {
+				generator.set(knob, value);
+			} catch (IllegalArgumentException __) {
+				System.err.println(":-( Invalid argument '" + arg + "'.");
+				System.exit(1);
+			}
+		}
+		String program = generator.generate();
+		if (out == null)
+			System.out.print(program);
+		else
+			Files.writeString(Path.of(out), program);
+	}
+
+}
@@ -0,0 +1,46 @@
+package prev.bench;
+
+import java.io.*;
+import java.nio.file.*;
+
+/**
+ * Source texts of the programs the compiler is benchmarked on.
+ */
+public class Programs {
+
+	/**
+	 * The directory containing the programs, set by the system property
+	 * {@code prev.prg} (by default {@code ../prg}).
+	 */
+	private static final Path prgDir = Path.of(System.getProperty("prev.prg", "../prg"));
+
+	/**
+	 * Returns the name of the source file of the specified program.
+	 *
+	 * @param program The name of the program.
+	 * @return The name of the source file.
+	 */
+	public static String srcFileName(String program) {
+		return prgDir.resolve(program + ".p22").toString();
+	}
+
+	/**
+	 * Returns the source text of the specified program. Just like {@code make run}
+	 * does, the standard library is appended to all programs except to those
+	 * named {@code extra_*} which are self-contained.
+	 *
+	 * @param program The name of the program.
+	 * @return The source text.
+	 */
+	public static String srcText(String program) {
+		try {
+			String srcText = Files.readString(prgDir.resolve(program + ".p22"));
+			if (!program.startsWith("extra_"))
+				srcText += Files.readString(prgDir.resolve("stdlib.p22"));
+			return srcText;
+		} catch (IOException __) {
+			throw new UncheckedIOException(__);
+		}
+	}
+
+}
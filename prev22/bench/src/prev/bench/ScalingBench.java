@@ -0,0 +1,118 @@
+package prev.bench;
+
+import java.util.concurrent.*;
+
+import org.openjdk.jmh.annotations.*;
+
+import prev.*;
+
+/**
+ * Benchmarks of the compiler's phases on synthetic programs of growing size
+ * (see {@link ProgramGenerator}).
+ *
+ * By default only the number of statements per function grows; any other knob
+ * can be swept instead by overriding its parameter, e.g., {@code -p
+ * whereDepth=1,2,4,8}. Run with {@code -prof gc} to relate allocation to the
+ * size of the input as well.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class ScalingBench {
+
+	/**
+	 * The synthetic program being compiled.
+	 */
+	@State(Scope.Benchmark)
+	public static class Program {
+
+		@Param({ "4" })
+		public String functions;
+
+		@Param({ "25", "50", "100", "200", "400" })
+		public String statements;
+
+		@Param({ "3" })
+		public String exprDepth;
+
+		@Param({ "1" })
+		public String whereDepth;
+
+		@Param({ "8" })
+		public String liveVars;
+
+		@Param({ "2" })
+		public String loopDepth;
+
+		@Param({ "16" })
+		public String globals;
+
+		@Param({ "8" })
+		public String fields;
+
+		/** The number of registers. */
+		@Param({ "32" })
+		public int nregs;
+
+		/** The source text. */
+		String srcText;
+
+		@Setup(Level.Trial)
+		public void generate() {
+			ProgramGenerator generator = new ProgramGenerator();
+			generator.set("functions", functions);
+			generator.set("statements", statements);
+			generator.set("exprDepth", exprDepth);
+			generator.set("whereDepth", whereDepth);
+			generator.set("liveVars", liveVars);
+			generator.set("loopDepth", loopDepth);
+			generator.set("globals", globals);
+			generator.set("fields", fields);
+			srcText = generator.generate();
+		}
+
+	}
+
+	/**
+	 * A compilation session in which all phases preceding the measured one have
+	 * already been run.
+	 */
+	@State(Scope.Thread)
+	public static class Prepared {
+
+		/** The measured phase (see {@link Pipeline#phases}). */
+		@Param({ "synan", "abstr", "seman", "memory", "imcgen", "imclin", "asmgen", "livean", "regall", "all" })
+		public String phase;
+
+		/** The compilation session. */
+		CompilationSession session;
+
+		@Setup(Level.Invocation)
+		public void prepare(Program program) {
+			session = Pipeline.open("synthetic.p22", program.srcText, program.nregs);
+			Pipeline.runBefore(session, phase);
+		}
+
+		@TearDown(Level.Invocation)
+		public void close() {
+			session.close();
+			session = null;
+		}
+
+	}
+
+	/**
+	 * Measures a single phase.
+	 *
+	 * @param prepared The compilation session prepared for the phase.
+	 * @return The compilation session (to keep the results alive).
+	 */
+	@Benchmark
+	public CompilationSession phase(Prepared prepared) {
+		Pipeline.run(prepared.session, prepared.phase);
+		return prepared.session;
+	}
+
+}
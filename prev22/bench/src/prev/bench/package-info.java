@@ -0,0 +1,4 @@
+/**
+ * JMH benchmarks of the compiler.
+ */
+package prev.bench;
@@ -0,0 +1,599 @@
+package prev;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.function.*;
+
+import prev.common.report.*;
+import prev.common.stats.*;
+import prev.data.asm.*;
+import prev.data.ast.attribute.*;
+import prev.data.ast.tree.*;
+import prev.data.ast.tree.decl.*;
+import prev.data.ast.tree.expr.*;
+import prev.data.ast.tree.stmt.*;
+import prev.data.ast.tree.type.*;
+import prev.data.imc.code.expr.*;
+import prev.data.imc.code.stmt.*;
+import prev.data.lin.*;
+import prev.data.mem.*;
+import prev.data.typ.*;
+import prev.phase.all.*;
+import prev.phase.synan.*;
+
+/**
+ * A compilation session.
+ *
+ * A session owns everything a single compilation of a single source file
+ * produces: the values of command line arguments, the results of all phases and
+ * the counters used for numbering abstract syntax tree nodes, temporary
+ * variables and labels. While a session is open it is bound to the thread that
+ * opened it, so that phases can find it through {@link #current()}. Different
+ * threads can therefore run different sessions at the same time without
+ * interfering with each other.
+ */
+public class CompilationSession implements AutoCloseable {
+
+	/** The session bound to the current thread. */
+	private static final ThreadLocal<CompilationSession> current = new ThreadLocal<CompilationSession>();
+
+	/**
+	 * Returns the session bound to the current thread.
+	 *
+	 * @return The session bound to the current thread.
+	 */
+	public static CompilationSession current() {
+		CompilationSession session = current.get();
+		if (session == null)
+			throw new Report.InternalError();
+		return session;
+	}
+
+	/**
+	 * Returns the session bound to the current thread if there is one.
+	 *
+	 * @return The session bound to the current thread or {@code null} if no
+	 *         session is bound to it.
+	 */
+	public static CompilationSession currentOrNull() {
+		return current.get();
+	}
+
+	/** Values of command line arguments. */
+	private final HashMap<String, String> cmdLine;
+
+	/** The session bound to the current thread before this one was opened. */
+	private final CompilationSession enclosing;
+
+	/** The stream information messages and program output are printed to. */
+	public final PrintStream out;
+
+	/** The stream warnings and errors are printed to. */
+	public final PrintStream err;
+
+	/**
+	 * The source text or {@code null} if the source is read from the source file.
+	 */
+	public String srcText = null;
+
+	/**
+	 * The writer MMIX code is written to or {@code null} if MMIX code is written to
+	 * the destination file.
+	 */
+	public Writer dstWriter = null;
+
+	/** Statistics of this compilation. */
+	public final Stats stats;
+
+	/** Whether information messages are printed. */
+	public final boolean debug;
+
+	/** The categories information messages are printed for or {@code null} for all. */
+	private final Set<String> debugCategories;
+
+	/** The most detailed level of information messages printed. */
+	private final Report.Level debugLevel;
+
+	/**
+	 * The stream information messages are printed to instead of {@link #out} or
+	 * {@code null} if they are printed to {@link #out}.
+	 */
+	private final PrintStream debugSink;
+
+	/**
+	 * Opens a new session printing to the standard streams and binds it to the
+	 * current thread.
+	 *
+	 * @param cmdLine Values of command line arguments.
+	 */
+	public CompilationSession(HashMap<String, String> cmdLine) {
+		this(cmdLine, System.out, System.err);
+	}
+
+	/**
+	 * Opens a new session and binds it to the current thread.
+	 *
+	 * @param cmdLine Values of command line arguments.
+	 * @param out     The stream information messages and program output are
+	 *                printed to.
+	 * @param err     The stream warnings and errors are printed to.
+	 */
+	public CompilationSession(HashMap<String, String> cmdLine, PrintStream out, PrintStream err) {
+		this.cmdLine = new HashMap<String, String>(cmdLine);
+		this.out = out;
+		this.err = err;
+		this.stats = new Stats(cmdLine.get("--src-file-name"), cmdLine.get("--stats"));
+		String debug = cmdLine.get("--debug");
+		this.debug = debug != null;
+		this.debugCategories = (debug == null) || debug.equals("all") ? null
+				: new HashSet<String>(Arrays.asList(debug.split(",")));
+		String debugLevel = cmdLine.get("--debug-level");
+		this.debugLevel = debugLevel == null ? Report.Level.TRACE : Report.Level.valueOf(debugLevel.toUpperCase());
+		String debugFileName = cmdLine.get("--debug-file");
+		if ((debugFileName != null) && this.debug) {
+			try {
+				this.debugSink = new PrintStream(new FileOutputStream(debugFileName), true);
+			} catch (IOException __) {
+				throw new Report.Error("Cannot open file '" + debugFileName + "'.");
+			}
+		} else
+			this.debugSink = null;
+		this.enclosing = current.get();
+		current.set(this);
+	}
+
+	/**
+	 * Closes this session, writes out its statistics, closes the file information
+	 * messages are printed to and rebinds the session that was bound to the
+	 * current thread before this one was opened.
+	 */
+	@Override
+	public void close() {
+		if (current.get() != this)
+			throw new Report.InternalError();
+		try {
+			stats.write();
+		} finally {
+			if (debugSink != null)
+				debugSink.close();
+			if (enclosing == null)
+				current.remove();
+			else
+				current.set(enclosing);
+		}
+	}
+
+	/**
+	 * Returns the value of a command line argument.
+	 *
+	 * @param cmdLineArgName The name of the command line argument.
+	 * @return The value of the specified command line argument or {@code null} if
+	 *         the specified command line argument has not been used.
+	 */
+	public String cmdLineArgValue(String cmdLineArgName) {
+		return cmdLine.get(cmdLineArgName);
+	}
+
+	// INFORMATION MESSAGES
+
+	/**
+	 * Tells whether information messages of the specified category and level are
+	 * printed (see {@link Report#enabled}).
+	 *
+	 * @param category The category, i.e., the name of the phase.
+	 * @param level    The level of detail.
+	 * @return {@code true} if the information messages are printed.
+	 */
+	public boolean debugEnabled(String category, Report.Level level) {
+		return debug && (level.compareTo(debugLevel) <= 0)
+				&& ((debugCategories == null) || debugCategories.contains(category));
+	}
+
+	/**
+	 * Returns the stream information messages are printed to.
+	 *
+	 * @return The file specified by {@code --debug-file} or the output stream.
+	 */
+	public PrintStream debugOut() {
+		return debugSink == null ? out : debugSink;
+	}
+
+	/**
+	 * The number of information messages printed so far (by any thread the
+	 * session is bound to).
+	 */
+	private final AtomicInteger numInfos = new AtomicInteger();
+
+	/** The number of warnings printed so far (by any thread the session is bound to). */
+	private final AtomicInteger numWarnings = new AtomicInteger();
+
+	/**
+	 * Counts an information message printed.
+	 */
+	public void countInfo() {
+		numInfos.incrementAndGet();
+	}
+
+	/**
+	 * Returns the number of information messages printed so far.
+	 *
+	 * @return The number of information messages printed so far.
+	 */
+	public int numInfos() {
+		return numInfos.get();
+	}
+
+	/**
+	 * Counts a warning printed.
+	 */
+	public void countWarning() {
+		numWarnings.incrementAndGet();
+	}
+
+	/**
+	 * Returns the number of warnings printed so far.
+	 *
+	 * @return The number of warnings printed so far.
+	 */
+	public int numWarnings() {
+		return numWarnings.get();
+	}
+
+	// COUNTERS
+
+	/** The number of abstract syntax tree nodes constructed so far. */
+	private int numNodes = 0;
+
+	/** Maps names to their symbols (see {@link #symbol}). */
+	private final HashMap<String, Integer> symbols = new HashMap<String, Integer>();
+
+	/** The number of temporary variables created so far. */
+	private long numTemps = 0;
+
+	/** The number of anonymous labels created so far. */
+	private long numLabels = 0;
+
+	/**
+	 * The prefix of names of anonymous labels (see
+	 * {@link prev.phase.all.Library#labelPrefix}).
+	 */
+	public String labelPrefix = "L";
+
+	/**
+	 * The number of temporary variables created so far within each function's
+	 * block (see {@link #forEachCode}).
+	 */
+	private final ConcurrentHashMap<Integer, Long> numBlockTemps = new ConcurrentHashMap<Integer, Long>();
+
+	/**
+	 * The block temporary variables created by the current thread belong to or
+	 * {@code null} if they are not created within a block.
+	 */
+	private final ThreadLocal<Integer> block = new ThreadLocal<Integer>();
+
+	/**
+	 * Returns a new unique id of an abstract syntax tree node.
+	 *
+	 * @return A new unique id of an abstract syntax tree node.
+	 */
+	public int newNodeId() {
+		return numNodes++;
+	}
+
+	/**
+	 * Returns the number of abstract syntax tree nodes constructed so far.
+	 *
+	 * @return The number of abstract syntax tree nodes constructed so far.
+	 */
+	public int numNodes() {
+		return numNodes;
+	}
+
+	/**
+	 * Discards the ids of abstract syntax tree nodes constructed after the
+	 * specified number of nodes so that they are handed out again.
+	 *
+	 * @param numNodes The number of nodes to keep.
+	 */
+	public void discardNodeIds(int numNodes) {
+		this.numNodes = numNodes;
+	}
+
+	/**
+	 * Returns the symbol of a name, i.e., a small integer that is the same for all
+	 * occurrences of the name within the compilation session.
+	 *
+	 * @param name The name.
+	 * @return The symbol of the name.
+	 */
+	public int symbol(String name) {
+		Integer symbol = symbols.get(name);
+		if (symbol == null) {
+			symbol = symbols.size();
+			symbols.put(name, symbol);
+		}
+		return symbol;
+	}
+
+	/**
+	 * Returns the number of symbols of names constructed so far.
+	 *
+	 * @return The number of symbols of names constructed so far.
+	 */
+	public int numSymbols() {
+		return symbols.size();
+	}
+
+	/**
+	 * Returns a new unique name of a temporary variable. Within a function's block
+	 * (see {@link #forEachCode}) the upper half of the name is the block's number
+	 * increased by one and the lower half counts the temporary variables of the
+	 * block.
+	 *
+	 * @return A new unique name of a temporary variable.
+	 */
+	public long newTemp() {
+		Integer block = this.block.get();
+		if (block == null)
+			return numTemps++;
+		long blockTemp = numBlockTemps.merge(block, 1L, Long::sum) - 1;
+		return ((long) (block + 1) << 32) | blockTemp;
+	}
+
+	/**
+	 * Returns a new unique number of an anonymous label.
+	 *
+	 * @return A new unique number of an anonymous label.
+	 */
+	public long newLabel() {
+		return numLabels++;
+	}
+
+	// PARALLEL BACKEND
+
+	/**
+	 * Runs a task for every function of the program on the common fork-join pool.
+	 * Each task runs with this session bound to its thread and creates temporary
+	 * variables within the block of its function, so the names of temporary
+	 * variables (and thus the produced code) do not depend on how the tasks are
+	 * scheduled. A function's tasks of different phases share its block.
+	 *
+	 * @param <T>      The type of the tasks' results.
+	 * @param numCodes The number of functions.
+	 * @param task     The task, given the index of a function.
+	 * @return The tasks' results in the order of functions.
+	 */
+	public <T> Vector<T> forEachCode(int numCodes, IntFunction<T> task) {
+		return invokeAll(numCodes, task, true);
+	}
+
+	/**
+	 * Runs a number of tasks on the common fork-join pool. Each task runs with
+	 * this session bound to its thread; the tasks must not create temporary
+	 * variables.
+	 *
+	 * @param <T>      The type of the tasks' results.
+	 * @param numTasks The number of tasks.
+	 * @param task     The task, given its index.
+	 * @return The tasks' results in the order of their indices.
+	 */
+	public <T> Vector<T> forEachTask(int numTasks, IntFunction<T> task) {
+		return invokeAll(numTasks, task, false);
+	}
+
+	/**
+	 * Runs a number of tasks on the common fork-join pool.
+	 *
+	 * @param <T>      The type of the tasks' results.
+	 * @param numTasks The number of tasks.
+	 * @param task     The task, given its index.
+	 * @param inBlocks Whether each task runs within the block of the function
+	 *                 with the same index.
+	 * @return The tasks' results in the order of their indices.
+	 */
+	private <T> Vector<T> invokeAll(int numTasks, IntFunction<T> task, boolean inBlocks) {
+		Vector<T> results = new Vector<T>();
+		if (numTasks == 1) {
+			results.add(runInBlock(0, task, inBlocks));
+			return results;
+		}
+		Vector<Callable<T>> tasks = new Vector<Callable<T>>();
+		for (int i = 0; i < numTasks; i++) {
+			int index = i;
+			tasks.add(() -> runInBlock(index, task, inBlocks));
+		}
+		for (Future<T> future : ForkJoinPool.commonPool().invokeAll(tasks)) {
+			try {
+				results.add(future.get());
+			} catch (ExecutionException __) {
+				if (__.getCause() instanceof RuntimeException)
+					throw (RuntimeException) __.getCause();
+				if (__.getCause() instanceof Error)
+					throw (Error) __.getCause();
+				throw new Report.InternalError();
+			} catch (InterruptedException __) {
+				Thread.currentThread().interrupt();
+				throw new Report.InternalError();
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * Runs a task with this session bound to the current thread and, if
+	 * requested, within the specified function's block of temporary variables.
+	 * The bytes the task allocates are counted in the statistics of the phase
+	 * running.
+	 *
+	 * @param <T>     The type of the task's result.
+	 * @param index   The index of the function.
+	 * @param task    The task, given the index of the function.
+	 * @param inBlock Whether the task runs within the function's block.
+	 * @return The task's result.
+	 */
+	private <T> T runInBlock(int index, IntFunction<T> task, boolean inBlock) {
+		CompilationSession enclosingSession = current.get();
+		Integer enclosingBlock = block.get();
+		current.set(this);
+		if (inBlock)
+			block.set(index);
+		else
+			block.remove();
+		try {
+			return stats.measure(() -> task.apply(index));
+		} finally {
+			if (enclosingBlock == null)
+				block.remove();
+			else
+				block.set(enclosingBlock);
+			if (enclosingSession == null)
+				current.remove();
+			else
+				current.set(enclosingSession);
+		}
+	}
+
+	// LIFETIMES OF RESULTS OF PHASES
+
+	/**
+	 * Results of phases that are released once the last phase consuming them has
+	 * finished (see {@link #releaseProducts}).
+	 */
+	public enum Product {
+
+		/** The parse tree. */
+		PARSE_TREE("synan", "abstr"),
+
+		/**
+		 * The abstract syntax tree together with declarations and types of names and
+		 * memory layout of declarations. Compiling a library, linking libraries or
+		 * using the cache needs them until the end of compilation.
+		 */
+		AST("abstr", "imclin"),
+
+		/** Types of expressions and lvalues. */
+		EXPR_TYPES("seman", "imcgen"),
+
+		/** Intermediate code of statements and expressions. */
+		IMC("imcgen", "imclin"),
+
+		/** Statements of code chunks (but not their frames and labels). */
+		CODE_STMTS("imclin", "asmgen");
+
+		/** The phase producing the result. */
+		public final String producer;
+
+		/** The last phase consuming the result. */
+		public final String lastConsumer;
+
+		Product(String producer, String lastConsumer) {
+			this.producer = producer;
+			this.lastConsumer = lastConsumer;
+		}
+
+	}
+
+	/**
+	 * Releases the results of phases that are not needed once the specified phase
+	 * has finished.
+	 *
+	 * @param phaseName The name of the phase that has finished.
+	 */
+	public void releaseProducts(String phaseName) {
+		for (Product product : Product.values()) {
+			if (!product.lastConsumer.equals(phaseName))
+				continue;
+			if ((product == Product.AST) && ((cmdLineArgValue("--library") != null)
+					|| (cmdLineArgValue("--link") != null) || (cmdLineArgValue("--cache") != null)))
+				continue;
+			switch (product) {
+			case PARSE_TREE:
+				synanTree = null;
+				break;
+			case AST:
+				abstrTree = null;
+				declaredAt.release();
+				declaresType.release();
+				isType.release();
+				frames.release();
+				accesses.release();
+				strings.release();
+				break;
+			case EXPR_TYPES:
+				ofType.release();
+				isAddr.release();
+				break;
+			case IMC:
+				stmtImc.release();
+				exprImc.release();
+				break;
+			case CODE_STMTS:
+				for (LinCodeChunk codeChunk : codeChunks)
+					codeChunk.releaseStmts();
+				break;
+			}
+		}
+	}
+
+	// RESULTS OF PHASES
+
+	/** The parse tree (see {@link prev.phase.synan.SynAn}). */
+	public PrevParser.SourceContext synanTree;
+
+	/** The abstract syntax tree (see {@link prev.phase.abstr.Abstr}). */
+	public AstTree abstrTree;
+
+	/** The types of the program (see {@link prev.phase.seman.SemAn}). */
+	public final SemTypeFactory types = new SemTypeFactory();
+
+	/** Maps names to declarations. */
+	public final AstAttribute<AstName, AstDecl> declaredAt = new DenseAstAttribute<AstName, AstDecl>(0);
+
+	/** Maps type declarations to semantic representations of types. */
+	public final AstAttribute<AstTypeDecl, SemName> declaresType = new SparseAstAttribute<AstTypeDecl, SemName>();
+
+	/** Maps syntax types to semantic representations of types. */
+	public final AstAttribute<AstType, SemType> isType = new SparseAstAttribute<AstType, SemType>();
+
+	/** Maps syntax expressions to semantic representations of types. */
+	public final AstAttribute<AstExec, SemType> ofType = new DenseAstAttribute<AstExec, SemType>(0);
+
+	/** Indicates which syntax expressions denote lvalues. */
+	public final AstAttribute<AstExpr, Boolean> isAddr = new BoolAstAttribute<AstExpr>();
+
+	/** Maps function declarations to frames. */
+	public final AstAttribute<AstFunDecl, MemFrame> frames = new SparseAstAttribute<AstFunDecl, MemFrame>();
+
+	/** Maps variable declarations to accesses. */
+	public final AstAttribute<AstMemDecl, MemAccess> accesses = new SparseAstAttribute<AstMemDecl, MemAccess>();
+
+	/** Maps string constants to accesses. */
+	public final AstAttribute<AstAtomExpr, MemAbsAccess> strings = new SparseAstAttribute<AstAtomExpr, MemAbsAccess>();
+
+	/** Maps statements to intermediate code. */
+	public final AstAttribute<AstStmt, ImcStmt> stmtImc = new DenseAstAttribute<AstStmt, ImcStmt>(0);
+
+	/** Maps expressions to intermediate code. */
+	public final AstAttribute<AstExpr, ImcExpr> exprImc = new DenseAstAttribute<AstExpr, ImcExpr>(0);
+
+	/** All data chunks of the program. */
+	public final Vector<LinDataChunk> dataChunks = new Vector<LinDataChunk>();
+
+	/** All code chunks of the program. */
+	public final Vector<LinCodeChunk> codeChunks = new Vector<LinCodeChunk>();
+
+	/** Machine code of all functions of the program. */
+	public final Vector<Code> codes = new Vector<Code>();
+
+	/** Mapping of temporary variables to registers (see {@link prev.phase.regall.RegAll}). */
+	public HashMap<MemTemp, Integer> tempToReg;
+
+	/**
+	 * The cache of MMIX code of functions or {@code null} if not used (see
+	 * {@link prev.phase.all.CodeCache}).
+	 */
+	public CodeCache codeCache = null;
+
+}
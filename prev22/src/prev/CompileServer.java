@@ -0,0 +1,422 @@
+package prev;
+
+import java.io.*;
+import java.net.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.nio.file.attribute.*;
+import java.security.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import prev.common.report.*;
+
+/**
+ * A resident compile server.
+ *
+ * The server listens on a loopback TCP port or on a UNIX-domain socket and
+ * compiles source texts sent by clients, each within its own compilation
+ * session. The JVM start-up and the construction of the lexer's and parser's
+ * DFA caches, which are shared by all lexers and parsers within the JVM, are
+ * thus paid only once. Every connection is served on its own thread, and at
+ * most four connections per processor are served at the same time.
+ *
+ * The protocol is line oriented. A request is either
+ *
+ * <pre>
+ * COMPILE token n [switches] [name]
+ * </pre>
+ *
+ * followed by exactly {@code n} bytes of source text, where switches are the
+ * usual command line switches (see {@link prev.Compiler}) and name is the name
+ * of the source file used in logs, or
+ *
+ * <pre>
+ * STOP token
+ * </pre>
+ *
+ * which stops the server. Files named in requests (the source file, from whose
+ * name the names of logs and library interfaces are derived, logs, statistics,
+ * the cache and linked libraries) must lie within the server's work directory
+ * (see {@code --server-dir}, the current directory by default), and relative
+ * names are taken relative to it. As the server writes these files as its
+ * owner, the token of every request must be the one the server writes at
+ * start-up into a file readable by its owner only, i.e.,
+ * {@code .prevc-port.token} in the owner's home directory or the name of the
+ * UNIX-domain socket followed by {@code .token}.
+ *
+ * Each line of the response starts with a tag and a space: {@code O} marks the
+ * compiler's output (including the output of the interpreted program),
+ * {@code E} marks warnings and errors, {@code M} marks the produced MMIX code,
+ * and the final line {@code X} carries the exit status, i.e., 0 on success and
+ * 1 otherwise. A single connection can carry many
+ * requests.
+ */
+public class CompileServer {
+
+	/** Command line switches that are not allowed within requests. */
+	private static final String[] serverOnlySwitches = { "--batch", "--threads", "--server", "--server-dir",
+			"--debug-file", "--dst-file-name" };
+
+	/** Command line switches naming a single file or directory. */
+	private static final String[] pathSwitches = { "--src-file-name", "--xml", "--stats", "--cache" };
+
+	/** The port number or the name of the UNIX-domain socket. */
+	private final String address;
+
+	/** The directory all files named in requests must lie within. */
+	private final Path workDir;
+
+	/** The file the token of requests is written to. */
+	private final Path tokenFile;
+
+	/** The token of requests. */
+	private final String token;
+
+	/** The maximal number of connections served at the same time. */
+	private static final int maxConnections = 4 * Runtime.getRuntime().availableProcessors();
+
+	/** Threads serving connections. */
+	private final ThreadPoolExecutor workers = new ThreadPoolExecutor(0, maxConnections, 60, TimeUnit.SECONDS,
+			new SynchronousQueue<Runnable>());
+
+	/** The listening socket. */
+	private ServerSocketChannel server;
+
+	/**
+	 * Constructs a new compile server.
+	 *
+	 * @param address     The loopback port number or the name of the UNIX-domain
+	 *                    socket.
+	 * @param workDirName The name of the work directory or {@code null} for the
+	 *                    current directory.
+	 */
+	public CompileServer(String address, String workDirName) {
+		this.address = address;
+		try {
+			this.workDir = Path.of(workDirName == null ? "" : workDirName).toRealPath();
+		} catch (IOException | InvalidPathException __) {
+			throw new Report.Error("Cannot use '" + workDirName + "' as the work directory.");
+		}
+		if (address.matches("[0-9]+"))
+			this.tokenFile = Path.of(System.getProperty("user.home"), ".prevc-" + address + ".token");
+		else
+			this.tokenFile = Path.of(address + ".token");
+		byte[] bytes = new byte[16];
+		new SecureRandom().nextBytes(bytes);
+		this.token = HexFormat.of().formatHex(bytes);
+	}
+
+	/**
+	 * Accepts and serves connections until a {@code STOP} request is received.
+	 */
+	public void serve() {
+		try {
+			if (address.matches("[0-9]+")) {
+				server = ServerSocketChannel.open(StandardProtocolFamily.INET);
+				server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(address)));
+			} else {
+				server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+				server.bind(UnixDomainSocketAddress.of(address));
+			}
+		} catch (IOException | IllegalArgumentException __) {
+			throw new Report.Error("Cannot listen on '" + address + "'.");
+		}
+		try {
+			Files.deleteIfExists(tokenFile);
+			Files.createFile(tokenFile,
+					PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+			Files.writeString(tokenFile, token + "\n");
+		} catch (IOException | UnsupportedOperationException __) {
+			try {
+				server.close();
+			} catch (IOException ___) {
+			}
+			throw new Report.Error("Cannot write to file '" + tokenFile + "'.");
+		}
+		System.out.println(":-) Listening on '" + address + "' within '" + workDir + "'.");
+
+		try {
+			while (true) {
+				SocketChannel client = server.accept();
+				try {
+					workers.execute(() -> serve(client));
+				} catch (RejectedExecutionException __) {
+					refuse(client);
+				}
+			}
+		} catch (ClosedChannelException __) {
+			// Stopped by a client.
+		} catch (IOException __) {
+			throw new Report.Error("Cannot accept connections on '" + address + "'.");
+		} finally {
+			workers.shutdown();
+			try {
+				server.close();
+				if (!address.matches("[0-9]+"))
+					Files.deleteIfExists(Path.of(address));
+				Files.deleteIfExists(tokenFile);
+			} catch (IOException __) {
+			}
+		}
+	}
+
+	/**
+	 * Refuses a connection as too many connections are being served.
+	 *
+	 * @param client The connection.
+	 */
+	private static void refuse(SocketChannel client) {
+		try (client; OutputStream out = Channels.newOutputStream(client)) {
+			Response response = new Response(out);
+			response.line('E', ":-( Too many connections.");
+			response.exit(1);
+		} catch (IOException __) {
+		}
+	}
+
+	/**
+	 * Serves all requests of a single connection.
+	 *
+	 * @param client The connection.
+	 */
+	private void serve(SocketChannel client) {
+		try (client;
+				InputStream in = new BufferedInputStream(Channels.newInputStream(client));
+				OutputStream out = new BufferedOutputStream(Channels.newOutputStream(client))) {
+			Response response = new Response(out);
+			String request;
+			while ((request = readLine(in)) != null) {
+				String[] words = request.trim().split("\\s+");
+				if (!(words[0].equals("STOP") && (words.length == 2))
+						&& !(words[0].equals("COMPILE") && (words.length >= 3) && words[2].matches("[0-9]{1,9}"))) {
+					response.line('E', ":-( Malformed request.");
+					response.exit(1);
+					return;
+				}
+				if (!MessageDigest.isEqual(words[1].getBytes(StandardCharsets.UTF_8),
+						token.getBytes(StandardCharsets.UTF_8))) {
+					response.line('E', ":-( Unauthorized request.");
+					response.exit(1);
+					return;
+				}
+				if (words[0].equals("STOP")) {
+					response.exit(0);
+					server.close();
+					return;
+				}
+				byte[] srcText = in.readNBytes(Integer.parseInt(words[2]));
+				if (srcText.length < Integer.parseInt(words[2]))
+					return;
+				response.exit(compile(Arrays.copyOfRange(words, 3, words.length),
+						new String(srcText, StandardCharsets.UTF_8), response));
+			}
+		} catch (IOException __) {
+			// The client has gone away.
+		}
+	}
+
+	/**
+	 * Compiles a source text within a new compilation session.
+	 *
+	 * @param args     Command line switches and the name of the source file.
+	 * @param srcText  The source text.
+	 * @param response The response the output of the compiler is sent with.
+	 * @return The exit status.
+	 */
+	private int compile(String[] args, String srcText, Response response) {
+		TaggedStream out = new TaggedStream('O', response);
+		TaggedStream err = new TaggedStream('E', response);
+		TaggedStream dst = new TaggedStream('M', response);
+		PrintStream outStream = new PrintStream(out, true, StandardCharsets.UTF_8);
+		PrintStream errStream = new PrintStream(err, true, StandardCharsets.UTF_8);
+		Writer dstWriter = new OutputStreamWriter(dst, StandardCharsets.UTF_8);
+		try {
+			// Scan the switches within a session so that warnings reach the client.
+			HashMap<String, String> cmdLine = new HashMap<>();
+			Vector<String> srcFileNames = new Vector<>();
+			CompilationSession scanSession = new CompilationSession(cmdLine, outStream, errStream);
+			try {
+				Compiler.scanCmdLine(args, cmdLine, srcFileNames);
+				for (String serverOnlySwitch : serverOnlySwitches) {
+					if (cmdLine.remove(serverOnlySwitch) != null)
+						Report.warning("Command line argument '" + serverOnlySwitch + "' ignored.");
+				}
+				for (int i = 1; i < srcFileNames.size(); i++)
+					Report.warning("Source file '" + srcFileNames.get(i) + "' ignored.");
+				cmdLine.put("--src-file-name", srcFileNames.isEmpty() ? "source.p22" : srcFileNames.get(0));
+				confine(cmdLine);
+			} finally {
+				scanSession.close();
+			}
+
+			try (CompilationSession session = new CompilationSession(cmdLine, outStream, errStream)) {
+				session.srcText = srcText;
+				session.dstWriter = dstWriter;
+				Compiler.compile(session);
+			}
+			return 0;
+		} catch (Report.Error __) {
+			return 1;
+		} catch (RuntimeException | StackOverflowError __) {
+			errStream.println(":-( Internal error.");
+			return 1;
+		} finally {
+			outStream.flush();
+			errStream.flush();
+			out.finish();
+			err.finish();
+			dst.finish();
+		}
+	}
+
+	/**
+	 * Replaces the names of files in the switches of a request by their paths
+	 * within the work directory.
+	 *
+	 * @param cmdLine The switches.
+	 */
+	private void confine(HashMap<String, String> cmdLine) {
+		for (String pathSwitch : pathSwitches) {
+			if (cmdLine.get(pathSwitch) != null)
+				cmdLine.put(pathSwitch, confine(cmdLine.get(pathSwitch)));
+		}
+		if (cmdLine.get("--link") != null) {
+			StringJoiner libNames = new StringJoiner(",");
+			for (String libName : cmdLine.get("--link").split(","))
+				libNames.add(confine(libName));
+			cmdLine.put("--link", libNames.toString());
+		}
+	}
+
+	/**
+	 * Returns the path of a file within the work directory.
+	 *
+	 * @param fileName The name of the file.
+	 * @return The path of the file.
+	 */
+	private String confine(String fileName) {
+		try {
+			Path path = workDir.resolve(fileName).normalize();
+			// Symbolic links must not lead out of the work directory either.
+			Path dir = path;
+			while ((dir != null) && !Files.exists(dir, LinkOption.NOFOLLOW_LINKS))
+				dir = dir.getParent();
+			if (path.startsWith(workDir) && (dir != null) && dir.toRealPath().startsWith(workDir))
+				return path.toString();
+		} catch (IOException | InvalidPathException __) {
+		}
+		throw new Report.Error("File '" + fileName + "' is not within the work directory.");
+	}
+
+	/**
+	 * Reads a single line terminated by a newline.
+	 *
+	 * @param in The input stream.
+	 * @return The line without the newline or {@code null} at the end of the
+	 *         stream.
+	 * @throws IOException If the line cannot be read.
+	 */
+	private static String readLine(InputStream in) throws IOException {
+		ByteArrayOutputStream line = new ByteArrayOutputStream();
+		int b;
+		while ((b = in.read()) != '\n') {
+			if (b == -1)
+				return line.size() == 0 ? null : line.toString(StandardCharsets.UTF_8);
+			line.write(b);
+		}
+		return line.toString(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * A response sent to the client line by line.
+	 */
+	private static class Response {
+
+		/** The stream the response is written to. */
+		private final OutputStream out;
+
+		Response(OutputStream out) {
+			this.out = out;
+		}
+
+		/**
+		 * Sends a single tagged line.
+		 *
+		 * @param tag  The tag.
+		 * @param line The line without the newline.
+		 */
+		synchronized void line(char tag, String line) throws IOException {
+			line(tag, line.getBytes(StandardCharsets.UTF_8));
+		}
+
+		/**
+		 * Sends a single tagged line.
+		 *
+		 * @param tag  The tag.
+		 * @param line The line without the newline.
+		 */
+		synchronized void line(char tag, byte[] line) throws IOException {
+			out.write(tag);
+			out.write(' ');
+			out.write(line);
+			out.write('\n');
+			out.flush();
+		}
+
+		/**
+		 * Sends the exit status which concludes the response.
+		 *
+		 * @param status The exit status.
+		 */
+		void exit(int status) throws IOException {
+			line('X', Integer.toString(status));
+		}
+
+	}
+
+	/**
+	 * An output stream sending each line it receives as a tagged line of the
+	 * response.
+	 */
+	private static class TaggedStream extends OutputStream {
+
+		/** The tag. */
+		private final char tag;
+
+		/** The response. */
+		private final Response response;
+
+		/** The current incomplete line. */
+		private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+		TaggedStream(char tag, Response response) {
+			this.tag = tag;
+			this.response = response;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			if (b == '\n') {
+				response.line(tag, line.toByteArray());
+				line.reset();
+			} else
+				line.write(b);
+		}
+
+		/**
+		 * Sends the last incomplete line if there is one.
+		 */
+		void finish() {
+			try {
+				if (line.size() > 0)
+					response.line(tag, line.toByteArray());
+				line.reset();
+			} catch (IOException __) {
+			}
+		}
+
+	}
+
+}
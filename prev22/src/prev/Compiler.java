@@ -1,10 +1,12 @@
 package prev;
 
+import org.antlr.v4.runtime.BufferedTokenStream;
 import org.antlr.v4.runtime.Token;
 import prev.common.report.Report;
-import prev.data.mem.MemTemp;
 import prev.phase.abstr.AbsLogger;
 import prev.phase.abstr.Abstr;
+import prev.phase.all.CodeCache;
+import prev.phase.all.Library;
 import prev.phase.all.MMIXTranslator;
 import prev.phase.asmgen.AsmGen;
 import prev.phase.imcgen.CodeGenerator;
@@ -22,7 +24,18 @@ import prev.phase.regall.RegAll;
 import prev.phase.seman.*;
 import prev.phase.synan.SynAn;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.HashMap;
+import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
 
 /**
  * The compiler.
@@ -34,21 +47,19 @@ public class Compiler {
 	/** All valid phases of the compiler. */
 	private static final String phases = "none|lexan|synan|abstr|seman|memory|imcgen|imclin|asmgen|livean|regall|all";
 
-	/** A flag for enabling the printing of Report.info messages */
-	public static boolean debug = false;
-
-	/** Values of command line arguments. */
-	private static final HashMap<String, String> cmdLine = new HashMap<>();
+	/** The default maximal size of the cache of MMIX code of functions. */
+	private static final String defaultCacheSize = "64M";
 
 	/**
-	 * Returns the value of a command line argument.
+	 * Returns the value of a command line argument of the compilation session
+	 * bound to the current thread.
 	 *
 	 * @param cmdLineArgName The name of the command line argument.
 	 * @return The value of the specified command line argument or {@code null} if
 	 *         the specified command line argument has not been used.
 	 */
 	public static String cmdLineArgValue(String cmdLineArgName) {
-		return cmdLine.get(cmdLineArgName);
+		return CompilationSession.current().cmdLineArgValue(cmdLineArgName);
 	}
 
 	// THE COMPILER'S STARTUP METHOD
@@ -63,187 +74,574 @@ public class Compiler {
 			System.out.println(":-) This is PREV'22 compiler:");
 
 			// Scan the command line.
-			for (String arg : args) {
-				if (arg.startsWith("--")) {
-					// Command-line switch.
-					if (arg.matches("--debug")) {
-						debug = true;
+			HashMap<String, String> cmdLine = new HashMap<>();
+			Vector<String> srcFileNames = new Vector<>();
+			scanCmdLine(args, cmdLine, srcFileNames);
+
+			// Resident compile server.
+			if (cmdLine.get("--server") != null) {
+				new CompileServer(cmdLine.get("--server"), cmdLine.get("--server-dir")).serve();
+				System.out.println(":-) Done.");
+				return;
+			}
+
+			// Batch compilation of many source files.
+			if (cmdLine.get("--batch") != null) {
+				if (cmdLine.get("--dst-file-name") != null) {
+					Report.warning("Command line argument '" + cmdLine.get("--dst-file-name") + "' ignored.");
+					cmdLine.remove("--dst-file-name");
+				}
+				if (!compileBatch(cmdLine, srcFileNames))
+					System.exit(1);
+				System.out.println(":-) Done.");
+				return;
+			}
+
+			for (String srcFileName : srcFileNames) {
+				if (cmdLine.get("--src-file-name") == null) {
+					cmdLine.put("--src-file-name", srcFileName);
+				} else {
+					Report.warning("Source file '" + srcFileName + "' ignored.");
+				}
+			}
+			if (cmdLine.get("--src-file-name") == null) {
+				throw new Report.Error("Source file not specified.");
+			}
+			if (cmdLine.get("--dst-file-name") == null) {
+				cmdLine.put("--dst-file-name", dstFileName(cmdLine.get("--src-file-name")));
+			}
+
+			compile(cmdLine);
+
+			System.out.println(":-) Done.");
+		} catch (Report.Error __) {
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Scans command line arguments.
+	 *
+	 * @param args         Command line arguments (see {@link prev.Compiler}).
+	 * @param cmdLine      Values of command line switches (filled in).
+	 * @param srcFileNames Source file names (filled in).
+	 */
+	static void scanCmdLine(String[] args, HashMap<String, String> cmdLine, Vector<String> srcFileNames) {
+		for (String arg : args) {
+			if (arg.startsWith("--")) {
+				// Command-line switch.
+				if (arg.matches("--debug(=[a-z]+(,[a-z]+)*)?")) {
+					if (cmdLine.get("--debug") == null) {
+						cmdLine.put("--debug", arg.matches("--debug=.*") ? arg.replaceFirst("^[^=]*=", "") : "all");
 						continue;
 					}
-					if (arg.matches("--src-file-name=.*")) {
-						if (cmdLine.get("--src-file-name") == null) {
-							cmdLine.put("--src-file-name", arg);
-							continue;
-						}
+				}
+				if (arg.matches("--debug-level=(info|trace)")) {
+					if (cmdLine.get("--debug-level") == null) {
+						cmdLine.put("--debug-level", arg.replaceFirst("^[^=]*=", ""));
+						continue;
 					}
-					if (arg.matches("--dst-file-name=.*")) {
-						if (cmdLine.get("--dst-file-name") == null) {
-							cmdLine.put("--dst-file-name", arg);
-							continue;
-						}
+				}
+				if (arg.matches("--debug-file=.+")) {
+					if (cmdLine.get("--debug-file") == null) {
+						cmdLine.put("--debug-file", arg.replaceFirst("^[^=]*=", ""));
+						continue;
 					}
-					if (arg.matches("--target-phase=(" + phases + "|all)")) {
-						if (cmdLine.get("--target-phase") == null) {
-							cmdLine.put("--target-phase", arg.replaceFirst("^[^=]*=", ""));
-							continue;
-						}
+				}
+				if (arg.matches("--src-file-name=.*")) {
+					if (cmdLine.get("--src-file-name") == null) {
+						cmdLine.put("--src-file-name", arg);
+						continue;
 					}
-					if (arg.matches("--logged-phase=(" + phases + "|all)")) {
-						if (cmdLine.get("--logged-phase") == null) {
-							cmdLine.put("--logged-phase", arg.replaceFirst("^[^=]*=", ""));
-							continue;
-						}
+				}
+				if (arg.matches("--dst-file-name=.*")) {
+					if (cmdLine.get("--dst-file-name") == null) {
+						cmdLine.put("--dst-file-name", arg);
+						continue;
 					}
-					if (arg.matches("--xml=.*")) {
-						if (cmdLine.get("--xml") == null) {
-							cmdLine.put("--xml", arg.replaceFirst("^[^=]*=", ""));
-							continue;
-						}
+				}
+				if (arg.matches("--target-phase=(" + phases + "|all)")) {
+					if (cmdLine.get("--target-phase") == null) {
+						cmdLine.put("--target-phase", arg.replaceFirst("^[^=]*=", ""));
+						continue;
 					}
-					if (arg.matches("--xsl=.*")) {
-						if (cmdLine.get("--xsl") == null) {
-							cmdLine.put("--xsl", arg.replaceFirst("^[^=]*=", ""));
-							continue;
-						}
+				}
+				if (arg.matches("--logged-phase=(" + phases + "|all)")) {
+					if (cmdLine.get("--logged-phase") == null) {
+						cmdLine.put("--logged-phase", arg.replaceFirst("^[^=]*=", ""));
+						continue;
 					}
-					if (arg.matches("--nregs=[0-9]+")) {
-						if (cmdLine.get("--nregs") == null) {
-							cmdLine.put("--nregs", arg.replaceFirst("^[^=]*=", ""));
-							continue;
-						}
+				}
+				if (arg.matches("--log-thread")) {
+					cmdLine.put("--log-thread", "true");
+					continue;
+				}
+				if (arg.matches("--parallel-seman")) {
+					cmdLine.put("--parallel-seman", "true");
+					continue;
+				}
+				if (arg.matches("--stream-tokens")) {
+					cmdLine.put("--stream-tokens", "true");
+					continue;
+				}
+				if (arg.matches("--lexer=(antlr|fast|check)")) {
+					if (cmdLine.get("--lexer") == null) {
+						cmdLine.put("--lexer", arg.replaceFirst("^[^=]*=", ""));
+						continue;
 					}
-					Report.warning("Command line argument '" + arg + "' ignored.");
-				} else {
-					// Source file name.
-					if (cmdLine.get("--src-file-name") == null) {
-						cmdLine.put("--src-file-name", arg);
-					} else {
-						Report.warning("Source file '" + arg + "' ignored.");
+				}
+				if (arg.matches("--simplify-imc=(on|off)")) {
+					if (cmdLine.get("--simplify-imc") == null) {
+						cmdLine.put("--simplify-imc", arg.replaceFirst("^[^=]*=", ""));
+						continue;
 					}
 				}
+				if (arg.matches("--copy-prop=(on|off)")) {
+					if (cmdLine.get("--copy-prop") == null) {
+						cmdLine.put("--copy-prop", arg.replaceFirst("^[^=]*=", ""));
+						continue;
+					}
+				}
+				if (arg.matches("--value-numbering=(on|off)")) {
+					if (cmdLine.get("--value-numbering") == null) {
+						cmdLine.put("--value-numbering", arg.replaceFirst("^[^=]*=", ""));
+						continue;
+					}
+				}
+				if (arg.matches("--sccp=(on|off)")) {
+					if (cmdLine.get("--sccp") == null) {
+						cmdLine.put("--sccp", arg.replaceFirst("^[^=]*=", ""));
+						continue;
+					}
+				}
+				if (arg.matches("--xml=.*")) {
+					if (cmdLine.get("--xml") == null) {
+						cmdLine.put("--xml", arg.replaceFirst("^[^=]*=", ""));
+						continue;
+					}
+				}
+				if (arg.matches("--xsl=.*")) {
+					if (cmdLine.get("--xsl") == null) {
+						cmdLine.put("--xsl", arg.replaceFirst("^[^=]*=", ""));
+						continue;
+					}
+				}
+				if (arg.matches("--nregs=[0-9]+")) {
+					if (cmdLine.get("--nregs") == null) {
+						cmdLine.put("--nregs", arg.replaceFirst("^[^=]*=", ""));
+						continue;
+					}
+				}
+				if (arg.matches("--batch")) {
+					cmdLine.put("--batch", "true");
+					continue;
+				}
+				if (arg.matches("--threads=[1-9][0-9]*")) {
+					if (cmdLine.get("--threads") == null) {
+						cmdLine.put("--threads", arg.replaceFirst("^[^=]*=", ""));
+						continue;
+					}
+				}
+				if (arg.matches("--stats=.+")) {
+					if (cmdLine.get("--stats") == null) {
+						cmdLine.put("--stats", arg.replaceFirst("^[^=]*=", ""));
+						continue;
+					}
+				}
+				if (arg.matches("--cache=.+")) {
+					if (cmdLine.get("--cache") == null) {
+						cmdLine.put("--cache", arg.replaceFirst("^[^=]*=", ""));
+						continue;
+					}
+				}
+				if (arg.matches("--cache-size=[0-9]+[kKmMgG]?")) {
+					if (cmdLine.get("--cache-size") == null) {
+						cmdLine.put("--cache-size", arg.replaceFirst("^[^=]*=", ""));
+						continue;
+					}
+				}
+				if (arg.matches("--library")) {
+					cmdLine.put("--library", "true");
+					continue;
+				}
+				if (arg.matches("--link=.+")) {
+					if (cmdLine.get("--link") == null) {
+						cmdLine.put("--link", arg.replaceFirst("^[^=]*=", ""));
+						continue;
+					}
+				}
+				if (arg.matches("--server=.+")) {
+					if (cmdLine.get("--server") == null) {
+						cmdLine.put("--server", arg.replaceFirst("^[^=]*=", ""));
+						continue;
+					}
+				}
+				if (arg.matches("--server-dir=.+")) {
+					if (cmdLine.get("--server-dir") == null) {
+						cmdLine.put("--server-dir", arg.replaceFirst("^[^=]*=", ""));
+						continue;
+					}
+				}
+				Report.warning("Command line argument '" + arg + "' ignored.");
+			} else {
+				// Source file name.
+				srcFileNames.add(arg);
 			}
-			if (cmdLine.get("--src-file-name") == null) {
-				throw new Report.Error("Source file not specified.");
-			}
-			if (cmdLine.get("--dst-file-name") == null) {
-				cmdLine.put("--dst-file-name", cmdLine.get("--src-file-name").replaceFirst("\\.[^./]*$", "") + ".mms");
-			}
-			if ((cmdLine.get("--target-phase") == null) || (cmdLine.get("--target-phase").equals("all"))) {
-				cmdLine.put("--target-phase", phases.replaceFirst("^.*\\|", ""));
+		}
+		if ((cmdLine.get("--target-phase") == null) || (cmdLine.get("--target-phase").equals("all"))) {
+			cmdLine.put("--target-phase", phases.replaceFirst("^.*\\|", ""));
+		}
+	}
+
+	/**
+	 * Returns the name of the file the MMIX code produced from the specified
+	 * source file is written to.
+	 *
+	 * @param srcFileName The name of the source file.
+	 * @return The name of the destination file.
+	 */
+	static String dstFileName(String srcFileName) {
+		return srcFileName.replaceFirst("\\.[^./]*$", "") + ".mms";
+	}
+
+	// BATCH COMPILATION
+
+	/** The extension of source files looked for in directories. */
+	private static final String srcFileExt = ".p22";
+
+	/**
+	 * The outcome of compiling a single source file in batch mode.
+	 */
+	private static class BatchResult {
+
+		/** The name of the source file. */
+		final String srcFileName;
+
+		/** The status: {@code OK}, {@code FAILED} or {@code CRASHED}. */
+		final String status;
+
+		/** The compilation time in nanoseconds. */
+		final long time;
+
+		/** The warnings and errors printed while compiling the source file. */
+		final String diagnostics;
+
+		BatchResult(String srcFileName, String status, long time, String diagnostics) {
+			this.srcFileName = srcFileName;
+			this.status = status;
+			this.time = time;
+			this.diagnostics = diagnostics;
+		}
+
+	}
+
+	/**
+	 * Expands the source file arguments of the batch mode. A directory stands for
+	 * all source files found in it and its subdirectories, an argument of the form
+	 * {@code @manifest} stands for all files listed in the manifest (one per line,
+	 * empty lines and lines starting with {@code #} are skipped, relative names are
+	 * relative to the manifest), and any other argument names a single source file.
+	 *
+	 * @param args The source file arguments.
+	 * @return The names of all source files.
+	 */
+	private static Vector<String> expandBatch(Vector<String> args) {
+		Vector<String> srcFileNames = new Vector<>();
+		for (String arg : args) {
+			try {
+				if (arg.startsWith("@")) {
+					Path manifest = Path.of(arg.substring(1));
+					Path dir = manifest.toAbsolutePath().getParent();
+					for (String line : Files.readAllLines(manifest)) {
+						line = line.trim();
+						if (line.isEmpty() || line.startsWith("#"))
+							continue;
+						srcFileNames.add(dir.resolve(line).normalize().toString());
+					}
+				} else if (Files.isDirectory(Path.of(arg))) {
+					try (Stream<Path> paths = Files.walk(Path.of(arg))) {
+						paths.filter(path -> Files.isRegularFile(path))
+								.filter(path -> path.getFileName().toString().endsWith(srcFileExt)).sorted()
+								.forEach(path -> srcFileNames.add(path.toString()));
+					}
+				} else {
+					srcFileNames.add(arg);
+				}
+			} catch (IOException __) {
+				throw new Report.Error("Cannot read '" + arg.replaceFirst("^@", "") + "'.");
 			}
+		}
+		return srcFileNames;
+	}
 
-			// Compilation process carried out phase by phase.
-			while (true) {
+	/**
+	 * Compiles many source files, each within its own compilation session, on a
+	 * work-stealing thread pool and prints a summary. The MMIX code of each source
+	 * file is written next to it, and so are its statistics (with extension
+	 * {@code .stats.json}) if they are collected. The warnings and errors of each
+	 * source file are printed out right after its status.
+	 *
+	 * @param cmdLine Values of command line arguments shared by all source files.
+	 * @param args    The source file arguments (see {@link #expandBatch}).
+	 * @return {@code true} if all source files have been compiled successfully.
+	 */
+	private static boolean compileBatch(HashMap<String, String> cmdLine, Vector<String> args) {
+		Vector<String> srcFileNames = expandBatch(args);
+		if (srcFileNames.isEmpty())
+			throw new Report.Error("Source file not specified.");
+
+		int threads = cmdLine.get("--threads") == null ? Runtime.getRuntime().availableProcessors()
+				: Integer.parseInt(cmdLine.get("--threads"));
 
-				// Lexical analysis.
-				if (Compiler.cmdLineArgValue("--target-phase").equals("lexan"))
-					try (LexAn lexan = new LexAn()) {
-						while (lexan.lexer.nextToken().getType() != Token.EOF) {}
-						break;
+		Vector<Callable<BatchResult>> tasks = new Vector<>();
+		for (String srcFileName : srcFileNames) {
+			tasks.add(() -> {
+				HashMap<String, String> fileCmdLine = new HashMap<>(cmdLine);
+				fileCmdLine.put("--src-file-name", srcFileName);
+				fileCmdLine.put("--dst-file-name", dstFileName(srcFileName));
+				if (cmdLine.get("--stats") != null)
+					fileCmdLine.put("--stats", srcFileName.replaceFirst("\\.[^./]*$", "") + ".stats.json");
+				if (cmdLine.get("--debug-file") != null)
+					fileCmdLine.put("--debug-file", srcFileName.replaceFirst("\\.[^./]*$", "") + ".debug.txt");
+				// Warnings and errors are kept apart from those of other source files
+				// and printed out together with the status of this one.
+				ByteArrayOutputStream errBytes = new ByteArrayOutputStream();
+				PrintStream err = new PrintStream(errBytes, true);
+				long start = System.nanoTime();
+				String status = Report.redirectErr(err, () -> {
+					try (CompilationSession session = new CompilationSession(fileCmdLine, System.out, err)) {
+						compile(session);
+						return "OK";
+					} catch (Report.Error __) {
+						return "FAILED";
+					} catch (RuntimeException | StackOverflowError __) {
+						err.println(":-( " + __);
+						return "CRASHED";
 					}
+				});
+				return new BatchResult(srcFileName, status, System.nanoTime() - start, errBytes.toString());
+			});
+		}
 
-				// Syntax analysis.
-				try (LexAn lexan = new LexAn(); SynAn synan = new SynAn(lexan)) {
-					SynAn.tree = synan.parser.source();
-					synan.log(SynAn.tree);
-				}
-				if (Compiler.cmdLineArgValue("--target-phase").equals("synan"))
+		long start = System.nanoTime();
+		Vector<BatchResult> results = new Vector<>();
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			for (Future<BatchResult> result : pool.invokeAll(tasks))
+				results.add(result.get());
+		} catch (InterruptedException | ExecutionException __) {
+			throw new Report.InternalError();
+		} finally {
+			pool.shutdown();
+		}
+		long time = System.nanoTime() - start;
+
+		int numOfFailed = 0;
+		for (BatchResult result : results) {
+			if (!result.status.equals("OK"))
+				numOfFailed++;
+			System.out.printf(":-%s %-7s %9.1f ms  %s%n", result.status.equals("OK") ? ")" : "(", result.status,
+					result.time / 1e6, result.srcFileName);
+			System.out.print(result.diagnostics);
+		}
+		System.out.printf(":-) %d file(s), %d ok, %d failed, %d thread(s), %.1f ms, %.1f files/s%n", results.size(),
+				results.size() - numOfFailed, numOfFailed, threads, time / 1e6, results.size() / (time / 1e9));
+		return numOfFailed == 0;
+	}
+
+	// THE COMPILATION PROCESS
+
+	/**
+	 * Compiles a single source file within a new compilation session.
+	 *
+	 * @param cmdLine Values of command line arguments (see {@link prev.Compiler}).
+	 */
+	public static void compile(HashMap<String, String> cmdLine) {
+		try (CompilationSession session = new CompilationSession(cmdLine)) {
+			compile(session);
+		}
+	}
+
+	/**
+	 * Compiles a single source file within the specified compilation session.
+	 *
+	 * @param session The compilation session bound to the current thread.
+	 */
+	public static void compile(CompilationSession session) {
+		// Anonymous labels of a library must not clash with those of programs.
+		if (session.cmdLineArgValue("--library") != null)
+			session.labelPrefix = Library.labelPrefix(session.cmdLineArgValue("--src-file-name"));
+
+		// Compilation process carried out phase by phase.
+		while (true) {
+
+			// Lexical analysis.
+			if (Compiler.cmdLineArgValue("--target-phase").equals("lexan"))
+				try (LexAn lexan = new LexAn()) {
+					session.stats.begPhase("lexan");
+					while (lexan.lexer.nextToken().getType() != Token.EOF) {
+						session.stats.count("tokens", 1);
+					}
+					session.stats.endPhase();
 					break;
+				}
+
+			// Syntax analysis.
+			try (LexAn lexan = new LexAn(); SynAn synan = new SynAn(lexan)) {
+				if (session.stats.enabled() && !synan.streaming) {
+					// Tokens are produced on demand while parsing, so produce them
+					// in advance to measure lexical analysis separately.
+					session.stats.begPhase("lexan");
+					((BufferedTokenStream) synan.parser.getTokenStream()).fill();
+					session.stats.count("tokens", synan.parser.getTokenStream().size() - 1);
+					session.stats.endPhase();
+				}
+				session.stats.begPhase("synan");
+				session.synanTree = synan.parse();
+				synan.log(session.synanTree);
+				if (synan.streaming)
+					// Streamed tokens are produced while parsing only.
+					session.stats.count("tokens", synan.numTokens());
+				session.stats.endPhase();
+			}
+			if (Compiler.cmdLineArgValue("--target-phase").equals("synan"))
+				break;
 
-				// Abstract syntax tree construction.
-				try (Abstr abstr = new Abstr()) {
-					Abstr.tree = SynAn.tree.ast;
+			// Abstract syntax tree construction.
+			try (Abstr abstr = new Abstr()) {
+				session.stats.begPhase("abstr");
+				session.abstrTree = session.synanTree.ast;
+				session.stats.count("nodes", session.numNodes());
+				if (abstr.logger != null) {
 					AbsLogger logger = new AbsLogger(abstr.logger);
-					Abstr.tree.accept(logger, "Decls");
+					session.abstrTree.accept(logger, "Decls");
 				}
-				if (Compiler.cmdLineArgValue("--target-phase").equals("abstr"))
-					break;
+				session.stats.endPhase();
+			}
+			if (Compiler.cmdLineArgValue("--target-phase").equals("abstr"))
+				break;
 
-				// Semantic analysis.
-				try (SemAn seman = new SemAn()) {
-					Abstr.tree.accept(new NameResolver(), null);
-					Abstr.tree.accept(new TypeResolver(), null);
-					Abstr.tree.accept(new AddrResolver(), null);
+			// Semantic analysis.
+			try (SemAn seman = new SemAn()) {
+				session.stats.begPhase("seman");
+				if (session.cmdLineArgValue("--parallel-seman") != null)
+					seman.resolveInParallel();
+				else {
+					session.abstrTree.accept(new NameResolver(), null);
+					session.abstrTree.accept(new TypeResolver(), null);
+					session.abstrTree.accept(new AddrResolver(), null);
+				}
+				if (seman.logger != null) {
 					AbsLogger logger = new AbsLogger(seman.logger);
 					logger.addSubvisitor(new SemLogger(seman.logger));
-					Abstr.tree.accept(logger, "Decls");
+					session.abstrTree.accept(logger, "Decls");
 				}
-				if (Compiler.cmdLineArgValue("--target-phase").equals("seman"))
-					break;
+				session.stats.endPhase();
+			}
+			if (Compiler.cmdLineArgValue("--target-phase").equals("seman"))
+				break;
 
-				// Memory layout.
-				try (Memory memory = new Memory()) {
-					Abstr.tree.accept(new MemEvaluator(), null);
+			// Memory layout.
+			try (Memory memory = new Memory()) {
+				session.stats.begPhase("memory");
+				session.abstrTree.accept(new MemEvaluator(), null);
+				if (memory.logger != null) {
 					AbsLogger logger = new AbsLogger(memory.logger);
 					logger.addSubvisitor(new SemLogger(memory.logger));
 					logger.addSubvisitor(new MemLogger(memory.logger));
-					Abstr.tree.accept(logger, "Decls");
+					session.abstrTree.accept(logger, "Decls");
 				}
-				if (Compiler.cmdLineArgValue("--target-phase").equals("memory"))
-					break;
+				session.stats.endPhase();
+			}
+			if (session.cmdLineArgValue("--library") != null)
+				Library.writeInterface();
+			if (Compiler.cmdLineArgValue("--target-phase").equals("memory"))
+				break;
 
-				// Intermediate code generation.
-				try (ImcGen imcgen = new ImcGen()) {
-					Abstr.tree.accept(new CodeGenerator(), null);
+			// Intermediate code generation.
+			try (ImcGen imcgen = new ImcGen()) {
+				session.stats.begPhase("imcgen");
+				session.abstrTree.accept(new CodeGenerator(), null);
+				if (imcgen.logger != null) {
 					AbsLogger logger = new AbsLogger(imcgen.logger);
 					logger.addSubvisitor(new SemLogger(imcgen.logger));
 					logger.addSubvisitor(new MemLogger(imcgen.logger));
 					logger.addSubvisitor(new ImcLogger(imcgen.logger));
-					Abstr.tree.accept(logger, "Decls");
+					session.abstrTree.accept(logger, "Decls");
 				}
-				if (Compiler.cmdLineArgValue("--target-phase").equals("imcgen"))
-					break;
+				session.stats.endPhase();
+			}
+			if (Compiler.cmdLineArgValue("--target-phase").equals("imcgen"))
+				break;
 
-				// Linearization of intermediate code.
-				try (ImcLin imclin = new ImcLin()) {
-					Abstr.tree.accept(new ChunkGenerator(), null);
-					imclin.log();
+			// Linearization of intermediate code.
+			try (ImcLin imclin = new ImcLin()) {
+				session.stats.begPhase("imclin");
+				session.abstrTree.accept(new ChunkGenerator(), null);
+				imclin.countChunks();
+				imclin.log();
+				session.stats.endPhase();
 
-					// Only run interpreter if this is the last phase
-					if (Compiler.cmdLineArgValue("--target-phase").equals("imclin")) {
-						Interpreter interpreter = new Interpreter(ImcLin.dataChunks(), ImcLin.codeChunks());
-						System.out.println("EXIT CODE: " + interpreter.run("_main"));
-					}
+				// Only run interpreter if this is the last phase
+				if (Compiler.cmdLineArgValue("--target-phase").equals("imclin")) {
+					Interpreter interpreter = new Interpreter(ImcLin.dataChunks(), ImcLin.codeChunks());
+					session.out.println("EXIT CODE: " + interpreter.run("_main"));
 				}
-				if (Compiler.cmdLineArgValue("--target-phase").equals("imclin"))
-					break;
+			}
+			if (Compiler.cmdLineArgValue("--target-phase").equals("imclin"))
+				break;
 
-				// Machine code generation.
-				try (AsmGen asmgen = new AsmGen()) {
-					asmgen.genAsmCodes();
-					asmgen.log();
-				}
-				if (Compiler.cmdLineArgValue("--target-phase").equals("asmgen"))
-					break;
+			// Look up MMIX code of unchanged functions in the cache.
+			if ((session.cmdLineArgValue("--cache") != null) && (session.cmdLineArgValue("--library") == null)
+					&& Compiler.cmdLineArgValue("--target-phase").equals("all")) {
+				String cacheSize = session.cmdLineArgValue("--cache-size");
+				session.stats.begPhase("cache");
+				session.codeCache = new CodeCache(session.cmdLineArgValue("--cache"),
+						CodeCache.parseSize(cacheSize == null ? defaultCacheSize : cacheSize));
+				session.codeCache.lookup();
+				session.stats.endPhase();
+				session.out.println(":-) Cache: " + session.codeCache.numHits() + " hit(s), "
+						+ session.codeCache.numMisses() + " miss(es).");
+			}
 
-				// Liveness analysis.
-				try (LiveAn livean = new LiveAn()) {
-					livean.compLifetimes();
-					livean.log();
-				}
-				if (Compiler.cmdLineArgValue("--target-phase").equals("livean"))
-					break;
+			// Machine code generation.
+			try (AsmGen asmgen = new AsmGen()) {
+				session.stats.begPhase("asmgen");
+				asmgen.genAsmCodes();
+				asmgen.log();
+				session.stats.endPhase();
+			}
+			if (Compiler.cmdLineArgValue("--target-phase").equals("asmgen"))
+				break;
 
-				// Register allocation.
-				HashMap<MemTemp, Integer> tempToReg;
-				try (RegAll regall = new RegAll(Integer.decode(cmdLine.get("--nregs")))) {
-					regall.allocate();
-					regall.log();
-					tempToReg = regall.tempToReg;
-				}
-				if (Compiler.cmdLineArgValue("--target-phase").equals("regall"))
-					break;
+			// Liveness analysis.
+			try (LiveAn livean = new LiveAn()) {
+				session.stats.begPhase("livean");
+				livean.compLifetimes();
+				livean.log();
+				session.stats.endPhase();
+			}
+			if (Compiler.cmdLineArgValue("--target-phase").equals("livean"))
+				break;
 
-				// Working compiler.
-				MMIXTranslator translator = new MMIXTranslator(cmdLine.get("--dst-file-name"), tempToReg);
-				translator.translate();
-				if (Compiler.cmdLineArgValue("--target-phase").equals("all"))
-					break;
+			// Register allocation.
+			try (RegAll regall = new RegAll(Integer.decode(session.cmdLineArgValue("--nregs")))) {
+				session.stats.begPhase("regall");
+				regall.allocate();
+				regall.log();
+				session.tempToReg = regall.tempToReg;
+				session.stats.endPhase();
 			}
+			if (Compiler.cmdLineArgValue("--target-phase").equals("regall"))
+				break;
 
-			System.out.println(":-) Done.");
-		} catch (Report.Error __) {
-			System.exit(1);
+			// Working compiler.
+			session.stats.begPhase("all");
+			MMIXTranslator translator = new MMIXTranslator(session.cmdLineArgValue("--dst-file-name"), session.tempToReg);
+			translator.translate();
+			session.stats.endPhase();
+			if (Compiler.cmdLineArgValue("--target-phase").equals("all"))
+				break;
 		}
 	}
 
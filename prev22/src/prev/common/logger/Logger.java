@@ -1,17 +1,23 @@
 package prev.common.logger;
 
 import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
 import java.util.*;
-import javax.xml.parsers.*;
-import javax.xml.transform.*;
-import javax.xml.transform.dom.*;
-import javax.xml.transform.stream.*;
-import org.w3c.dom.*;
+import java.util.concurrent.*;
+import javax.xml.stream.*;
 import prev.common.report.*;
 
 /**
  * A logger used for producing XML/XSL logs of compiler internal data
  * structures.
+ *
+ * The log is written out while it is being produced: each element is written as
+ * soon as its attributes are known, i.e., when its first child element starts
+ * or when it ends, so attributes of an element must be added before any of its
+ * child elements. The XML text is collected in large blocks that are written to
+ * the file either directly or, if requested, on a background thread.
  */
 public class Logger implements AutoCloseable {
 
@@ -21,77 +27,102 @@ public class Logger implements AutoCloseable {
 	/** The name of the relating XSL file (to be included in the XML header). */
 	private final String xslFileName;
 
-	/** The entire XML document being constructed. */
-	private final Document doc;
+	/** The stream the XML file is written to. */
+	private final OutputStream out;
 
-	/** The stack of the XML documents (used during construction). */
-	private final Stack<Element> elements = new Stack<Element>();
+	/** The writer producing the XML text. */
+	private final XMLStreamWriter writer;
+
+	/** The number of elements started but not ended yet. */
+	private int depth = 0;
+
+	/** The tag name of the active element if its start tag has not been written yet. */
+	private String pendingTagName = null;
+
+	/** The attributes of the active element if its start tag has not been written yet. */
+	private final TreeMap<String, String> pendingAttrs = new TreeMap<String, String>();
+
+	/** Indicates whether writing the log has failed. */
+	private boolean failed = false;
 
 	/**
-	 * Constructs a new logger.
-	 * 
+	 * Constructs a new logger writing the log directly.
+	 *
 	 * @param phaseName   The name of the phase being logged.
 	 * @param xmlFileName The name of the XML file to be produced.
 	 * @param xslFileName The name of the relating XSL file.
 	 */
 	public Logger(String phaseName, String xmlFileName, String xslFileName) {
+		this(phaseName, xmlFileName, xslFileName, false);
+	}
+
+	/**
+	 * Constructs a new logger.
+	 *
+	 * @param phaseName   The name of the phase being logged.
+	 * @param xmlFileName The name of the XML file to be produced.
+	 * @param xslFileName The name of the relating XSL file.
+	 * @param background  Whether the log is written on a background thread.
+	 */
+	public Logger(String phaseName, String xmlFileName, String xslFileName, boolean background) {
 		this.xmlFileName = xmlFileName;
 		this.xslFileName = xslFileName;
 
-		// Prepare a new log document.
+		// Open the log file.
+		OutputStream out;
+		try {
+			out = new ChannelOutputStream(FileChannel.open(Path.of(xmlFileName), StandardOpenOption.CREATE,
+					StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE), background);
+		} catch (IOException | InvalidPathException ex) {
+			Report.warning("Cannot open log file '" + xmlFileName + "'.");
+			out = OutputStream.nullOutputStream();
+			failed = true;
+		}
+		this.out = out;
 		try {
-			doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
-		} catch (ParserConfigurationException ex) {
+			writer = XMLOutputFactory.newInstance().createXMLStreamWriter(out, "UTF-8");
+		} catch (XMLStreamException ex) {
 			throw new Report.InternalError();
 		}
 
-		// Create the root element representing the entire phase.
-		Element phase = doc.createElement(phaseName);
-		doc.appendChild(phase);
-		elements.push(phase);
-
-		// Add XSL declaration.
-		ProcessingInstruction xsl = doc.createProcessingInstruction("xml-stylesheet",
-				"type=\"text/xsl\" href=\"" + this.xslFileName + "\"");
-		doc.insertBefore(xsl, phase);
+		// Add XSL declaration and start the root element representing the entire
+		// phase.
+		try {
+			writer.writeStartDocument("UTF-8", "1.0");
+			writer.writeProcessingInstruction("xml-stylesheet",
+					"type=\"text/xsl\" href=\"" + this.xslFileName + "\"");
+		} catch (XMLStreamException ex) {
+			fail();
+		}
+		begElement(phaseName);
 	}
 
 	@Override
 	public void close() {
-		try {
-			elements.pop();
-		} catch (EmptyStackException ex) {
-			throw new InternalError();
-		}
-		if (!elements.empty())
+		if (depth != 1)
 			throw new InternalError();
+		endElement();
 
-		// Dump the log document out.
+		// Flush the rest of the log document out.
 		try {
-			TransformerFactory transformerFactory = TransformerFactory.newInstance();
-			javax.xml.transform.Transformer transformer = transformerFactory.newTransformer();
-			DOMSource source = new DOMSource(doc);
-			StreamResult result = new StreamResult(new File(xmlFileName));
-			transformer.transform(source, result);
-		} catch (TransformerException ex) {
-			Report.warning("Cannot open log file '" + xmlFileName + "'.");
+			writer.writeEndDocument();
+			writer.close();
+			out.close();
+		} catch (XMLStreamException | IOException ex) {
+			fail();
 		}
 	}
 
 	/**
 	 * Starts a new XML element (within the active XML element) and makes it active.
 	 * Only one XML element can be active at each moment.
-	 * 
+	 *
 	 * @param tagName The tag name of a new XML element.
 	 */
 	public void begElement(String tagName) {
-		try {
-			Element element = doc.createElement(tagName);
-			elements.peek().appendChild(element);
-			elements.push(element);
-		} catch (EmptyStackException ex) {
-			throw new InternalError();
-		}
+		writePendingStartTag(false);
+		pendingTagName = tagName;
+		depth++;
 	}
 
 	/**
@@ -99,25 +130,181 @@ public class Logger implements AutoCloseable {
 	 * XML element can be active at each moment.
 	 */
 	public void endElement() {
-		try {
-			elements.pop();
-		} catch (EmptyStackException ex) {
+		if (depth == 0)
 			throw new InternalError();
+		depth--;
+		if (pendingTagName != null) {
+			writePendingStartTag(true);
+			return;
+		}
+		try {
+			writer.writeEndElement();
+		} catch (XMLStreamException ex) {
+			fail();
 		}
 	}
 
 	/**
 	 * Adds an attribute to the active XML element.
-	 * 
+	 *
 	 * @param attrName  The name of an attribute.
 	 * @param attrValue The value of an attribute.
 	 */
 	public void addAttribute(String attrName, String attrValue) {
-		try {
-			elements.peek().setAttribute(attrName, attrValue);
-		} catch (EmptyStackException ex) {
+		// The start tag has already been written out.
+		if (pendingTagName == null)
 			throw new InternalError();
+		pendingAttrs.put(attrName, attrValue == null ? "" : attrValue);
+	}
+
+	/**
+	 * Writes out the start tag of the active element if it has not been written
+	 * yet.
+	 *
+	 * @param empty Whether the element has no content.
+	 */
+	private void writePendingStartTag(boolean empty) {
+		if (pendingTagName == null)
+			return;
+		try {
+			if (empty)
+				writer.writeEmptyElement(pendingTagName);
+			else
+				writer.writeStartElement(pendingTagName);
+			for (Map.Entry<String, String> attr : pendingAttrs.entrySet())
+				writer.writeAttribute(attr.getKey(), attr.getValue());
+		} catch (XMLStreamException ex) {
+			fail();
+		}
+		pendingTagName = null;
+		pendingAttrs.clear();
+	}
+
+	/**
+	 * Reports that the log cannot be written (only once per log).
+	 */
+	private void fail() {
+		if (failed)
+			return;
+		failed = true;
+		Report.warning("Cannot write log file '" + xmlFileName + "'.");
+	}
+
+	/**
+	 * An output stream collecting bytes in large blocks that are written to a file
+	 * channel either directly or on a background thread.
+	 */
+	private static class ChannelOutputStream extends OutputStream {
+
+		/** The size of a block. */
+		private static final int blockSize = 1 << 16;
+
+		/** The maximal number of blocks waiting to be written in the background. */
+		private static final int maxPendingBlocks = 4;
+
+		/** The thread writing blocks of all logs written in the background. */
+		private static final ExecutorService backgroundWriter = Executors.newSingleThreadExecutor(task -> {
+			Thread thread = new Thread(task, "prev-logger");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		/** The file channel. */
+		private final FileChannel channel;
+
+		/** Whether blocks are written on the background thread. */
+		private final boolean background;
+
+		/** The block being filled. */
+		private ByteBuffer block = ByteBuffer.allocate(blockSize);
+
+		/** Limits the number of blocks waiting to be written in the background. */
+		private final Semaphore pendingBlocks = new Semaphore(maxPendingBlocks);
+
+		/** The last block submitted to the background thread. */
+		private Future<?> lastBlock = null;
+
+		/** The failure of the background thread or {@code null} if none. */
+		private volatile IOException failure = null;
+
+		ChannelOutputStream(FileChannel channel, boolean background) {
+			this.channel = channel;
+			this.background = background;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			if (!block.hasRemaining())
+				writeBlock();
+			block.put((byte) b);
 		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			while (len > 0) {
+				if (!block.hasRemaining())
+					writeBlock();
+				int n = Math.min(len, block.remaining());
+				block.put(b, off, n);
+				off += n;
+				len -= n;
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				writeBlock();
+				if (lastBlock != null)
+					lastBlock.get();
+			} catch (ExecutionException __) {
+				throw new IOException(__.getCause());
+			} catch (InterruptedException __) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException();
+			} finally {
+				channel.close();
+			}
+			if (failure != null)
+				throw failure;
+		}
+
+		/**
+		 * Writes the block being filled and starts a new one.
+		 *
+		 * @throws IOException If the block cannot be written.
+		 */
+		private void writeBlock() throws IOException {
+			if (failure != null)
+				throw failure;
+			block.flip();
+			if (!background) {
+				while (block.hasRemaining())
+					channel.write(block);
+				block.clear();
+				return;
+			}
+
+			ByteBuffer fullBlock = block;
+			try {
+				pendingBlocks.acquire();
+			} catch (InterruptedException __) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException();
+			}
+			lastBlock = backgroundWriter.submit(() -> {
+				try {
+					while (fullBlock.hasRemaining())
+						channel.write(fullBlock);
+				} catch (IOException ex) {
+					failure = ex;
+				} finally {
+					pendingBlocks.release();
+				}
+			});
+			block = ByteBuffer.allocate(blockSize);
+		}
+
 	}
 
 }
@@ -13,6 +13,17 @@ public interface Locatable {
 	 */
 	public Location location();
 
+	/**
+	 * Returns the location of the part of the source file packed into a
+	 * {@code long} (see {@link Location#pack}).
+	 * 
+	 * @return The packed location or {@link Location#unpackable}.
+	 */
+	public default long packedLocation() {
+		Location location = location();
+		return location == null ? 0 : location.packedLocation();
+	}
+
 	/**
 	 * Modifies the location.
 	 * 
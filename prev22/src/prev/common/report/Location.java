@@ -4,9 +4,23 @@ import prev.common.logger.*;
 
 /**
  * Description of a location of a part of a source file.
+ *
+ * As there are many tokens and abstract syntax tree nodes, they do not keep
+ * their locations as objects but packed into a {@code long} (see
+ * {@link #pack}); a location is materialized only when it is needed, e.g., for
+ * an error message or a log.
  */
 public class Location implements Locatable, Loggable {
 
+	/** The packed value of locations that cannot be packed. */
+	public static final long unpackable = -1L;
+
+	/** The number of bits of a packed line number. */
+	private static final int lineBits = 20;
+
+	/** The number of bits of a packed column number. */
+	private static final int columnBits = 12;
+
 	/**
 	 * The line number of the first character of the specified part of the source
 	 * file.
@@ -70,9 +84,7 @@ public class Location implements Locatable, Loggable {
 	 * @param that An object relating to a part of a source file.
 	 */
 	public Location(Locatable that) {
-		this(//
-				that == null ? 0 : that.location().begLine, that == null ? 0 : that.location().begColumn,
-				that == null ? 0 : that.location().endLine, that == null ? 0 : that.location().endColumn);
+		this(begLine(that), begColumn(that), endLine(that), endColumn(that));
 	}
 
 	/**
@@ -83,9 +95,7 @@ public class Location implements Locatable, Loggable {
 	 * @param end An object relating to the end of part of a source file.
 	 */
 	public Location(Locatable beg, Locatable end) {
-		this(//
-				beg == null ? 0 : beg.location().begLine, beg == null ? 0 : beg.location().begColumn,
-				end == null ? 0 : end.location().endLine, end == null ? 0 : end.location().endColumn);
+		this(begLine(beg), begColumn(beg), endLine(end), endColumn(end));
 	}
 
 	@Override
@@ -93,6 +103,90 @@ public class Location implements Locatable, Loggable {
 		return this;
 	}
 
+	@Override
+	public long packedLocation() {
+		return pack(begLine, begColumn, endLine, endColumn);
+	}
+
+	// PACKED LOCATIONS
+
+	/**
+	 * Packs a location into a {@code long}: the line number and the column number
+	 * of the first character take the upper half and those of the last character
+	 * take the lower half. Line numbers are packed into {@value #lineBits} bits
+	 * and column numbers, which are negative at the end of the file, into
+	 * {@value #columnBits} bits.
+	 *
+	 * @param begLine   The line number of the first character.
+	 * @param begColumn The column number of the first character.
+	 * @param endLine   The line number of the last character.
+	 * @param endColumn The column number of the last character.
+	 * @return The packed location (the same as if the location was constructed
+	 *         from the same numbers) or {@link #unpackable} if the numbers are too
+	 *         large.
+	 */
+	public static long pack(int begLine, int begColumn, int endLine, int endColumn) {
+		if (begLine == 0)
+			begLine = endLine;
+		if (begColumn == 0)
+			begColumn = endColumn;
+		if (endLine == 0)
+			endLine = begLine;
+		if (endColumn == 0)
+			endColumn = begColumn;
+		if (!fits(begLine, begColumn) || !fits(endLine, endColumn))
+			return unpackable;
+		return ((long) pack(begLine, begColumn) << 32) | (pack(endLine, endColumn) & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Unpacks a location.
+	 *
+	 * @param packed The packed location (but not {@link #unpackable}).
+	 * @return The location.
+	 */
+	public static Location unpack(long packed) {
+		return new Location(line((int) (packed >> 32)), column((int) (packed >> 32)), line((int) packed),
+				column((int) packed));
+	}
+
+	private static boolean fits(int line, int column) {
+		return (line >= 0) && (line < (1 << lineBits) - 1) && (column >= -(1 << (columnBits - 1)))
+				&& (column < (1 << (columnBits - 1)));
+	}
+
+	private static int pack(int line, int column) {
+		return (line << columnBits) | (column & ((1 << columnBits) - 1));
+	}
+
+	private static int line(int position) {
+		return position >>> columnBits;
+	}
+
+	private static int column(int position) {
+		return (position << (32 - columnBits)) >> (32 - columnBits);
+	}
+
+	private static int begLine(Locatable that) {
+		long packed = that == null ? 0 : that.packedLocation();
+		return packed != unpackable ? line((int) (packed >> 32)) : that.location().begLine;
+	}
+
+	private static int begColumn(Locatable that) {
+		long packed = that == null ? 0 : that.packedLocation();
+		return packed != unpackable ? column((int) (packed >> 32)) : that.location().begColumn;
+	}
+
+	private static int endLine(Locatable that) {
+		long packed = that == null ? 0 : that.packedLocation();
+		return packed != unpackable ? line((int) packed) : that.location().endLine;
+	}
+
+	private static int endColumn(Locatable that) {
+		long packed = that == null ? 0 : that.packedLocation();
+		return packed != unpackable ? column((int) packed) : that.location().endColumn;
+	}
+
 	@Override
 	public void log(Logger logger) {
 		if (logger == null)
@@ -1,22 +1,100 @@
 package prev.common.report;
 
-import prev.Compiler;
+import java.io.*;
+import java.util.function.*;
+
+import prev.CompilationSession;
 
 /**
  * Reporting.
  */
 public class Report {
 
-	/** Counter of information messages printed out. */
-	private static int numOfInfos = 0;
+	/**
+	 * Returns the stream warnings and errors are printed to.
+	 *
+	 * @return The error stream of the current compilation session or the standard
+	 *         error stream if no session is bound to the current thread.
+	 */
+	private static PrintStream err() {
+		PrintStream threadErr = redirectedErr.get();
+		if (threadErr != null)
+			return threadErr;
+		CompilationSession session = CompilationSession.currentOrNull();
+		return session == null ? System.err : session.err;
+	}
+
+	/** The stream warnings and errors of a thread are redirected to, if any. */
+	private static final ThreadLocal<PrintStream> redirectedErr = new ThreadLocal<PrintStream>();
+
+	/**
+	 * Runs a task with warnings and errors printed by the current thread
+	 * redirected to the specified stream, e.g., to print them out in a
+	 * deterministic order once concurrent tasks have finished.
+	 *
+	 * @param <T>  The type of the task's result.
+	 * @param err  The stream warnings and errors are redirected to.
+	 * @param task The task.
+	 * @return The task's result.
+	 */
+	public static <T> T redirectErr(PrintStream err, Supplier<T> task) {
+		PrintStream enclosingErr = redirectedErr.get();
+		redirectedErr.set(err);
+		try {
+			return task.get();
+		} finally {
+			if (enclosingErr == null)
+				redirectedErr.remove();
+			else
+				redirectedErr.set(enclosingErr);
+		}
+	}
+
+	// INFORMATION MESSAGES
+
+	/**
+	 * Levels of detail of information messages.
+	 */
+	public enum Level {
+		/** Messages about the compilation as a whole. */
+		INFO,
+		/** Messages about individual nodes of trees. */
+		TRACE
+	}
+
+	/**
+	 * Tells whether information messages of the specified category and level are
+	 * printed. Use it to avoid computing anything needed only for the message.
+	 *
+	 * @param category The category, i.e., the name of the phase.
+	 * @param level    The level of detail.
+	 * @return {@code true} if the information messages are printed.
+	 */
+	public static boolean enabled(String category, Level level) {
+		CompilationSession session = CompilationSession.currentOrNull();
+		return (session != null) && session.debugEnabled(category, level);
+	}
+
+	/**
+	 * Tells whether information messages are printed at all.
+	 *
+	 * @return {@code true} if the compilation session bound to the current thread
+	 *         prints information messages.
+	 */
+	private static boolean debug() {
+		CompilationSession session = CompilationSession.currentOrNull();
+		return (session != null) && session.debug;
+	}
 
 	/**
 	 * Returns the number of information messages printed out.
 	 *
-	 * @return The number of information messages printed out.
+	 * @return The number of information messages printed out by the compilation
+	 *         session bound to the current thread.
 	 */
 	public static int numOfInfos() {
-		return numOfInfos;
+		CompilationSession session = CompilationSession.currentOrNull();
+		return session == null ? 0 : session.numInfos();
 	}
 
 	/**
@@ -25,11 +103,8 @@ public class Report {
 	 * @param message The information message to be printed.
 	 */
 	public static void info(String message) {
-		if (Compiler.debug) {
-			numOfInfos++;
-			System.out.print(":-) ");
-			System.out.println(message);
-		}
+		if (debug())
+			print(":-) " + message);
 	}
 
 	/**
@@ -40,24 +115,97 @@ public class Report {
 	 * @param message  The information message to be printed.
 	 */
 	public static void info(Locatable location, String message) {
-		if (Compiler.debug) {
-			numOfInfos++;
-			System.out.print(":-) ");
-			System.out.print("[" + location.location() + "] ");
-			System.out.println(message);
-		}
+		if (debug())
+			print(":-) [" + location.location() + "] " + message);
 	}
 
-	/** Counter of warnings printed out. */
-	private static int numOfWarnings = 0;
+	/**
+	 * Prints out an information message of the specified category and level. The
+	 * message is constructed only if it is printed.
+	 *
+	 * @param category The category, i.e., the name of the phase.
+	 * @param level    The level of detail.
+	 * @param message  The information message to be printed.
+	 */
+	public static void info(String category, Level level, Supplier<String> message) {
+		if (enabled(category, level))
+			print(":-) " + message.get());
+	}
+
+	/**
+	 * Prints out an information message of the specified category and level
+	 * relating to the specified part of the source file. The message is
+	 * constructed only if it is printed.
+	 *
+	 * @param location Location the information message is related to.
+	 * @param category The category, i.e., the name of the phase.
+	 * @param level    The level of detail.
+	 * @param message  The information message to be printed.
+	 */
+	public static void info(Locatable location, String category, Level level, Supplier<String> message) {
+		if (enabled(category, level))
+			print(":-) [" + location.location() + "] " + message.get());
+	}
+
+	/**
+	 * Prints out an information message about an individual node of a tree. The
+	 * message is formatted (see {@link String#format}) only if it is printed.
+	 *
+	 * @param category The category, i.e., the name of the phase.
+	 * @param format   The format of the information message.
+	 * @param args     The arguments of the format.
+	 */
+	public static void trace(String category, String format, Object... args) {
+		if (enabled(category, Level.TRACE))
+			print(":-) " + String.format(format, args));
+	}
+
+	/**
+	 * Prints out an information message about an individual node of a tree
+	 * relating to the specified part of the source file. The message is formatted
+	 * (see {@link String#format}) only if it is printed.
+	 *
+	 * @param location Location the information message is related to.
+	 * @param category The category, i.e., the name of the phase.
+	 * @param format   The format of the information message.
+	 * @param args     The arguments of the format.
+	 */
+	public static void trace(Locatable location, String category, String format, Object... args) {
+		if (enabled(category, Level.TRACE))
+			print(":-) [" + location.location() + "] " + String.format(format, args));
+	}
+
+	/**
+	 * Prints out an information message to the stream of information messages of
+	 * the current compilation session.
+	 *
+	 * @param message The information message including its prefix.
+	 */
+	private static void print(String message) {
+		CompilationSession session = CompilationSession.current();
+		session.countInfo();
+		session.debugOut().println(message);
+	}
 
 	/**
 	 * Returns the number of warnings printed out.
 	 *
-	 * @return The number of warnings printed out.
+	 * @return The number of warnings printed out by the compilation session bound
+	 *         to the current thread.
 	 */
 	public static int numOfWarnings() {
-		return numOfWarnings;
+		CompilationSession session = CompilationSession.currentOrNull();
+		return session == null ? 0 : session.numWarnings();
+	}
+
+	/**
+	 * Counts a warning in the compilation session bound to the current thread, if
+	 * any.
+	 */
+	private static void countWarning() {
+		CompilationSession session = CompilationSession.currentOrNull();
+		if (session != null)
+			session.countWarning();
 	}
 
 	/**
@@ -66,9 +214,8 @@ public class Report {
 	 * @param message The warning message.
 	 */
 	public static void warning(String message) {
-		numOfWarnings++;
-		System.err.print(":-o ");
-		System.err.println(message);
+		countWarning();
+		err().println(":-o " + message);
 	}
 
 	/**
@@ -78,10 +225,8 @@ public class Report {
 	 * @param message  The warning message to be printed.
 	 */
 	public static void warning(Locatable location, String message) {
-		numOfWarnings++;
-		System.err.print(":-o ");
-		System.err.print("[" + location.location() + "] ");
-		System.err.println(message);
+		countWarning();
+		err().println(":-o [" + location.location() + "] " + message);
 	}
 
 	/**
@@ -100,8 +245,7 @@ public class Report {
 		 */
 		public Error(String message) {
 			super(message);
-			System.err.print(":-( ");
-			System.err.println(message);
+			err().println(":-( " + message);
 		}
 
 		/**
@@ -111,9 +255,7 @@ public class Report {
 		 * @param message  The error message.
 		 */
 		public Error(Locatable location, String message) {
-			System.err.print(":-( ");
-			System.err.print("[" + location.location() + "] ");
-			System.err.println(message);
+			err().println(":-( [" + location.location() + "] " + message);
 		}
 
 	}
@@ -131,7 +273,7 @@ public class Report {
 		 */
 		public InternalError() {
 			super("Internal error.");
-			this.printStackTrace();
+			this.printStackTrace(err());
 		}
 
 	}
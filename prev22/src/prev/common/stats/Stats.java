@@ -0,0 +1,281 @@
+package prev.common.stats;
+
+import java.io.*;
+import java.lang.management.*;
+import java.util.*;
+import java.util.concurrent.atomic.*;
+import java.util.function.*;
+
+import prev.common.report.*;
+
+/**
+ * Statistics of a single compilation.
+ *
+ * For every phase the wall time, the number of bytes allocated by the
+ * compiling thread and by the threads running tasks of the phase on its behalf
+ * (see {@link #measure}), the peak heap usage (of the whole JVM) and any number
+ * of phase specific counters are recorded. A
+ * counter is either a number or a list of records, e.g., one record per
+ * function. The statistics are written out as a JSON document. If no file to
+ * write the statistics to is specified, nothing is recorded.
+ */
+public class Stats {
+
+	/** The JVM's thread management interface if it can measure allocation. */
+	private static final com.sun.management.ThreadMXBean threads;
+
+	static {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if ((bean instanceof com.sun.management.ThreadMXBean)
+				&& ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+			threads = (com.sun.management.ThreadMXBean) bean;
+			threads.setThreadAllocatedMemoryEnabled(true);
+		} else
+			threads = null;
+	}
+
+	/**
+	 * Returns the number of bytes allocated by the current thread so far.
+	 *
+	 * @return The number of bytes allocated by the current thread or -1 if it
+	 *         cannot be measured.
+	 */
+	private static long allocatedBytes() {
+		return threads == null ? -1 : threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	/** The memory pools of the heap. */
+	private static final Vector<MemoryPoolMXBean> heapPools = new Vector<MemoryPoolMXBean>();
+
+	static {
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP)
+				heapPools.add(pool);
+		}
+	}
+
+	/**
+	 * Returns the peak heap usage since the peaks have last been reset, i.e., the
+	 * sum of peak usages of all memory pools of the heap.
+	 *
+	 * @return The peak heap usage in bytes.
+	 */
+	private static long peakHeapBytes() {
+		long bytes = 0;
+		for (MemoryPoolMXBean pool : heapPools)
+			bytes += pool.getPeakUsage().getUsed();
+		return bytes;
+	}
+
+	/**
+	 * Resets peak usages of all memory pools of the heap to their current usages.
+	 */
+	private static void resetPeakHeapBytes() {
+		for (MemoryPoolMXBean pool : heapPools)
+			pool.resetPeakUsage();
+	}
+
+	/** The name of the source file. */
+	private final String srcFileName;
+
+	/** The name of the file the statistics are written to. */
+	private final String statsFileName;
+
+	/** Statistics of all phases started so far. */
+	private final Vector<LinkedHashMap<String, Object>> phases = new Vector<LinkedHashMap<String, Object>>();
+
+	/** Statistics of the phase currently running or {@code null} if none is. */
+	private LinkedHashMap<String, Object> phase = null;
+
+	/** The time the phase currently running has started at. */
+	private long phaseBegTime;
+
+	/** The number of bytes allocated before the phase currently running. */
+	private long phaseBegBytes;
+
+	/** The thread that has started the phase currently running. */
+	private volatile Thread phaseThread;
+
+	/**
+	 * The number of bytes allocated by other threads running tasks of the phase
+	 * currently running.
+	 */
+	private final AtomicLong phaseTaskBytes = new AtomicLong();
+
+	/**
+	 * Constructs new statistics.
+	 *
+	 * @param srcFileName   The name of the source file.
+	 * @param statsFileName The name of the file the statistics are written to or
+	 *                      {@code null} if statistics are not collected.
+	 */
+	public Stats(String srcFileName, String statsFileName) {
+		this.srcFileName = srcFileName;
+		this.statsFileName = statsFileName;
+	}
+
+	/**
+	 * Tells whether statistics are being collected.
+	 *
+	 * @return {@code true} if statistics are being collected.
+	 */
+	public boolean enabled() {
+		return statsFileName != null;
+	}
+
+	/**
+	 * Starts measuring a phase.
+	 *
+	 * @param phaseName The name of the phase.
+	 */
+	public void begPhase(String phaseName) {
+		if (!enabled())
+			return;
+		endPhase();
+		phase = new LinkedHashMap<String, Object>();
+		phase.put("phase", phaseName);
+		phases.add(phase);
+		phaseThread = Thread.currentThread();
+		phaseTaskBytes.set(0);
+		phaseBegBytes = allocatedBytes();
+		resetPeakHeapBytes();
+		phaseBegTime = System.nanoTime();
+	}
+
+	/**
+	 * Stops measuring the phase currently running.
+	 */
+	public void endPhase() {
+		if (phase == null)
+			return;
+		long time = System.nanoTime() - phaseBegTime;
+		long bytes = allocatedBytes() - phaseBegBytes + phaseTaskBytes.getAndSet(0);
+		LinkedHashMap<String, Object> counters = new LinkedHashMap<String, Object>(phase);
+		phase.clear();
+		phase.put("phase", counters.remove("phase"));
+		phase.put("wallNanos", time);
+		phase.put("allocatedBytes", threads == null ? -1 : bytes);
+		phase.put("peakHeapBytes", peakHeapBytes());
+		phase.putAll(counters);
+		phase = null;
+		phaseThread = null;
+	}
+
+	/**
+	 * Runs a task of the phase currently running and, if it runs on a thread
+	 * other than the one that has started the phase, adds the bytes it allocates
+	 * to those allocated by the phase.
+	 *
+	 * @param <T>  The type of the task's result.
+	 * @param task The task.
+	 * @return The task's result.
+	 */
+	public <T> T measure(Supplier<T> task) {
+		Thread thread = phaseThread;
+		if ((thread == null) || (thread == Thread.currentThread()) || (threads == null))
+			return task.get();
+		long begBytes = allocatedBytes();
+		try {
+			return task.get();
+		} finally {
+			phaseTaskBytes.addAndGet(allocatedBytes() - begBytes);
+		}
+	}
+
+	/**
+	 * Adds to a counter of the phase currently running.
+	 *
+	 * @param counter The name of the counter.
+	 * @param delta   The value added to the counter.
+	 */
+	public void count(String counter, long delta) {
+		if (phase == null)
+			return;
+		phase.merge(counter, delta, (oldValue, newValue) -> (Long) oldValue + (Long) newValue);
+	}
+
+	/**
+	 * Appends a new record to a list of records of the phase currently running.
+	 *
+	 * @param list The name of the list.
+	 * @return The new record to be filled in by the caller.
+	 */
+	@SuppressWarnings("unchecked")
+	public LinkedHashMap<String, Object> record(String list) {
+		LinkedHashMap<String, Object> record = new LinkedHashMap<String, Object>();
+		if (phase != null)
+			((Vector<Object>) phase.computeIfAbsent(list, __ -> new Vector<Object>())).add(record);
+		return record;
+	}
+
+	/**
+	 * Writes the statistics out as a JSON document.
+	 */
+	public void write() {
+		if (!enabled())
+			return;
+		endPhase();
+		LinkedHashMap<String, Object> stats = new LinkedHashMap<String, Object>();
+		stats.put("srcFileName", srcFileName);
+		stats.put("phases", phases);
+		try (Writer writer = new BufferedWriter(new FileWriter(statsFileName))) {
+			writeJson(writer, stats, "");
+			writer.write("\n");
+		} catch (IOException __) {
+			throw new Report.Error("Cannot write statistics to '" + statsFileName + "'.");
+		}
+	}
+
+	/**
+	 * Writes out a value as JSON.
+	 *
+	 * @param writer The writer.
+	 * @param value  The value: a string, a number, a map or a list.
+	 * @param indent The indentation of the value.
+	 * @throws IOException If the value cannot be written.
+	 */
+	private static void writeJson(Writer writer, Object value, String indent) throws IOException {
+		if (value == null) {
+			writer.write("null");
+		} else if (value instanceof Number) {
+			writer.write(value.toString());
+		} else if (value instanceof String) {
+			writer.write('"');
+			for (char c : ((String) value).toCharArray()) {
+				if (c == '"' || c == '\\')
+					writer.write("\\" + c);
+				else if (c < 0x20)
+					writer.write(String.format("\\u%04x", (int) c));
+				else
+					writer.write(c);
+			}
+			writer.write('"');
+		} else if ((value instanceof Map) && ((Map<?, ?>) value).isEmpty()) {
+			writer.write("{}");
+		} else if ((value instanceof List) && ((List<?>) value).isEmpty()) {
+			writer.write("[]");
+		} else if (value instanceof Map) {
+			writer.write("{");
+			String sep = "\n";
+			for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+				writer.write(sep + indent + "  ");
+				writeJson(writer, entry.getKey().toString(), "");
+				writer.write(": ");
+				writeJson(writer, entry.getValue(), indent + "  ");
+				sep = ",\n";
+			}
+			writer.write("\n" + indent + "}");
+		} else if (value instanceof List) {
+			writer.write("[");
+			String sep = "\n";
+			for (Object element : (List<?>) value) {
+				writer.write(sep + indent + "  ");
+				writeJson(writer, element, indent + "  ");
+				sep = ",\n";
+			}
+			writer.write("\n" + indent + "]");
+		} else
+			throw new Report.InternalError();
+	}
+
+}
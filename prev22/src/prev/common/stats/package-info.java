@@ -0,0 +1,4 @@
+/**
+ * Infrastructure for collecting compilation statistics.
+ */
+package prev.common.stats;
@@ -1,24 +1,32 @@
 package prev.data.ast.attribute;
 
-import java.util.*;
-
+import prev.common.report.*;
 import prev.data.ast.tree.*;
 
 /**
  * An attribute of the abstract syntax tree node.
  *
+ * Values are looked up by ids of nodes. How they are stored is up to the
+ * subclass chosen for each attribute: {@link DenseAstAttribute} for attributes
+ * of most nodes, {@link SparseAstAttribute} for attributes of few nodes and
+ * {@link BoolAstAttribute} for flags. None of them is synchronized unless it is
+ * being computed by many threads at once (see {@link #beginConcurrent}); once
+ * the phase computing an attribute has finished, the attribute is frozen and
+ * can be read by many threads at once.
+ *
  * @param <Node>  Nodes that values are associated with.
  * @param <Value> Values associated with nodes.
  */
-public class AstAttribute<Node extends AstTree, Value> {
+public abstract class AstAttribute<Node extends AstTree, Value> {
 
-	/** Mapping of nodes to values. */
-	private Vector<Value> mapping;
+	/** Whether the attribute is read-only. */
+	private boolean frozen = false;
 
-	/** Constructs a new attribute. */
-	public AstAttribute(int numNodes) {
-		mapping = new Vector<Value>();
-	}
+	/** Whether the attribute is being computed by many threads at once. */
+	private boolean concurrent = false;
+
+	/** Whether the values have been released. */
+	private boolean released = false;
 
 	/**
 	 * Associates a value with the specified abstract syntax tree node.
@@ -27,11 +35,15 @@ public class AstAttribute<Node extends AstTree, Value> {
 	 * @param value The value.
 	 * @return The value.
 	 */
-	public Value put(Node node, Value value) {
-		int id = node.id();
-		if (id >= mapping.size())
-			mapping.setSize(id + 1000);
-		mapping.set(id, value);
+	public final Value put(Node node, Value value) {
+		if (frozen)
+			throw new Report.InternalError();
+		if (concurrent) {
+			synchronized (this) {
+				set(node.id(), value);
+			}
+		} else
+			set(node.id(), value);
 		return value;
 	}
 
@@ -41,11 +53,71 @@ public class AstAttribute<Node extends AstTree, Value> {
 	 * @param node The specified abstract syntax tree node.
 	 * @return The value (or {@code null} if the value is not found).
 	 */
-	public Value get(Node node) {
-		int id = node.id();
-		if (id >= mapping.size())
-			return null;
-		return mapping.get(id);
+	public final Value get(Node node) {
+		if (released)
+			throw new Report.InternalError();
+		if (concurrent) {
+			synchronized (this) {
+				return get(node.id());
+			}
+		}
+		return get(node.id());
+	}
+
+	/**
+	 * Prepares the attribute to be computed by many threads at once until
+	 * {@link #endConcurrent} is called. No new nodes may be constructed in the
+	 * meantime.
+	 * 
+	 * @param numNodes The number of nodes constructed so far.
+	 */
+	public void beginConcurrent(int numNodes) {
+		concurrent = true;
+	}
+
+	/**
+	 * Ends computing the attribute by many threads at once.
+	 */
+	public void endConcurrent() {
+		concurrent = false;
+	}
+
+	/**
+	 * Makes the attribute read-only.
+	 */
+	public void freeze() {
+		frozen = true;
 	}
 
+	/**
+	 * Releases all values once they are no longer needed. The attribute cannot be
+	 * used any more.
+	 */
+	public void release() {
+		frozen = true;
+		released = true;
+		clear();
+	}
+
+	/**
+	 * Associates a value with the node with the specified id.
+	 * 
+	 * @param id    The id of the node.
+	 * @param value The value.
+	 */
+	protected abstract void set(int id, Value value);
+
+	/**
+	 * Returns a value associated with the node with the specified id.
+	 * 
+	 * @param id The id of the node.
+	 * @return The value (or {@code null} if the value is not found).
+	 */
+	protected abstract Value get(int id);
+
+	/**
+	 * Removes all values.
+	 */
+	protected abstract void clear();
+
 }
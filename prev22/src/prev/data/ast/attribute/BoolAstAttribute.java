@@ -0,0 +1,44 @@
+package prev.data.ast.attribute;
+
+import java.util.*;
+
+import prev.data.ast.tree.*;
+
+/**
+ * A boolean attribute of abstract syntax tree nodes, stored in bit sets indexed
+ * by ids of nodes.
+ *
+ * @param <Node> Nodes that values are associated with.
+ */
+public class BoolAstAttribute<Node extends AstTree> extends AstAttribute<Node, Boolean> {
+
+	/** Nodes with value {@code true}. */
+	private final BitSet trueNodes = new BitSet();
+
+	/** Nodes with value {@code false}. */
+	private final BitSet falseNodes = new BitSet();
+
+	/**
+	 * Constructs a new attribute.
+	 */
+	public BoolAstAttribute() {
+	}
+
+	@Override
+	protected void set(int id, Boolean value) {
+		trueNodes.set(id, (value != null) && value);
+		falseNodes.set(id, (value != null) && !value);
+	}
+
+	@Override
+	protected Boolean get(int id) {
+		return trueNodes.get(id) ? Boolean.TRUE : falseNodes.get(id) ? Boolean.FALSE : null;
+	}
+
+	@Override
+	protected void clear() {
+		trueNodes.clear();
+		falseNodes.clear();
+	}
+
+}
@@ -0,0 +1,56 @@
+package prev.data.ast.attribute;
+
+import java.util.*;
+
+import prev.data.ast.tree.*;
+
+/**
+ * An attribute of most abstract syntax tree nodes, stored in an array indexed
+ * by ids of nodes.
+ *
+ * @param <Node>  Nodes that values are associated with.
+ * @param <Value> Values associated with nodes.
+ */
+public class DenseAstAttribute<Node extends AstTree, Value> extends AstAttribute<Node, Value> {
+
+	/** Values indexed by ids of nodes. */
+	private Object[] values;
+
+	/**
+	 * Constructs a new attribute.
+	 * 
+	 * @param numNodes The expected number of nodes.
+	 */
+	public DenseAstAttribute(int numNodes) {
+		values = new Object[Math.max(numNodes, 16)];
+	}
+
+	/**
+	 * Makes room for all nodes so that values of different nodes can be put by
+	 * different threads without locking.
+	 */
+	@Override
+	public void beginConcurrent(int numNodes) {
+		if (numNodes > values.length)
+			values = Arrays.copyOf(values, numNodes);
+	}
+
+	@Override
+	protected void set(int id, Value value) {
+		if (id >= values.length)
+			values = Arrays.copyOf(values, Math.max(id + 1, 2 * values.length));
+		values[id] = value;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	protected Value get(int id) {
+		return id < values.length ? (Value) values[id] : null;
+	}
+
+	@Override
+	protected void clear() {
+		values = new Object[0];
+	}
+
+}
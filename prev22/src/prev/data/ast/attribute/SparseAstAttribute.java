@@ -0,0 +1,92 @@
+package prev.data.ast.attribute;
+
+import prev.data.ast.tree.*;
+
+/**
+ * An attribute of few abstract syntax tree nodes, stored in a hash table with
+ * open addressing keyed by ids of nodes.
+ *
+ * @param <Node>  Nodes that values are associated with.
+ * @param <Value> Values associated with nodes.
+ */
+public class SparseAstAttribute<Node extends AstTree, Value> extends AstAttribute<Node, Value> {
+
+	/** Ids of nodes increased by one, or 0 for empty slots. */
+	private int[] keys;
+
+	/** Values of nodes in the slots of their ids. */
+	private Object[] values;
+
+	/** The number of nodes with values. */
+	private int size = 0;
+
+	/**
+	 * Constructs a new attribute.
+	 */
+	public SparseAstAttribute() {
+		keys = new int[16];
+		values = new Object[16];
+	}
+
+	@Override
+	protected void set(int id, Value value) {
+		int slot = slot(id);
+		if (keys[slot] == 0) {
+			if (2 * (size + 1) > keys.length) {
+				grow();
+				slot = slot(id);
+			}
+			keys[slot] = id + 1;
+			size++;
+		}
+		values[slot] = value;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	protected Value get(int id) {
+		return (Value) values[slot(id)];
+	}
+
+	@Override
+	protected void clear() {
+		keys = new int[16];
+		values = new Object[16];
+		size = 0;
+	}
+
+	/**
+	 * Returns the slot of the node with the specified id, i.e., either the slot
+	 * containing the id or the empty slot the id belongs to. Probing starts at the
+	 * slot given by the topmost bits of the multiplicative hash of the id, as many
+	 * as there are bits in the index of a slot.
+	 * 
+	 * @param id The id of the node.
+	 * @return The slot.
+	 */
+	private int slot(int id) {
+		int mask = keys.length - 1;
+		int slot = (id * 0x9E3779B9) >>> Integer.numberOfLeadingZeros(mask);
+		while ((keys[slot] != 0) && (keys[slot] != id + 1))
+			slot = (slot + 1) & mask;
+		return slot;
+	}
+
+	/**
+	 * Doubles the size of the hash table.
+	 */
+	private void grow() {
+		int[] oldKeys = keys;
+		Object[] oldValues = values;
+		keys = new int[2 * oldKeys.length];
+		values = new Object[2 * oldValues.length];
+		for (int oldSlot = 0; oldSlot < oldKeys.length; oldSlot++) {
+			if (oldKeys[oldSlot] == 0)
+				continue;
+			int slot = slot(oldKeys[oldSlot] - 1);
+			keys[slot] = oldKeys[oldSlot];
+			values[slot] = oldValues[oldSlot];
+		}
+	}
+
+}
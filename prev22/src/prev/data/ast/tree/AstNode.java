@@ -1,5 +1,6 @@
 package prev.data.ast.tree;
 
+import prev.*;
 import prev.common.report.*;
 
 /**
@@ -7,14 +8,14 @@ import prev.common.report.*;
  */
 public abstract class AstNode implements AstTree {
 
-	/** The number of nodes constructed so far. */
-	private static int numNodes = 0;
-
 	/** The unique id of this node. */
 	public final int id;
 
-	/** The location of this node. */
-	private Location location;
+	/** The location of this node packed into a long (see {@link Location#pack}). */
+	private long location;
+
+	/** The location of this node if it cannot be packed or {@code null} otherwise. */
+	private Location unpackedLocation;
 
 	/**
 	 * Constructs an abstract node of an abstract syntax tree.
@@ -22,8 +23,8 @@ public abstract class AstNode implements AstTree {
 	 * @param location The location.
 	 */
 	public AstNode(Location location) {
-		id = numNodes++;
-		this.location = location;
+		id = CompilationSession.current().newNodeId();
+		relocate(location);
 	}
 
 	@Override
@@ -33,11 +34,17 @@ public abstract class AstNode implements AstTree {
 
 	@Override
 	public final void relocate(Location location) {
-		this.location = location;
+		this.location = location == null ? 0 : location.packedLocation();
+		this.unpackedLocation = this.location == Location.unpackable ? location : null;
 	}
 
 	@Override
 	public final Location location() {
+		return unpackedLocation != null ? unpackedLocation : Location.unpack(location);
+	}
+
+	@Override
+	public final long packedLocation() {
 		return location;
 	}
 
@@ -1,5 +1,6 @@
 package prev.data.ast.tree.decl;
 
+import prev.*;
 import prev.common.report.*;
 import prev.data.ast.tree.*;
 
@@ -11,6 +12,9 @@ public abstract class AstNameDecl extends AstNode implements AstDecl {
 	/** The declared name. */
 	public final String name;
 
+	/** The symbol of the name (see {@link CompilationSession#symbol}). */
+	public final int symb;
+
 	/**
 	 * Constructs an abstract declaration of a name.
 	 * 
@@ -20,6 +24,7 @@ public abstract class AstNameDecl extends AstNode implements AstDecl {
 	public AstNameDecl(Location location, String name) {
 		super(location);
 		this.name = name;
+		this.symb = CompilationSession.current().symbol(name);
 	}
 
 }
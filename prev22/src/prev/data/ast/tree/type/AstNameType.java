@@ -1,5 +1,6 @@
 package prev.data.ast.tree.type;
 
+import prev.*;
 import prev.common.report.*;
 import prev.data.ast.tree.*;
 import prev.data.ast.visitor.*;
@@ -12,6 +13,9 @@ public class AstNameType extends AstNode implements AstType, AstName {
 	/** The name. */
 	public final String name;
 
+	/** The symbol of the name (see {@link CompilationSession#symbol}). */
+	public final int symb;
+
 	/**
 	 * Constructs a type name.
 	 * 
@@ -21,6 +25,7 @@ public class AstNameType extends AstNode implements AstType, AstName {
 	public AstNameType(Location location, String name) {
 		super(location);
 		this.name = name;
+		this.symb = CompilationSession.current().symbol(name);
 	}
 
 	@Override
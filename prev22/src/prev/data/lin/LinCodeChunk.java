@@ -2,6 +2,7 @@ package prev.data.lin;
 
 import java.util.*;
 
+import prev.common.report.*;
 import prev.data.mem.*;
 import prev.data.imc.code.stmt.*;
 
@@ -13,8 +14,11 @@ public class LinCodeChunk {
 	/** A frame of a function. */
 	public final MemFrame frame;
 
-	/** The statements of a function body. */
-	private final Vector<ImcStmt> stmts;
+	/**
+	 * The statements of a function body or {@code null} once they have been
+	 * released.
+	 */
+	private Vector<ImcStmt> stmts;
 
 	/**
 	 * The function's body entry label, i.e., the label the prologue jumps to.
@@ -49,7 +53,17 @@ public class LinCodeChunk {
 	 * @return The statements of a function body.
 	 */
 	public Vector<ImcStmt> stmts() {
+		if (stmts == null)
+			throw new Report.InternalError();
 		return new Vector<ImcStmt>(stmts);
 	}
 
+	/**
+	 * Releases the statements of a function body once machine code has been
+	 * generated. The frame and the labels are kept.
+	 */
+	public void releaseStmts() {
+		stmts = null;
+	}
+
 }
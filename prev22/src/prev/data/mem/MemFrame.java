@@ -42,7 +42,7 @@ public class MemFrame implements Loggable {
 		this.depth = depth;
 		this.locsSize = locsSize;
 		this.argsSize = argsSize;
-		this.size = this.locsSize + 2 * (new SemPtr(new SemVoid())).size() + this.argsSize;
+		this.size = this.locsSize + 2 * SemTypeFactory.voidPtrType.size() + this.argsSize;
 		this.FP = new MemTemp();
 		this.RV = new MemTemp();
 	}
@@ -1,5 +1,7 @@
 package prev.data.mem;
 
+import prev.*;
+
 /**
  * A label.
  */
@@ -8,13 +10,10 @@ public class MemLabel {
 	/** The name of a label. */
 	public final String name;
 
-	/** Counter of anonymous labels. */
-	private static long count = 0;
-
 	/** Creates a new anonymous label. */
 	public MemLabel() {
-		this.name = "L" + count;
-		count++;
+		CompilationSession session = CompilationSession.current();
+		this.name = session.labelPrefix + session.newLabel();
 	}
 
 	/**
@@ -13,27 +13,50 @@ import prev.phase.lexan.*;
 @SuppressWarnings("serial")
 public class Token extends CommonToken implements Locatable, Loggable {
 
-	/** The location of this token. */
-	private final Location location;
-
 	public Token(int type, String text) {
 		super(type, text);
 		setLine(0);
 		setCharPositionInLine(0);
-		location = new Location(getLine(), getCharPositionInLine(), getLine(),
-				getCharPositionInLine() + getText().length() - 1);
 	}
 
 	public Token(Pair<TokenSource, CharStream> source, int type, int channel, int start, int stop) {
 		super(source, type, channel, start, stop);
-		setCharPositionInLine(getCharPositionInLine() - getText().length() + 1);
-		location = new Location(getLine(), getCharPositionInLine(), getLine(),
-				getCharPositionInLine() + getText().length() - 1);
+		// The text is not kept but read from the source whenever it is needed.
+		setCharPositionInLine(getCharPositionInLine() - length() + 1);
+	}
+
+	public Token(Pair<TokenSource, CharStream> source, int type, String text, int start, int stop) {
+		super(source, type, DEFAULT_CHANNEL, start, stop);
+		setText(text);
+		setCharPositionInLine(getCharPositionInLine() - text.length() + 1);
 	}
 
+	/**
+	 * Returns the location of this token, which is not stored but computed from
+	 * its line, column and range in the source.
+	 */
 	@Override
 	public Location location() {
-		return location;
+		return new Location(getLine(), getCharPositionInLine(), getLine(),
+				getCharPositionInLine() + length() - 1);
+	}
+
+	@Override
+	public long packedLocation() {
+		return Location.pack(getLine(), getCharPositionInLine(), getLine(),
+				getCharPositionInLine() + length() - 1);
+	}
+
+	/**
+	 * Returns the length of the text of this token without materializing the
+	 * text unless it has been set explicitly. Only an unrecognised symbol can lie
+	 * outside ASCII, where the range in the source counts code points instead of
+	 * characters.
+	 */
+	private int length() {
+		if ((text != null) || (getType() == EOF) || (getType() == PrevLexer.OTHER_ERR))
+			return getText().length();
+		return getStopIndex() - getStartIndex() + 1;
 	}
 
 	@Override
@@ -47,7 +70,7 @@ public class Token extends CommonToken implements Locatable, Loggable {
 		} else {
 			logger.addAttribute("token", PrevLexer.VOCABULARY.getSymbolicName(getType()));
 			logger.addAttribute("lexeme", getText());
-			location.log(logger);
+			location().log(logger);
 		}
 		logger.endElement();
 	}
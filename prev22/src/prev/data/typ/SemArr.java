@@ -13,20 +13,25 @@ public class SemArr extends SemType {
 	/** Number of elements. */
 	public final long numElems;
 
+	/** The size of values of this type or -1 if not computed yet. */
+	private long size = -1;
+
 	/**
-	 * Constructs a new array type.
+	 * Constructs a new array type (see {@link SemTypeFactory#arr}).
 	 * 
 	 * @param elemType The element type.
 	 * @param numElems The number of elements.
 	 */
-	public SemArr(SemType elemType, long numElems) {
+	SemArr(SemType elemType, long numElems) {
 		this.elemType = elemType;
 		this.numElems = numElems;
 	}
 
 	@Override
 	public long size() {
-		return numElems * elemType.size();
+		if (size < 0)
+			size = numElems * elemType.size();
+		return size;
 	}
 
 	@Override
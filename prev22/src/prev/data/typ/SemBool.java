@@ -6,7 +6,13 @@ import prev.common.logger.*;
  * Type {@code boolean}.
  */
 public class SemBool extends SemType {
-	
+
+	/**
+	 * Constructs type {@code bool} (see {@link SemTypeFactory#boolType}).
+	 */
+	SemBool() {
+	}
+
 	@Override
 	public long size() {
 		return 8;
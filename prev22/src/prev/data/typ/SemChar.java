@@ -7,6 +7,12 @@ import prev.common.logger.*;
  */
 public class SemChar extends SemType {
 
+	/**
+	 * Constructs type {@code char} (see {@link SemTypeFactory#charType}).
+	 */
+	SemChar() {
+	}
+
 	@Override
 	public long size() {
 		return 8;
@@ -7,6 +7,12 @@ import prev.common.logger.*;
  */
 public class SemInt extends SemType {
 
+	/**
+	 * Constructs type {@code int} (see {@link SemTypeFactory#intType}).
+	 */
+	SemInt() {
+	}
+
 	@Override
 	public long size() {
 		return 8;
@@ -14,6 +14,9 @@ public class SemName extends SemType {
 	/** Type this named type represents. */
 	private SemType type = null;
 
+	/** The actual type or {@code null} if not computed yet. */
+	private SemType actualType = null;
+
 	/**
 	 * Constructs a new named type.
 	 * 
@@ -26,7 +29,7 @@ public class SemName extends SemType {
 	/**
 	 * Defines the type this named type represents.
 	 * 
-	 * @param typeThe type this named type represents.
+	 * @param type The type this named type represents.
 	 */
 	public void define(SemType type) {
 		if (this.type != null)
@@ -50,12 +53,14 @@ public class SemName extends SemType {
 	 */
 	@Override
 	public SemType actualType() {
-		return type.actualType();
+		if (actualType == null)
+			actualType = type.actualType();
+		return actualType;
 	}
 
 	@Override
 	public long size() {
-		return type.size();
+		return actualType().size();
 	}
 
 	@Override
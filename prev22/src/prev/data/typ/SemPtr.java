@@ -11,11 +11,11 @@ public class SemPtr extends SemType {
 	public final SemType baseType;
 
 	/**
-	 * Constructs a new pointer type.
+	 * Constructs a new pointer type (see {@link SemTypeFactory#ptr}).
 	 * 
 	 * @param baseType The base type.
 	 */
-	public SemPtr(SemType baseType) {
+	SemPtr(SemType baseType) {
 		this.baseType = baseType;
 	}
 
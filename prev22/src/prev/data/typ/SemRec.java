@@ -12,6 +12,14 @@ public class SemRec extends SemType {
 	/** Component types. */
 	private final SemType[] compTypes;
 
+	/** The size of values of this type or -1 if not computed yet. */
+	private long size = -1;
+
+	/**
+	 * Constructs a new record type.
+	 * 
+	 * @param compTypes The component types.
+	 */
 	public SemRec(Collection<SemType> compTypes) {
 		this.compTypes = new SemType[compTypes.size()];
 		int index = 0;
@@ -41,9 +49,12 @@ public class SemRec extends SemType {
 
 	@Override
 	public long size() {
-		long size = 0;
-		for (int index = 0; index < compTypes.length; index++) {
-			size += compTypes[index].size();
+		if (size < 0) {
+			long size = 0;
+			for (int index = 0; index < compTypes.length; index++) {
+				size += compTypes[index].size();
+			}
+			this.size = size;
 		}
 		return size;
 	}
@@ -0,0 +1,69 @@
+package prev.data.typ;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * A factory of types.
+ *
+ * Structurally identical atomic, pointer and array types are represented by a
+ * single instance, so that they can be compared by reference. Named types and
+ * record types are not interned: each type declaration and each record type
+ * denotes a type of its own.
+ */
+public class SemTypeFactory {
+
+	/** Type {@code void}. */
+	public static final SemVoid voidType = new SemVoid();
+
+	/** Type {@code bool}. */
+	public static final SemBool boolType = new SemBool();
+
+	/** Type {@code char}. */
+	public static final SemChar charType = new SemChar();
+
+	/** Type {@code int}. */
+	public static final SemInt intType = new SemInt();
+
+	/** Type {@code ^void}, i.e., the type of {@code nil} and {@code new}. */
+	public static final SemPtr voidPtrType = new SemPtr(voidType);
+
+	/** Maps base types to pointer types. */
+	private final ConcurrentHashMap<SemType, SemPtr> ptrTypes = new ConcurrentHashMap<SemType, SemPtr>();
+
+	/** An array type without its instance. */
+	private record ArrKey(SemType elemType, long numElems) {
+	}
+
+	/** Maps element types and numbers of elements to array types. */
+	private final ConcurrentHashMap<ArrKey, SemArr> arrTypes = new ConcurrentHashMap<ArrKey, SemArr>();
+
+	/**
+	 * Constructs a new factory of types.
+	 */
+	public SemTypeFactory() {
+		ptrTypes.put(voidType, voidPtrType);
+	}
+
+	/**
+	 * Returns the pointer type.
+	 * 
+	 * @param baseType The base type.
+	 * @return The pointer type.
+	 */
+	public SemPtr ptr(SemType baseType) {
+		return ptrTypes.computeIfAbsent(baseType, SemPtr::new);
+	}
+
+	/**
+	 * Returns the array type.
+	 * 
+	 * @param elemType The element type.
+	 * @param numElems The number of elements.
+	 * @return The array type.
+	 */
+	public SemArr arr(SemType elemType, long numElems) {
+		return arrTypes.computeIfAbsent(new ArrKey(elemType, numElems), key -> new SemArr(elemType, numElems));
+	}
+
+}
@@ -7,6 +7,12 @@ import prev.common.logger.*;
  */
 public class SemVoid extends SemType {
 
+	/**
+	 * Constructs type {@code void} (see {@link SemTypeFactory#voidType}).
+	 */
+	SemVoid() {
+	}
+
 	@Override
 	public long size() {
 		return 0;
@@ -1,5 +1,6 @@
 package prev.phase;
 
+import prev.*;
 import prev.common.logger.*;
 
 /**
@@ -9,42 +10,58 @@ import prev.common.logger.*;
  */
 public abstract class Phase implements AutoCloseable {
 
+	/** The compilation session this phase is a part of. */
+	protected final CompilationSession session;
+
+	/** The name of this phase. */
+	public final String phaseName;
+
 	/** The logger used to produce the log of this phase. */
 	public final Logger logger;
 
 	/**
 	 * Constructs a new phase of a compiler. If logging of this phase has been
 	 * requested, it prepares a logger using the phase name for naming the XML and
-	 * XSL files as well as for the topmost XML element within the XML file.
+	 * XSL files as well as for the topmost XML element within the XML file. The
+	 * log is written on a background thread if {@code --log-thread} is used. The
+	 * phase becomes a part of the compilation session bound to the current thread.
 	 * 
 	 * @param phaseName The phase name.
 	 */
 	protected Phase(String phaseName) {
-		String loggedPhase = prev.Compiler.cmdLineArgValue("--logged-phase");
+		session = CompilationSession.current();
+		this.phaseName = phaseName;
+		String loggedPhase = session.cmdLineArgValue("--logged-phase");
 		if ((loggedPhase != null) && loggedPhase.matches(phaseName + "|all")) {
 			// Prepare the name of the xml file.
-			String xmlFileName = prev.Compiler.cmdLineArgValue("--xml");
+			String xmlFileName = session.cmdLineArgValue("--xml");
 			if (xmlFileName == null) {
-				xmlFileName = prev.Compiler.cmdLineArgValue("--src-file-name").replaceFirst("\\.[^./]*$", "") + "."
+				xmlFileName = session.cmdLineArgValue("--src-file-name").replaceFirst("\\.[^./]*$", "") + "."
 						+ phaseName + ".xml";
 			}
 
 			// Prepare the name of the supporting xsl file.
-			String xslDirName = prev.Compiler.cmdLineArgValue("--xsl");
+			String xslDirName = session.cmdLineArgValue("--xsl");
 			if (xslDirName == null) {
 				xslDirName = "";
 			}
 
-			logger = new Logger(phaseName, xmlFileName, xslDirName + phaseName + ".xsl");
+			logger = new Logger(phaseName, xmlFileName, xslDirName + phaseName + ".xsl",
+					session.cmdLineArgValue("--log-thread") != null);
 		} else {
 			logger = null;
 		}
 	}
 
+	/**
+	 * Closes this phase: finishes its log and releases the results of phases that
+	 * are not needed by any of the following phases.
+	 */
 	@Override
 	public void close() {
 		if (logger != null)
 			logger.close();
+		session.releaseProducts(phaseName);
 	}
 
 }
@@ -1,5 +1,6 @@
 package prev.phase.abstr;
 
+import prev.*;
 import prev.phase.*;
 import prev.data.ast.tree.*;
 
@@ -8,12 +9,18 @@ import prev.data.ast.tree.*;
  */
 public class Abstr extends Phase {
 
-	// === STATIC ===
+	// === SESSION ===
 
-	/** The abstract syntax tree. */
-	public static AstTree tree;
-	
-	// ==============
+	/**
+	 * Returns the abstract syntax tree.
+	 *
+	 * @return The abstract syntax tree of the current compilation session.
+	 */
+	public static AstTree tree() {
+		return CompilationSession.current().abstrTree;
+	}
+
+	// ===============
 	
 	/**
 	 * Phase construction.
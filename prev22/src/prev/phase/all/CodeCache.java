@@ -0,0 +1,381 @@
+package prev.phase.all;
+
+import java.io.*;
+import java.net.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.nio.file.attribute.*;
+import java.security.*;
+import java.util.*;
+import java.util.regex.*;
+import java.util.stream.*;
+
+import prev.*;
+import prev.common.report.*;
+import prev.data.ast.tree.*;
+import prev.data.ast.tree.decl.*;
+import prev.data.ast.visitor.*;
+import prev.data.imc.code.stmt.*;
+import prev.data.lin.*;
+import prev.data.mem.*;
+import prev.phase.imclin.*;
+import prev.phase.memory.*;
+
+/**
+ * An on-disk cache of MMIX code of top-level functions.
+ *
+ * Each top-level function, together with all functions nested within it, is
+ * looked up by its fingerprint (see {@link FunFingerprint}) once the
+ * intermediate code has been linearized. Functions found in the cache skip
+ * machine code generation, liveness analysis and register allocation, and
+ * their MMIX code is taken from the cache instead; the MMIX code of all other
+ * functions is added to the cache. Anonymous labels are stored by the order of
+ * their first occurrence in the function's intermediate code and renamed back
+ * to the labels of the current compilation when the code is reused.
+ *
+ * Fingerprints include the hash of the compiler's classes, so entries made by
+ * a different build of the compiler are never reused.
+ *
+ * The size of the cache is bounded: whenever it grows over the limit, the
+ * least recently used entries are evicted.
+ */
+public class CodeCache {
+
+	/** The version of the format of cache entries. */
+	private static final String version = "prev22-cache 1";
+
+	/** The hash of the compiler's classes or {@code null} if not computed yet. */
+	private static String buildHash = null;
+
+	/** The extension of cache entries. */
+	private static final String entryExt = ".fun";
+
+	/** The pattern of anonymous labels. */
+	private static final Pattern anonLabel = Pattern.compile("\\bL[0-9]+\\b");
+
+	/** The pattern of anonymous labels within cache entries. */
+	private static final Pattern cachedLabel = Pattern.compile("\\bL\\{([0-9]+)\\}");
+
+	/**
+	 * The pattern of anonymous labels in the label column together with the
+	 * alignment following them (see {@link MMIXTranslator}).
+	 */
+	private static final Pattern alignedLabel = Pattern.compile("(?m)^(L[0-9]+)\t\t?");
+
+	/**
+	 * A top-level function together with all functions nested within it.
+	 */
+	static class Group {
+
+		/** The fingerprint. */
+		final String fingerprint;
+
+		/** Anonymous labels in the order of their first occurrence. */
+		final Vector<String> labels = new Vector<String>();
+
+		/** The MMIX code taken from the cache or {@code null} if not cached. */
+		String cachedText = null;
+
+		/** The MMIX code produced by this compilation. */
+		final StringBuilder text = new StringBuilder();
+
+		Group(String fingerprint) {
+			this.fingerprint = fingerprint;
+		}
+
+	}
+
+	/** The directory containing the cache. */
+	private final Path dir;
+
+	/** The maximal size of the cache in bytes. */
+	private final long maxSize;
+
+	/** All top-level functions in the order of declarations. */
+	private final Vector<Group> groups = new Vector<Group>();
+
+	/** Maps frames of all functions to their top-level functions. */
+	private final HashMap<MemFrame, Group> frameGroups = new HashMap<MemFrame, Group>();
+
+	/** The number of top-level functions found in the cache. */
+	private int numHits = 0;
+
+	/** The number of top-level functions not found in the cache. */
+	private int numMisses = 0;
+
+	/**
+	 * Constructs a new cache.
+	 *
+	 * @param dirName The directory containing the cache.
+	 * @param maxSize The maximal size of the cache in bytes.
+	 */
+	public CodeCache(String dirName, long maxSize) {
+		this.dir = Path.of(dirName);
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Parses the size of the cache.
+	 *
+	 * @param size The size in bytes, optionally followed by {@code K}, {@code M}
+	 *             or {@code G}.
+	 * @return The size in bytes.
+	 */
+	public static long parseSize(String size) {
+		long unit = switch (Character.toUpperCase(size.charAt(size.length() - 1))) {
+		case 'K' -> 1L << 10;
+		case 'M' -> 1L << 20;
+		case 'G' -> 1L << 30;
+		default -> 1;
+		};
+		return Long.parseLong(unit == 1 ? size : size.substring(0, size.length() - 1)) * unit;
+	}
+
+	/**
+	 * Returns the hash of the compiler's classes, i.e., of the class files in
+	 * package {@code prev} if the compiler is run from a directory or of the
+	 * archive it is run from.
+	 *
+	 * @return The hash of the compiler's classes.
+	 */
+	private static synchronized String buildHash() {
+		if (buildHash != null)
+			return buildHash;
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			Path location = Path.of(CodeCache.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+			if (Files.isDirectory(location)) {
+				Path root = location.resolve("prev");
+				Vector<Path> classFiles = new Vector<Path>();
+				try (Stream<Path> paths = Files.walk(root)) {
+					paths.filter(path -> path.toString().endsWith(".class")).sorted().forEach(classFiles::add);
+				}
+				for (Path classFile : classFiles) {
+					digest.update(root.relativize(classFile).toString().getBytes(StandardCharsets.UTF_8));
+					digest.update((byte) 0);
+					digest.update(Files.readAllBytes(classFile));
+				}
+			} else
+				digest.update(Files.readAllBytes(location));
+			buildHash = HexFormat.of().formatHex(digest.digest());
+		} catch (IOException | URISyntaxException | NoSuchAlgorithmException | RuntimeException __) {
+			// Without a hash of the build no entry can be trusted.
+			buildHash = UUID.randomUUID().toString();
+		}
+		return buildHash;
+	}
+
+	/**
+	 * Looks up all top-level functions of the program in the cache.
+	 */
+	public void lookup() {
+		CompilationSession session = CompilationSession.current();
+		String options = version + " " + buildHash() + " --nregs=" + session.cmdLineArgValue("--nregs") + " --simplify-imc="
+				+ ("off".equals(session.cmdLineArgValue("--simplify-imc")) ? "off" : "on") + " --copy-prop="
+				+ ("off".equals(session.cmdLineArgValue("--copy-prop")) ? "off" : "on") + " --value-numbering="
+				+ ("off".equals(session.cmdLineArgValue("--value-numbering")) ? "off" : "on") + " --sccp="
+				+ ("off".equals(session.cmdLineArgValue("--sccp")) ? "off" : "on");
+
+		for (AstTree tree : (AstTrees<?>) session.abstrTree) {
+			if (!(tree instanceof AstFunDecl funDecl) || (funDecl.expr == null))
+				continue;
+			Group group = new Group(FunFingerprint.of(funDecl, options));
+			groups.add(group);
+			funDecl.accept(new AstFullVisitor<Object, Object>() {
+				@Override
+				public Object visit(AstFunDecl funDecl, Object arg) {
+					frameGroups.put(Memory.frames().get(funDecl), group);
+					return super.visit(funDecl, arg);
+				}
+			}, null);
+		}
+
+		// Anonymous labels of each function in the order of their first occurrence.
+		HashMap<Group, LinkedHashSet<String>> labels = new HashMap<Group, LinkedHashSet<String>>();
+		for (LinCodeChunk codeChunk : ImcLin.codeChunks()) {
+			Group group = frameGroups.get(codeChunk.frame);
+			if (group == null)
+				throw new Report.InternalError();
+			LinkedHashSet<MemLabel> chunkLabels = new LinkedHashSet<MemLabel>();
+			chunkLabels.add(codeChunk.frame.label);
+			chunkLabels.add(codeChunk.entryLabel);
+			chunkLabels.add(codeChunk.exitLabel);
+			for (ImcStmt stmt : codeChunk.stmts())
+				stmt.accept(new LabelCollector(), chunkLabels);
+			LinkedHashSet<String> groupLabels = labels.computeIfAbsent(group, __ -> new LinkedHashSet<String>());
+			for (MemLabel label : chunkLabels) {
+				if (anonLabel.matcher(label.name).matches())
+					groupLabels.add(label.name);
+			}
+		}
+
+		for (Group group : groups) {
+			group.labels.addAll(labels.getOrDefault(group, new LinkedHashSet<String>()));
+			group.cachedText = read(group);
+			if (group.cachedText != null)
+				numHits++;
+			else
+				numMisses++;
+		}
+		session.stats.count("hits", numHits);
+		session.stats.count("misses", numMisses);
+	}
+
+	/**
+	 * Returns the number of top-level functions found in the cache.
+	 *
+	 * @return The number of top-level functions found in the cache.
+	 */
+	public int numHits() {
+		return numHits;
+	}
+
+	/**
+	 * Returns the number of top-level functions not found in the cache.
+	 *
+	 * @return The number of top-level functions not found in the cache.
+	 */
+	public int numMisses() {
+		return numMisses;
+	}
+
+	/**
+	 * Tells whether the MMIX code of a function is taken from the cache.
+	 *
+	 * @param frame The function's frame.
+	 * @return {@code true} if the MMIX code of the function is taken from the
+	 *         cache.
+	 */
+	public boolean isCached(MemFrame frame) {
+		Group group = frameGroups.get(frame);
+		return (group != null) && (group.cachedText != null);
+	}
+
+	/**
+	 * Returns the top-level function a function belongs to.
+	 *
+	 * @param frame The function's frame.
+	 * @return The top-level function.
+	 */
+	Group group(MemFrame frame) {
+		return frameGroups.get(frame);
+	}
+
+	/**
+	 * Reads the MMIX code of a top-level function from the cache.
+	 *
+	 * @param group The top-level function.
+	 * @return The MMIX code with labels of the current compilation or
+	 *         {@code null} if the function is not in the cache.
+	 */
+	private String read(Group group) {
+		Path entry = dir.resolve(group.fingerprint + entryExt);
+		String text;
+		try {
+			text = Files.readString(entry);
+			Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+		} catch (IOException __) {
+			return null;
+		}
+		String header = version + " " + group.labels.size() + "\n";
+		if (!text.startsWith(header))
+			return null;
+
+		StringBuilder relocated = new StringBuilder();
+		Matcher matcher = cachedLabel.matcher(text.substring(header.length()));
+		while (matcher.find()) {
+			int index = Integer.parseInt(matcher.group(1));
+			if (index >= group.labels.size())
+				return null;
+			matcher.appendReplacement(relocated, group.labels.get(index));
+		}
+		matcher.appendTail(relocated);
+
+		// Align the instructions following the labels again.
+		StringBuilder aligned = new StringBuilder();
+		matcher = alignedLabel.matcher(relocated);
+		while (matcher.find())
+			matcher.appendReplacement(aligned, matcher.group(1) + (matcher.group(1).length() < 4 ? "\t\t" : "\t"));
+		matcher.appendTail(aligned);
+		return aligned.toString();
+	}
+
+	/**
+	 * Writes the MMIX code of all top-level functions not found in the cache to
+	 * the cache and evicts the least recently used entries if the cache has grown
+	 * too large.
+	 */
+	public void write() {
+		try {
+			Files.createDirectories(dir);
+			for (Group group : groups) {
+				if (group.cachedText != null)
+					continue;
+
+				StringBuilder text = new StringBuilder(version + " " + group.labels.size() + "\n");
+				String unaligned = alignedLabel.matcher(group.text).replaceAll("$1\t");
+				Matcher matcher = anonLabel.matcher(unaligned);
+				boolean relocatable = true;
+				while (matcher.find()) {
+					int index = group.labels.indexOf(matcher.group());
+					if (index < 0) {
+						relocatable = false;
+						break;
+					}
+					matcher.appendReplacement(text, "L{" + index + "}");
+				}
+				if (!relocatable)
+					continue;
+				matcher.appendTail(text);
+
+				Path entry = dir.resolve(group.fingerprint + entryExt);
+				Path tmpEntry = Files.createTempFile(dir, group.fingerprint, ".tmp");
+				Files.writeString(tmpEntry, text);
+				Files.move(tmpEntry, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			}
+			evict();
+		} catch (IOException __) {
+			Report.warning("Cannot write to cache '" + dir + "'.");
+		}
+	}
+
+	/**
+	 * Evicts the least recently used entries until the cache fits within its
+	 * maximal size.
+	 *
+	 * @throws IOException If the cache cannot be read.
+	 */
+	private void evict() throws IOException {
+		Vector<Path> entries;
+		try (Stream<Path> files = Files.list(dir)) {
+			entries = files.filter(file -> file.toString().endsWith(entryExt))
+					.collect(Collectors.toCollection(Vector::new));
+		}
+		HashMap<Path, Long> times = new HashMap<Path, Long>();
+		long size = 0;
+		for (Path entry : entries) {
+			try {
+				times.put(entry, Files.getLastModifiedTime(entry).toMillis());
+				size += Files.size(entry);
+			} catch (IOException __) {
+				// Evicted by another compilation.
+				times.put(entry, 0L);
+			}
+		}
+		if (size <= maxSize)
+			return;
+		entries.sort(Comparator.comparing(times::get));
+		for (Path entry : entries) {
+			if (size <= maxSize)
+				break;
+			try {
+				long entrySize = Files.size(entry);
+				Files.deleteIfExists(entry);
+				size -= entrySize;
+			} catch (IOException __) {
+				// Evicted by another compilation.
+			}
+		}
+	}
+
+}
@@ -0,0 +1,355 @@
+package prev.phase.all;
+
+import java.nio.charset.*;
+import java.security.*;
+import java.util.*;
+
+import prev.common.report.*;
+import prev.data.ast.tree.*;
+import prev.data.ast.tree.decl.*;
+import prev.data.ast.tree.expr.*;
+import prev.data.ast.tree.stmt.*;
+import prev.data.ast.tree.type.*;
+import prev.data.ast.visitor.*;
+import prev.data.mem.*;
+import prev.data.typ.*;
+import prev.phase.memory.*;
+import prev.phase.seman.*;
+
+/**
+ * Computes the fingerprint of a top-level function.
+ *
+ * The fingerprint is a hash of the function's abstract syntax tree (including
+ * all functions nested within it) and of the declarations outside the function
+ * it refers to: types are described structurally, global variables by their
+ * names and types, functions by their signatures and record components by their
+ * offsets. The MMIX code of two functions with the same fingerprint is thus the
+ * same up to the names of anonymous labels.
+ */
+public class FunFingerprint extends AstFullVisitor<Object, Object> {
+
+	/** Declarations within the function. */
+	private final HashSet<AstDecl> innerDecls = new HashSet<AstDecl>();
+
+	/** Descriptions of declarations outside the function. */
+	private final HashMap<AstDecl, String> outerDecls = new HashMap<AstDecl, String>();
+
+	/** The hash being computed. */
+	private final MessageDigest digest;
+
+	/**
+	 * Computes the fingerprint of a top-level function.
+	 *
+	 * @param funDecl The declaration of the function.
+	 * @param options Compiler options affecting the produced code.
+	 * @return The fingerprint as a hexadecimal string.
+	 */
+	public static String of(AstFunDecl funDecl, String options) {
+		FunFingerprint fingerprint = new FunFingerprint();
+		fingerprint.add(options);
+		funDecl.accept(new AstFullVisitor<Object, Object>() {
+			@Override
+			public Object visit(AstCompDecl compDecl, Object arg) {
+				fingerprint.innerDecls.add(compDecl);
+				return super.visit(compDecl, arg);
+			}
+
+			@Override
+			public Object visit(AstFunDecl funDecl, Object arg) {
+				fingerprint.innerDecls.add(funDecl);
+				return super.visit(funDecl, arg);
+			}
+
+			@Override
+			public Object visit(AstParDecl parDecl, Object arg) {
+				fingerprint.innerDecls.add(parDecl);
+				return super.visit(parDecl, arg);
+			}
+
+			@Override
+			public Object visit(AstTypeDecl typeDecl, Object arg) {
+				fingerprint.innerDecls.add(typeDecl);
+				return super.visit(typeDecl, arg);
+			}
+
+			@Override
+			public Object visit(AstVarDecl varDecl, Object arg) {
+				fingerprint.innerDecls.add(varDecl);
+				return super.visit(varDecl, arg);
+			}
+		}, null);
+		funDecl.accept(fingerprint, null);
+		return HexFormat.of().formatHex(fingerprint.digest.digest());
+	}
+
+	private FunFingerprint() {
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException __) {
+			throw new Report.InternalError();
+		}
+	}
+
+	/**
+	 * Adds a token to the hash.
+	 *
+	 * @param token The token.
+	 */
+	private void add(String token) {
+		digest.update(token.getBytes(StandardCharsets.UTF_8));
+		digest.update((byte) 0);
+	}
+
+	/**
+	 * Adds a name and the description of its declaration if the declaration lies
+	 * outside the function.
+	 *
+	 * @param kind The kind of the name.
+	 * @param node The name.
+	 * @param name The name as a string.
+	 */
+	private void addName(String kind, AstName node, String name) {
+		add(kind + " " + name);
+		AstDecl decl = SemAn.declaredAt().get(node);
+		if ((decl != null) && !innerDecls.contains(decl))
+			add(outerDecls.computeIfAbsent(decl, FunFingerprint::describe));
+	}
+
+	/**
+	 * Describes a declaration outside the function.
+	 *
+	 * @param decl The declaration.
+	 * @return The description.
+	 */
+	private static String describe(AstDecl decl) {
+		if (decl instanceof AstFunDecl funDecl) {
+			StringBuilder signature = new StringBuilder("fun " + funDecl.name + "(");
+			for (AstParDecl parDecl : funDecl.pars)
+				signature.append(describe(SemAn.isType().get(parDecl.type))).append(",");
+			return signature.append(")").append(describe(SemAn.isType().get(funDecl.type))).toString();
+		}
+		if (decl instanceof AstVarDecl varDecl)
+			return "var " + varDecl.name + ":" + describe(SemAn.isType().get(varDecl.type));
+		if (decl instanceof AstTypeDecl typeDecl)
+			return "typ " + typeDecl.name + "=" + describe(SemAn.declaresType().get(typeDecl).type());
+		if (decl instanceof AstCompDecl compDecl) {
+			MemAccess access = Memory.accesses().get(compDecl);
+			return "comp " + compDecl.name + ":" + describe(SemAn.isType().get(compDecl.type)) + "@"
+					+ ((access instanceof MemRelAccess relAccess) ? relAccess.offset : -1);
+		}
+		return decl.getClass().getSimpleName();
+	}
+
+	/**
+	 * Describes a type structurally.
+	 *
+	 * @param type The type.
+	 * @return The description.
+	 */
+	private static String describe(SemType type) {
+		StringBuilder description = new StringBuilder();
+		describe(type, description, new HashSet<SemName>());
+		return description.toString();
+	}
+
+	/**
+	 * Describes a type structurally.
+	 *
+	 * @param type        The type.
+	 * @param description The description (filled in).
+	 * @param namedTypes  Named types described so far.
+	 */
+	private static void describe(SemType type, StringBuilder description, HashSet<SemName> namedTypes) {
+		if (type == null) {
+			description.append("?");
+		} else if (type instanceof SemName namedType) {
+			description.append(namedType.name);
+			if (namedTypes.add(namedType)) {
+				description.append("=");
+				describe(namedType.type(), description, namedTypes);
+			}
+		} else if (type instanceof SemArr arrType) {
+			description.append("[").append(arrType.numElems).append("]");
+			describe(arrType.elemType, description, namedTypes);
+		} else if (type instanceof SemPtr ptrType) {
+			description.append("^");
+			describe(ptrType.baseType, description, namedTypes);
+		} else if (type instanceof SemRec recType) {
+			description.append("{");
+			for (int i = 0; i < recType.numComps(); i++) {
+				describe(recType.compType(i), description, namedTypes);
+				description.append(",");
+			}
+			description.append("}");
+		} else {
+			description.append(type.getClass().getSimpleName());
+		}
+	}
+
+	// GENERAL PURPOSE
+
+	@Override
+	public Object visit(AstTrees<? extends AstTree> trees, Object arg) {
+		add("trees " + trees.size());
+		return super.visit(trees, arg);
+	}
+
+	// DECLARATIONS
+
+	@Override
+	public Object visit(AstCompDecl compDecl, Object arg) {
+		add("comp " + compDecl.name);
+		return super.visit(compDecl, arg);
+	}
+
+	@Override
+	public Object visit(AstFunDecl funDecl, Object arg) {
+		add("fun " + funDecl.name + (funDecl.expr == null ? "" : " ="));
+		return super.visit(funDecl, arg);
+	}
+
+	@Override
+	public Object visit(AstParDecl parDecl, Object arg) {
+		add("par " + parDecl.name);
+		return super.visit(parDecl, arg);
+	}
+
+	@Override
+	public Object visit(AstTypeDecl typeDecl, Object arg) {
+		add("typ " + typeDecl.name);
+		return super.visit(typeDecl, arg);
+	}
+
+	@Override
+	public Object visit(AstVarDecl varDecl, Object arg) {
+		add("var " + varDecl.name);
+		return super.visit(varDecl, arg);
+	}
+
+	// EXPRESSIONS
+
+	@Override
+	public Object visit(AstArrExpr arrExpr, Object arg) {
+		add("arr");
+		return super.visit(arrExpr, arg);
+	}
+
+	@Override
+	public Object visit(AstAtomExpr atomExpr, Object arg) {
+		add("atom " + atomExpr.type + " " + atomExpr.value);
+		return super.visit(atomExpr, arg);
+	}
+
+	@Override
+	public Object visit(AstBinExpr binExpr, Object arg) {
+		add("bin " + binExpr.oper);
+		return super.visit(binExpr, arg);
+	}
+
+	@Override
+	public Object visit(AstCallExpr callExpr, Object arg) {
+		addName("call", callExpr, callExpr.name);
+		return super.visit(callExpr, arg);
+	}
+
+	@Override
+	public Object visit(AstCastExpr castExpr, Object arg) {
+		add("cast");
+		return super.visit(castExpr, arg);
+	}
+
+	@Override
+	public Object visit(AstNameExpr nameExpr, Object arg) {
+		addName("name", nameExpr, nameExpr.name);
+		return super.visit(nameExpr, arg);
+	}
+
+	@Override
+	public Object visit(AstPfxExpr pfxExpr, Object arg) {
+		add("pfx " + pfxExpr.oper);
+		return super.visit(pfxExpr, arg);
+	}
+
+	@Override
+	public Object visit(AstRecExpr recExpr, Object arg) {
+		add("rec");
+		return super.visit(recExpr, arg);
+	}
+
+	@Override
+	public Object visit(AstSfxExpr sfxExpr, Object arg) {
+		add("sfx " + sfxExpr.oper);
+		return super.visit(sfxExpr, arg);
+	}
+
+	@Override
+	public Object visit(AstStmtExpr stmtExpr, Object arg) {
+		add("stmts");
+		return super.visit(stmtExpr, arg);
+	}
+
+	@Override
+	public Object visit(AstWhereExpr whereExpr, Object arg) {
+		add("where");
+		return super.visit(whereExpr, arg);
+	}
+
+	// STATEMENTS
+
+	@Override
+	public Object visit(AstAssignStmt assignStmt, Object arg) {
+		add("assign");
+		return super.visit(assignStmt, arg);
+	}
+
+	@Override
+	public Object visit(AstExprStmt exprStmt, Object arg) {
+		add("expr");
+		return super.visit(exprStmt, arg);
+	}
+
+	@Override
+	public Object visit(AstIfStmt ifStmt, Object arg) {
+		add("if");
+		return super.visit(ifStmt, arg);
+	}
+
+	@Override
+	public Object visit(AstWhileStmt whileStmt, Object arg) {
+		add("while");
+		return super.visit(whileStmt, arg);
+	}
+
+	// TYPES
+
+	@Override
+	public Object visit(AstArrType arrType, Object arg) {
+		add("arrtype");
+		return super.visit(arrType, arg);
+	}
+
+	@Override
+	public Object visit(AstAtomType atomType, Object arg) {
+		add("atomtype " + atomType.type);
+		return super.visit(atomType, arg);
+	}
+
+	@Override
+	public Object visit(AstNameType nameType, Object arg) {
+		addName("nametype", nameType, nameType.name);
+		return super.visit(nameType, arg);
+	}
+
+	@Override
+	public Object visit(AstPtrType ptrType, Object arg) {
+		add("ptrtype");
+		return super.visit(ptrType, arg);
+	}
+
+	@Override
+	public Object visit(AstRecType recType, Object arg) {
+		add("rectype");
+		return super.visit(recType, arg);
+	}
+
+}
@@ -0,0 +1,106 @@
+package prev.phase.all;
+
+import java.util.*;
+
+import prev.data.imc.code.expr.*;
+import prev.data.imc.code.stmt.*;
+import prev.data.imc.visitor.*;
+import prev.data.mem.*;
+
+/**
+ * Collects all labels used in the intermediate code in the order of their
+ * first occurrence.
+ */
+public class LabelCollector implements ImcVisitor<Object, LinkedHashSet<MemLabel>> {
+
+	@Override
+	public Object visit(ImcBINOP binOp, LinkedHashSet<MemLabel> labels) {
+		binOp.fstExpr.accept(this, labels);
+		binOp.sndExpr.accept(this, labels);
+		return null;
+	}
+
+	@Override
+	public Object visit(ImcCALL call, LinkedHashSet<MemLabel> labels) {
+		labels.add(call.label);
+		for (ImcExpr arg : call.args)
+			arg.accept(this, labels);
+		return null;
+	}
+
+	@Override
+	public Object visit(ImcCJUMP cjump, LinkedHashSet<MemLabel> labels) {
+		cjump.cond.accept(this, labels);
+		labels.add(cjump.posLabel);
+		labels.add(cjump.negLabel);
+		return null;
+	}
+
+	@Override
+	public Object visit(ImcCONST constant, LinkedHashSet<MemLabel> labels) {
+		return null;
+	}
+
+	@Override
+	public Object visit(ImcESTMT eStmt, LinkedHashSet<MemLabel> labels) {
+		eStmt.expr.accept(this, labels);
+		return null;
+	}
+
+	@Override
+	public Object visit(ImcJUMP jump, LinkedHashSet<MemLabel> labels) {
+		labels.add(jump.label);
+		return null;
+	}
+
+	@Override
+	public Object visit(ImcLABEL label, LinkedHashSet<MemLabel> labels) {
+		labels.add(label.label);
+		return null;
+	}
+
+	@Override
+	public Object visit(ImcMEM mem, LinkedHashSet<MemLabel> labels) {
+		mem.addr.accept(this, labels);
+		return null;
+	}
+
+	@Override
+	public Object visit(ImcMOVE move, LinkedHashSet<MemLabel> labels) {
+		move.dst.accept(this, labels);
+		move.src.accept(this, labels);
+		return null;
+	}
+
+	@Override
+	public Object visit(ImcNAME name, LinkedHashSet<MemLabel> labels) {
+		labels.add(name.label);
+		return null;
+	}
+
+	@Override
+	public Object visit(ImcSEXPR sExpr, LinkedHashSet<MemLabel> labels) {
+		sExpr.stmt.accept(this, labels);
+		sExpr.expr.accept(this, labels);
+		return null;
+	}
+
+	@Override
+	public Object visit(ImcSTMTS stmts, LinkedHashSet<MemLabel> labels) {
+		for (ImcStmt stmt : stmts.stmts)
+			stmt.accept(this, labels);
+		return null;
+	}
+
+	@Override
+	public Object visit(ImcTEMP temp, LinkedHashSet<MemLabel> labels) {
+		return null;
+	}
+
+	@Override
+	public Object visit(ImcUNOP unOp, LinkedHashSet<MemLabel> labels) {
+		unOp.subExpr.accept(this, labels);
+		return null;
+	}
+
+}
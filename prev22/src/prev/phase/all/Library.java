@@ -0,0 +1,301 @@
+package prev.phase.all;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+import prev.*;
+import prev.common.report.*;
+import prev.data.ast.tree.*;
+import prev.data.ast.tree.decl.*;
+import prev.data.ast.tree.expr.*;
+import prev.data.ast.tree.type.*;
+import prev.data.ast.visitor.*;
+import prev.data.mem.*;
+import prev.data.typ.*;
+import prev.phase.memory.*;
+import prev.phase.seman.*;
+
+/**
+ * A separately compiled library.
+ *
+ * A library is compiled with {@code --library} into two files: an interface
+ * (with extension {@code .p22i}) written next to its source and an object
+ * (with extension {@code .mms}) written to the destination file. The interface
+ * contains the declarations of all top-level types, variables and functions of
+ * the library, written out as PREV'22 source without function bodies once their
+ * types and memory layout are known. The object contains the MMIX code of the
+ * library's global variables and functions, but neither the bootstrap code nor
+ * the runtime functions, which are added to every program.
+ *
+ * A program compiled with {@code --link=lib} (libraries separated by commas) is
+ * compiled together with the interface of each library instead of its source,
+ * and the object of each library is merged into the program's MMIX code by
+ * {@link MMIXTranslator}. Anonymous labels of a library are prefixed by its name
+ * so that they do not clash with anonymous labels of the program or of other
+ * libraries.
+ */
+public class Library {
+
+	/** The extension of interfaces. */
+	public static final String interfaceExt = ".p22i";
+
+	/** The extension of objects. */
+	public static final String objectExt = ".mms";
+
+	/** The first line of objects. */
+	static final String version = "% prev22-object 1";
+
+	/** The line starting the global variables of an object. */
+	static final String dataSection = "% data";
+
+	/** The line starting the functions of an object. */
+	static final String codeSection = "% code";
+
+	/** Labels of the runtime functions added to every program. */
+	static final Set<String> runtime = Set.of("_new", "_del", "_putChar", "_getChar");
+
+	/** The name of the library. */
+	public final String name;
+
+	/** Labels defined by the library. */
+	public final HashSet<String> exports = new HashSet<String>();
+
+	/** Labels of functions called by the library but defined elsewhere. */
+	public final HashSet<String> imports = new HashSet<String>();
+
+	/** MMIX code of the library's global variables. */
+	public final Vector<String> data = new Vector<String>();
+
+	/** MMIX code of the library's functions. */
+	public final Vector<String> code = new Vector<String>();
+
+	private Library(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Returns the names of libraries without extensions.
+	 *
+	 * @param link The value of {@code --link}.
+	 * @return The names of libraries.
+	 */
+	public static Vector<String> names(String link) {
+		Vector<String> names = new Vector<String>();
+		for (String name : link.split(",")) {
+			if (!name.isEmpty())
+				names.add(name.replaceFirst("\\.(p22|p22i|mms)$", ""));
+		}
+		return names;
+	}
+
+	/**
+	 * Returns the prefix of anonymous labels of a library.
+	 *
+	 * @param srcFileName The name of the library's source file.
+	 * @return The prefix of anonymous labels.
+	 */
+	public static String labelPrefix(String srcFileName) {
+		String name = Path.of(srcFileName).getFileName().toString().replaceFirst("\\.[^.]*$", "");
+		return "L" + name.replaceAll("[^A-Za-z0-9]", "_") + "_";
+	}
+
+	// INTERFACES
+
+	/**
+	 * Reads the interfaces of libraries.
+	 *
+	 * @param link The value of {@code --link}.
+	 * @return The declarations of all libraries.
+	 */
+	public static String readInterfaces(String link) {
+		StringBuilder text = new StringBuilder();
+		for (String name : names(link)) {
+			try {
+				text.append("\n").append(Files.readString(Path.of(name + interfaceExt)));
+			} catch (IOException __) {
+				throw new Report.Error("Cannot open file '" + name + interfaceExt + "'.");
+			}
+		}
+		return text.toString();
+	}
+
+	/**
+	 * Writes the interface of the library being compiled next to its source.
+	 */
+	public static void writeInterface() {
+		CompilationSession session = CompilationSession.current();
+		String srcFileName = session.cmdLineArgValue("--src-file-name");
+		String fileName = srcFileName.replaceFirst("\\.[^./]*$", "") + interfaceExt;
+
+		StringBuilder text = new StringBuilder();
+		text.append("# Interface of library '" + Path.of(srcFileName).getFileName() + "'.\n");
+		for (AstTree tree : (AstTrees<?>) session.abstrTree) {
+			if (tree instanceof AstTypeDecl typeDecl) {
+				text.append("typ " + typeDecl.name + " = " + source(typeDecl.type) + "\n");
+			} else if (tree instanceof AstVarDecl varDecl) {
+				MemAbsAccess access = (MemAbsAccess) Memory.accesses().get(varDecl);
+				text.append("var " + varDecl.name + " : " + source(varDecl.type) + " # " + access.label.name + ", "
+						+ access.size + " byte(s)\n");
+			} else if (tree instanceof AstFunDecl funDecl) {
+				StringJoiner pars = new StringJoiner(", ");
+				for (AstParDecl parDecl : funDecl.pars)
+					pars.add(parDecl.name + " : " + source(parDecl.type));
+				text.append("fun " + funDecl.name + "(" + pars + ") : " + source(funDecl.type) + "\n");
+			}
+		}
+
+		try {
+			Files.writeString(Path.of(fileName), text);
+		} catch (IOException __) {
+			throw new Report.Error("Cannot write to file '" + fileName + "'.");
+		}
+	}
+
+	/**
+	 * Writes out a type as PREV'22 source.
+	 *
+	 * @param type The type.
+	 * @return The source of the type.
+	 */
+	private static String source(AstType type) {
+		if (type instanceof AstAtomType atomType)
+			return atomType.type.name().toLowerCase();
+		if (type instanceof AstNameType nameType)
+			return nameType.name;
+		if (type instanceof AstPtrType ptrType)
+			return "^" + source(ptrType.baseType);
+		if (type instanceof AstArrType arrType)
+			return "[" + ((SemArr) SemAn.isType().get(arrType)).numElems + "]" + source(arrType.elemType);
+		if (type instanceof AstRecType recType) {
+			StringJoiner comps = new StringJoiner(", ", "{", "}");
+			for (AstCompDecl compDecl : recType.comps)
+				comps.add(compDecl.name + " : " + source(compDecl.type));
+			return comps.toString();
+		}
+		throw new Report.InternalError();
+	}
+
+	// OBJECTS
+
+	/**
+	 * Returns the labels of top-level functions with bodies and of global
+	 * variables of the program being compiled.
+	 *
+	 * @return The labels defined by the program.
+	 */
+	static HashSet<String> definedLabels() {
+		HashSet<String> labels = new HashSet<String>();
+		for (AstTree tree : (AstTrees<?>) CompilationSession.current().abstrTree) {
+			if ((tree instanceof AstFunDecl funDecl) && (funDecl.expr != null))
+				labels.add(Memory.frames().get(funDecl).label.name);
+			if (tree instanceof AstVarDecl varDecl)
+				labels.add(((MemAbsAccess) Memory.accesses().get(varDecl)).label.name);
+		}
+		return labels;
+	}
+
+	/**
+	 * Returns the labels of top-level functions without bodies called by the
+	 * program being compiled.
+	 *
+	 * @return The labels of functions defined elsewhere.
+	 */
+	static HashSet<String> importedLabels() {
+		HashSet<String> labels = new HashSet<String>();
+		CompilationSession.current().abstrTree.accept(new AstFullVisitor<Object, Object>() {
+			@Override
+			public Object visit(AstCallExpr callExpr, Object arg) {
+				if ((SemAn.declaredAt().get(callExpr) instanceof AstFunDecl funDecl) && (funDecl.expr == null))
+					labels.add(Memory.frames().get(funDecl).label.name);
+				return super.visit(callExpr, arg);
+			}
+		}, null);
+		return labels;
+	}
+
+	/**
+	 * Reads the objects of libraries and checks that all functions called by the
+	 * program or by the libraries are defined exactly once.
+	 *
+	 * @param link The value of {@code --link}.
+	 * @return The libraries.
+	 */
+	static Vector<Library> link(String link) {
+		Vector<Library> libraries = new Vector<Library>();
+		for (String name : names(link))
+			libraries.add(read(name));
+
+		HashMap<String, Library> definedBy = new HashMap<String, Library>();
+		for (Library library : libraries) {
+			for (String label : library.exports) {
+				Library definer = definedBy.putIfAbsent(label, library);
+				if (definer != null)
+					throw new Report.Error("Label '" + label + "' defined by both library '" + definer.name
+							+ "' and library '" + library.name + "'.");
+			}
+		}
+
+		HashSet<String> defined = definedLabels();
+		defined.addAll(definedBy.keySet());
+		defined.addAll(runtime);
+		HashSet<String> imports = importedLabels();
+		for (Library library : libraries)
+			imports.addAll(library.imports);
+		for (String label : imports) {
+			if (!defined.contains(label))
+				throw new Report.Error("Function '" + label.substring(1) + "' is not defined by any library.");
+		}
+		return libraries;
+	}
+
+	/**
+	 * Reads the object of a library.
+	 *
+	 * @param name The name of the library.
+	 * @return The library.
+	 */
+	private static Library read(String name) {
+		String fileName = name + objectExt;
+		List<String> lines;
+		try {
+			lines = Files.readAllLines(Path.of(fileName));
+		} catch (IOException __) {
+			throw new Report.Error("Cannot open file '" + fileName + "'.");
+		}
+		if (lines.isEmpty() || !lines.get(0).equals(version))
+			throw new Report.Error("File '" + fileName + "' is not a library object.");
+
+		Library library = new Library(Path.of(name).getFileName().toString());
+		Vector<String> section = null;
+		for (String line : lines.subList(1, lines.size())) {
+			if (line.startsWith("% exports "))
+				library.exports.addAll(Arrays.asList(line.substring(10).split(" ")));
+			else if (line.startsWith("% imports "))
+				library.imports.addAll(Arrays.asList(line.substring(10).split(" ")));
+			else if (line.equals(dataSection))
+				section = library.data;
+			else if (line.equals(codeSection))
+				section = library.code;
+			else if (section != null)
+				section.add(line + "\n");
+		}
+		library.exports.remove("");
+		library.imports.remove("");
+		return library;
+	}
+
+	/**
+	 * Returns the header of the object of the library being compiled.
+	 *
+	 * @return The lines of the header.
+	 */
+	static Vector<String> header() {
+		Vector<String> header = new Vector<String>();
+		header.add(version + "\n");
+		header.add("% exports " + String.join(" ", new TreeSet<String>(definedLabels())) + "\n");
+		header.add("% imports " + String.join(" ", new TreeSet<String>(importedLabels())) + "\n");
+		return header;
+	}
+
+}
@@ -1,10 +1,13 @@
 package prev.phase.all;
 
+import prev.CompilationSession;
 import prev.Compiler;
 import prev.data.asm.AsmInstr;
 import prev.data.asm.AsmLABEL;
 import prev.data.asm.Code;
+import prev.data.lin.LinCodeChunk;
 import prev.data.lin.LinDataChunk;
+import prev.data.mem.MemFrame;
 import prev.data.mem.MemTemp;
 import prev.phase.asmgen.AsmGen;
 import prev.phase.imclin.ImcLin;
@@ -12,8 +15,11 @@ import prev.phase.imclin.ImcLin;
 import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Vector;
 
 /**
  * Working compiler.
@@ -24,6 +30,8 @@ public class MMIXTranslator {
 	private final ArrayList<String> instructions;
 	private final HashMap<MemTemp, Integer> tempToReg;
 	private final String nregs = Compiler.cmdLineArgValue("--nregs");
+	private final boolean library = Compiler.cmdLineArgValue("--library") != null;
+	private Vector<Library> linked = new Vector<>();
 
 	public MMIXTranslator(String outputFile, HashMap<MemTemp, Integer> tempToReg) {
 		this.outputFile = outputFile;
@@ -32,14 +40,36 @@ public class MMIXTranslator {
 	}
 
 	public void translate() {
+		// A library gets neither the bootstrap code nor the runtime functions
+		if (library) {
+			translateLibrary();
+			return;
+		}
+
+		// Read the objects of linked libraries
+		String link = Compiler.cmdLineArgValue("--link");
+		if (link != null) linked = Library.link(link);
+
 		// Add bootstrap code
 		addBootstrap();
 
 		// Add all the necessary parts, then write function to file
-		for (Code code : AsmGen.codes) {
-			addPrologue(code);
-			addBody(code);
-			addEpilogue(code);
+		CodeCache cache = CompilationSession.current().codeCache;
+		if (cache == null) {
+			for (Code code : AsmGen.codes()) {
+				addPrologue(code);
+				addBody(code);
+				addEpilogue(code);
+			}
+		} else {
+			addCodes(cache);
+		}
+
+		// Add functions of linked libraries
+		for (Library lib : linked) {
+			addNewline();
+			addComment("Library " + lib.name);
+			instructions.addAll(lib.code);
 		}
 
 		addStdlib();
@@ -48,6 +78,57 @@ public class MMIXTranslator {
 
 		// Write all instructions to output file
 		writeToFile();
+		CompilationSession.current().stats.count("instrs", instructions.size());
+
+		if (cache != null) cache.write();
+	}
+
+	// Write global variables and functions of a library into its object
+	private void translateLibrary() {
+		instructions.addAll(Library.header());
+		instructions.add(Library.dataSection + "\n");
+		addDataChunks(new HashSet<>());
+		instructions.add(Library.codeSection + "\n");
+		for (Code code : AsmGen.codes()) {
+			addPrologue(code);
+			addBody(code);
+			addEpilogue(code);
+		}
+
+		writeToFile();
+		CompilationSession.current().stats.count("instrs", instructions.size());
+	}
+
+	// Add functions in the order of code chunks, either from the cache or newly translated
+	private void addCodes(CodeCache cache) {
+		HashMap<MemFrame, Code> codes = new HashMap<>();
+		for (Code code : AsmGen.codes()) {
+			codes.put(code.frame, code);
+		}
+
+		HashSet<CodeCache.Group> added = new HashSet<>();
+		for (LinCodeChunk codeChunk : ImcLin.codeChunks()) {
+			CodeCache.Group group = cache.group(codeChunk.frame);
+
+			// Add cached code of the top-level function and all functions nested within it at once
+			if (group.cachedText != null) {
+				if (added.add(group)) {
+					for (String line : group.cachedText.split("(?<=\n)")) {
+						instructions.add(line);
+					}
+				}
+				continue;
+			}
+
+			int first = instructions.size();
+			Code code = codes.get(codeChunk.frame);
+			addPrologue(code);
+			addBody(code);
+			addEpilogue(code);
+			for (String instruction : instructions.subList(first, instructions.size())) {
+				group.text.append(instruction);
+			}
+		}
 	}
 
 	// Create an instruction with a label
@@ -154,7 +235,33 @@ public class MMIXTranslator {
 		addNewline();
 		addComment("Global variables");
 
+		// Global variables declared in interfaces of libraries are defined by their objects
+		HashSet<String> linkedLabels = new HashSet<>();
+		for (Library lib : linked) {
+			linkedLabels.addAll(lib.exports);
+		}
+		addDataChunks(linkedLabels);
+
+		for (Library lib : linked) {
+			instructions.addAll(lib.data);
+		}
+
+		addNewline();
+		addInstruction("LOC", "#100"); // Start of code segment
+		addNewline();
+
+		addComment("Bootstrap function");
+		addInstruction("Main", "PUT", "rG,251"); // Prevent shifting SP and FP
+		addInstruction("PUSHJ", "$" + nregs + ",_main"); // Call main
+		addInstruction("LDO", "$255,$254"); // Copy return value into $255 (used for sending data to system calls)
+		addInstruction("TRAP", "0,Halt,0"); // Exit (exit code is in $255)
+	}
+
+	// Add global variables and strings except those with the given labels
+	private void addDataChunks(HashSet<String> skippedLabels) {
 		for (LinDataChunk chunk : ImcLin.dataChunks()) {
+			if (skippedLabels.contains(chunk.label.name)) continue;
+
 			// If initial value is null, this is a normal variable, otherwise it's a string
 			if (chunk.init == null) {
 				addInstruction(chunk.label.name, "OCTA", "0");
@@ -180,16 +287,6 @@ public class MMIXTranslator {
 				addInstruction(chunk.label.name, "OCTA", value);
 			}
 		}
-
-		addNewline();
-		addInstruction("LOC", "#100"); // Start of code segment
-		addNewline();
-
-		addComment("Bootstrap function");
-		addInstruction("Main", "PUT", "rG,251"); // Prevent shifting SP and FP
-		addInstruction("PUSHJ", "$" + nregs + ",_main"); // Call main
-		addInstruction("LDO", "$255,$254"); // Copy return value into $255 (used for sending data to system calls)
-		addInstruction("TRAP", "0,Halt,0"); // Exit (exit code is in $255)
 	}
 
 	private void addPrologue(Code code) {
@@ -244,12 +341,15 @@ public class MMIXTranslator {
 	}
 
 	private void addEpilogue(Code code) {
-		// Save return value
-		addInstruction(code.exitLabel.name, "STO",
-			"$" + tempToReg.get(code.frame.RV) + ",$253,0"); // M[FP] <- RV
+		// Save return value (unless it is never stored into, as once the exit
+		// is found never to be reached)
+		Integer rvReg = tempToReg.get(code.frame.RV);
+		if (rvReg != null) {
+			addInstruction(code.exitLabel.name, "STO", "$" + rvReg + ",$253,0"); // M[FP] <- RV
+		}
 
 		// Restore return address
-		loadValue(- code.frame.locsSize - 16);
+		loadValue(- code.frame.locsSize - 16, rvReg == null ? code.exitLabel.name : null);
 		addInstruction("LDO", "$0,$253,$0"); // $0 <- M[FP + offset]
 		addInstruction("PUT", "rJ,$0"); // RJ <- $0
 
@@ -336,13 +436,16 @@ public class MMIXTranslator {
 
 	private void writeToFile() {
 		try {
-			BufferedWriter writer = new BufferedWriter(new FileWriter(outputFile));
+			// Write to the session's writer if there is one, otherwise to the output file
+			Writer dstWriter = CompilationSession.current().dstWriter;
+			BufferedWriter writer = new BufferedWriter(dstWriter != null ? dstWriter : new FileWriter(outputFile));
 
 			for (String instruction : instructions) {
 				writer.write(instruction);
 			}
 
-			writer.close();
+			if (dstWriter != null) writer.flush();
+			else writer.close();
 		} catch (IOException ioe) {
 			ioe.getMessage();
 		}
@@ -2,6 +2,7 @@ package prev.phase.asmgen;
 
 import java.util.*;
 
+import prev.*;
 import prev.data.imc.code.stmt.*;
 import prev.data.lin.*;
 import prev.data.asm.*;
@@ -13,16 +14,38 @@ import prev.phase.imclin.*;
  */
 public class AsmGen extends Phase {
 
-	public static Vector<Code> codes = new Vector<Code>();
+	/**
+	 * Returns machine code of all functions of the program.
+	 *
+	 * @return Machine code of all functions of the current compilation session.
+	 */
+	public static Vector<Code> codes() {
+		return CompilationSession.current().codes;
+	}
 
 	public AsmGen() {
 		super("asmgen");
 	}
 
+	/**
+	 * Generates machine code of all functions, the functions in parallel.
+	 * Functions whose MMIX code is taken from the cache are skipped.
+	 */
 	public void genAsmCodes() {
+		Vector<LinCodeChunk> codeChunks = new Vector<LinCodeChunk>();
 		for (LinCodeChunk codeChunk : ImcLin.codeChunks()) {
-			Code code = genAsmCode(codeChunk);
-			codes.add(code);
+			if ((session.codeCache == null) || !session.codeCache.isCached(codeChunk.frame))
+				codeChunks.add(codeChunk);
+		}
+		Vector<Code> codes = session.forEachCode(codeChunks.size(), i -> genAsmCode(codeChunks.get(i)));
+		for (Code code : codes) {
+			codes().add(code);
+			session.stats.count("instrs", code.instrs.size());
+			if (session.stats.enabled()) {
+				LinkedHashMap<String, Object> record = session.stats.record("codes");
+				record.put("label", code.frame.label.name);
+				record.put("instrs", code.instrs.size());
+			}
 		}
 	}
 
@@ -37,7 +60,7 @@ public class AsmGen extends Phase {
 	public void log() {
 		if (logger == null)
 			return;
-		for (Code code : AsmGen.codes) {
+		for (Code code : AsmGen.codes()) {
 			logger.begElement("code");
 			logger.addAttribute("entrylabel", code.entryLabel.name);
 			logger.addAttribute("exitlabel", code.exitLabel.name);
@@ -63,33 +63,14 @@ public class StmtGenerator implements ImcVisitor<Vector<AsmInstr>, Object> {
 		MemTemp dst;
 
 		if (move.dst instanceof ImcMEM) { // X -> MEM
-			if (move.src instanceof ImcMEM) {
-				// With MEM -> MEM load src into a register, then store it
-				src = move.src.accept(new ExprGenerator(), instructions);
-				dst = move.dst.accept(new ExprGenerator(), instructions);
-				MemTemp temp = new MemTemp(); // Store value while moving
+			// Store the value of the source (loaded first if it is in memory) into memory
+			src = move.src.accept(new ExprGenerator(), instructions);
+			dst = ((ImcMEM) move.dst).addr.accept(new ExprGenerator(), instructions);
 
-				uses = new Vector<>(List.of(src));
-				defs = new Vector<>(List.of(temp));
-
-				// Docs: http://mmix.cs.hm.edu/doc/instructions-en.html#Signed_Load
-				instructions.add(new AsmMOVE("LDO `d0,`s0,0", uses, defs));
+			uses = new Vector<>(List.of(src, dst));
 
-				// s0 == value to store (temp), s1 == where to store it (dst)
-				uses = new Vector<>(List.of(temp, dst));
-
-				// Docs: http://mmix.cs.hm.edu/doc/instructions-en.html#Signed_Store
-				instructions.add(new AsmOPER("STO `s0,`s1,0", uses, null, null));
-			} else {
-				// With REG -> MEM just store register value into memory
-				src = move.src.accept(new ExprGenerator(), instructions);
-				dst = ((ImcMEM) move.dst).addr.accept(new ExprGenerator(), instructions);
-
-				uses = new Vector<>(List.of(src, dst));
-
-				// Docs: http://mmix.cs.hm.edu/doc/instructions-en.html#Signed_Store
-				instructions.add(new AsmOPER("STO `s0,`s1,0", uses, null, null));
-			}
+			// Docs: http://mmix.cs.hm.edu/doc/instructions-en.html#Signed_Store
+			instructions.add(new AsmOPER("STO `s0,`s1,0", uses, null, null));
 		} else { // X -> REG
 			if (move.src instanceof ImcMEM) {
 				// With MEM -> REG just load value from memory into register
@@ -22,6 +22,7 @@ public class CodeGenerator extends AstNullVisitor<ImcInstr, Stack<MemFrame>> {
 
 	// Identifier for info reports
 	private final String TAG = "[CodeGenerator]: ";
+	private final String CATEGORY = "imcgen";
 
 	// Helper function for NEW and DEL keywords
 	public ImcExpr mallocOrFree(AstPfxExpr pfxExpr, boolean malloc) {
@@ -42,9 +43,9 @@ public class CodeGenerator extends AstNullVisitor<ImcInstr, Stack<MemFrame>> {
 		offs.add(0L);
 
 		// Add the offset and argument
-		ImcExpr subExpr = ImcGen.exprImc.get(pfxExpr.expr);
+		ImcExpr subExpr = ImcGen.exprImc().get(pfxExpr.expr);
 		args.add(subExpr);
-		offs.add(new SemPtr(new SemVoid()).size());
+		offs.add(SemTypeFactory.voidPtrType.size());
 
 		// Offload the work to a runtime function
 		return new ImcCALL(label, offs, args);
@@ -69,7 +70,7 @@ public class CodeGenerator extends AstNullVisitor<ImcInstr, Stack<MemFrame>> {
 
 	@Override
 	public ImcInstr visit(AstFunDecl funDecl, Stack<MemFrame> frames) {
-		frames.push(Memory.frames.get(funDecl));
+		frames.push(Memory.frames().get(funDecl));
 
 		if (funDecl.expr != null) {
 			funDecl.expr.accept(this, frames);
@@ -94,7 +95,7 @@ public class CodeGenerator extends AstNullVisitor<ImcInstr, Stack<MemFrame>> {
 		ImcExpr firstElemAddr = memAccess.addr;
 
 		// Get the element type, so we can calculate any element's address
-		SemType elemType = ((SemArr) SemAn.ofType.get(arrExpr.arr).actualType()).elemType;
+		SemType elemType = ((SemArr) SemAn.ofType().get(arrExpr.arr).actualType()).elemType;
 
 		// Get the index
 		ImcExpr index = (ImcExpr) arrExpr.idx.accept(this, frames);
@@ -105,9 +106,9 @@ public class CodeGenerator extends AstNullVisitor<ImcInstr, Stack<MemFrame>> {
 
 		ImcExpr expr = new ImcMEM(indexAccess);
 
-		Report.info(TAG + "(ArrExpr): " + expr + "=" + indexAccess);
+		Report.trace(CATEGORY, "%s(ArrExpr): %s=%s", TAG, expr, indexAccess);
 
-		ImcGen.exprImc.put(arrExpr, expr);
+		ImcGen.exprImc().put(arrExpr, expr);
 		return expr;
 	}
 
@@ -120,10 +121,10 @@ public class CodeGenerator extends AstNullVisitor<ImcInstr, Stack<MemFrame>> {
 			case BOOL -> new ImcCONST((atomExpr.value.equals("true")) ? 1 : 0); // Bool returns 0 or 1
 			case CHAR -> new ImcCONST(atomExpr.value.length() == 3 ? atomExpr.value.charAt(1) : atomExpr.value.charAt(2)); // ASCII value (position changes if escaped single quote)
 			case INT -> new ImcCONST(Long.parseLong(atomExpr.value)); // Parsed value
-			case STRING -> new ImcNAME(Memory.strings.get(atomExpr).label); // Returns the address of the label
+			case STRING -> new ImcNAME(Memory.strings().get(atomExpr).label); // Returns the address of the label
 		};
 
-		ImcGen.exprImc.put(atomExpr, expr);
+		ImcGen.exprImc().put(atomExpr, expr);
 		return expr;
 	}
 
@@ -150,19 +151,19 @@ public class CodeGenerator extends AstNullVisitor<ImcInstr, Stack<MemFrame>> {
 		};
 
 		ImcExpr expr = new ImcBINOP(oper, subExpr1, subExpr2);
-		ImcGen.exprImc.put(binExpr, expr);
+		ImcGen.exprImc().put(binExpr, expr);
 		return expr;
 	}
 
 	@Override
 	public ImcExpr visit(AstCallExpr callExpr, Stack<MemFrame> frames) {
 		// Get the original declaration
-		if (!(SemAn.declaredAt.get(callExpr) instanceof AstFunDecl funDecl)) {
+		if (!(SemAn.declaredAt().get(callExpr) instanceof AstFunDecl funDecl)) {
 			throw new Report.Error(callExpr, TAG + "not a function declaration");
 		}
 
 		// Get the function's stack frame
-		MemFrame frame = Memory.frames.get(funDecl);
+		MemFrame frame = Memory.frames().get(funDecl);
 
 		// Get the caller (parent) function's stack frame
 		MemFrame callerFrame = frames.peek();
@@ -170,7 +171,7 @@ public class CodeGenerator extends AstNullVisitor<ImcInstr, Stack<MemFrame>> {
 		ImcExpr tempSL = new ImcCONST(0);
 		if (frame.depth > 0) {
 			tempSL = new ImcTEMP(callerFrame.FP);
-			Report.info(TAG + "(CallExpr): " + tempSL);
+			Report.trace(CATEGORY, "%s(CallExpr): %s", TAG, tempSL);
 			for (int i = 0; i <= callerFrame.depth - frame.depth; i++) {
 				tempSL = new ImcMEM(tempSL);
 			}
@@ -185,18 +186,18 @@ public class CodeGenerator extends AstNullVisitor<ImcInstr, Stack<MemFrame>> {
 		argOffsets.add(0L);
 
 		// Add all the other arguments to the list along with their offsets
-		long offset = new SemPtr(new SemVoid()).size(); // Argument offsets start at 8, because of SL
+		long offset = SemTypeFactory.voidPtrType.size(); // Argument offsets start at 8, because of SL
 		for (AstExpr arg : callExpr.args) {
 			args.add((ImcExpr) arg.accept(this, frames));
 			argOffsets.add(offset);
 
 			// Increment the offset
-			SemType argType = SemAn.ofType.get(arg);
+			SemType argType = SemAn.ofType().get(arg);
 			offset += argType.actualType().size();
 		}
 
 		ImcExpr expr = new ImcCALL(frame.label, argOffsets, args);
-		ImcGen.exprImc.put(callExpr, expr);
+		ImcGen.exprImc().put(callExpr, expr);
 		return expr;
 	}
 
@@ -206,28 +207,28 @@ public class CodeGenerator extends AstNullVisitor<ImcInstr, Stack<MemFrame>> {
 		ImcExpr expr = (ImcExpr) castExpr.expr.accept(this, frames);
 
 		// Resolve the type
-		SemType type = SemAn.isType.get(castExpr.type);
+		SemType type = SemAn.isType().get(castExpr.type);
 
 		// If the type is a character use mod(256)
 		if (type.actualType() instanceof SemChar) {
 			expr = new ImcBINOP(ImcBINOP.Oper.MOD, expr, new ImcCONST(256));
 		}
 
-		ImcGen.exprImc.put(castExpr, expr);
+		ImcGen.exprImc().put(castExpr, expr);
 		return expr;
 	}
 
 	@Override
 	public ImcExpr visit(AstNameExpr nameExpr, Stack<MemFrame> frames) {
 		// Get the original declaration
-		AstDecl decl = SemAn.declaredAt.get(nameExpr);
+		AstDecl decl = SemAn.declaredAt().get(nameExpr);
 
 		if (!(decl instanceof AstMemDecl memDecl)) {
 			throw new Report.Error(nameExpr, TAG + "not a memory declaration");
 		}
 
 		// Get the variable from memory
-		MemAccess memAccess = Memory.accesses.get(memDecl);
+		MemAccess memAccess = Memory.accesses().get(memDecl);
 
 		ImcExpr addr;
 		// Memory access can be relative or absolute
@@ -242,7 +243,7 @@ public class CodeGenerator extends AstNullVisitor<ImcInstr, Stack<MemFrame>> {
 				and then get the variable at the offset of the last level */
 			int deltaDepth = (frames.size() - 1) - relAccess.depth;
 			ImcExpr tempFP = new ImcTEMP(frames.peek().FP);
-			Report.info(TAG + "(NameExpr): " + tempFP);
+			Report.trace(CATEGORY, "%s(NameExpr): %s", TAG, tempFP);
 
 			for (int i = 0; i <= deltaDepth; i++) {
 				tempFP = new ImcMEM(tempFP);
@@ -253,7 +254,7 @@ public class CodeGenerator extends AstNullVisitor<ImcInstr, Stack<MemFrame>> {
 		}
 
 		ImcExpr expr = new ImcMEM(addr);
-		ImcGen.exprImc.put(nameExpr, expr);
+		ImcGen.exprImc().put(nameExpr, expr);
 		return expr;
 	}
 
@@ -271,7 +272,7 @@ public class CodeGenerator extends AstNullVisitor<ImcInstr, Stack<MemFrame>> {
 			case DEL -> mallocOrFree(pfxExpr, false);
 		};
 
-		ImcGen.exprImc.put(pfxExpr, expr);
+		ImcGen.exprImc().put(pfxExpr, expr);
 		return expr;
 	}
 
@@ -291,20 +292,20 @@ public class CodeGenerator extends AstNullVisitor<ImcInstr, Stack<MemFrame>> {
 		recExpr.comp.accept(this, frames);
 
 		// Get the component declaration
-		AstDecl decl = SemAn.declaredAt.get(recExpr.comp);
+		AstDecl decl = SemAn.declaredAt().get(recExpr.comp);
 
 		if (!(decl instanceof AstMemDecl memDecl)) {
 			throw new Report.Error(recExpr, TAG + "component is not a memory declaration");
 		}
 
 		// Access the component (record components are all relative, so we can cast without type checking)
-		MemRelAccess comp = (MemRelAccess) Memory.accesses.get(memDecl);
+		MemRelAccess comp = (MemRelAccess) Memory.accesses().get(memDecl);
 
 		// Calculate the component address (recAddr + offset)
 		ImcExpr compAddr = new ImcBINOP(ImcBINOP.Oper.ADD, firstCompAddr, new ImcCONST(comp.offset));
 
 		ImcExpr expr = new ImcMEM(compAddr);
-		ImcGen.exprImc.put(recExpr, expr);
+		ImcGen.exprImc().put(recExpr, expr);
 		return expr;
 	}
 
@@ -314,7 +315,7 @@ public class CodeGenerator extends AstNullVisitor<ImcInstr, Stack<MemFrame>> {
 		ImcExpr subExpr = (ImcExpr) sfxExpr.expr.accept(this, frames);
 
 		ImcMEM memAccess = new ImcMEM(subExpr);
-		ImcGen.exprImc.put(sfxExpr, memAccess);
+		ImcGen.exprImc().put(sfxExpr, memAccess);
 		return memAccess;
 	}
 
@@ -343,7 +344,7 @@ public class CodeGenerator extends AstNullVisitor<ImcInstr, Stack<MemFrame>> {
 
 		ImcStmt stmt = new ImcSTMTS(stmts);
 		ImcExpr expr = new ImcSEXPR(stmt, lastStmtExpr);
-		ImcGen.exprImc.put(stmtExpr, expr);
+		ImcGen.exprImc().put(stmtExpr, expr);
 		return expr;
 	}
 
@@ -355,7 +356,7 @@ public class CodeGenerator extends AstNullVisitor<ImcInstr, Stack<MemFrame>> {
 		// Resolve the declarations
 		whereExpr.decls.accept(this, frames);
 
-		ImcGen.exprImc.put(whereExpr, expr);
+		ImcGen.exprImc().put(whereExpr, expr);
 		return expr;
 	}
 
@@ -369,7 +370,7 @@ public class CodeGenerator extends AstNullVisitor<ImcInstr, Stack<MemFrame>> {
 
 		// Move source to destination
 		ImcStmt stmt = new ImcMOVE(dstExpr, srcExpr);
-		ImcGen.stmtImc.put(assignStmt, stmt);
+		ImcGen.stmtImc().put(assignStmt, stmt);
 		return stmt;
 	}
 
@@ -380,7 +381,7 @@ public class CodeGenerator extends AstNullVisitor<ImcInstr, Stack<MemFrame>> {
 
 		// Create a new expression statement
 		ImcStmt stmt = new ImcESTMT(expr);
-		ImcGen.stmtImc.put(exprStmt, stmt);
+		ImcGen.stmtImc().put(exprStmt, stmt);
 		return stmt;
 	}
 
@@ -409,7 +410,7 @@ public class CodeGenerator extends AstNullVisitor<ImcInstr, Stack<MemFrame>> {
 		stmts.add(breakLabel);
 
 		ImcStmt stmt = new ImcSTMTS(stmts);
-		ImcGen.stmtImc.put(ifStmt, stmt);
+		ImcGen.stmtImc().put(ifStmt, stmt);
 		return stmt;
 	}
 
@@ -437,7 +438,7 @@ public class CodeGenerator extends AstNullVisitor<ImcInstr, Stack<MemFrame>> {
 		stmts.add(breakLabel);
 
 		ImcStmt stmt = new ImcSTMTS(stmts);
-		ImcGen.stmtImc.put(whileStmt, stmt);
+		ImcGen.stmtImc().put(whileStmt, stmt);
 		return stmt;
 	}
 }
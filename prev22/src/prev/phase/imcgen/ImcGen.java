@@ -1,5 +1,6 @@
 package prev.phase.imcgen;
 
+import prev.*;
 import prev.data.ast.tree.expr.*;
 import prev.data.ast.tree.stmt.*;
 import prev.data.ast.attribute.*;
@@ -13,11 +14,23 @@ import prev.phase.*;
  */
 public class ImcGen extends Phase implements AstVisitor<Object, Object> {
 
-	/** Maps statements to intermediate code. */
-	public static final AstAttribute<AstStmt, ImcStmt> stmtImc = new AstAttribute<AstStmt, ImcStmt>(0);
+	/**
+	 * Maps statements to intermediate code.
+	 *
+	 * @return The attribute of the current compilation session.
+	 */
+	public static AstAttribute<AstStmt, ImcStmt> stmtImc() {
+		return CompilationSession.current().stmtImc;
+	}
 
-	/** Maps expressions to intermediate code. */
-	public static final AstAttribute<AstExpr, ImcExpr> exprImc = new AstAttribute<AstExpr, ImcExpr>(0);
+	/**
+	 * Maps expressions to intermediate code.
+	 *
+	 * @return The attribute of the current compilation session.
+	 */
+	public static AstAttribute<AstExpr, ImcExpr> exprImc() {
+		return CompilationSession.current().exprImc;
+	}
 
 	/**
 	 * Constructs a new phase for intermediate code generation.
@@ -26,4 +39,14 @@ public class ImcGen extends Phase implements AstVisitor<Object, Object> {
 		super("imcgen");
 	}
 
+	/**
+	 * Closes the phase and makes the intermediate code of statements and expressions read-only.
+	 */
+	@Override
+	public void close() {
+		session.stmtImc.freeze();
+		session.exprImc.freeze();
+		super.close();
+	}
+
 }
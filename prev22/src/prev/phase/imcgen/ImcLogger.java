@@ -30,7 +30,7 @@ public class ImcLogger extends AstNullVisitor<Object, String> {
 
 	@Override
 	public Object visit(AstArrExpr arrExpr, String arg) {
-		ImcExpr code = ImcGen.exprImc.get(arrExpr);
+		ImcExpr code = ImcGen.exprImc().get(arrExpr);
 		if (code != null) {
 			logger.begElement("imcs");
 			code.log(logger);
@@ -41,7 +41,7 @@ public class ImcLogger extends AstNullVisitor<Object, String> {
 
 	@Override
 	public Object visit(AstAtomExpr atomExpr, String arg) {
-		ImcExpr code = ImcGen.exprImc.get(atomExpr);
+		ImcExpr code = ImcGen.exprImc().get(atomExpr);
 		if (code != null) {
 			logger.begElement("imcs");
 			code.log(logger);
@@ -52,7 +52,7 @@ public class ImcLogger extends AstNullVisitor<Object, String> {
 
 	@Override
 	public Object visit(AstBinExpr binExpr, String arg) {
-		ImcExpr code = ImcGen.exprImc.get(binExpr);
+		ImcExpr code = ImcGen.exprImc().get(binExpr);
 		if (code != null) {
 			logger.begElement("imcs");
 			code.log(logger);
@@ -63,7 +63,7 @@ public class ImcLogger extends AstNullVisitor<Object, String> {
 
 	@Override
 	public Object visit(AstCallExpr callExpr, String arg) {
-		ImcExpr code = ImcGen.exprImc.get(callExpr);
+		ImcExpr code = ImcGen.exprImc().get(callExpr);
 		if (code != null) {
 			logger.begElement("imcs");
 			code.log(logger);
@@ -74,7 +74,7 @@ public class ImcLogger extends AstNullVisitor<Object, String> {
 
 	@Override
 	public Object visit(AstCastExpr castExpr, String arg) {
-		ImcExpr code = ImcGen.exprImc.get(castExpr);
+		ImcExpr code = ImcGen.exprImc().get(castExpr);
 		if (code != null) {
 			logger.begElement("imcs");
 			code.log(logger);
@@ -85,7 +85,7 @@ public class ImcLogger extends AstNullVisitor<Object, String> {
 
 	@Override
 	public Object visit(AstNameExpr nameExpr, String arg) {
-		ImcExpr code = ImcGen.exprImc.get(nameExpr);
+		ImcExpr code = ImcGen.exprImc().get(nameExpr);
 		if (code != null) {
 			logger.begElement("imcs");
 			code.log(logger);
@@ -96,7 +96,7 @@ public class ImcLogger extends AstNullVisitor<Object, String> {
 
 	@Override
 	public Object visit(AstPfxExpr pfxExpr, String arg) {
-		ImcExpr code = ImcGen.exprImc.get(pfxExpr);
+		ImcExpr code = ImcGen.exprImc().get(pfxExpr);
 		if (code != null) {
 			logger.begElement("imcs");
 			code.log(logger);
@@ -107,7 +107,7 @@ public class ImcLogger extends AstNullVisitor<Object, String> {
 
 	@Override
 	public Object visit(AstRecExpr recExpr, String arg) {
-		ImcExpr code = ImcGen.exprImc.get(recExpr);
+		ImcExpr code = ImcGen.exprImc().get(recExpr);
 		if (code != null) {
 			logger.begElement("imcs");
 			code.log(logger);
@@ -118,7 +118,7 @@ public class ImcLogger extends AstNullVisitor<Object, String> {
 
 	@Override
 	public Object visit(AstSfxExpr sfxExpr, String arg) {
-		ImcExpr code = ImcGen.exprImc.get(sfxExpr);
+		ImcExpr code = ImcGen.exprImc().get(sfxExpr);
 		if (code != null) {
 			logger.begElement("imcs");
 			code.log(logger);
@@ -129,7 +129,7 @@ public class ImcLogger extends AstNullVisitor<Object, String> {
 
 	@Override
 	public Object visit(AstStmtExpr stmtExpr, String arg) {
-		ImcExpr code = ImcGen.exprImc.get(stmtExpr);
+		ImcExpr code = ImcGen.exprImc().get(stmtExpr);
 		if (code != null) {
 			logger.begElement("imcs");
 			code.log(logger);
@@ -140,7 +140,7 @@ public class ImcLogger extends AstNullVisitor<Object, String> {
 
 	@Override
 	public Object visit(AstWhereExpr whereExpr, String arg) {
-		ImcExpr code = ImcGen.exprImc.get(whereExpr);
+		ImcExpr code = ImcGen.exprImc().get(whereExpr);
 		if (code != null) {
 			logger.begElement("imcs");
 			code.log(logger);
@@ -153,7 +153,7 @@ public class ImcLogger extends AstNullVisitor<Object, String> {
 
 	@Override
 	public Object visit(AstAssignStmt assignStmt, String arg) {
-		ImcStmt code = ImcGen.stmtImc.get(assignStmt);
+		ImcStmt code = ImcGen.stmtImc().get(assignStmt);
 		if (code != null) {
 			logger.begElement("imcs");
 			code.log(logger);
@@ -164,7 +164,7 @@ public class ImcLogger extends AstNullVisitor<Object, String> {
 
 	@Override
 	public Object visit(AstExprStmt exprStmt, String arg) {
-		ImcStmt code = ImcGen.stmtImc.get(exprStmt);
+		ImcStmt code = ImcGen.stmtImc().get(exprStmt);
 		if (code != null) {
 			logger.begElement("imcs");
 			code.log(logger);
@@ -175,7 +175,7 @@ public class ImcLogger extends AstNullVisitor<Object, String> {
 
 	@Override
 	public Object visit(AstIfStmt ifStmt, String arg) {
-		ImcStmt code = ImcGen.stmtImc.get(ifStmt);
+		ImcStmt code = ImcGen.stmtImc().get(ifStmt);
 		if (code != null) {
 			logger.begElement("imcs");
 			code.log(logger);
@@ -186,7 +186,7 @@ public class ImcLogger extends AstNullVisitor<Object, String> {
 
 	@Override
 	public Object visit(AstWhileStmt whileStmt, String arg) {
-		ImcStmt code = ImcGen.stmtImc.get(whileStmt);
+		ImcStmt code = ImcGen.stmtImc().get(whileStmt);
 		if (code != null) {
 			logger.begElement("imcs");
 			code.log(logger);
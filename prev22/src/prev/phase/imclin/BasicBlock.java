@@ -0,0 +1,97 @@
+package prev.phase.imclin;
+
+import java.util.*;
+
+import prev.data.mem.*;
+import prev.data.imc.code.stmt.*;
+
+/**
+ * A basic block of linearized intermediate code.
+ *
+ * A block starts with a label or right after a jump and ends with a jump or
+ * right before a label, so control enters a block only at its first statement
+ * and leaves it only after its last one. Control leaves the code chunk by
+ * jumping to a label outside it, i.e., to the chunk's exit label.
+ */
+public class BasicBlock {
+
+	/** The statements of the block. */
+	public final Vector<ImcStmt> stmts = new Vector<ImcStmt>();
+
+	/** The blocks control might pass to after this one. */
+	public final Vector<BasicBlock> succs = new Vector<BasicBlock>();
+
+	/** The blocks control might come from. */
+	public final Vector<BasicBlock> preds = new Vector<BasicBlock>();
+
+	/** Whether control might leave the code chunk after this block. */
+	public boolean exits = false;
+
+	/**
+	 * Splits linearized statements into basic blocks and links the blocks.
+	 *
+	 * @param stmts The statements of a code chunk.
+	 * @return The blocks in the order of the statements; the first one is
+	 *         entered first.
+	 */
+	public static Vector<BasicBlock> split(Vector<ImcStmt> stmts) {
+		Vector<BasicBlock> blocks = new Vector<BasicBlock>();
+		HashMap<MemLabel, BasicBlock> labelBlocks = new HashMap<MemLabel, BasicBlock>();
+		BasicBlock block = null;
+		for (ImcStmt stmt : stmts) {
+			if ((block == null) || (stmt instanceof ImcLABEL)) {
+				block = new BasicBlock();
+				blocks.add(block);
+			}
+			block.stmts.add(stmt);
+			if (stmt instanceof ImcLABEL label)
+				labelBlocks.put(label.label, block);
+			if ((stmt instanceof ImcJUMP) || (stmt instanceof ImcCJUMP))
+				block = null;
+		}
+
+		for (int b = 0; b < blocks.size(); b++) {
+			block = blocks.get(b);
+			ImcStmt last = block.stmts.lastElement();
+			if (last instanceof ImcJUMP jump)
+				block.link(jump.label, labelBlocks);
+			else if (last instanceof ImcCJUMP cjump) {
+				block.link(cjump.posLabel, labelBlocks);
+				block.link(cjump.negLabel, labelBlocks);
+			} else if (b + 1 < blocks.size())
+				block.link(blocks.get(b + 1));
+			else
+				block.exits = true;
+		}
+		return blocks;
+	}
+
+	/**
+	 * Joins basic blocks back into linearized statements.
+	 *
+	 * @param blocks The blocks.
+	 * @return The statements of all blocks in the order of the blocks.
+	 */
+	public static Vector<ImcStmt> join(Vector<BasicBlock> blocks) {
+		Vector<ImcStmt> stmts = new Vector<ImcStmt>();
+		for (BasicBlock block : blocks)
+			stmts.addAll(block.stmts);
+		return stmts;
+	}
+
+	private void link(MemLabel label, HashMap<MemLabel, BasicBlock> labelBlocks) {
+		BasicBlock succ = labelBlocks.get(label);
+		if (succ != null)
+			link(succ);
+		else
+			exits = true;
+	}
+
+	private void link(BasicBlock succ) {
+		if (succs.contains(succ))
+			return;
+		succs.add(succ);
+		succ.preds.add(this);
+	}
+
+}
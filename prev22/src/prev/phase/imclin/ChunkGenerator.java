@@ -2,6 +2,8 @@ package prev.phase.imclin;
 
 import java.util.*;
 
+import prev.*;
+
 import prev.data.ast.tree.decl.*;
 import prev.data.ast.tree.expr.*;
 import prev.data.ast.visitor.*;
@@ -14,10 +16,26 @@ import prev.phase.memory.*;
 
 public class ChunkGenerator extends AstFullVisitor<Object, Object> {
 
+	/** Whether intermediate code is simplified before it is canonized. */
+	private final boolean simplify = !"off".equals(CompilationSession.current().cmdLineArgValue("--simplify-imc"));
+
+	/** Whether common subexpressions are eliminated within basic blocks. */
+	private final boolean numberValues = !"off".equals(CompilationSession.current().cmdLineArgValue("--value-numbering"));
+
+	/** The number of registers available or {@code 0} if not known. */
+	private final int numRegs = CompilationSession.current().cmdLineArgValue("--nregs") == null ? 0
+			: Integer.decode(CompilationSession.current().cmdLineArgValue("--nregs"));
+
+	/** Whether constants are propagated over the static single assignment form. */
+	private final boolean propagateConsts = !"off".equals(CompilationSession.current().cmdLineArgValue("--sccp"));
+
+	/** Whether copies are propagated and dead moves removed after linearization. */
+	private final boolean propagateCopies = !"off".equals(CompilationSession.current().cmdLineArgValue("--copy-prop"));
+
 	@Override
 	public Object visit(AstAtomExpr atomExpr, Object arg) {
 		if (atomExpr.type == AstAtomExpr.Type.STRING) {
-			MemAbsAccess absAccess = Memory.strings.get(atomExpr);
+			MemAbsAccess absAccess = Memory.strings().get(atomExpr);
 			ImcLin.addDataChunk(new LinDataChunk(absAccess));
 		}
 
@@ -30,18 +48,36 @@ public class ChunkGenerator extends AstFullVisitor<Object, Object> {
 
 		funDecl.expr.accept(this, arg);
 
-		MemFrame frame = Memory.frames.get(funDecl);
+		MemFrame frame = Memory.frames().get(funDecl);
 		MemLabel entryLabel = new MemLabel();
 		MemLabel exitLabel = new MemLabel();
 
 		Vector<ImcStmt> canonStmts = new Vector<>();
 		canonStmts.add(new ImcLABEL(entryLabel));
-		ImcExpr bodyExpr = ImcGen.exprImc.get(funDecl.expr);
+		ImcExpr bodyExpr = ImcGen.exprImc().get(funDecl.expr);
+		if (simplify)
+			bodyExpr = bodyExpr.accept(new ExprSimplifier(), null);
 		ImcStmt bodyStmt = new ImcMOVE(new ImcTEMP(frame.RV), bodyExpr);
 		canonStmts.addAll(bodyStmt.accept(new StmtCanonizer(), null));
 		canonStmts.add(new ImcJUMP(exitLabel));
 
 		Vector<ImcStmt> linearStmts = linearize (canonStmts);
+		if (numberValues) {
+			ValueNumberer valueNumberer = new ValueNumberer(frame, numRegs);
+			linearStmts = valueNumberer.number(linearStmts);
+			CompilationSession.current().stats.count("eliminatedNodes", valueNumberer.numEliminated());
+		}
+		if (propagateConsts) {
+			SsaForm ssaForm = new SsaForm(linearStmts);
+			ConstPropagator constPropagator = new ConstPropagator(ssaForm);
+			constPropagator.propagate();
+			CompilationSession.current().stats.count("constTemps", constPropagator.numConstTemps());
+			CompilationSession.current().stats.count("foldedJumps", constPropagator.numFoldedJumps());
+			CompilationSession.current().stats.count("unreachableStmts", constPropagator.numRemovedStmts());
+			linearStmts = ssaForm.linearStmts();
+		}
+		if (propagateCopies)
+			linearStmts = new TempOptimizer(frame).optimize(linearStmts);
 		ImcLin.addCodeChunk(new LinCodeChunk(frame, linearStmts, entryLabel, exitLabel));
 
 		return null;
@@ -49,7 +85,7 @@ public class ChunkGenerator extends AstFullVisitor<Object, Object> {
 
 	@Override
 	public Object visit(AstVarDecl varDecl, Object arg) {
-		MemAccess access = Memory.accesses.get(varDecl);
+		MemAccess access = Memory.accesses().get(varDecl);
 		if (access instanceof MemAbsAccess absAccess) {
 			ImcLin.addDataChunk(new LinDataChunk(absAccess));
 		}
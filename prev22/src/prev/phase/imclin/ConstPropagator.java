@@ -0,0 +1,315 @@
+package prev.phase.imclin;
+
+import java.util.*;
+
+import prev.common.report.Report;
+import prev.data.mem.*;
+import prev.data.imc.code.expr.*;
+import prev.data.imc.code.stmt.*;
+
+/**
+ * Sparse conditional constant propagation (see M. N. Wegman, F. K. Zadeck:
+ * Constant Propagation with Conditional Branches).
+ *
+ * Working on the static single assignment form (see {@link SsaForm}), every
+ * version of a temporary variable is found to be either a constant or not, and
+ * every edge between basic blocks is found to be either possibly taken or
+ * never taken. Both start out optimistically, i.e., no version has a value yet
+ * and no edge is taken, and are only lowered as the blocks reached are
+ * evaluated. Memory, calls and temporary variables never stored into are not
+ * constant.
+ *
+ * Uses of constant versions are then replaced by the constants and the
+ * statements changed are simplified (see {@link StmtSimplifier}), so a
+ * conditional jump with a known outcome becomes an unconditional jump. Blocks
+ * that are never reached are removed.
+ */
+public class ConstPropagator {
+
+	// Identifier for info reports
+	private final String TAG = "[ConstPropagator]: ";
+	private final String CATEGORY = "imclin";
+
+	/**
+	 * A value in the lattice of constant propagation: no value yet, a constant or
+	 * not a constant.
+	 */
+	private record Value(Long constant, boolean isVarying) {
+
+		static final Value NONE = new Value(null, false);
+
+		static final Value VARYING = new Value(null, true);
+
+		/**
+		 * Returns the greatest value below this one and another one.
+		 */
+		Value meet(Value that) {
+			if (this == NONE)
+				return that;
+			if ((that == NONE) || this.equals(that))
+				return this;
+			return VARYING;
+		}
+
+	}
+
+	/** The static single assignment form of the code. */
+	private final SsaForm ssaForm;
+
+	/** The values of the versions of temporary variables. */
+	private final HashMap<MemTemp, Value> values = new HashMap<MemTemp, Value>();
+
+	/** The blocks every block might pass control to. */
+	private final HashMap<BasicBlock, HashSet<BasicBlock>> takenEdges = new HashMap<BasicBlock, HashSet<BasicBlock>>();
+
+	/** The statements and phi functions reading every version. */
+	private final HashMap<MemTemp, Vector<Object>> uses = new HashMap<MemTemp, Vector<Object>>();
+
+	/** The block of every statement and phi function reading a version. */
+	private final IdentityHashMap<Object, BasicBlock> useBlocks = new IdentityHashMap<Object, BasicBlock>();
+
+	/** The blocks reached through newly taken edges. */
+	private final Vector<BasicBlock> blockWork = new Vector<BasicBlock>();
+
+	/** The statements and phi functions whose operands have changed. */
+	private final Vector<Object> useWork = new Vector<Object>();
+
+	/** The number of versions found to be constant. */
+	private int numConstTemps = 0;
+
+	/** The number of conditional jumps whose outcome is known. */
+	private int numFoldedJumps = 0;
+
+	/** The number of statements removed as they are never reached. */
+	private int numRemovedStmts = 0;
+
+	/**
+	 * Constructs a new constant propagator.
+	 *
+	 * @param ssaForm The static single assignment form of the code.
+	 */
+	public ConstPropagator(SsaForm ssaForm) {
+		this.ssaForm = ssaForm;
+	}
+
+	/**
+	 * Propagates constants and removes the code never reached.
+	 */
+	public void propagate() {
+		for (BasicBlock block : ssaForm.order) {
+			for (SsaForm.Phi phi : ssaForm.phis.get(block))
+				for (MemTemp src : phi.srcs.values())
+					addUse(src, phi, block);
+			for (ImcStmt stmt : block.stmts) {
+				HashSet<MemTemp> temps = new HashSet<MemTemp>();
+				if ((stmt instanceof ImcMOVE move) && (move.dst instanceof ImcTEMP))
+					move.src.accept(new TempCollector(), temps);
+				else
+					stmt.accept(new TempCollector(), temps);
+				for (MemTemp temp : temps)
+					addUse(temp, stmt, block);
+			}
+		}
+
+		blockWork.add(ssaForm.blocks.firstElement());
+		while (!blockWork.isEmpty() || !useWork.isEmpty()) {
+			if (!blockWork.isEmpty()) {
+				BasicBlock block = blockWork.remove(blockWork.size() - 1);
+				for (SsaForm.Phi phi : ssaForm.phis.get(block))
+					evaluate(phi, block);
+				if (takenEdges.get(block) == null) {
+					// The block is reached for the first time.
+					takenEdges.put(block, new HashSet<BasicBlock>());
+					for (ImcStmt stmt : block.stmts)
+						evaluate(stmt, block);
+					if (!endsWithJump(block))
+						take(block, block.succs.firstElement());
+				}
+			} else {
+				Object use = useWork.remove(useWork.size() - 1);
+				BasicBlock block = useBlocks.get(use);
+				if (takenEdges.get(block) == null)
+					continue;
+				if (use instanceof SsaForm.Phi phi)
+					evaluate(phi, block);
+				else
+					evaluate((ImcStmt) use, block);
+			}
+		}
+
+		rewrite();
+	}
+
+	/**
+	 * Returns the number of versions found to be constant.
+	 *
+	 * @return The number of versions found to be constant.
+	 */
+	public int numConstTemps() {
+		return numConstTemps;
+	}
+
+	/**
+	 * Returns the number of conditional jumps whose outcome is known.
+	 *
+	 * @return The number of conditional jumps whose outcome is known.
+	 */
+	public int numFoldedJumps() {
+		return numFoldedJumps;
+	}
+
+	/**
+	 * Returns the number of statements removed as they are never reached.
+	 *
+	 * @return The number of statements removed as they are never reached.
+	 */
+	public int numRemovedStmts() {
+		return numRemovedStmts;
+	}
+
+	private void addUse(MemTemp temp, Object use, BasicBlock block) {
+		if (!ssaForm.isVersion(temp))
+			return;
+		uses.computeIfAbsent(temp, __ -> new Vector<Object>()).add(use);
+		useBlocks.put(use, block);
+	}
+
+	private void evaluate(SsaForm.Phi phi, BasicBlock block) {
+		Value value = Value.NONE;
+		for (BasicBlock pred : block.preds) {
+			HashSet<BasicBlock> predEdges = takenEdges.get(pred);
+			if ((predEdges != null) && predEdges.contains(block))
+				value = value.meet(valueOf(phi.srcs.get(pred)));
+		}
+		lower(phi.dst, value);
+	}
+
+	private void evaluate(ImcStmt stmt, BasicBlock block) {
+		if (stmt instanceof ImcMOVE move) {
+			if (move.dst instanceof ImcTEMP dst)
+				lower(dst.temp, move.src instanceof ImcCALL ? Value.VARYING : valueOf(move.src));
+		} else if (stmt instanceof ImcJUMP jump)
+			take(block, jump.label);
+		else if (stmt instanceof ImcCJUMP cjump) {
+			Value cond = valueOf(cjump.cond);
+			if (cond == Value.NONE)
+				return;
+			if (cond.isVarying() || (cond.constant() != 0))
+				take(block, cjump.posLabel);
+			if (cond.isVarying() || (cond.constant() == 0))
+				take(block, cjump.negLabel);
+		}
+	}
+
+	private void lower(MemTemp temp, Value value) {
+		Value oldValue = values.getOrDefault(temp, Value.NONE);
+		Value newValue = oldValue.meet(value);
+		if (newValue.equals(oldValue))
+			return;
+		values.put(temp, newValue);
+		Vector<Object> tempUses = uses.get(temp);
+		if (tempUses != null)
+			useWork.addAll(tempUses);
+	}
+
+	private void take(BasicBlock block, MemLabel label) {
+		for (BasicBlock succ : block.succs)
+			if ((succ.stmts.firstElement() instanceof ImcLABEL succLabel) && (succLabel.label == label))
+				take(block, succ);
+	}
+
+	private void take(BasicBlock block, BasicBlock succ) {
+		if (takenEdges.get(block).add(succ))
+			blockWork.add(succ);
+	}
+
+	private Value valueOf(MemTemp temp) {
+		if (!ssaForm.isVersion(temp))
+			return Value.VARYING;
+		return values.getOrDefault(temp, Value.NONE);
+	}
+
+	/**
+	 * Returns the value of a canonical expression.
+	 */
+	private Value valueOf(ImcExpr expr) {
+		if (expr instanceof ImcCONST constant)
+			return new Value(constant.value, false);
+		if (expr instanceof ImcTEMP temp)
+			return valueOf(temp.temp);
+		if (expr instanceof ImcUNOP unOp) {
+			Value sub = valueOf(unOp.subExpr);
+			if (sub.constant() == null)
+				return sub;
+			Long value = ExprSimplifier.fold(unOp.oper, sub.constant());
+			return value == null ? Value.VARYING : new Value(value, false);
+		}
+		if (expr instanceof ImcBINOP binOp) {
+			Value fst = valueOf(binOp.fstExpr);
+			Value snd = valueOf(binOp.sndExpr);
+			if (fst.isVarying() || snd.isVarying())
+				return Value.VARYING;
+			if ((fst == Value.NONE) || (snd == Value.NONE))
+				return Value.NONE;
+			Long value = ExprSimplifier.fold(binOp.oper, fst.constant(), snd.constant());
+			return value == null ? Value.VARYING : new Value(value, false);
+		}
+		return Value.VARYING;
+	}
+
+	private static boolean endsWithJump(BasicBlock block) {
+		ImcStmt last = block.stmts.lastElement();
+		return (last instanceof ImcJUMP) || (last instanceof ImcCJUMP);
+	}
+
+	/**
+	 * Replaces uses of constant versions, simplifies the statements changed and
+	 * removes the blocks never reached.
+	 */
+	private void rewrite() {
+		for (Value value : values.values())
+			if (value.constant() != null)
+				numConstTemps++;
+
+		for (int b = 0; b < ssaForm.blocks.size(); b++) {
+			BasicBlock block = ssaForm.blocks.get(b);
+			if (takenEdges.get(block) == null) {
+				Report.trace(CATEGORY, "%s(unreachable): %s", TAG, block.stmts.firstElement());
+				numRemovedStmts += block.stmts.size();
+				ssaForm.blocks.remove(b--);
+				continue;
+			}
+			for (int s = 0; s < block.stmts.size(); s++) {
+				ImcStmt stmt = block.stmts.get(s);
+				// A conditional jump with a known outcome is replaced even if its
+				// condition reads no temporary variable, as the block it never
+				// jumps to has been removed.
+				if ((stmt instanceof ImcCJUMP cjump) && (valueOf(cjump.cond).constant() != null)) {
+					ImcJUMP jump = new ImcJUMP(valueOf(cjump.cond).constant() != 0 ? cjump.posLabel : cjump.negLabel);
+					Report.trace(CATEGORY, "%s(cjump): %s -> %s", TAG, cjump.cond, jump);
+					numFoldedJumps++;
+					block.stmts.set(s, jump);
+					continue;
+				}
+				ImcStmt newStmt = (ImcStmt) stmt.accept(new TempRenamer(), temp -> {
+					Long constant = valueOf(temp).constant();
+					return constant == null ? null : new ImcCONST(constant);
+				});
+				// A constant version is stored the constant if that has no side effects.
+				if ((newStmt instanceof ImcMOVE move) && (move.dst instanceof ImcTEMP dst)
+						&& (valueOf(dst.temp).constant() != null) && !(move.src instanceof ImcCONST)
+						&& ExprSimplifier.isPure(move.src))
+					newStmt = new ImcMOVE(dst, new ImcCONST(valueOf(dst.temp).constant()));
+				if (newStmt == stmt)
+					continue;
+				newStmt = newStmt.accept(new StmtSimplifier(), null);
+				if ((stmt instanceof ImcCJUMP) && (newStmt instanceof ImcJUMP)) {
+					Report.trace(CATEGORY, "%s(cjump): %s -> %s", TAG, ((ImcCJUMP) stmt).cond, newStmt);
+					numFoldedJumps++;
+				}
+				block.stmts.set(s, newStmt);
+			}
+		}
+	}
+
+}
@@ -3,7 +3,6 @@ package prev.phase.imclin;
 import java.util.*;
 
 import prev.common.report.Report;
-import prev.data.ast.tree.expr.*;
 import prev.data.mem.*;
 import prev.data.imc.code.expr.*;
 import prev.data.imc.code.stmt.*;
@@ -11,40 +10,34 @@ import prev.data.imc.visitor.*;
 
 /**
  * Expression canonizer.
+ *
+ * Calls and statements of statement expressions are moved out of expressions
+ * and into the statements preceding them, so a canonized expression contains
+ * neither. The result of a call is stored into a temporary variable. A
+ * subexpression evaluated before such statements is stored into a temporary
+ * variable only if the statements might change its value, i.e., if they store
+ * into memory it loads from or into a temporary variable it uses; all other
+ * subexpressions are left in place for the code generator to tile.
  */
 public class ExprCanonizer implements ImcVisitor<ImcExpr, Vector<ImcStmt>> {
 
 	// Identifier for info reports
 	private final String TAG = "[ExprCanonizer]: ";
+	private final String CATEGORY = "imclin";
 
 	public ImcExpr visit(ImcBINOP binOp, Vector<ImcStmt> stmts) {
-		// Store subexpression results
-		MemTemp memTemp1 = new MemTemp();
-		MemTemp memTemp2 = new MemTemp();
-
-		ImcTEMP temp1 = new ImcTEMP(memTemp1);
-		ImcTEMP temp2 = new ImcTEMP(memTemp2);
-
-		stmts.add(new ImcMOVE(temp1, binOp.fstExpr.accept(this, stmts)));
-		stmts.add(new ImcMOVE(temp2, binOp.sndExpr.accept(this, stmts)));
-
-		Report.info(TAG + "(binOp): " + memTemp1 + "=" + binOp.fstExpr + ", " + memTemp2 + "=" + binOp.sndExpr);
-
-		return new ImcBINOP(binOp.oper, temp1, temp2);
+		Vector<ImcExpr> exprs = canonize(List.of(binOp.fstExpr, binOp.sndExpr), stmts);
+		if ((exprs.get(0) == binOp.fstExpr) && (exprs.get(1) == binOp.sndExpr))
+			return binOp;
+		return new ImcBINOP(binOp.oper, exprs.get(0), exprs.get(1));
 	}
 
 	public ImcExpr visit(ImcCALL call, Vector<ImcStmt> stmts) {
-		Vector<ImcExpr> args = new Vector<>();
-
-		for (ImcExpr arg : call.args) {
-			MemTemp memTemp = new MemTemp();
-			Report.info(TAG + "(call): " + memTemp + "=" + arg);
-			ImcTEMP temp = new ImcTEMP(memTemp);
-			stmts.add(new ImcMOVE(temp, arg.accept(this, stmts)));
-			args.add(temp);
-		}
-
-		return new ImcCALL(call.label, call.offs, args);
+		MemTemp memTemp = new MemTemp();
+		Report.trace(CATEGORY, "%s(call): %s=%s", TAG, memTemp, call.label.name);
+		ImcTEMP temp = new ImcTEMP(memTemp);
+		stmts.add(new ImcMOVE(temp, canonize(call, stmts)));
+		return temp;
 	}
 
 	public ImcExpr visit(ImcCONST constant, Vector<ImcStmt> stmts) {
@@ -52,13 +45,8 @@ public class ExprCanonizer implements ImcVisitor<ImcExpr, Vector<ImcStmt>> {
 	}
 
 	public ImcExpr visit(ImcMEM mem, Vector<ImcStmt> stmts) {
-		MemTemp memTemp = new MemTemp();
-		ImcTEMP temp = new ImcTEMP(memTemp);
-		stmts.add(new ImcMOVE(temp, new ImcMEM(mem.addr.accept(this, stmts))));
-
-		Report.info(TAG + "(mem): " + memTemp + "=" + mem.addr);
-
-		return temp;
+		ImcExpr addr = mem.addr.accept(this, stmts);
+		return addr == mem.addr ? mem : new ImcMEM(addr);
 	}
 
 	public ImcExpr visit(ImcNAME name, Vector<ImcStmt> stmts) {
@@ -75,6 +63,105 @@ public class ExprCanonizer implements ImcVisitor<ImcExpr, Vector<ImcStmt>> {
 	}
 
 	public ImcExpr visit(ImcUNOP unOp, Vector<ImcStmt> stmts) {
-		return new ImcUNOP(unOp.oper, unOp.subExpr.accept(this, stmts));
+		ImcExpr subExpr = unOp.subExpr.accept(this, stmts);
+		return subExpr == unOp.subExpr ? unOp : new ImcUNOP(unOp.oper, subExpr);
+	}
+
+	/**
+	 * Canonizes the arguments of a call but leaves the call in place.
+	 *
+	 * @param call  The call.
+	 * @param stmts The statements preceding the call.
+	 * @return The call with canonized arguments.
+	 */
+	public ImcCALL canonize(ImcCALL call, Vector<ImcStmt> stmts) {
+		Vector<ImcExpr> args = canonize(call.args, stmts);
+		for (int arg = 0; arg < args.size(); arg++)
+			if (args.get(arg) != call.args.get(arg))
+				return new ImcCALL(call.label, call.offs, args);
+		return call;
 	}
+
+	/**
+	 * Canonizes expressions that are evaluated one after another.
+	 *
+	 * @param exprs The expressions in the order of evaluation.
+	 * @param stmts The statements preceding the expressions.
+	 * @return The canonized expressions.
+	 */
+	public Vector<ImcExpr> canonize(List<ImcExpr> exprs, Vector<ImcStmt> stmts) {
+		Vector<ImcExpr> canonExprs = new Vector<>();
+		for (ImcExpr expr : exprs) {
+			Vector<ImcStmt> exprStmts = new Vector<>();
+			ImcExpr canonExpr = expr.accept(this, exprStmts);
+			if (!exprStmts.isEmpty()) {
+				Effects effects = new Effects(exprStmts);
+				for (int prev = 0; prev < canonExprs.size(); prev++) {
+					if (effects.mightChange(canonExprs.get(prev))) {
+						MemTemp memTemp = new MemTemp();
+						Report.trace(CATEGORY, "%s(preserve): %s=%s", TAG, memTemp, canonExprs.get(prev));
+						stmts.add(new ImcMOVE(new ImcTEMP(memTemp), canonExprs.get(prev)));
+						canonExprs.set(prev, new ImcTEMP(memTemp));
+					}
+				}
+				stmts.addAll(exprStmts);
+			}
+			canonExprs.add(canonExpr);
+		}
+		return canonExprs;
+	}
+
+	/**
+	 * The effects of canonical statements on the values of canonical expressions.
+	 */
+	private static class Effects {
+
+		/** Whether the statements might store into memory. */
+		private boolean storesMem = false;
+
+		/** The temporary variables the statements store into. */
+		private final HashSet<MemTemp> storedTemps = new HashSet<>();
+
+		/**
+		 * Determines the effects of canonical statements.
+		 *
+		 * @param stmts The statements.
+		 */
+		Effects(Vector<ImcStmt> stmts) {
+			for (ImcStmt stmt : stmts) {
+				if (stmt instanceof ImcMOVE move) {
+					if (move.dst instanceof ImcTEMP temp)
+						storedTemps.add(temp.temp);
+					else
+						storesMem = true;
+					if (move.src instanceof ImcCALL)
+						storesMem = true;
+				} else if (stmt instanceof ImcESTMT eStmt) {
+					if (eStmt.expr instanceof ImcCALL)
+						storesMem = true;
+				}
+			}
+		}
+
+		/**
+		 * Tells whether the statements might change the value of a canonical
+		 * expression evaluated before them.
+		 *
+		 * @param expr The expression.
+		 * @return {@code true} if they might, {@code false} otherwise.
+		 */
+		boolean mightChange(ImcExpr expr) {
+			if (expr instanceof ImcBINOP binOp)
+				return mightChange(binOp.fstExpr) || mightChange(binOp.sndExpr);
+			if (expr instanceof ImcUNOP unOp)
+				return mightChange(unOp.subExpr);
+			if (expr instanceof ImcMEM mem)
+				return storesMem || mightChange(mem.addr);
+			if (expr instanceof ImcTEMP temp)
+				return storedTemps.contains(temp.temp);
+			return false;
+		}
+
+	}
+
 }
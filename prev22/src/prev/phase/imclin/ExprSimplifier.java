@@ -0,0 +1,286 @@
+package prev.phase.imclin;
+
+import java.util.*;
+
+import prev.common.report.Report;
+import prev.data.imc.code.expr.*;
+import prev.data.imc.code.stmt.*;
+import prev.data.imc.visitor.*;
+
+/**
+ * Expression simplifier.
+ *
+ * Constant subexpressions are folded, operations with an identity or an
+ * annihilator as an operand are removed and constant offsets are collected at
+ * the top of chains of additions, e.g., {@code BINOP(ADD,BINOP(ADD,x,CONST(8)),
+ * CONST(16))} becomes {@code BINOP(ADD,x,CONST(24))}. Operands of commutative
+ * operators are swapped only if the first one is a constant, so the order in
+ * which the remaining subexpressions are evaluated is preserved, and a
+ * subexpression is removed only if evaluating it has no side effects.
+ *
+ * A constant subexpression is folded only if its value is the same when
+ * interpreted (see {@link Interpreter}) and when run as MMIX code: division
+ * and remainder are not folded if the divisor is zero or if the result of MMIX
+ * {@code DIV}, which rounds the quotient down, differs from the one rounded
+ * towards zero; logical operators are folded for boolean operands only.
+ */
+public class ExprSimplifier implements ImcVisitor<ImcExpr, Object> {
+
+	// Identifier for info reports
+	private final String TAG = "[ExprSimplifier]: ";
+	private final String CATEGORY = "imclin";
+
+	public ImcExpr visit(ImcBINOP binOp, Object obj) {
+		ImcExpr fstExpr = binOp.fstExpr.accept(this, obj);
+		ImcExpr sndExpr = binOp.sndExpr.accept(this, obj);
+		ImcExpr expr = simplify(binOp.oper, fstExpr, sndExpr);
+		if (expr == null)
+			return (fstExpr == binOp.fstExpr) && (sndExpr == binOp.sndExpr) ? binOp
+					: new ImcBINOP(binOp.oper, fstExpr, sndExpr);
+		Report.trace(CATEGORY, "%s(binOp): %s -> %s", TAG, binOp, expr);
+		return expr;
+	}
+
+	public ImcExpr visit(ImcCALL call, Object obj) {
+		Vector<ImcExpr> args = new Vector<>();
+		boolean changed = false;
+		for (ImcExpr arg : call.args) {
+			ImcExpr simpleArg = arg.accept(this, obj);
+			changed |= simpleArg != arg;
+			args.add(simpleArg);
+		}
+		return changed ? new ImcCALL(call.label, call.offs, args) : call;
+	}
+
+	public ImcExpr visit(ImcCONST constant, Object obj) {
+		return constant;
+	}
+
+	public ImcExpr visit(ImcMEM mem, Object obj) {
+		ImcExpr addr = mem.addr.accept(this, obj);
+		return addr == mem.addr ? mem : new ImcMEM(addr);
+	}
+
+	public ImcExpr visit(ImcNAME name, Object obj) {
+		return name;
+	}
+
+	public ImcExpr visit(ImcSEXPR sExpr, Object obj) {
+		ImcStmt stmt = sExpr.stmt.accept(new StmtSimplifier(), obj);
+		ImcExpr expr = sExpr.expr.accept(this, obj);
+		return (stmt == sExpr.stmt) && (expr == sExpr.expr) ? sExpr : new ImcSEXPR(stmt, expr);
+	}
+
+	public ImcExpr visit(ImcTEMP temp, Object obj) {
+		return temp;
+	}
+
+	public ImcExpr visit(ImcUNOP unOp, Object obj) {
+		ImcExpr subExpr = unOp.subExpr.accept(this, obj);
+		ImcExpr expr = null;
+		if (subExpr instanceof ImcCONST constant) {
+			Long value = fold(unOp.oper, constant.value);
+			if (value != null)
+				expr = new ImcCONST(value);
+		} else if ((subExpr instanceof ImcUNOP subUnOp) && (subUnOp.oper == unOp.oper))
+			// Both NEG(NEG(x)) and NOT(NOT(x)) of a boolean x equal x.
+			expr = subUnOp.subExpr;
+		if (expr == null)
+			return subExpr == unOp.subExpr ? unOp : new ImcUNOP(unOp.oper, subExpr);
+		Report.trace(CATEGORY, "%s(unOp): %s -> %s", TAG, unOp, expr);
+		return expr;
+	}
+
+	/**
+	 * Simplifies a binary operation with simplified operands.
+	 *
+	 * @param oper    The operator.
+	 * @param fstExpr The first operand.
+	 * @param sndExpr The second operand.
+	 * @return The simplified operation or {@code null} if it cannot be
+	 *         simplified.
+	 */
+	private ImcExpr simplify(ImcBINOP.Oper oper, ImcExpr fstExpr, ImcExpr sndExpr) {
+		if ((fstExpr instanceof ImcCONST fstConst) && (sndExpr instanceof ImcCONST sndConst)) {
+			Long value = fold(oper, fstConst.value, sndConst.value);
+			return value == null ? null : new ImcCONST(value);
+		}
+
+		// A constant is the second operand of a commutative operator.
+		if ((fstExpr instanceof ImcCONST) && isCommutative(oper)) {
+			ImcExpr expr = simplify(oper, sndExpr, fstExpr);
+			return expr == null ? new ImcBINOP(oper, sndExpr, fstExpr) : expr;
+		}
+
+		if (sndExpr instanceof ImcCONST sndConst) {
+			long value = sndConst.value;
+			switch (oper) {
+			case ADD:
+				if (value == 0)
+					return fstExpr;
+				if ((fstExpr instanceof ImcBINOP fstBinOp) && (fstBinOp.oper == ImcBINOP.Oper.ADD)
+						&& (fstBinOp.sndExpr instanceof ImcCONST fstConst))
+					return add(fstBinOp.fstExpr, fstConst.value + value);
+				return null;
+			case SUB:
+				return value == 0 ? fstExpr : add(fstExpr, -value);
+			case MUL:
+				if (value == 1)
+					return fstExpr;
+				if ((value == 0) && isPure(fstExpr))
+					return new ImcCONST(0);
+				if ((fstExpr instanceof ImcBINOP fstBinOp) && (fstBinOp.sndExpr instanceof ImcCONST fstConst)) {
+					// (x*c1)*c2 = x*(c1*c2) and (x+c1)*c2 = x*c2+c1*c2.
+					if (fstBinOp.oper == ImcBINOP.Oper.MUL)
+						return new ImcBINOP(ImcBINOP.Oper.MUL, fstBinOp.fstExpr, new ImcCONST(fstConst.value * value));
+					if (fstBinOp.oper == ImcBINOP.Oper.ADD)
+						return add(new ImcBINOP(ImcBINOP.Oper.MUL, fstBinOp.fstExpr, sndConst), fstConst.value * value);
+				}
+				return null;
+			case DIV:
+				return value == 1 ? fstExpr : null;
+			case MOD:
+				return (value == 1) && isPure(fstExpr) ? new ImcCONST(0) : null;
+			case AND:
+				if (value == 1)
+					return fstExpr;
+				return (value == 0) && isPure(fstExpr) ? new ImcCONST(0) : null;
+			case OR:
+				if (value == 0)
+					return fstExpr;
+				return (value == 1) && isPure(fstExpr) ? new ImcCONST(1) : null;
+			default:
+				break;
+			}
+		}
+
+		if (oper == ImcBINOP.Oper.ADD) {
+			// (x+c)+y = (x+y)+c and x+(y+c) = (x+y)+c, so that c can be added to
+			// further constant offsets.
+			if ((fstExpr instanceof ImcBINOP fstBinOp) && (fstBinOp.oper == ImcBINOP.Oper.ADD)
+					&& (fstBinOp.sndExpr instanceof ImcCONST fstConst))
+				return add(new ImcBINOP(ImcBINOP.Oper.ADD, fstBinOp.fstExpr, sndExpr), fstConst.value);
+			if ((sndExpr instanceof ImcBINOP sndBinOp) && (sndBinOp.oper == ImcBINOP.Oper.ADD)
+					&& (sndBinOp.sndExpr instanceof ImcCONST sndConst))
+				return add(new ImcBINOP(ImcBINOP.Oper.ADD, fstExpr, sndBinOp.fstExpr), sndConst.value);
+		}
+
+		return null;
+	}
+
+	/**
+	 * Adds a constant to an expression.
+	 *
+	 * @param expr  The expression.
+	 * @param value The constant.
+	 * @return The sum.
+	 */
+	private ImcExpr add(ImcExpr expr, long value) {
+		return value == 0 ? expr : new ImcBINOP(ImcBINOP.Oper.ADD, expr, new ImcCONST(value));
+	}
+
+	/**
+	 * Computes the value of a unary operation with a constant operand.
+	 *
+	 * @param oper   The operator.
+	 * @param subVal The operand.
+	 * @return The value or {@code null} if it is not folded.
+	 */
+	static Long fold(ImcUNOP.Oper oper, long subVal) {
+		if (oper == ImcUNOP.Oper.NEG)
+			return -subVal;
+		return isBool(subVal) ? (subVal == 0 ? 1L : 0L) : null;
+	}
+
+	/**
+	 * Computes the value of a binary operation with constant operands.
+	 *
+	 * @param oper   The operator.
+	 * @param fstVal The first operand.
+	 * @param sndVal The second operand.
+	 * @return The value or {@code null} if it is not folded.
+	 */
+	static Long fold(ImcBINOP.Oper oper, long fstVal, long sndVal) {
+		switch (oper) {
+		case OR:
+			return isBool(fstVal) && isBool(sndVal) ? fstVal | sndVal : null;
+		case AND:
+			return isBool(fstVal) && isBool(sndVal) ? fstVal & sndVal : null;
+		case EQU:
+			return fstVal == sndVal ? 1L : 0L;
+		case NEQ:
+			return fstVal != sndVal ? 1L : 0L;
+		case LTH:
+			return fstVal < sndVal ? 1L : 0L;
+		case GTH:
+			return fstVal > sndVal ? 1L : 0L;
+		case LEQ:
+			return fstVal <= sndVal ? 1L : 0L;
+		case GEQ:
+			return fstVal >= sndVal ? 1L : 0L;
+		case ADD:
+			return fstVal + sndVal;
+		case SUB:
+			return fstVal - sndVal;
+		case MUL:
+			return fstVal * sndVal;
+		case DIV:
+			return isExactDivision(fstVal, sndVal) ? fstVal / sndVal : null;
+		case MOD:
+			return isExactDivision(fstVal, sndVal) ? fstVal % sndVal : null;
+		}
+		throw new Report.InternalError();
+	}
+
+	/**
+	 * Tells whether division rounding down and division rounding towards zero
+	 * yield the same quotient and remainder.
+	 *
+	 * @param fstVal The dividend.
+	 * @param sndVal The divisor.
+	 * @return {@code true} if they do and the divisor is not zero, {@code false}
+	 *         otherwise.
+	 */
+	private static boolean isExactDivision(long fstVal, long sndVal) {
+		if ((sndVal == 0) || ((fstVal == Long.MIN_VALUE) && (sndVal == -1)))
+			return false;
+		return (fstVal % sndVal == 0) || ((fstVal < 0) == (sndVal < 0));
+	}
+
+	private static boolean isBool(long value) {
+		return (value == 0) || (value == 1);
+	}
+
+	private static boolean isCommutative(ImcBINOP.Oper oper) {
+		return switch (oper) {
+		case OR, AND, EQU, NEQ, ADD, MUL -> true;
+		default -> false;
+		};
+	}
+
+	/**
+	 * Tells whether evaluating an expression has no side effects, i.e., whether
+	 * the expression can be removed. Division by a variable might fail and is
+	 * therefore kept.
+	 *
+	 * @param expr The expression.
+	 * @return {@code true} if the expression can be removed, {@code false}
+	 *         otherwise.
+	 */
+	static boolean isPure(ImcExpr expr) {
+		if ((expr instanceof ImcCONST) || (expr instanceof ImcTEMP) || (expr instanceof ImcNAME))
+			return true;
+		if (expr instanceof ImcMEM mem)
+			return isPure(mem.addr);
+		if (expr instanceof ImcUNOP unOp)
+			return isPure(unOp.subExpr);
+		if (expr instanceof ImcBINOP binOp) {
+			if (((binOp.oper == ImcBINOP.Oper.DIV) || (binOp.oper == ImcBINOP.Oper.MOD))
+					&& !((binOp.sndExpr instanceof ImcCONST divisor) && (divisor.value != 0)))
+				return false;
+			return isPure(binOp.fstExpr) && isPure(binOp.sndExpr);
+		}
+		return false;
+	}
+
+}
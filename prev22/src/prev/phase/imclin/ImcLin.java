@@ -2,7 +2,10 @@ package prev.phase.imclin;
 
 import java.util.*;
 
+import prev.*;
+import prev.data.imc.code.stmt.*;
 import prev.data.lin.*;
+import prev.data.mem.*;
 import prev.phase.*;
 
 /**
@@ -10,12 +13,6 @@ import prev.phase.*;
  */
 public class ImcLin extends Phase {
 
-	/** All data chunks of the program. */
-	private final static Vector<LinDataChunk> dataChunks = new Vector<LinDataChunk>();
-
-	/** All code chinks of the program. */
-	private final static Vector<LinCodeChunk> codeChunks = new Vector<LinCodeChunk>();
-
 	/**
 	 * Constructs a new phase for the linearization of intermediate code.
 	 */
@@ -23,11 +20,33 @@ public class ImcLin extends Phase {
 		super("imclin");
 	}
 
+	/**
+	 * Records the number of statements and temporary variables of every code chunk
+	 * in the statistics of the compilation.
+	 */
+	public void countChunks() {
+		if (!session.stats.enabled())
+			return;
+		session.stats.count("dataChunks", session.dataChunks.size());
+		session.stats.count("codeChunks", session.codeChunks.size());
+		for (LinCodeChunk codeChunk : session.codeChunks) {
+			HashSet<MemTemp> temps = new HashSet<MemTemp>();
+			for (ImcStmt stmt : codeChunk.stmts())
+				stmt.accept(new TempCollector(), temps);
+			LinkedHashMap<String, Object> record = session.stats.record("chunks");
+			record.put("label", codeChunk.frame.label.name);
+			record.put("stmts", codeChunk.stmts().size());
+			record.put("temps", temps.size());
+		}
+	}
+
 	public void log() {
+		if (logger == null)
+			return;
 		LinLogger linLogger = new LinLogger(logger);
-		for (LinDataChunk dataChunk : dataChunks)
+		for (LinDataChunk dataChunk : dataChunks())
 			linLogger.log(dataChunk);
-		for (LinCodeChunk codeChunk : codeChunks)
+		for (LinCodeChunk codeChunk : codeChunks())
 			linLogger.log(codeChunk);
 	}
 
@@ -37,7 +56,7 @@ public class ImcLin extends Phase {
 	 * @param dataChunk A data chunk.
 	 */
 	public static void addDataChunk(LinDataChunk dataChunk) {
-		dataChunks.add(dataChunk);
+		CompilationSession.current().dataChunks.add(dataChunk);
 	}
 
 	/**
@@ -46,7 +65,7 @@ public class ImcLin extends Phase {
 	 * @return A collection of all data chunks of the program.
 	 */
 	public static Vector<LinDataChunk> dataChunks() {
-		return new Vector<LinDataChunk>(dataChunks);
+		return new Vector<LinDataChunk>(CompilationSession.current().dataChunks);
 	}
 
 	/**
@@ -55,7 +74,7 @@ public class ImcLin extends Phase {
 	 * @param codeChunk A code chunk.
 	 */
 	public static void addCodeChunk(LinCodeChunk codeChunk) {
-		codeChunks.add(codeChunk);
+		CompilationSession.current().codeChunks.add(codeChunk);
 	}
 
 	/**
@@ -64,7 +83,7 @@ public class ImcLin extends Phase {
 	 * @return A collection of all code chunks of the program.
 	 */
 	public static Vector<LinCodeChunk> codeChunks() {
-		return new Vector<LinCodeChunk>(codeChunks);
+		return new Vector<LinCodeChunk>(CompilationSession.current().codeChunks);
 	}
 
 }
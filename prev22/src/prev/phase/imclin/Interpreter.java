@@ -1,6 +1,8 @@
 package prev.phase.imclin;
 
+import java.io.*;
 import java.util.*;
+import prev.*;
 import prev.common.report.*;
 import prev.data.mem.*;
 import prev.data.imc.code.expr.*;
@@ -15,6 +17,8 @@ public class Interpreter {
 
 	private boolean debug = false;
 
+	private final PrintStream out = CompilationSession.current().out;
+
 	private Random random;
 
 	private HashMap<Long, Byte> memory;
@@ -49,7 +53,7 @@ public class Interpreter {
 		this.dataMemLabels = new HashMap<MemLabel, Long>();
 		for (LinDataChunk dataChunk : dataChunks) {
 			if (debug) {
-				System.out.printf("### %s @ %d\n", dataChunk.label.name, tempLD(HP, false));
+				out.printf("### %s @ %d\n", dataChunk.label.name, tempLD(HP, false));
 			}
 			this.dataMemLabels.put(dataChunk.label, tempLD(HP, false));
 			if (dataChunk.init != null) {
@@ -60,7 +64,7 @@ public class Interpreter {
 			tempST(HP, tempLD(HP, false) + dataChunk.size, debug);
 		}
 		if (debug)
-			System.out.printf("###\n");
+			out.printf("###\n");
 
 		this.jumpMemLabels = new HashMap<MemLabel, Integer>();
 		this.callMemLabels = new HashMap<MemLabel, LinCodeChunk>();
@@ -80,7 +84,7 @@ public class Interpreter {
 
 	private void memST(Long address, Long value, boolean debug) {
 		if (debug)
-			System.out.printf("### [%d] <- %d\n", address, value);
+			out.printf("### [%d] <- %d\n", address, value);
 		for (int b = 0; b <= 7; b++) {
 			long longval = value % 0x100;
 			byte byteval = (byte) longval;
@@ -106,7 +110,7 @@ public class Interpreter {
 			value = (value * 0x100) + (longval < 0 ? longval + 0x100 : longval);
 		}
 		if (debug)
-			System.out.printf("### %d <- [%d]\n", value, address);
+			out.printf("### %d <- [%d]\n", value, address);
 		return value;
 	}
 
@@ -118,22 +122,22 @@ public class Interpreter {
 		temps.put(temp, value);
 		if (debug) {
 			if (temp == SP) {
-				System.out.printf("### SP <- %d\n", value);
+				out.printf("### SP <- %d\n", value);
 				return;
 			}
 			if (temp == FP) {
-				System.out.printf("### FP <- %d\n", value);
+				out.printf("### FP <- %d\n", value);
 				return;
 			}
 			if (temp == RV) {
-				System.out.printf("### RV <- %d\n", value);
+				out.printf("### RV <- %d\n", value);
 				return;
 			}
 			if (temp == HP) {
-				System.out.printf("### HP <- %d\n", value);
+				out.printf("### HP <- %d\n", value);
 				return;
 			}
-			System.out.printf("### T%d <- %d\n", temp.temp, value);
+			out.printf("### T%d <- %d\n", temp.temp, value);
 			return;
 		}
 	}
@@ -150,22 +154,22 @@ public class Interpreter {
 		}
 		if (debug) {
 			if (temp == SP) {
-				System.out.printf("### %d <- SP\n", value);
+				out.printf("### %d <- SP\n", value);
 				return value;
 			}
 			if (temp == FP) {
-				System.out.printf("### %d <- FP\n", value);
+				out.printf("### %d <- FP\n", value);
 				return value;
 			}
 			if (temp == RV) {
-				System.out.printf("### %d <- RV\n", value);
+				out.printf("### %d <- RV\n", value);
 				return value;
 			}
 			if (temp == HP) {
-				System.out.printf("### %d <- HP\n", value);
+				out.printf("### %d <- HP\n", value);
 				return value;
 			}
-			System.out.printf("### %d <- T%d\n", value, temp.temp);
+			out.printf("### %d <- T%d\n", value, temp.temp);
 			return value;
 		}
 		return value;
@@ -183,9 +187,9 @@ public class Interpreter {
 			case AND:
 				return (fstExpr != 0) & (sndExpr != 0) ? 1L : 0L;
 			case EQU:
-				return (fstExpr == sndExpr) ? 1L : 0L;
+				return fstExpr.equals(sndExpr) ? 1L : 0L;
 			case NEQ:
-				return (fstExpr != sndExpr) ? 1L : 0L;
+				return !fstExpr.equals(sndExpr) ? 1L : 0L;
 			case LEQ:
 				return (fstExpr <= sndExpr) ? 1L : 0L;
 			case GEQ:
@@ -257,7 +261,7 @@ public class Interpreter {
 		@Override
 		public MemLabel visit(ImcCJUMP imcCJump, Object arg) {
 			if (debug)
-				System.out.println(imcCJump);
+				out.println(imcCJump);
 			Long cond = imcCJump.cond.accept(new ExprInterpreter(), null);
 			return (cond != 0) ? imcCJump.posLabel : imcCJump.negLabel;
 		}
@@ -265,7 +269,7 @@ public class Interpreter {
 		@Override
 		public MemLabel visit(ImcESTMT imcEStmt, Object arg) {
 			if (debug)
-				System.out.println(imcEStmt);
+				out.println(imcEStmt);
 			if (imcEStmt.expr instanceof ImcCALL) {
 				call((ImcCALL) imcEStmt.expr);
 				return null;
@@ -277,21 +281,21 @@ public class Interpreter {
 		@Override
 		public MemLabel visit(ImcJUMP imcJump, Object arg) {
 			if (debug)
-				System.out.println(imcJump);
+				out.println(imcJump);
 			return imcJump.label;
 		}
 
 		@Override
 		public MemLabel visit(ImcLABEL imcMemLabel, Object arg) {
 			if (debug)
-				System.out.println(imcMemLabel);
+				out.println(imcMemLabel);
 			return null;
 		}
 
 		@Override
 		public MemLabel visit(ImcMOVE imcMove, Object arg) {
 			if (debug)
-				System.out.println(imcMove);
+				out.println(imcMove);
 			if (imcMove.dst instanceof ImcMEM) {
 				Long dst = ((ImcMEM) (imcMove.dst)).addr.accept(new ExprInterpreter(), null);
 				Long src;
@@ -320,7 +324,7 @@ public class Interpreter {
 		@Override
 		public MemLabel visit(ImcSTMTS imcStmts, Object arg) {
 			if (debug)
-				System.out.println(imcStmts);
+				out.println(imcStmts);
 			throw new Report.InternalError();
 		}
 
@@ -346,7 +350,7 @@ public class Interpreter {
 			}
 			if (imcCall.label.name.equals("_putChar")) {
 				Long c = memLD(tempLD(SP, false) + 1 * 8, false);
-				System.out.printf("%c", (char) ((long) c) % 0x100);
+				out.printf("%c", (char) ((long) c) % 0x100);
 				return;
 			}
 			if (imcCall.label.name.equals("_getChar")) {
@@ -377,7 +381,7 @@ public class Interpreter {
 		/* PROLOGUE */
 		{
 			if (debug)
-				System.out.printf("###\n### CALL: %s\n", entryMemLabel.name);
+				out.printf("###\n### CALL: %s\n", entryMemLabel.name);
 
 			// Store registers and FP.
 			storedMemTemps = temps;
@@ -400,7 +404,7 @@ public class Interpreter {
 			while (label != chunk.exitLabel) {
 				if (debug) {
 					pc++;
-					System.out.printf("### %s (%d):\n", chunk.frame.label.name, pc);
+					out.printf("### %s (%d):\n", chunk.frame.label.name, pc);
 					if (pc == 1000000)
 						break;
 				}
@@ -434,7 +438,7 @@ public class Interpreter {
 			// Return.
 
 			if (debug)
-				System.out.printf("### RETURN: %s\n###\n", entryMemLabel.name);
+				out.printf("### RETURN: %s\n###\n", entryMemLabel.name);
 		}
 
 	}
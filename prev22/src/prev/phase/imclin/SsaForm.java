@@ -0,0 +1,313 @@
+package prev.phase.imclin;
+
+import java.util.*;
+
+import prev.data.imc.code.expr.*;
+import prev.data.imc.code.stmt.*;
+import prev.data.mem.*;
+
+/**
+ * Static single assignment form of the linearized statements of a code chunk.
+ *
+ * The statements are split into basic blocks (see {@link BasicBlock}), the
+ * dominator tree and the dominance frontiers of the blocks reachable from the
+ * first one are computed, and a phi function is placed at the start of a block
+ * for every temporary variable that is live across blocks and stored into in
+ * a block on whose dominance frontier the block is. Every move into a
+ * temporary variable then stores into a new version of it, and every use reads
+ * the version stored into last on all paths to it. A temporary variable that
+ * is never stored into before a use, e.g., the frame pointer, is its own
+ * version.
+ *
+ * The form is left by replacing every version by the temporary variable it is
+ * a version of and dropping the phi functions. This is correct as long as the
+ * versions of a temporary variable stay as they have been made, i.e., as long
+ * as the code in the form is only simplified but no copies are propagated and
+ * no code is moved, which is what {@link ConstPropagator} does.
+ */
+public class SsaForm {
+
+	/**
+	 * A phi function.
+	 */
+	public static class Phi {
+
+		/** The temporary variable the phi function merges the versions of. */
+		public final MemTemp temp;
+
+		/** The version the phi function stores into. */
+		public MemTemp dst;
+
+		/** The versions read, one per predecessor of the block. */
+		public final HashMap<BasicBlock, MemTemp> srcs = new HashMap<BasicBlock, MemTemp>();
+
+		/**
+		 * Constructs a new phi function.
+		 *
+		 * @param temp The temporary variable the phi function merges the versions
+		 *             of.
+		 */
+		public Phi(MemTemp temp) {
+			this.temp = temp;
+			this.dst = temp;
+		}
+
+	}
+
+	/** The basic blocks in the order of the statements. */
+	public final Vector<BasicBlock> blocks;
+
+	/** The phi functions at the start of every block reachable from the first one. */
+	public final HashMap<BasicBlock, Vector<Phi>> phis = new HashMap<BasicBlock, Vector<Phi>>();
+
+	/** The blocks reachable from the first one in reverse postorder. */
+	public final Vector<BasicBlock> order = new Vector<BasicBlock>();
+
+	/**
+	 * The immediate dominator of every reachable block; the first block is its
+	 * own.
+	 */
+	public final HashMap<BasicBlock, BasicBlock> idoms = new HashMap<BasicBlock, BasicBlock>();
+
+	/** The temporary variable every version is a version of. */
+	private final HashMap<MemTemp, MemTemp> origins = new HashMap<MemTemp, MemTemp>();
+
+	/**
+	 * Constructs the static single assignment form of linearized statements.
+	 *
+	 * @param stmts The statements of a code chunk.
+	 */
+	public SsaForm(Vector<ImcStmt> stmts) {
+		blocks = BasicBlock.split(stmts);
+		order();
+		dominate();
+		placePhis();
+		rename();
+	}
+
+	/**
+	 * Tells whether a temporary variable is a version stored into in this form.
+	 *
+	 * @param temp The temporary variable.
+	 * @return {@code true} if it is, {@code false} if it is never stored into.
+	 */
+	public boolean isVersion(MemTemp temp) {
+		return origins.containsKey(temp);
+	}
+
+	/**
+	 * Leaves the static single assignment form.
+	 *
+	 * @return The statements of the remaining blocks with every version replaced
+	 *         by the temporary variable it is a version of.
+	 */
+	public Vector<ImcStmt> linearStmts() {
+		Vector<ImcStmt> stmts = new Vector<ImcStmt>();
+		TempRenamer renamer = new TempRenamer();
+		for (ImcStmt stmt : BasicBlock.join(blocks)) {
+			stmt = (ImcStmt) stmt.accept(renamer, this::origin);
+			if ((stmt instanceof ImcMOVE move) && (move.dst instanceof ImcTEMP dst) && origins.containsKey(dst.temp))
+				stmt = new ImcMOVE(origin(dst.temp), move.src);
+			stmts.add(stmt);
+		}
+		return stmts;
+	}
+
+	private ImcTEMP origin(MemTemp temp) {
+		MemTemp origin = origins.get(temp);
+		return origin == null ? null : new ImcTEMP(origin);
+	}
+
+	/**
+	 * Orders the reachable blocks in reverse postorder.
+	 */
+	private void order() {
+		HashSet<BasicBlock> visited = new HashSet<BasicBlock>();
+		Stack<BasicBlock> path = new Stack<BasicBlock>();
+		Stack<Integer> nextSuccs = new Stack<Integer>();
+		path.push(blocks.firstElement());
+		nextSuccs.push(0);
+		visited.add(blocks.firstElement());
+		while (!path.isEmpty()) {
+			BasicBlock block = path.peek();
+			int nextSucc = nextSuccs.pop();
+			if (nextSucc < block.succs.size()) {
+				nextSuccs.push(nextSucc + 1);
+				BasicBlock succ = block.succs.get(nextSucc);
+				if (visited.add(succ)) {
+					path.push(succ);
+					nextSuccs.push(0);
+				}
+			} else {
+				path.pop();
+				order.add(block);
+			}
+		}
+		Collections.reverse(order);
+	}
+
+	/**
+	 * Computes the immediate dominators of the reachable blocks (see K. D.
+	 * Cooper, T. J. Harvey, K. Kennedy: A Simple, Fast Dominance Algorithm).
+	 */
+	private void dominate() {
+		HashMap<BasicBlock, Integer> indices = new HashMap<BasicBlock, Integer>();
+		for (int b = 0; b < order.size(); b++)
+			indices.put(order.get(b), b);
+		BasicBlock entry = order.firstElement();
+		idoms.put(entry, entry);
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (BasicBlock block : order) {
+				if (block == entry)
+					continue;
+				BasicBlock idom = null;
+				for (BasicBlock pred : block.preds) {
+					if (!idoms.containsKey(pred))
+						continue;
+					if (idom == null) {
+						idom = pred;
+						continue;
+					}
+					BasicBlock other = pred;
+					while (idom != other) {
+						while (indices.get(idom) > indices.get(other))
+							idom = idoms.get(idom);
+						while (indices.get(other) > indices.get(idom))
+							other = idoms.get(other);
+					}
+				}
+				if (idoms.get(block) != idom) {
+					idoms.put(block, idom);
+					changed = true;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Places phi functions for the temporary variables live across blocks.
+	 */
+	private void placePhis() {
+		// Dominance frontiers.
+		HashMap<BasicBlock, HashSet<BasicBlock>> frontiers = new HashMap<BasicBlock, HashSet<BasicBlock>>();
+		for (BasicBlock block : order) {
+			frontiers.put(block, new HashSet<BasicBlock>());
+			phis.put(block, new Vector<Phi>());
+		}
+		for (BasicBlock block : order) {
+			if (block.preds.size() < 2)
+				continue;
+			for (BasicBlock pred : block.preds) {
+				if (!idoms.containsKey(pred))
+					continue;
+				BasicBlock runner = pred;
+				while (runner != idoms.get(block)) {
+					frontiers.get(runner).add(block);
+					runner = idoms.get(runner);
+				}
+			}
+		}
+
+		// Temporary variables used in a block before they are stored into in it and
+		// the blocks storing into them.
+		HashSet<MemTemp> globals = new HashSet<MemTemp>();
+		LinkedHashMap<MemTemp, LinkedHashSet<BasicBlock>> defBlocks = new LinkedHashMap<MemTemp, LinkedHashSet<BasicBlock>>();
+		for (BasicBlock block : order) {
+			HashSet<MemTemp> defs = new HashSet<MemTemp>();
+			for (ImcStmt stmt : block.stmts) {
+				HashSet<MemTemp> uses = new HashSet<MemTemp>();
+				if ((stmt instanceof ImcMOVE move) && (move.dst instanceof ImcTEMP dst)) {
+					move.src.accept(new TempCollector(), uses);
+					uses.removeAll(defs);
+					globals.addAll(uses);
+					defs.add(dst.temp);
+					defBlocks.computeIfAbsent(dst.temp, __ -> new LinkedHashSet<BasicBlock>()).add(block);
+				} else {
+					stmt.accept(new TempCollector(), uses);
+					uses.removeAll(defs);
+					globals.addAll(uses);
+				}
+			}
+		}
+
+		for (MemTemp temp : defBlocks.keySet()) {
+			if (!globals.contains(temp))
+				continue;
+			HashSet<BasicBlock> phiBlocks = new HashSet<BasicBlock>();
+			Vector<BasicBlock> work = new Vector<BasicBlock>(defBlocks.get(temp));
+			while (!work.isEmpty()) {
+				BasicBlock block = work.remove(work.size() - 1);
+				for (BasicBlock frontier : frontiers.get(block)) {
+					if (!phiBlocks.add(frontier))
+						continue;
+					phis.get(frontier).add(new Phi(temp));
+					work.add(frontier);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Renames the temporary variables stored into so that each version is stored
+	 * into exactly once, walking the dominator tree.
+	 */
+	private void rename() {
+		HashMap<BasicBlock, Vector<BasicBlock>> children = new HashMap<BasicBlock, Vector<BasicBlock>>();
+		for (BasicBlock block : order)
+			children.put(block, new Vector<BasicBlock>());
+		for (BasicBlock block : order)
+			if (block != order.firstElement())
+				children.get(idoms.get(block)).add(block);
+
+		// The versions of every temporary variable on the path from the first
+		// block, and the temporary variables whose versions a block has pushed.
+		HashMap<MemTemp, Stack<MemTemp>> versions = new HashMap<MemTemp, Stack<MemTemp>>();
+		HashMap<BasicBlock, Vector<MemTemp>> pushed = new HashMap<BasicBlock, Vector<MemTemp>>();
+		TempRenamer renamer = new TempRenamer();
+
+		Stack<BasicBlock> work = new Stack<BasicBlock>();
+		work.push(order.firstElement());
+		while (!work.isEmpty()) {
+			BasicBlock block = work.pop();
+			if (pushed.containsKey(block)) {
+				// All blocks dominated by the block have been renamed.
+				for (MemTemp temp : pushed.get(block))
+					versions.get(temp).pop();
+				continue;
+			}
+			Vector<MemTemp> blockPushed = new Vector<MemTemp>();
+			pushed.put(block, blockPushed);
+			work.push(block);
+
+			for (Phi phi : phis.get(block))
+				phi.dst = newVersion(phi.temp, versions, blockPushed);
+			for (int s = 0; s < block.stmts.size(); s++) {
+				ImcStmt stmt = (ImcStmt) block.stmts.get(s).accept(renamer, temp -> version(temp, versions));
+				if ((stmt instanceof ImcMOVE move) && (move.dst instanceof ImcTEMP dst))
+					stmt = new ImcMOVE(new ImcTEMP(newVersion(dst.temp, versions, blockPushed)), move.src);
+				block.stmts.set(s, stmt);
+			}
+			for (BasicBlock succ : block.succs)
+				for (Phi phi : phis.get(succ))
+					phi.srcs.put(block, version(phi.temp, versions).temp);
+			for (BasicBlock child : children.get(block))
+				work.push(child);
+		}
+	}
+
+	private MemTemp newVersion(MemTemp temp, HashMap<MemTemp, Stack<MemTemp>> versions, Vector<MemTemp> pushed) {
+		MemTemp version = new MemTemp();
+		origins.put(version, temp);
+		versions.computeIfAbsent(temp, __ -> new Stack<MemTemp>()).push(version);
+		pushed.add(temp);
+		return version;
+	}
+
+	private ImcTEMP version(MemTemp temp, HashMap<MemTemp, Stack<MemTemp>> versions) {
+		Stack<MemTemp> tempVersions = versions.get(temp);
+		return new ImcTEMP((tempVersions == null) || tempVersions.isEmpty() ? temp : tempVersions.peek());
+	}
+
+}
@@ -3,29 +3,40 @@ package prev.phase.imclin;
 import java.util.*;
 
 import prev.common.report.Report;
-import prev.data.mem.*;
 import prev.data.imc.code.expr.*;
 import prev.data.imc.code.stmt.*;
 import prev.data.imc.visitor.*;
 
 /**
  * Statement canonizer.
+ *
+ * A canonized statement contains a call only as the source of a move into a
+ * temporary variable or as the expression of an expression statement (see
+ * {@link ExprCanonizer}).
  */
 public class StmtCanonizer implements ImcVisitor<Vector<ImcStmt>, Object> {
 
 	// Identifier for info reports
 	private final String TAG = "[StmtCanonizer]: ";
+	private final String CATEGORY = "imclin";
 
 	public Vector<ImcStmt> visit(ImcCJUMP cjump, Object obj) {
 		Vector<ImcStmt> stmts = new Vector<>();
 		ImcExpr cond = cjump.cond.accept(new ExprCanonizer(), stmts);
-		stmts.add(new ImcCJUMP(cond, cjump.posLabel, cjump.negLabel));
+		stmts.add(cond == cjump.cond ? cjump : new ImcCJUMP(cond, cjump.posLabel, cjump.negLabel));
 		return stmts;
 	}
 
 	public Vector<ImcStmt> visit(ImcESTMT eStmt, Object obj) {
 		Vector<ImcStmt> stmts = new Vector<>();
-		stmts.add(new ImcESTMT(eStmt.expr.accept(new ExprCanonizer(), stmts)));
+		if (eStmt.expr instanceof ImcCALL call) {
+			stmts.add(new ImcESTMT(new ExprCanonizer().canonize(call, stmts)));
+			return stmts;
+		}
+		ImcExpr expr = eStmt.expr.accept(new ExprCanonizer(), stmts);
+		// Nothing is left to be evaluated by a constant or a temporary variable.
+		if (!((expr instanceof ImcCONST) || (expr instanceof ImcNAME) || (expr instanceof ImcTEMP)))
+			stmts.add(new ImcESTMT(expr));
 		return stmts;
 	}
 
@@ -39,23 +50,22 @@ public class StmtCanonizer implements ImcVisitor<Vector<ImcStmt>, Object> {
 
 	public Vector<ImcStmt> visit(ImcMOVE move, Object obj) {
 		Vector<ImcStmt> stmts = new Vector<>();
-		MemTemp memSrcTemp = new MemTemp();
-		ImcTEMP srcTemp = new ImcTEMP(memSrcTemp);
 
 		if (move.dst instanceof ImcMEM moveDst) { // Writing to memory
-			MemTemp memDstTemp = new MemTemp();
-			ImcTEMP dstTemp = new ImcTEMP(memDstTemp);
-
-			Report.info(TAG + "(move - mem): " + memSrcTemp + "=" + move.src + ", " + memDstTemp + "=" + moveDst.addr);
+			Report.trace(CATEGORY, "%s(move - mem): %s=%s", TAG, moveDst.addr, move.src);
 
-			stmts.add(new ImcMOVE(dstTemp, moveDst.addr.accept(new ExprCanonizer(), stmts)));
-			stmts.add(new ImcMOVE(srcTemp, move.src.accept(new ExprCanonizer(), stmts)));
-			stmts.add(new ImcMOVE(new ImcMEM(dstTemp), srcTemp));
+			// The address is evaluated before the value stored.
+			Vector<ImcExpr> exprs = new ExprCanonizer().canonize(List.of(moveDst.addr, move.src), stmts);
+			stmts.add(new ImcMOVE(new ImcMEM(exprs.get(0)), exprs.get(1)));
 		} else if (move.dst instanceof ImcTEMP moveDst) { // Storing to temporary variable
-			Report.info(TAG + "(move - temp): " + memSrcTemp + "=" + move.src);
-
-			stmts.add(new ImcMOVE(srcTemp, move.src.accept(new ExprCanonizer(), stmts)));
-			stmts.add(new ImcMOVE(new ImcTEMP(moveDst.temp), srcTemp));
+			Report.trace(CATEGORY, "%s(move - temp): %s=%s", TAG, moveDst.temp, move.src);
+
+			ImcExpr src;
+			if (move.src instanceof ImcCALL call)
+				src = new ExprCanonizer().canonize(call, stmts);
+			else
+				src = move.src.accept(new ExprCanonizer(), stmts);
+			stmts.add(src == move.src ? move : new ImcMOVE(moveDst, src));
 		}
 
 		return stmts;
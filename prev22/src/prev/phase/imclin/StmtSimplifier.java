@@ -0,0 +1,64 @@
+package prev.phase.imclin;
+
+import java.util.*;
+
+import prev.common.report.Report;
+import prev.data.imc.code.expr.*;
+import prev.data.imc.code.stmt.*;
+import prev.data.imc.visitor.*;
+
+/**
+ * Statement simplifier.
+ *
+ * Expressions are simplified by {@link ExprSimplifier}. A conditional jump on
+ * a constant condition becomes an unconditional jump, and a conditional jump on
+ * a negated condition jumps on the condition itself with its labels swapped.
+ */
+public class StmtSimplifier implements ImcVisitor<ImcStmt, Object> {
+
+	// Identifier for info reports
+	private final String TAG = "[StmtSimplifier]: ";
+	private final String CATEGORY = "imclin";
+
+	public ImcStmt visit(ImcCJUMP cjump, Object obj) {
+		ImcExpr cond = cjump.cond.accept(new ExprSimplifier(), obj);
+		if (cond instanceof ImcCONST constant) {
+			Report.trace(CATEGORY, "%s(cjump): %s -> %s", TAG, cjump.cond, constant);
+			return new ImcJUMP(constant.value != 0 ? cjump.posLabel : cjump.negLabel);
+		}
+		if ((cond instanceof ImcUNOP unOp) && (unOp.oper == ImcUNOP.Oper.NOT))
+			return new ImcCJUMP(unOp.subExpr, cjump.negLabel, cjump.posLabel);
+		return cond == cjump.cond ? cjump : new ImcCJUMP(cond, cjump.posLabel, cjump.negLabel);
+	}
+
+	public ImcStmt visit(ImcESTMT eStmt, Object obj) {
+		ImcExpr expr = eStmt.expr.accept(new ExprSimplifier(), obj);
+		return expr == eStmt.expr ? eStmt : new ImcESTMT(expr);
+	}
+
+	public ImcStmt visit(ImcJUMP jump, Object obj) {
+		return jump;
+	}
+
+	public ImcStmt visit(ImcLABEL label, Object obj) {
+		return label;
+	}
+
+	public ImcStmt visit(ImcMOVE move, Object obj) {
+		ImcExpr dst = move.dst.accept(new ExprSimplifier(), obj);
+		ImcExpr src = move.src.accept(new ExprSimplifier(), obj);
+		return (dst == move.dst) && (src == move.src) ? move : new ImcMOVE(dst, src);
+	}
+
+	public ImcStmt visit(ImcSTMTS stmts, Object obj) {
+		Vector<ImcStmt> simpleStmts = new Vector<>();
+		boolean changed = false;
+		for (ImcStmt stmt : stmts.stmts) {
+			ImcStmt simpleStmt = stmt.accept(this, obj);
+			changed |= simpleStmt != stmt;
+			simpleStmts.add(simpleStmt);
+		}
+		return changed ? new ImcSTMTS(simpleStmts) : stmts;
+	}
+
+}
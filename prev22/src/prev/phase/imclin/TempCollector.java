@@ -0,0 +1,100 @@
+package prev.phase.imclin;
+
+import java.util.*;
+
+import prev.data.imc.code.expr.*;
+import prev.data.imc.code.stmt.*;
+import prev.data.imc.visitor.*;
+import prev.data.mem.*;
+
+/**
+ * Collects all temporary variables used in the intermediate code.
+ */
+public class TempCollector implements ImcVisitor<Object, HashSet<MemTemp>> {
+
+	@Override
+	public Object visit(ImcBINOP binOp, HashSet<MemTemp> temps) {
+		binOp.fstExpr.accept(this, temps);
+		binOp.sndExpr.accept(this, temps);
+		return null;
+	}
+
+	@Override
+	public Object visit(ImcCALL call, HashSet<MemTemp> temps) {
+		for (ImcExpr arg : call.args)
+			arg.accept(this, temps);
+		return null;
+	}
+
+	@Override
+	public Object visit(ImcCJUMP cjump, HashSet<MemTemp> temps) {
+		cjump.cond.accept(this, temps);
+		return null;
+	}
+
+	@Override
+	public Object visit(ImcCONST constant, HashSet<MemTemp> temps) {
+		return null;
+	}
+
+	@Override
+	public Object visit(ImcESTMT eStmt, HashSet<MemTemp> temps) {
+		eStmt.expr.accept(this, temps);
+		return null;
+	}
+
+	@Override
+	public Object visit(ImcJUMP jump, HashSet<MemTemp> temps) {
+		return null;
+	}
+
+	@Override
+	public Object visit(ImcLABEL label, HashSet<MemTemp> temps) {
+		return null;
+	}
+
+	@Override
+	public Object visit(ImcMEM mem, HashSet<MemTemp> temps) {
+		mem.addr.accept(this, temps);
+		return null;
+	}
+
+	@Override
+	public Object visit(ImcMOVE move, HashSet<MemTemp> temps) {
+		move.dst.accept(this, temps);
+		move.src.accept(this, temps);
+		return null;
+	}
+
+	@Override
+	public Object visit(ImcNAME name, HashSet<MemTemp> temps) {
+		return null;
+	}
+
+	@Override
+	public Object visit(ImcSEXPR sExpr, HashSet<MemTemp> temps) {
+		sExpr.stmt.accept(this, temps);
+		sExpr.expr.accept(this, temps);
+		return null;
+	}
+
+	@Override
+	public Object visit(ImcSTMTS stmts, HashSet<MemTemp> temps) {
+		for (ImcStmt stmt : stmts.stmts)
+			stmt.accept(this, temps);
+		return null;
+	}
+
+	@Override
+	public Object visit(ImcTEMP temp, HashSet<MemTemp> temps) {
+		temps.add(temp.temp);
+		return null;
+	}
+
+	@Override
+	public Object visit(ImcUNOP unOp, HashSet<MemTemp> temps) {
+		unOp.subExpr.accept(this, temps);
+		return null;
+	}
+
+}
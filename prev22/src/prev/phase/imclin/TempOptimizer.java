@@ -0,0 +1,254 @@
+package prev.phase.imclin;
+
+import java.util.*;
+
+import prev.common.report.Report;
+import prev.data.mem.*;
+import prev.data.imc.code.expr.*;
+import prev.data.imc.code.stmt.*;
+import prev.data.imc.visitor.*;
+
+/**
+ * Copy propagation and dead temporary variable elimination.
+ *
+ * A use of a temporary variable {@code a} is replaced by a use of {@code b} if
+ * a move {@code MOVE(TEMP(a),TEMP(b))} reaches it along every path and neither
+ * {@code a} nor {@code b} is stored into in between. Afterwards, a move into a
+ * temporary variable that is not live after it is removed if its source has no
+ * side effects (see {@link ExprSimplifier}) or turned into an expression
+ * statement if its source is a call. The return value is live at the exit of
+ * the code chunk. Temporary variables that are no longer used thus disappear
+ * from the code chunk.
+ */
+public class TempOptimizer {
+
+	// Identifier for info reports
+	private final String TAG = "[TempOptimizer]: ";
+	private final String CATEGORY = "imclin";
+
+	/** The frame of the function. */
+	private final MemFrame frame;
+
+	/**
+	 * Constructs a new optimizer of the code of a function.
+	 *
+	 * @param frame The frame of the function.
+	 */
+	public TempOptimizer(MemFrame frame) {
+		this.frame = frame;
+	}
+
+	/**
+	 * Optimizes the linearized statements of a function body.
+	 *
+	 * @param stmts The statements.
+	 * @return The optimized statements.
+	 */
+	public Vector<ImcStmt> optimize(Vector<ImcStmt> stmts) {
+		Vector<BasicBlock> blocks = BasicBlock.split(stmts);
+		propagateCopies(blocks);
+		while (removeDeadMoves(blocks))
+			;
+		return BasicBlock.join(blocks);
+	}
+
+	/**
+	 * Replaces uses of temporary variables by the sources of the copies reaching
+	 * them.
+	 *
+	 * @param blocks The basic blocks.
+	 */
+	private void propagateCopies(Vector<BasicBlock> blocks) {
+		// A block missing from outCopies is not reached yet and lets all copies
+		// through.
+		HashMap<BasicBlock, HashMap<MemTemp, MemTemp>> outCopies = new HashMap<BasicBlock, HashMap<MemTemp, MemTemp>>();
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (BasicBlock block : blocks) {
+				HashMap<MemTemp, MemTemp> copies = inCopies(block, blocks.firstElement(), outCopies);
+				for (ImcStmt stmt : block.stmts)
+					killAndGen(stmt, copies);
+				if (!copies.equals(outCopies.get(block))) {
+					outCopies.put(block, copies);
+					changed = true;
+				}
+			}
+		}
+
+		for (BasicBlock block : blocks) {
+			HashMap<MemTemp, MemTemp> copies = inCopies(block, blocks.firstElement(), outCopies);
+			for (int s = 0; s < block.stmts.size(); s++) {
+				ImcStmt stmt = substitute(block.stmts.get(s), copies);
+				block.stmts.set(s, stmt);
+				killAndGen(stmt, copies);
+			}
+		}
+	}
+
+	private HashMap<MemTemp, MemTemp> inCopies(BasicBlock block, BasicBlock entry,
+			HashMap<BasicBlock, HashMap<MemTemp, MemTemp>> outCopies) {
+		if (block == entry)
+			return new HashMap<MemTemp, MemTemp>();
+		HashMap<MemTemp, MemTemp> copies = null;
+		for (BasicBlock pred : block.preds) {
+			HashMap<MemTemp, MemTemp> predCopies = outCopies.get(pred);
+			if (predCopies == null)
+				continue;
+			if (copies == null)
+				copies = new HashMap<MemTemp, MemTemp>(predCopies);
+			else
+				copies.entrySet().removeIf(copy -> copy.getValue() != predCopies.get(copy.getKey()));
+		}
+		return copies == null ? new HashMap<MemTemp, MemTemp>() : copies;
+	}
+
+	private void killAndGen(ImcStmt stmt, HashMap<MemTemp, MemTemp> copies) {
+		if (!((stmt instanceof ImcMOVE move) && (move.dst instanceof ImcTEMP dst)))
+			return;
+		copies.remove(dst.temp);
+		copies.values().removeIf(src -> src == dst.temp);
+		if ((move.src instanceof ImcTEMP src) && (src.temp != dst.temp))
+			copies.put(dst.temp, src.temp);
+	}
+
+	private ImcStmt substitute(ImcStmt stmt, HashMap<MemTemp, MemTemp> copies) {
+		TempSubstitutor substitutor = new TempSubstitutor();
+		if (stmt instanceof ImcMOVE move) {
+			ImcExpr dst = move.dst instanceof ImcMEM ? move.dst.accept(substitutor, copies) : move.dst;
+			ImcExpr src = move.src.accept(substitutor, copies);
+			return (dst == move.dst) && (src == move.src) ? move : new ImcMOVE(dst, src);
+		}
+		if (stmt instanceof ImcCJUMP cjump) {
+			ImcExpr cond = cjump.cond.accept(substitutor, copies);
+			return cond == cjump.cond ? cjump : new ImcCJUMP(cond, cjump.posLabel, cjump.negLabel);
+		}
+		if (stmt instanceof ImcESTMT eStmt) {
+			ImcExpr expr = eStmt.expr.accept(substitutor, copies);
+			return expr == eStmt.expr ? eStmt : new ImcESTMT(expr);
+		}
+		return stmt;
+	}
+
+	/**
+	 * Removes moves into temporary variables that are not live after them.
+	 *
+	 * @param blocks The basic blocks.
+	 * @return {@code true} if any move has been removed, {@code false} otherwise.
+	 */
+	private boolean removeDeadMoves(Vector<BasicBlock> blocks) {
+		HashMap<BasicBlock, HashSet<MemTemp>> inTemps = new HashMap<BasicBlock, HashSet<MemTemp>>();
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (int b = blocks.size() - 1; b >= 0; b--) {
+				BasicBlock block = blocks.get(b);
+				HashSet<MemTemp> temps = outTemps(block, inTemps);
+				for (int s = block.stmts.size() - 1; s >= 0; s--)
+					killAndUse(block.stmts.get(s), temps);
+				if (!temps.equals(inTemps.get(block))) {
+					inTemps.put(block, temps);
+					changed = true;
+				}
+			}
+		}
+
+		boolean removed = false;
+		for (BasicBlock block : blocks) {
+			HashSet<MemTemp> temps = outTemps(block, inTemps);
+			for (int s = block.stmts.size() - 1; s >= 0; s--) {
+				ImcStmt stmt = block.stmts.get(s);
+				if ((stmt instanceof ImcMOVE move) && (move.dst instanceof ImcTEMP dst)) {
+					boolean isCopyToSelf = (move.src instanceof ImcTEMP src) && (src.temp == dst.temp);
+					if (isCopyToSelf || !temps.contains(dst.temp)) {
+						if (move.src instanceof ImcCALL call) {
+							Report.trace(CATEGORY, "%s(dead call result): %s", TAG, dst.temp);
+							stmt = new ImcESTMT(call);
+							block.stmts.set(s, stmt);
+						} else if (isCopyToSelf || ExprSimplifier.isPure(move.src)) {
+							Report.trace(CATEGORY, "%s(dead move): %s", TAG, dst.temp);
+							block.stmts.remove(s);
+							removed = true;
+							continue;
+						}
+					}
+				}
+				killAndUse(stmt, temps);
+			}
+		}
+		return removed;
+	}
+
+	private HashSet<MemTemp> outTemps(BasicBlock block, HashMap<BasicBlock, HashSet<MemTemp>> inTemps) {
+		HashSet<MemTemp> temps = new HashSet<MemTemp>();
+		if (block.exits)
+			temps.add(frame.RV);
+		for (BasicBlock succ : block.succs) {
+			HashSet<MemTemp> succTemps = inTemps.get(succ);
+			if (succTemps != null)
+				temps.addAll(succTemps);
+		}
+		return temps;
+	}
+
+	private void killAndUse(ImcStmt stmt, HashSet<MemTemp> temps) {
+		if ((stmt instanceof ImcMOVE move) && (move.dst instanceof ImcTEMP dst)) {
+			temps.remove(dst.temp);
+			move.src.accept(new TempCollector(), temps);
+		} else
+			stmt.accept(new TempCollector(), temps);
+	}
+
+	/**
+	 * Replaces temporary variables in an expression by the sources of the copies
+	 * into them.
+	 */
+	private static class TempSubstitutor implements ImcVisitor<ImcExpr, HashMap<MemTemp, MemTemp>> {
+
+		public ImcExpr visit(ImcBINOP binOp, HashMap<MemTemp, MemTemp> copies) {
+			ImcExpr fstExpr = binOp.fstExpr.accept(this, copies);
+			ImcExpr sndExpr = binOp.sndExpr.accept(this, copies);
+			return (fstExpr == binOp.fstExpr) && (sndExpr == binOp.sndExpr) ? binOp
+					: new ImcBINOP(binOp.oper, fstExpr, sndExpr);
+		}
+
+		public ImcExpr visit(ImcCALL call, HashMap<MemTemp, MemTemp> copies) {
+			Vector<ImcExpr> args = new Vector<ImcExpr>();
+			boolean changed = false;
+			for (ImcExpr arg : call.args) {
+				ImcExpr newArg = arg.accept(this, copies);
+				changed |= newArg != arg;
+				args.add(newArg);
+			}
+			return changed ? new ImcCALL(call.label, call.offs, args) : call;
+		}
+
+		public ImcExpr visit(ImcCONST constant, HashMap<MemTemp, MemTemp> copies) {
+			return constant;
+		}
+
+		public ImcExpr visit(ImcMEM mem, HashMap<MemTemp, MemTemp> copies) {
+			ImcExpr addr = mem.addr.accept(this, copies);
+			return addr == mem.addr ? mem : new ImcMEM(addr);
+		}
+
+		public ImcExpr visit(ImcNAME name, HashMap<MemTemp, MemTemp> copies) {
+			return name;
+		}
+
+		public ImcExpr visit(ImcTEMP temp, HashMap<MemTemp, MemTemp> copies) {
+			// All copies reaching a use hold at once, so chains of them are followed.
+			MemTemp src = temp.temp;
+			while (copies.containsKey(src))
+				src = copies.get(src);
+			return src == temp.temp ? temp : new ImcTEMP(src);
+		}
+
+		public ImcExpr visit(ImcUNOP unOp, HashMap<MemTemp, MemTemp> copies) {
+			ImcExpr subExpr = unOp.subExpr.accept(this, copies);
+			return subExpr == unOp.subExpr ? unOp : new ImcUNOP(unOp.oper, subExpr);
+		}
+
+	}
+
+}
@@ -0,0 +1,99 @@
+package prev.phase.imclin;
+
+import java.util.*;
+import java.util.function.*;
+
+import prev.data.imc.code.expr.*;
+import prev.data.imc.code.stmt.*;
+import prev.data.imc.visitor.*;
+import prev.data.mem.*;
+
+/**
+ * Replaces the temporary variables used in the intermediate code.
+ *
+ * The argument is a function that returns the expression a temporary variable
+ * is replaced by or {@code null} if it is left as it is. Only the temporary
+ * variables that are read are replaced, i.e., the destination of a move into a
+ * temporary variable is not. A node none of whose subexpressions is replaced
+ * is returned as it is.
+ */
+public class TempRenamer implements ImcVisitor<Object, Function<MemTemp, ImcExpr>> {
+
+	@Override
+	public Object visit(ImcBINOP binOp, Function<MemTemp, ImcExpr> names) {
+		ImcExpr fstExpr = (ImcExpr) binOp.fstExpr.accept(this, names);
+		ImcExpr sndExpr = (ImcExpr) binOp.sndExpr.accept(this, names);
+		return (fstExpr == binOp.fstExpr) && (sndExpr == binOp.sndExpr) ? binOp
+				: new ImcBINOP(binOp.oper, fstExpr, sndExpr);
+	}
+
+	@Override
+	public Object visit(ImcCALL call, Function<MemTemp, ImcExpr> names) {
+		Vector<ImcExpr> args = new Vector<ImcExpr>();
+		boolean changed = false;
+		for (ImcExpr arg : call.args) {
+			ImcExpr newArg = (ImcExpr) arg.accept(this, names);
+			changed |= newArg != arg;
+			args.add(newArg);
+		}
+		return changed ? new ImcCALL(call.label, call.offs, args) : call;
+	}
+
+	@Override
+	public Object visit(ImcCJUMP cjump, Function<MemTemp, ImcExpr> names) {
+		ImcExpr cond = (ImcExpr) cjump.cond.accept(this, names);
+		return cond == cjump.cond ? cjump : new ImcCJUMP(cond, cjump.posLabel, cjump.negLabel);
+	}
+
+	@Override
+	public Object visit(ImcCONST constant, Function<MemTemp, ImcExpr> names) {
+		return constant;
+	}
+
+	@Override
+	public Object visit(ImcESTMT eStmt, Function<MemTemp, ImcExpr> names) {
+		ImcExpr expr = (ImcExpr) eStmt.expr.accept(this, names);
+		return expr == eStmt.expr ? eStmt : new ImcESTMT(expr);
+	}
+
+	@Override
+	public Object visit(ImcJUMP jump, Function<MemTemp, ImcExpr> names) {
+		return jump;
+	}
+
+	@Override
+	public Object visit(ImcLABEL label, Function<MemTemp, ImcExpr> names) {
+		return label;
+	}
+
+	@Override
+	public Object visit(ImcMEM mem, Function<MemTemp, ImcExpr> names) {
+		ImcExpr addr = (ImcExpr) mem.addr.accept(this, names);
+		return addr == mem.addr ? mem : new ImcMEM(addr);
+	}
+
+	@Override
+	public Object visit(ImcMOVE move, Function<MemTemp, ImcExpr> names) {
+		ImcExpr dst = move.dst instanceof ImcTEMP ? move.dst : (ImcExpr) move.dst.accept(this, names);
+		ImcExpr src = (ImcExpr) move.src.accept(this, names);
+		return (dst == move.dst) && (src == move.src) ? move : new ImcMOVE(dst, src);
+	}
+
+	@Override
+	public Object visit(ImcNAME name, Function<MemTemp, ImcExpr> names) {
+		return name;
+	}
+
+	@Override
+	public Object visit(ImcTEMP temp, Function<MemTemp, ImcExpr> names) {
+		ImcExpr expr = names.apply(temp.temp);
+		return expr == null ? temp : expr;
+	}
+
+	@Override
+	public Object visit(ImcUNOP unOp, Function<MemTemp, ImcExpr> names) {
+		ImcExpr subExpr = (ImcExpr) unOp.subExpr.accept(this, names);
+		return subExpr == unOp.subExpr ? unOp : new ImcUNOP(unOp.oper, subExpr);
+	}
+
+}
@@ -0,0 +1,518 @@
+package prev.phase.imclin;
+
+import java.util.*;
+
+import prev.common.report.Report;
+import prev.data.mem.*;
+import prev.data.imc.code.expr.*;
+import prev.data.imc.code.stmt.*;
+
+/**
+ * Local value numbering.
+ *
+ * Within a basic block, every expression is given a value number so that two
+ * expressions get the same number only if they are known to have the same
+ * value. A temporary variable stored into has the value number of the source
+ * of the move, and a memory location stored into has the value number of the
+ * value stored until memory it might overlap with is stored into again or a
+ * function is called. Two memory accesses overlap unless their addresses are
+ * the same base plus constant offsets at least 8 bytes apart. Static links,
+ * i.e., the words the frame pointer and the static links themselves point to,
+ * are never stored into while the function runs.
+ *
+ * An expression (other than a constant, a name or a temporary variable) whose
+ * value is a known constant is then replaced by that constant. An expression
+ * whose value is computed again at most {@link #MAX_DISTANCE} statements after
+ * it has last been computed or reused is stored into a new temporary variable
+ * when it is computed for the first time and replaced by that temporary
+ * variable afterwards, unless {@link #MAX_HELD} other values are held by then.
+ * The values held thus neither take many registers nor stay live across long
+ * stretches of code. With fewer than {@link #MIN_REGS} registers, no value is
+ * held at all as any value kept live costs a spill. Static links and expressions that take a single
+ * instruction to compute, i.e., a leaf plus or minus a constant and a load
+ * from such an address (e.g., a local variable), are always computed again as
+ * keeping them in registers costs more than it saves.
+ */
+public class ValueNumberer {
+
+	// Identifier for info reports
+	private final String TAG = "[ValueNumberer]: ";
+	private final String CATEGORY = "imclin";
+
+	/**
+	 * The number of statements after which a value is not reused any more if it
+	 * has not been used in between.
+	 */
+	public static final int MAX_DISTANCE = 4;
+
+	/** The number of values held by temporary variables at the same time. */
+	public static final int MAX_HELD = 1;
+
+	/** The number of registers needed for any value to be held. */
+	public static final int MIN_REGS = 8;
+
+	/** The frame of the function. */
+	private final MemFrame frame;
+
+	/** The number of values held by temporary variables at the same time. */
+	private final int maxHeld;
+
+	/** The value numbers of the values computed, keyed by how they are computed. */
+	private final HashMap<List<Object>, Integer> numbers = new HashMap<List<Object>, Integer>();
+
+	/** The base of the address each value number might denote. */
+	private final Vector<Integer> bases = new Vector<Integer>();
+
+	/** The constant offset from the base each value number denotes. */
+	private final Vector<Long> offsets = new Vector<Long>();
+
+	/** The values of the value numbers of constants. */
+	private final HashMap<Integer, Long> constants = new HashMap<Integer, Long>();
+
+	/** The value numbers of the frame pointer and of static links. */
+	private final HashSet<Integer> links = new HashSet<Integer>();
+
+	/** The value numbers of values held by temporary variables. */
+	private final HashMap<MemTemp, Integer> tempNumbers = new HashMap<MemTemp, Integer>();
+
+	/** The temporary variables holding values. */
+	private final HashMap<Integer, MemTemp> holders = new HashMap<Integer, MemTemp>();
+
+	/**
+	 * The value numbers of addresses stored into so far, or {@code -1} for
+	 * function calls.
+	 */
+	private final Vector<Integer> stores = new Vector<Integer>();
+
+	/** The index of the statement each value has last been computed or reused in. */
+	private final HashMap<Integer, Integer> lastUses = new HashMap<Integer, Integer>();
+
+	/**
+	 * The last computation of each value, keyed by the index of its statement and
+	 * the expression.
+	 */
+	private final HashMap<Integer, List<Object>> lastComputations = new HashMap<Integer, List<Object>>();
+
+	/** The value numbers of values held by temporary variables for reuse. */
+	private final HashSet<Integer> heldValues = new HashSet<Integer>();
+
+	/** The computations whose values are stored into temporary variables. */
+	private final HashSet<List<Object>> storedComputations = new HashSet<List<Object>>();
+
+	/** The computations replaced by the temporary variables holding their values. */
+	private final HashSet<List<Object>> reusedComputations = new HashSet<List<Object>>();
+
+	/** The value numbers of the expressions of the current statement. */
+	private IdentityHashMap<ImcExpr, Integer> stmtNumbers;
+
+	/** The index of the current statement in its block. */
+	private int stmtIndex;
+
+	/** The number of expression nodes eliminated so far. */
+	private int numEliminated = 0;
+
+	/**
+	 * Constructs a new value numberer for the code of a function.
+	 *
+	 * @param frame   The frame of the function.
+	 * @param numRegs The number of registers available or {@code 0} if not known.
+	 */
+	public ValueNumberer(MemFrame frame, int numRegs) {
+		this.frame = frame;
+		this.maxHeld = (numRegs > 0) && (numRegs < MIN_REGS) ? 0 : MAX_HELD;
+	}
+
+	/**
+	 * Numbers values and eliminates common subexpressions in linearized
+	 * statements.
+	 *
+	 * @param stmts The statements.
+	 * @return The statements without common subexpressions.
+	 */
+	public Vector<ImcStmt> number(Vector<ImcStmt> stmts) {
+		Vector<BasicBlock> blocks = BasicBlock.split(stmts);
+		for (BasicBlock block : blocks) {
+			Vector<ImcStmt> blockStmts = new Vector<ImcStmt>(block.stmts);
+
+			// First find the computations whose values are reused ...
+			numbers.clear();
+			bases.clear();
+			offsets.clear();
+			constants.clear();
+			links.clear();
+			lastComputations.clear();
+			storedComputations.clear();
+			reusedComputations.clear();
+			reset();
+			for (ImcStmt stmt : blockStmts) {
+				for (ImcExpr expr : exprs(stmt))
+					count(expr);
+				update(stmt);
+			}
+
+			// ... and then eliminate recomputations.
+			reset();
+			block.stmts.clear();
+			for (ImcStmt stmt : blockStmts) {
+				ImcStmt newStmt = rewrite(stmt, block.stmts);
+				block.stmts.add(newStmt);
+				update(newStmt);
+			}
+		}
+		return BasicBlock.join(blocks);
+	}
+
+	/**
+	 * Returns the number of expression nodes eliminated so far.
+	 *
+	 * @return The number of expression nodes eliminated so far.
+	 */
+	public int numEliminated() {
+		return numEliminated;
+	}
+
+	private void reset() {
+		tempNumbers.clear();
+		holders.clear();
+		lastUses.clear();
+		heldValues.clear();
+		stores.clear();
+		stmtNumbers = new IdentityHashMap<ImcExpr, Integer>();
+		stmtIndex = 0;
+	}
+
+	/**
+	 * Returns the expressions a statement evaluates before it takes effect.
+	 */
+	private Vector<ImcExpr> exprs(ImcStmt stmt) {
+		Vector<ImcExpr> exprs = new Vector<ImcExpr>();
+		if (stmt instanceof ImcMOVE move) {
+			if (move.dst instanceof ImcMEM dst)
+				exprs.add(dst.addr);
+			exprs.add(move.src);
+		} else if (stmt instanceof ImcCJUMP cjump)
+			exprs.add(cjump.cond);
+		else if (stmt instanceof ImcESTMT eStmt)
+			exprs.add(eStmt.expr);
+		return exprs;
+	}
+
+	/**
+	 * Records the effects of a statement on temporary variables and memory.
+	 */
+	private void update(ImcStmt stmt) {
+		if (stmt instanceof ImcMOVE move) {
+			if (move.dst instanceof ImcTEMP dst) {
+				int number = move.src instanceof ImcCALL ? numberOf(List.of("CALL", stmtIndex)) : number(move.src);
+				if (move.src instanceof ImcCALL)
+					stores.add(-1);
+				tempNumbers.put(dst.temp, number);
+				// The destination becomes the holder unless it copies the holder.
+				MemTemp holder = holders.get(number);
+				if ((holder == null) || !tempNumbers.get(holder).equals(number)
+						|| !((move.src instanceof ImcTEMP src) && (src.temp == holder)))
+					holders.put(number, dst.temp);
+			} else if (move.dst instanceof ImcMEM dst) {
+				int addr = number(dst.addr);
+				int src = number(move.src);
+				stores.add(addr);
+				// A load from the address right after the store yields the value stored.
+				numbers.put(List.of("MEM", addr, stores.size() - 1), src);
+			}
+		} else if ((stmt instanceof ImcESTMT eStmt) && (eStmt.expr instanceof ImcCALL))
+			stores.add(-1);
+		stmtNumbers = new IdentityHashMap<ImcExpr, Integer>();
+		stmtIndex++;
+	}
+
+	/**
+	 * Finds the computations in an expression whose values are reused later and
+	 * those that reuse them. The subexpressions of a value that is reused are not
+	 * looked into as they need not be computed again.
+	 */
+	private void count(ImcExpr expr) {
+		if (expr instanceof ImcCALL call) {
+			for (ImcExpr arg : call.args)
+				count(arg);
+			return;
+		}
+		if (isCheap(expr))
+			return;
+		int number = number(expr);
+		if (constants.containsKey(number) || links.contains(number))
+			return;
+		boolean isReused = hold(number);
+		lastUses.put(number, stmtIndex);
+		if (isReused) {
+			storedComputations.add(lastComputations.get(number));
+			reusedComputations.add(List.of(stmtIndex, expr));
+			return;
+		}
+		lastComputations.put(number, List.of(stmtIndex, expr));
+		if (expr instanceof ImcBINOP binOp) {
+			count(binOp.fstExpr);
+			count(binOp.sndExpr);
+		} else if (expr instanceof ImcUNOP unOp)
+			count(unOp.subExpr);
+		else if (expr instanceof ImcMEM mem)
+			count(mem.addr);
+	}
+
+	private ImcStmt rewrite(ImcStmt stmt, Vector<ImcStmt> stmts) {
+		if (stmt instanceof ImcMOVE move) {
+			if (move.dst instanceof ImcMEM dst) {
+				ImcExpr addr = rewrite(dst.addr, stmts);
+				ImcExpr src = rewrite(move.src, stmts);
+				return (addr == dst.addr) && (src == move.src) ? move : new ImcMOVE(new ImcMEM(addr), src);
+			}
+			// The destination holds the source's value from now on, so the source
+			// need not be stored into another temporary variable first.
+			boolean isKnown = !isCheap(move.src) && !(move.src instanceof ImcCALL)
+					&& (constants.containsKey(number(move.src)) || (holder(move.src) != null));
+			ImcExpr src = isKnown || (move.src instanceof ImcCALL) ? rewrite(move.src, stmts)
+					: rewriteSubexprs(move.src, stmts);
+			return src == move.src ? move : new ImcMOVE(move.dst, src);
+		}
+		if (stmt instanceof ImcCJUMP cjump) {
+			ImcExpr cond = rewrite(cjump.cond, stmts);
+			return cond == cjump.cond ? cjump : new ImcCJUMP(cond, cjump.posLabel, cjump.negLabel);
+		}
+		if (stmt instanceof ImcESTMT eStmt) {
+			ImcExpr expr = rewrite(eStmt.expr, stmts);
+			return expr == eStmt.expr ? eStmt : new ImcESTMT(expr);
+		}
+		return stmt;
+	}
+
+	/**
+	 * Rewrites an expression so that constants and values already held by
+	 * temporary variables are not computed again.
+	 *
+	 * @param expr  The expression.
+	 * @param stmts The statements preceding the expression, where the values
+	 *              computed more than once are stored into new temporary
+	 *              variables.
+	 * @return The rewritten expression.
+	 */
+	private ImcExpr rewrite(ImcExpr expr, Vector<ImcStmt> stmts) {
+		if (isLeaf(expr))
+			return expr;
+		if (expr instanceof ImcCALL)
+			return rewriteSubexprs(expr, stmts);
+		Long value = constants.get(number(expr));
+		if (value != null) {
+			Report.trace(CATEGORY, "%s(constant): %s=%s", TAG, value, expr);
+			numEliminated += size(expr);
+			return new ImcCONST(value);
+		}
+		MemTemp holder = holder(expr);
+		if (holder != null) {
+			int size = size(expr);
+			Report.trace(CATEGORY, "%s(reuse): %s=%s (%d nodes)", TAG, holder, expr, size);
+			numEliminated += size;
+			return new ImcTEMP(holder);
+		}
+		ImcExpr newExpr = rewriteSubexprs(expr, stmts);
+		if (!storedComputations.contains(List.of(stmtIndex, expr)))
+			return newExpr;
+		int number = number(expr);
+		MemTemp temp = new MemTemp();
+		stmts.add(new ImcMOVE(new ImcTEMP(temp), newExpr));
+		tempNumbers.put(temp, number);
+		holders.put(number, temp);
+		return new ImcTEMP(temp);
+	}
+
+	private ImcExpr rewriteSubexprs(ImcExpr expr, Vector<ImcStmt> stmts) {
+		if (expr instanceof ImcBINOP binOp) {
+			ImcExpr fstExpr = rewrite(binOp.fstExpr, stmts);
+			ImcExpr sndExpr = rewrite(binOp.sndExpr, stmts);
+			return (fstExpr == binOp.fstExpr) && (sndExpr == binOp.sndExpr) ? binOp
+					: new ImcBINOP(binOp.oper, fstExpr, sndExpr);
+		}
+		if (expr instanceof ImcUNOP unOp) {
+			ImcExpr subExpr = rewrite(unOp.subExpr, stmts);
+			return subExpr == unOp.subExpr ? unOp : new ImcUNOP(unOp.oper, subExpr);
+		}
+		if (expr instanceof ImcMEM mem) {
+			ImcExpr addr = rewrite(mem.addr, stmts);
+			return addr == mem.addr ? mem : new ImcMEM(addr);
+		}
+		if (expr instanceof ImcCALL call) {
+			Vector<ImcExpr> args = new Vector<ImcExpr>();
+			boolean changed = false;
+			for (ImcExpr arg : call.args) {
+				ImcExpr newArg = rewrite(arg, stmts);
+				changed |= newArg != arg;
+				args.add(newArg);
+			}
+			return changed ? new ImcCALL(call.label, call.offs, args) : call;
+		}
+		return expr;
+	}
+
+	/**
+	 * Returns the temporary variable holding the value of an expression if the
+	 * expression is to be replaced by it.
+	 *
+	 * @param expr The expression.
+	 * @return The temporary variable or {@code null} if there is none.
+	 */
+	private MemTemp holder(ImcExpr expr) {
+		if (!reusedComputations.contains(List.of(stmtIndex, expr)))
+			return null;
+		int number = number(expr);
+		MemTemp holder = holders.get(number);
+		return (holder != null) && tempNumbers.get(holder).equals(number) ? holder : null;
+	}
+
+	/**
+	 * Tells whether a value computed again in the current statement is to be
+	 * reused, i.e., whether it has been computed or reused at most
+	 * {@link #MAX_DISTANCE} statements before and fewer than {@link #MAX_HELD}
+	 * other values (none with fewer than {@link #MIN_REGS} registers) are held at
+	 * the moment. If so, the value is held from now on.
+	 */
+	private boolean hold(int number) {
+		if (!isRecent(number)) {
+			heldValues.remove(number);
+			return false;
+		}
+		if (heldValues.contains(number))
+			return true;
+		heldValues.removeIf(held -> !isRecent(held));
+		return (heldValues.size() < maxHeld) && heldValues.add(number);
+	}
+
+	private boolean isRecent(int number) {
+		Integer lastUse = lastUses.get(number);
+		return (lastUse != null) && (stmtIndex - lastUse <= MAX_DISTANCE);
+	}
+
+	/**
+	 * Returns the value number of a call-free expression evaluated before the
+	 * current statement takes effect.
+	 */
+	private int number(ImcExpr expr) {
+		Integer number = stmtNumbers.get(expr);
+		if (number != null)
+			return number;
+
+		if (expr instanceof ImcCONST constant)
+			number = constNumber(constant.value);
+		else if (expr instanceof ImcNAME name)
+			number = numberOf(List.of("NAME", name.label));
+		else if (expr instanceof ImcTEMP temp) {
+			number = tempNumbers.get(temp.temp);
+			if (number == null) {
+				number = numberOf(List.of("TEMP", temp.temp));
+				tempNumbers.put(temp.temp, number);
+				if (temp.temp == frame.FP)
+					links.add(number);
+			}
+		} else if (expr instanceof ImcUNOP unOp) {
+			int sub = number(unOp.subExpr);
+			Long value = constants.containsKey(sub) ? ExprSimplifier.fold(unOp.oper, constants.get(sub)) : null;
+			number = value != null ? constNumber(value) : numberOf(List.of("UNOP", unOp.oper, sub));
+		} else if (expr instanceof ImcBINOP binOp) {
+			int fst = number(binOp.fstExpr);
+			int snd = number(binOp.sndExpr);
+			Long value = constants.containsKey(fst) && constants.containsKey(snd)
+					? ExprSimplifier.fold(binOp.oper, constants.get(fst), constants.get(snd))
+					: null;
+			if (value != null)
+				number = constNumber(value);
+			else if ((binOp.oper == ImcBINOP.Oper.ADD) && (constants.containsKey(fst) || constants.containsKey(snd))) {
+				// An address is numbered by its base and its constant offset.
+				int base = constants.containsKey(snd) ? fst : snd;
+				long offset = offsets.get(base) + constants.get(base == fst ? snd : fst);
+				base = bases.get(base);
+				number = offset == 0 ? base : numberOf(List.of("OFFSET", base, offset));
+				bases.set(number, base);
+				offsets.set(number, offset);
+			} else
+				number = numberOf(List.of("BINOP", binOp.oper, fst, snd));
+		} else if (expr instanceof ImcMEM mem) {
+			int addr = number(mem.addr);
+			if (links.contains(addr)) {
+				number = numberOf(List.of("LINK", addr));
+				links.add(number);
+			} else {
+				int store = stores.size() - 1;
+				while ((store >= 0) && !mightOverlap(addr, stores.get(store)))
+					store--;
+				number = numberOf(List.of("MEM", addr, store));
+			}
+		} else
+			throw new Report.InternalError();
+
+		stmtNumbers.put(expr, number);
+		return number;
+	}
+
+	/**
+	 * Returns the value number of a value computed in a certain way, assigning a
+	 * new value number if the value has not been computed before.
+	 */
+	private int numberOf(List<Object> key) {
+		Integer number = numbers.get(key);
+		if (number != null)
+			return number;
+		number = bases.size();
+		numbers.put(key, number);
+		bases.add(number);
+		offsets.add(0L);
+		return number;
+	}
+
+	private int constNumber(long value) {
+		int number = numberOf(List.of("CONST", value));
+		bases.set(number, -1);
+		offsets.set(number, value);
+		constants.put(number, value);
+		return number;
+	}
+
+	/**
+	 * Tells whether a load from one address might overlap with a store to
+	 * another address, or with a function call if the latter is {@code -1}.
+	 */
+	private boolean mightOverlap(int addr, int storeAddr) {
+		if ((storeAddr == -1) || (addr == storeAddr))
+			return true;
+		if (!bases.get(addr).equals(bases.get(storeAddr)))
+			return true;
+		return Math.abs(offsets.get(addr) - offsets.get(storeAddr)) < 8;
+	}
+
+	private static boolean isLeaf(ImcExpr expr) {
+		return (expr instanceof ImcCONST) || (expr instanceof ImcNAME) || (expr instanceof ImcTEMP);
+	}
+
+	/**
+	 * Tells whether an expression is a leaf, a leaf plus or minus a constant, or
+	 * a load from either of them.
+	 */
+	private static boolean isCheap(ImcExpr expr) {
+		if (expr instanceof ImcMEM mem)
+			expr = mem.addr;
+		if (expr instanceof ImcBINOP binOp) {
+			if ((binOp.oper == ImcBINOP.Oper.ADD) && (binOp.fstExpr instanceof ImcCONST))
+				return isLeaf(binOp.sndExpr);
+			return ((binOp.oper == ImcBINOP.Oper.ADD) || (binOp.oper == ImcBINOP.Oper.SUB)) && isLeaf(binOp.fstExpr)
+					&& (binOp.sndExpr instanceof ImcCONST);
+		}
+		return isLeaf(expr);
+	}
+
+	private static int size(ImcExpr expr) {
+		if (expr instanceof ImcBINOP binOp)
+			return 1 + size(binOp.fstExpr) + size(binOp.sndExpr);
+		if (expr instanceof ImcUNOP unOp)
+			return 1 + size(unOp.subExpr);
+		if (expr instanceof ImcMEM mem)
+			return 1 + size(mem.addr);
+		return 1;
+	}
+
+}
@@ -0,0 +1,486 @@
+package prev.phase.lexan;
+
+import java.nio.charset.*;
+import java.util.*;
+
+import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.misc.*;
+
+import prev.common.logger.*;
+import prev.common.report.*;
+import prev.data.sym.Token;
+
+/**
+ * A hand-written lexer producing the same tokens as {@link PrevLexer}.
+ *
+ * The source is lexed as bytes: the kind of the first byte of each token,
+ * looked up in a table, selects the automaton recognizing the rest of the
+ * token. Like {@link PrevLexer}, the lexer always takes the longest match and
+ * prefers the rule listed first in {@code PrevLexer.g4} if several rules match
+ * equally long prefixes, so the token types, lexemes and positions of tokens
+ * are exactly those produced by {@link PrevLexer} (columns of tabs included).
+ * Lexical errors are reported with the same messages and locations, and the
+ * offending lexeme is returned as an error token, i.e., the error is left to
+ * the parser.
+ *
+ * Bytes outside ASCII can only appear in comments or as unrecognised symbols;
+ * they are decoded as UTF-8 so that positions are counted in characters.
+ */
+public class FastLexer implements TokenSource {
+
+	// Kinds of bytes.
+
+	private static final byte OTHER = 0;
+	private static final byte SPACE = 1;
+	private static final byte NEWLINE = 2;
+	private static final byte TAB = 3;
+	private static final byte COMMENT = 4;
+	private static final byte LETTER = 5;
+	private static final byte ZERO = 6;
+	private static final byte DIGIT = 7;
+	private static final byte QUOTE = 8;
+	private static final byte DQUOTE = 9;
+	private static final byte SYMBOL = 10;
+
+	/** The kind of each ASCII byte. */
+	private static final byte[] kinds = new byte[128];
+
+	/** The type of the token consisting of a single ASCII byte. */
+	private static final int[] symbols = new int[128];
+
+	/** The type of the token consisting of an ASCII byte followed by {@code =}. */
+	private static final int[] equSymbols = new int[128];
+
+	/** The types of keywords and named constants. */
+	private static final HashMap<String, Integer> keywords = new HashMap<String, Integer>();
+
+	/** The text shared by all tokens of a type with a fixed lexeme or {@code null}. */
+	private static final String[] fixedTexts = new String[PrevLexer.VOCABULARY.getMaxTokenType() + 1];
+
+	static {
+		kinds[' '] = SPACE;
+		kinds['\r'] = SPACE;
+		kinds['\n'] = NEWLINE;
+		kinds['\t'] = TAB;
+		kinds['#'] = COMMENT;
+		for (char c = 'a'; c <= 'z'; c++)
+			kinds[c] = LETTER;
+		for (char c = 'A'; c <= 'Z'; c++)
+			kinds[c] = LETTER;
+		kinds['_'] = LETTER;
+		kinds['0'] = ZERO;
+		for (char c = '1'; c <= '9'; c++)
+			kinds[c] = DIGIT;
+		kinds['\''] = QUOTE;
+		kinds['"'] = DQUOTE;
+
+		String singles = "(){}[].,:;&|!<>*/%+-^=";
+		int[] singleTypes = { PrevLexer.LPAREN, PrevLexer.RPAREN, PrevLexer.LBRACK, PrevLexer.RBRACK,
+				PrevLexer.LBRACE, PrevLexer.RBRACE, PrevLexer.DOT, PrevLexer.COMMA, PrevLexer.COLON,
+				PrevLexer.SEMICOLON, PrevLexer.AMPERSAND, PrevLexer.VERT_LINE, PrevLexer.BANG, PrevLexer.LT,
+				PrevLexer.GT, PrevLexer.STAR, PrevLexer.SLASH, PrevLexer.PERCENT, PrevLexer.PLUS, PrevLexer.MINUS,
+				PrevLexer.EXP, PrevLexer.EQU };
+		for (int i = 0; i < singles.length(); i++) {
+			kinds[singles.charAt(i)] = SYMBOL;
+			symbols[singles.charAt(i)] = singleTypes[i];
+		}
+		equSymbols['='] = PrevLexer.DEQU;
+		equSymbols['!'] = PrevLexer.NEQU;
+		equSymbols['<'] = PrevLexer.LTE;
+		equSymbols['>'] = PrevLexer.GTE;
+
+		keywords.put("none", PrevLexer.CONST_NONE);
+		keywords.put("true", PrevLexer.CONST_BOOL);
+		keywords.put("false", PrevLexer.CONST_BOOL);
+		keywords.put("nil", PrevLexer.CONST_PTR);
+		keywords.put("bool", PrevLexer.KEY_BOOL);
+		keywords.put("char", PrevLexer.KEY_CHAR);
+		keywords.put("del", PrevLexer.KEY_DEL);
+		keywords.put("do", PrevLexer.KEY_DO);
+		keywords.put("else", PrevLexer.KEY_ELSE);
+		keywords.put("fun", PrevLexer.KEY_FUN);
+		keywords.put("if", PrevLexer.KEY_IF);
+		keywords.put("int", PrevLexer.KEY_INT);
+		keywords.put("new", PrevLexer.KEY_NEW);
+		keywords.put("then", PrevLexer.KEY_THEN);
+		keywords.put("typ", PrevLexer.KEY_TYP);
+		keywords.put("var", PrevLexer.KEY_VAR);
+		keywords.put("void", PrevLexer.KEY_VOID);
+		keywords.put("where", PrevLexer.KEY_WHERE);
+		keywords.put("while", PrevLexer.KEY_WHILE);
+
+		for (int type = 1; type < fixedTexts.length; type++) {
+			String literal = PrevLexer.VOCABULARY.getLiteralName(type);
+			if (literal != null)
+				fixedTexts[type] = literal.substring(1, literal.length() - 1);
+		}
+	}
+
+	/** The source. */
+	private final byte[] src;
+
+	/** The name of the source file. */
+	private final String srcFileName;
+
+	/** The logger tokens are logged to or {@code null} if none. */
+	private final Logger logger;
+
+	/** Whether lexical errors are reported. */
+	private final boolean reportErrors;
+
+	/** The source of tokens as seen by tokens. */
+	private final Pair<TokenSource, CharStream> source;
+
+	/** The position of the next byte. */
+	private int pos = 0;
+
+	/** The index of the next character. */
+	private int index = 0;
+
+	/** The line of the next character. */
+	private int line = 1;
+
+	/** The column of the next character (starting with 0). */
+	private int column = 0;
+
+	/** The decoded run of bytes outside ASCII being lexed or {@code null} if none. */
+	private String nonAscii = null;
+
+	/** The offset of the next character within {@link #nonAscii}. */
+	private int nonAsciiOffset;
+
+	/** The position of the first byte following {@link #nonAscii}. */
+	private int nonAsciiEnd;
+
+	/**
+	 * Constructs a new lexer.
+	 *
+	 * @param src          The source.
+	 * @param srcFileName  The name of the source file.
+	 * @param logger       The logger tokens are logged to or {@code null} if
+	 *                     none.
+	 * @param reportErrors Whether lexical errors are reported.
+	 */
+	public FastLexer(byte[] src, String srcFileName, Logger logger, boolean reportErrors) {
+		this.src = src;
+		this.srcFileName = srcFileName;
+		this.logger = logger;
+		this.reportErrors = reportErrors;
+		this.source = new Pair<TokenSource, CharStream>(this, null);
+	}
+
+	@Override
+	public Token nextToken() {
+		while (true) {
+			int begPos = pos;
+			int begIndex = index;
+			int begLine = line;
+			int begColumn = column;
+			if (pos == src.length)
+				return emit(org.antlr.v4.runtime.Token.EOF, "<EOF>", begIndex);
+
+			int c = src[pos];
+			switch (c >= 0 ? kinds[c] : OTHER) {
+			case SPACE:
+				skip(1);
+				continue;
+			case NEWLINE:
+				pos++;
+				index++;
+				line++;
+				column = 0;
+				continue;
+			case TAB:
+				skip(1);
+				column = (column / 8) * 8 + 8;
+				continue;
+			case COMMENT: {
+				int end = pos;
+				while ((end < src.length) && (src[end] != '\n'))
+					end++;
+				int numChars = 0;
+				for (int run = pos; run < end; run++) {
+					if (src[run] >= 0) {
+						numChars++;
+						continue;
+					}
+					int runEnd = run;
+					while ((runEnd < end) && (src[runEnd] < 0))
+						runEnd++;
+					String text = new String(src, run, runEnd - run, StandardCharsets.UTF_8);
+					numChars += text.codePointCount(0, text.length());
+					run = runEnd - 1;
+				}
+				pos = end;
+				index += numChars;
+				column += numChars;
+				continue;
+			}
+			case LETTER: {
+				int end = pos + 1;
+				while ((end < src.length) && (src[end] >= 0) && (kinds[src[end]] >= LETTER)
+						&& (kinds[src[end]] <= DIGIT))
+					end++;
+				skip(end - pos);
+				String text = text(begPos);
+				Integer type = keywords.get(text);
+				if ((type != null) && (fixedTexts[type] != null))
+					text = fixedTexts[type];
+				return emit(type == null ? PrevLexer.IDENT : type, text, begIndex);
+			}
+			case ZERO:
+				if (isDigit(pos + 1)) {
+					int end = pos + 1;
+					while (isDigit(end))
+						end++;
+					skip(end - pos);
+					error(begLine, begColumn, "0-padded integer");
+					return emit(PrevLexer.ERR_PADDED_INT, text(begPos), begIndex);
+				}
+				skip(1);
+				return emit(PrevLexer.CONST_INT, "0", begIndex);
+			case DIGIT: {
+				int end = pos + 1;
+				while (isDigit(end))
+					end++;
+				skip(end - pos);
+				return emit(PrevLexer.CONST_INT, text(begPos), begIndex);
+			}
+			case QUOTE:
+				return charConst(begPos, begIndex, begLine, begColumn);
+			case DQUOTE:
+				return strConst(begPos, begIndex, begLine, begColumn);
+			case SYMBOL: {
+				int type = symbols[c];
+				if ((equSymbols[c] != 0) && (pos + 1 < src.length) && (src[pos + 1] == '=')) {
+					skip(2);
+					return emit(equSymbols[c], fixedTexts[equSymbols[c]], begIndex);
+				}
+				skip(1);
+				return emit(type, fixedTexts[type], begIndex);
+			}
+			default: {
+				String text = nextChar();
+				error(begLine, begColumn, "unrecognised symbol " + text);
+				return emit(PrevLexer.OTHER_ERR, text, begIndex);
+			}
+			}
+		}
+	}
+
+	/**
+	 * Lexes a character constant or an erroneous one.
+	 */
+	private Token charConst(int begPos, int begIndex, int begLine, int begColumn) {
+		// The longest match of each rule starting with a single quote, from the last
+		// rule to the first one so that earlier rules win ties.
+		int type = PrevLexer.OTHER_ERR;
+		int length = 1;
+		int unterminated = isPrintable(pos + 1) ? (isPrintable(pos + 2) ? 3 : 2) : 1;
+		if (unterminated >= length) {
+			type = PrevLexer.ERR_UNTERMINATED_CHAR;
+			length = unterminated;
+		}
+		if (isByte(pos + 1, '\'') && isByte(pos + 2, '\'') && (3 >= length)) {
+			type = PrevLexer.ERR_UNESCAPED_QUOTE;
+			length = 3;
+		}
+		int numChars = 0;
+		while (isCharConstChar(pos + 1 + numChars))
+			numChars++;
+		if ((numChars >= 2) && isByte(pos + 1 + numChars, '\'') && (numChars + 2 >= length)) {
+			type = PrevLexer.ERR_LONG_CHAR;
+			length = numChars + 2;
+		}
+		if (isByte(pos + 1, '\\') && isByte(pos + 2, '\'') && isByte(pos + 3, '\'') && (4 >= length)) {
+			type = PrevLexer.CONST_CHAR;
+			length = 4;
+		} else if (isCharConstChar(pos + 1) && isByte(pos + 2, '\'') && (3 >= length)) {
+			type = PrevLexer.CONST_CHAR;
+			length = 3;
+		}
+
+		skip(length);
+		if (type == PrevLexer.ERR_UNTERMINATED_CHAR)
+			error(begLine, begColumn, "unterminated char");
+		else if (type == PrevLexer.ERR_UNESCAPED_QUOTE)
+			error(begLine, begColumn, "unescaped single quote");
+		else if (type == PrevLexer.ERR_LONG_CHAR)
+			error(begLine, begColumn, "multiple characters inside single quote");
+		else if (type == PrevLexer.OTHER_ERR)
+			error(begLine, begColumn, "unrecognised symbol '");
+		return emit(type, text(begPos), begIndex);
+	}
+
+	/**
+	 * Lexes a string constant or an unterminated one.
+	 */
+	private Token strConst(int begPos, int begIndex, int begLine, int begColumn) {
+		// Positions within the string are reached either by a character or by an
+		// escaped double quote, so track whether the next two positions are reached.
+		int strLength = 0;
+		int unterminatedLength = 0;
+		boolean reached = true;
+		boolean reachedNext = false;
+		for (int end = pos + 1; (reached || reachedNext) && (end <= src.length); end++) {
+			boolean reachedAfterNext = false;
+			if (reached) {
+				if (end == src.length)
+					unterminatedLength = end - pos;
+				else {
+					if (src[end] == '"')
+						strLength = end + 1 - pos;
+					else if (src[end] == '\n')
+						unterminatedLength = end + 1 - pos;
+					if (isPrintable(end) && (src[end] != '"'))
+						reachedNext = true;
+					if ((src[end] == '\\') && isByte(end + 1, '"'))
+						reachedAfterNext = true;
+				}
+			}
+			reached = reachedNext;
+			reachedNext = reachedAfterNext;
+		}
+
+		// A string unterminated at the end of the source is matched after all other
+		// rules and thus wins ties, as in ANTLR.
+		int type = PrevLexer.OTHER_ERR;
+		int length = 1;
+		if (unterminatedLength >= length) {
+			type = PrevLexer.ERR_UNTERMINATED_STR;
+			length = unterminatedLength;
+		}
+		if ((strLength > length) || ((strLength == length) && (type != PrevLexer.ERR_UNTERMINATED_STR))) {
+			type = PrevLexer.CONST_STR;
+			length = strLength;
+		}
+
+		skip(length);
+		if (type == PrevLexer.ERR_UNTERMINATED_STR)
+			error(begLine, begColumn, "unterminated string");
+		else if (type == PrevLexer.OTHER_ERR)
+			error(begLine, begColumn, "unrecognised symbol \"");
+		return emit(type, text(begPos), begIndex);
+	}
+
+	/**
+	 * Skips ASCII bytes.
+	 *
+	 * @param length The number of bytes.
+	 */
+	private void skip(int length) {
+		for (int end = pos + length; pos < end; pos++) {
+			index++;
+			if (src[pos] == '\n') {
+				line++;
+				column = 0;
+			} else
+				column++;
+		}
+	}
+
+	/**
+	 * Skips a single character that is not an ASCII byte.
+	 *
+	 * Bytes outside ASCII are decoded a run at a time, invalid UTF-8 sequences
+	 * being replaced just like by {@link CharStreams}.
+	 *
+	 * @return The character.
+	 */
+	private String nextChar() {
+		if (src[pos] >= 0) {
+			skip(1);
+			return text(pos - 1);
+		}
+		if (nonAscii == null) {
+			nonAsciiEnd = pos;
+			while ((nonAsciiEnd < src.length) && (src[nonAsciiEnd] < 0))
+				nonAsciiEnd++;
+			nonAscii = new String(src, pos, nonAsciiEnd - pos, StandardCharsets.UTF_8);
+			nonAsciiOffset = 0;
+		}
+		int length = Character.charCount(nonAscii.codePointAt(nonAsciiOffset));
+		String text = nonAscii.substring(nonAsciiOffset, nonAsciiOffset + length);
+		nonAsciiOffset += length;
+		if (nonAsciiOffset == nonAscii.length()) {
+			pos = nonAsciiEnd;
+			nonAscii = null;
+		}
+		index++;
+		column++;
+		return text;
+	}
+
+	private boolean isByte(int pos, char c) {
+		return (pos < src.length) && (src[pos] == c);
+	}
+
+	private boolean isDigit(int pos) {
+		return (pos < src.length) && (src[pos] >= '0') && (src[pos] <= '9');
+	}
+
+	private boolean isPrintable(int pos) {
+		return (pos < src.length) && (src[pos] >= ' ') && (src[pos] <= '~');
+	}
+
+	private boolean isCharConstChar(int pos) {
+		return isPrintable(pos) && (src[pos] != '\'');
+	}
+
+	/**
+	 * Returns the text of the token ending at the current position.
+	 */
+	private String text(int begPos) {
+		return new String(src, begPos, pos - begPos, StandardCharsets.ISO_8859_1);
+	}
+
+	/**
+	 * Reports a lexical error of the token ending at the current position.
+	 */
+	private void error(int begLine, int begColumn, String message) {
+		if (reportErrors)
+			new Report.Error(new Location(begLine, begColumn, line, column), "[PrevLexer]: " + message);
+	}
+
+	/**
+	 * Produces the token ending at the current position.
+	 */
+	private Token emit(int type, String text, int begIndex) {
+		Token token = new Token(source, type, text, begIndex, index - 1);
+		token.log(logger);
+		return token;
+	}
+
+	@Override
+	public int getLine() {
+		return line;
+	}
+
+	@Override
+	public int getCharPositionInLine() {
+		return column;
+	}
+
+	@Override
+	public CharStream getInputStream() {
+		return null;
+	}
+
+	@Override
+	public String getSourceName() {
+		return srcFileName;
+	}
+
+	/**
+	 * Ignored as tokens are always produced by {@link #nextToken}.
+	 */
+	@Override
+	public void setTokenFactory(TokenFactory<?> factory) {
+	}
+
+	@Override
+	public TokenFactory<?> getTokenFactory() {
+		return CommonTokenFactory.DEFAULT;
+	}
+
+}
@@ -1,6 +1,9 @@
 package prev.phase.lexan;
 
 import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
 
 import org.antlr.v4.runtime.*;
 import org.antlr.v4.runtime.misc.*;
@@ -8,32 +11,158 @@ import org.antlr.v4.runtime.misc.*;
 import prev.common.report.*;
 import prev.data.sym.Token;
 import prev.phase.*;
+import prev.phase.all.*;
 
 /**
  * Lexical analysis phase.
+ *
+ * Tokens are produced by the ANTLR lexer {@link PrevLexer} or, with
+ * {@code --lexer=fast}, by the hand-written {@link FastLexer}. With
+ * {@code --lexer=check} the source is lexed by both lexers and the tokens they
+ * produce are compared. The ANTLR lexer reads a source file consisting of ASCII
+ * characters only directly from memory it is mapped to (see
+ * {@link MappedCharStream}).
  */
 public class LexAn extends Phase {
 
 	/**
-	 * The ANTLR lexer that actually performs lexical analysis.
+	 * The lexer that actually performs lexical analysis.
 	 */
-	public final PrevLexer lexer;
+	public final TokenSource lexer;
+
+	/** The name of the source file. */
+	private final String srcFileName;
+
+	/** The kind of the lexer (see {@code --lexer}). */
+	private final String kind;
+
+	/** The source text or {@code null} if it is read from the source file. */
+	private final String srcText;
+
+	/** The source for {@link FastLexer} or {@code null} if it is not used. */
+	private final byte[] src;
 
 	/**
-	 * Phase construction: sets up logging and the ANTLR lexer.
+	 * Phase construction: sets up logging and the lexer. The interfaces of linked
+	 * libraries (see {@link Library}) are appended to the source text.
 	 */
 	public LexAn() {
 		super("lexan");
 
-		String srcFileName = prev.Compiler.cmdLineArgValue("--src-file-name");
+		srcFileName = session.cmdLineArgValue("--src-file-name");
+		kind = session.cmdLineArgValue("--lexer");
+		String link = session.cmdLineArgValue("--link");
 		try {
-			lexer = new PrevLexer(CharStreams.fromFileName(srcFileName));
-			lexer.setTokenFactory(new PrevTokenFactory());
+			String srcText = session.srcText;
+			if (link != null)
+				srcText = (srcText != null ? srcText : Files.readString(Path.of(srcFileName)))
+						+ Library.readInterfaces(link);
+			this.srcText = srcText;
+			if ("fast".equals(kind) || "check".equals(kind))
+				src = srcText != null ? srcText.getBytes(StandardCharsets.UTF_8)
+						: Files.readAllBytes(Path.of(srcFileName));
+			else
+				src = null;
+			if ("check".equals(kind))
+				lexer = new ListTokenSource(check(antlrLexer(), new FastLexer(src, srcFileName, null, false)),
+						srcFileName);
+			else
+				lexer = "fast".equals(kind) ? fastLexer() : antlrLexer();
 		} catch (IOException __) {
 			throw new Report.Error("Cannot open file '" + srcFileName + "'.");
 		}
 	}
 
+	/**
+	 * Tells whether the source can be lexed again by {@link #newLexer}, i.e.,
+	 * whether the tokens need not be kept to be produced again. This is not the
+	 * case if tokens are logged or if the source is lexed by both lexers.
+	 *
+	 * @return {@code true} if the source can be lexed again, {@code false}
+	 *         otherwise.
+	 */
+	public boolean canLexAgain() {
+		return (logger == null) && !"check".equals(kind);
+	}
+
+	/**
+	 * Sets up a new lexer that lexes the source from its beginning.
+	 *
+	 * @return The lexer.
+	 */
+	public TokenSource newLexer() {
+		if (!canLexAgain())
+			throw new Report.InternalError();
+		try {
+			return "fast".equals(kind) ? fastLexer() : antlrLexer();
+		} catch (IOException __) {
+			throw new Report.Error("Cannot open file '" + srcFileName + "'.");
+		}
+	}
+
+	/**
+	 * Sets up the hand-written lexer.
+	 *
+	 * @return The hand-written lexer.
+	 */
+	private FastLexer fastLexer() {
+		return new FastLexer(src, srcFileName, logger, true);
+	}
+
+	/**
+	 * Sets up the ANTLR lexer. A source file consisting of ASCII characters only
+	 * is mapped into memory rather than read.
+	 *
+	 * @return The ANTLR lexer.
+	 * @throws IOException If the source file cannot be read.
+	 */
+	private PrevLexer antlrLexer() throws IOException {
+		CharStream input = srcText != null ? CharStreams.fromString(srcText, srcFileName)
+				: MappedCharStream.open(srcFileName);
+		if (input == null)
+			input = CharStreams.fromFileName(srcFileName);
+		PrevLexer lexer = new PrevLexer(input);
+		lexer.setTokenFactory(new PrevTokenFactory());
+		return lexer;
+	}
+
+	/**
+	 * Lexes the entire source by both lexers and compares the tokens they produce.
+	 *
+	 * @param antlrLexer The ANTLR lexer.
+	 * @param fastLexer  The hand-written lexer.
+	 * @return The tokens produced by the ANTLR lexer.
+	 */
+	private static Vector<Token> check(PrevLexer antlrLexer, FastLexer fastLexer) {
+		Vector<Token> tokens = new Vector<Token>();
+		while (true) {
+			Token antlrToken = (Token) antlrLexer.nextToken();
+			Token fastToken = fastLexer.nextToken();
+			tokens.add(antlrToken);
+			if ((antlrToken.getType() != fastToken.getType()) || !antlrToken.getText().equals(fastToken.getText())
+					|| (antlrToken.getLine() != fastToken.getLine())
+					|| (antlrToken.getCharPositionInLine() != fastToken.getCharPositionInLine())
+					|| (antlrToken.getStartIndex() != fastToken.getStartIndex())
+					|| (antlrToken.getStopIndex() != fastToken.getStopIndex()))
+				throw new Report.Error(antlrToken, "[LexAn]: Lexers disagree: " + describe(antlrToken) + " vs. "
+						+ describe(fastToken) + ".");
+			if (antlrToken.getType() == Token.EOF)
+				return tokens;
+		}
+	}
+
+	/**
+	 * Describes a token for comparing lexers.
+	 *
+	 * @param token The token.
+	 * @return The description.
+	 */
+	private static String describe(Token token) {
+		return PrevLexer.VOCABULARY.getSymbolicName(token.getType()) + " '" + token.getText() + "' at "
+				+ token.getLine() + ":" + token.getCharPositionInLine() + " [" + token.getStartIndex() + ".."
+				+ token.getStopIndex() + "]";
+	}
+
 	/**
 	 * A customized token factory which logs tokens.
 	 */
@@ -0,0 +1,129 @@
+package prev.phase.lexan;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+
+import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.misc.*;
+
+/**
+ * A character stream over a memory-mapped ASCII source file.
+ *
+ * Every byte of the file is a character, so characters are read directly from
+ * the mapped file instead of being decoded into a buffer first. The stream
+ * behaves exactly like the one produced by {@link CharStreams#fromFileName}
+ * for the same file.
+ */
+public class MappedCharStream implements CharStream {
+
+	/** The mapped source file. */
+	private final MappedByteBuffer src;
+
+	/** The number of characters. */
+	private final int size;
+
+	/** The name of the source file. */
+	private final String srcFileName;
+
+	/** The index of the next character. */
+	private int index = 0;
+
+	/**
+	 * Constructs a new character stream.
+	 *
+	 * @param src         The mapped source file.
+	 * @param srcFileName The name of the source file.
+	 */
+	private MappedCharStream(MappedByteBuffer src, String srcFileName) {
+		this.src = src;
+		this.size = src.capacity();
+		this.srcFileName = srcFileName;
+	}
+
+	/**
+	 * Maps a source file into memory.
+	 *
+	 * @param srcFileName The name of the source file.
+	 * @return The character stream or {@code null} if the source file is too
+	 *         large or contains bytes outside ASCII and must be decoded.
+	 * @throws IOException If the source file cannot be read.
+	 */
+	public static MappedCharStream open(String srcFileName) throws IOException {
+		try (FileChannel channel = FileChannel.open(Path.of(srcFileName), StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE)
+				return null;
+			MappedByteBuffer src = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			for (int pos = 0; pos < src.capacity(); pos++)
+				if (src.get(pos) < 0)
+					return null;
+			return new MappedCharStream(src, srcFileName);
+		}
+	}
+
+	@Override
+	public void consume() {
+		if (index == size)
+			throw new IllegalStateException("cannot consume EOF");
+		index++;
+	}
+
+	@Override
+	public int LA(int i) {
+		if (i == 0)
+			return 0;
+		int pos = i > 0 ? index + i - 1 : index + i;
+		if ((pos < 0) || (pos >= size))
+			return IntStream.EOF;
+		return src.get(pos);
+	}
+
+	/**
+	 * Marks are not needed as the entire source remains mapped.
+	 */
+	@Override
+	public int mark() {
+		return -1;
+	}
+
+	@Override
+	public void release(int marker) {
+	}
+
+	@Override
+	public int index() {
+		return index;
+	}
+
+	@Override
+	public void seek(int index) {
+		this.index = index;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public String getSourceName() {
+		return srcFileName;
+	}
+
+	@Override
+	public String getText(Interval interval) {
+		int beg = Math.min(interval.a, size);
+		int len = Math.min(interval.b - interval.a + 1, size - beg);
+		byte[] text = new byte[Math.max(len, 0)];
+		src.get(beg, text);
+		return new String(text, StandardCharsets.US_ASCII);
+	}
+
+	@Override
+	public String toString() {
+		return getText(Interval.of(0, size - 1));
+	}
+
+}
@@ -10,6 +10,7 @@ import prev.phase.asmgen.AsmGen;
 
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Vector;
 
 /**
  * Liveness analysis.
@@ -20,54 +21,72 @@ public class LiveAn extends Phase {
 		super("livean");
 	}
 
+	/**
+	 * Computes the lifetimes of temporary variables of all functions, the
+	 * functions in parallel.
+	 */
 	public void compLifetimes() {
+		Vector<Code> codes = AsmGen.codes();
+		Vector<Integer> iterations = session.forEachCode(codes.size(), i -> compLifetimes(codes.get(i)));
+		for (int numIterations : iterations)
+			session.stats.count("livenessIterations", numIterations);
+	}
+
+	/**
+	 * Computes the lifetimes of temporary variables within a single function.
+	 *
+	 * @param code The function's code.
+	 * @return The number of iterations needed to reach the fixed point.
+	 */
+	public static int compLifetimes(Code code) {
 		boolean changed;
+		int numIterations = 0;
 		HashMap<String, AsmLABEL> labelMap = new HashMap<>();
 
-		for (Code code : AsmGen.codes) {
-			do {
-				changed = false;
-				for (int i = 0; i < code.instrs.size(); i++) {
-					AsmInstr instr = code.instrs.get(i);
-					int inSize = instr.in().size();
-					int outSize = instr.out().size();
+		do {
+			numIterations++;
+			changed = false;
+			for (int i = 0; i < code.instrs.size(); i++) {
+				AsmInstr instr = code.instrs.get(i);
+				int inSize = instr.in().size();
+				int outSize = instr.out().size();
 
-					if (instr instanceof AsmLABEL asmLabel) {
-						labelMap.put(asmLabel.toString(), asmLabel);
-					}
+				if (instr instanceof AsmLABEL asmLabel) {
+					labelMap.put(asmLabel.toString(), asmLabel);
+				}
 
-					// If instruction is a jump, then next instruction will be
-					// the location it jumps to (or neg/pos)
-					// If instruction is a function call, then the label will be
-					// outside this code block, so continue normally
-					if (instr.jumps().size() > 0 && !instr.toString().contains("PUSHJ")) {
-						for (MemLabel label : instr.jumps()) {
-							if (labelMap.get(label.name) != null) {
-								instr.addOutTemp(labelMap.get(label.name).in());
-							}
+				// If instruction is a jump, then next instruction will be
+				// the location it jumps to (or neg/pos)
+				// If instruction is a function call, then the label will be
+				// outside this code block, so continue normally
+				if (instr.jumps().size() > 0 && !instr.toString().contains("PUSHJ")) {
+					for (MemLabel label : instr.jumps()) {
+						if (labelMap.get(label.name) != null) {
+							instr.addOutTemp(labelMap.get(label.name).in());
 						}
-					} else if (i < code.instrs.size() - 1) {
-						instr.addOutTemp(code.instrs.get(i + 1).in());
 					}
+				} else if (i < code.instrs.size() - 1) {
+					instr.addOutTemp(code.instrs.get(i + 1).in());
+				}
 
-					instr.addInTemps(new HashSet<>(instr.uses()));
-					HashSet<MemTemp> filtered = new HashSet<>(instr.out());
-					instr.defs().forEach(filtered::remove);
-					instr.addInTemps(filtered);
+				instr.addInTemps(new HashSet<>(instr.uses()));
+				HashSet<MemTemp> filtered = new HashSet<>(instr.out());
+				instr.defs().forEach(filtered::remove);
+				instr.addInTemps(filtered);
 
-					// Check if there were any changes
-					if (inSize != instr.in().size() || outSize != instr.out().size()) {
-						changed = true;
-					}
+				// Check if there were any changes
+				if (inSize != instr.in().size() || outSize != instr.out().size()) {
+					changed = true;
 				}
-			} while (changed);
-		}
+			}
+		} while (changed);
+		return numIterations;
 	}
 
 	public void log() {
 		if (logger == null)
 			return;
-		for (Code code : AsmGen.codes) {
+		for (Code code : AsmGen.codes()) {
 			logger.begElement("code");
 			logger.addAttribute("entrylabel", code.entryLabel.name);
 			logger.addAttribute("exitlabel", code.exitLabel.name);
@@ -33,12 +33,12 @@ public class MemEvaluator extends AstFullVisitor<Object, MemEvaluator.Context> {
 		compDecl.type.accept(this, context);
 
 		// Get the component's type to calculate size
-		SemType compType = SemAn.isType.get(compDecl.type);
+		SemType compType = SemAn.isType().get(compDecl.type);
 
 		// Create a new relative variable
 		MemRelAccess relAccess = new MemRelAccess(compType.size(), context.offset, 0);
 		context.offset += compType.size();
-		Memory.accesses.put(compDecl, relAccess);
+		Memory.accesses().put(compDecl, relAccess);
 
 		return null;
 	}
@@ -54,7 +54,7 @@ public class MemEvaluator extends AstFullVisitor<Object, MemEvaluator.Context> {
 			newContext.depth = context.depth + 1;
 		}
 
-		newContext.offset = (new SemPtr(new SemVoid())).size();
+		newContext.offset = SemTypeFactory.voidPtrType.size();
 
 		// Evaluate parameters' size
 		if (funDecl.pars != null) {
@@ -83,7 +83,7 @@ public class MemEvaluator extends AstFullVisitor<Object, MemEvaluator.Context> {
 
 		// Create a stack frame
 		MemFrame frame = new MemFrame(label, newContext.depth - 1, newContext.locsSize, newContext.argsSize);
-		Memory.frames.put(funDecl, frame);
+		Memory.frames().put(funDecl, frame);
 
 		return null;
 	}
@@ -95,12 +95,12 @@ public class MemEvaluator extends AstFullVisitor<Object, MemEvaluator.Context> {
 		parDecl.type.accept(this, context);
 
 		// Get the parameter's type to calculate size
-		SemType type = SemAn.isType.get(parDecl.type);
+		SemType type = SemAn.isType().get(parDecl.type);
 
 		// Create a new relative variable
 		MemRelAccess relAccess = new MemRelAccess(type.size(), context.offset, context.depth);
 		context.offset += type.size();
-		Memory.accesses.put(parDecl, relAccess);
+		Memory.accesses().put(parDecl, relAccess);
 
 		return null;
 	}
@@ -117,20 +117,20 @@ public class MemEvaluator extends AstFullVisitor<Object, MemEvaluator.Context> {
 		varDecl.type.accept(this, context);
 
 		// Get variable's type to calculate size
-		SemType type = SemAn.isType.get(varDecl.type);
+		SemType type = SemAn.isType().get(varDecl.type);
 
 		// If top level variable, the context will be null
 		if (context == null) {
 			// Top level variables use absolute addresses and proper names
 			MemLabel label = new MemLabel(varDecl.name);
 			MemAbsAccess absAccess = new MemAbsAccess(type.size(), label);
-			Memory.accesses.put(varDecl, absAccess);
+			Memory.accesses().put(varDecl, absAccess);
 		} else {
 			// Non-top level variables use relative addresses
 			context.locsSize += type.size();
 			context.offset -= type.size();
 			MemRelAccess relAccess = new MemRelAccess(type.size(), context.offset, context.depth);
-			Memory.accesses.put(varDecl, relAccess);
+			Memory.accesses().put(varDecl, relAccess);
 		}
 
 		varDecl.type.accept(this, new Context());
@@ -150,9 +150,9 @@ public class MemEvaluator extends AstFullVisitor<Object, MemEvaluator.Context> {
 			.replace("\\\"", "\""); // Replace escaped quotes with normal quotes
 
 		// Create an anonymous label, each char is 8 bits, +1 char for \0
-		MemAbsAccess absAccess = new MemAbsAccess((string.length() + 1) * (new SemChar()).size(),
+		MemAbsAccess absAccess = new MemAbsAccess((string.length() + 1) * SemTypeFactory.charType.size(),
 			new MemLabel(), string);
-		Memory.strings.put(atomExpr, absAccess);
+		Memory.strings().put(atomExpr, absAccess);
 
 		return null;
 	}
@@ -160,7 +160,7 @@ public class MemEvaluator extends AstFullVisitor<Object, MemEvaluator.Context> {
 	@Override
 	public Object visit(AstCallExpr callExpr, Context context) {
 		if (callExpr.args == null) {
-			context.argsSize = (new SemPtr(new SemInt())).size();
+			context.argsSize = SemTypeFactory.voidPtrType.size();
 			return null;
 		}
 
@@ -168,10 +168,10 @@ public class MemEvaluator extends AstFullVisitor<Object, MemEvaluator.Context> {
 		callExpr.args.accept(this, context);
 
 		// Size of arguments is the actual size + the size of a pointer that points to SL
-		long size = (new SemPtr(new SemInt())).size();
+		long size = SemTypeFactory.voidPtrType.size();
 
 		for (AstExpr expr: callExpr.args) {
-			SemType type = SemAn.ofType.get(expr);
+			SemType type = SemAn.ofType().get(expr);
 			size += type.size();
 		}
 
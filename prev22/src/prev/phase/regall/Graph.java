@@ -96,4 +96,9 @@ class Vertex {
 	public void removeNeighbor(Vertex vertex) {
 		this.neighbors.remove(vertex);
 	}
+
+	@Override
+	public int hashCode() {
+		return variable.hashCode();
+	}
 }
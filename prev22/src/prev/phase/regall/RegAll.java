@@ -4,8 +4,7 @@ import prev.data.asm.AsmInstr;
 import prev.data.asm.AsmOPER;
 import prev.data.asm.Code;
 import prev.data.mem.MemTemp;
-import prev.data.typ.SemPtr;
-import prev.data.typ.SemVoid;
+import prev.data.typ.SemTypeFactory;
 import prev.phase.Phase;
 import prev.phase.asmgen.AsmGen;
 import prev.phase.livean.LiveAn;
@@ -57,208 +56,240 @@ public class RegAll extends Phase {
 		return instrs;
 	}
 
+	/**
+	 * Allocates registers of all functions, the functions in parallel.
+	 */
 	public void allocate() {
-		for (Code code : AsmGen.codes) {
-
-			// Try building and coloring a graph until it succeeds
-			Graph finalGraph = new Graph();
-			do {
-				// Re-do liveness analysis
-				try (LiveAn liveAn = new LiveAn()) {
-					liveAn.compLifetimes();
-				}
-
-				Graph graph = new Graph();
+		Vector<Code> codes = AsmGen.codes();
+		Vector<Allocation> allocations = session.forEachCode(codes.size(), i -> allocate(codes.get(i)));
+		for (int i = 0; i < allocations.size(); i++) {
+			Allocation allocation = allocations.get(i);
+			session.stats.count("rounds", allocation.numRounds);
+			session.stats.count("spills", allocation.numSpills);
+			if (session.stats.enabled()) {
+				LinkedHashMap<String, Object> record = session.stats.record("codes");
+				record.put("label", AsmGen.codes().get(i).frame.label.name);
+				record.put("rounds", allocation.numRounds);
+				record.put("spills", allocation.numSpills);
+			}
+			tempToReg.putAll(allocation.tempToReg);
+		}
+	}
 
-				// Add all variables to graph
-				for (AsmInstr instr : code.instrs) {
-					HashSet<MemTemp> combined = new HashSet<>(instr.uses());
-					combined.addAll(instr.defs());
+	/**
+	 * Allocates registers of a single function, spilling temporary variables and
+	 * redoing the liveness analysis of the function until the coloring succeeds.
+	 *
+	 * @param code The function's code.
+	 * @return The allocation.
+	 */
+	private Allocation allocate(Code code) {
+		// Try building and coloring a graph until it succeeds
+		Graph finalGraph;
+		int numRounds = 0;
+		int numSpills = 0;
+		do {
+			numRounds++;
+
+			// Re-do liveness analysis of this function
+			LiveAn.compLifetimes(code);
+
+			Graph graph = new Graph();
+
+			// Colors of a previous round are stale once spills have changed the code
+			finalGraph = new Graph();
+
+			// Add all variables to graph
+			for (AsmInstr instr : code.instrs) {
+				HashSet<MemTemp> combined = new HashSet<>(instr.uses());
+				combined.addAll(instr.defs());
 
-					// Convert every variable to a Vertex
-					for (MemTemp temp : combined) {
-						graph.addVertex(temp);
-					}
+				// Convert every variable to a Vertex
+				for (MemTemp temp : combined) {
+					graph.addVertex(temp);
 				}
+			}
 
-				// Add all neighbors to variables
-				for (AsmInstr instr : code.instrs) {
-					if (instr.defs() == null || instr.defs().size() == 0) continue;
+			// Add all neighbors to variables
+			for (AsmInstr instr : code.instrs) {
+				if (instr.defs() == null || instr.defs().size() == 0) continue;
 
-					// Only outs are relevant
-					for (MemTemp out : instr.out()) {
-						graph.addNeighbors(instr.defs().get(0), out);
-					}
+				// Only outs are relevant
+				for (MemTemp out : instr.out()) {
+					graph.addNeighbors(instr.defs().get(0), out);
 				}
+			}
 
-				// FP is needed for adding neighbors, but not afterwards, since it has a
-				// predetermined register
-				graph.removeVertex(code.frame.FP);
+			// FP is needed for adding neighbors, but not afterwards, since it has a
+			// predetermined register
+			graph.removeVertex(code.frame.FP);
 
-				// Store a list of all neighbors before simplifying graph
-				HashMap<Vertex, HashSet<Vertex>> neighbors = graph.getNeighbors();
+			// Store a list of all neighbors before simplifying graph
+			HashMap<Vertex, HashSet<Vertex>> neighbors = graph.getNeighbors();
 
-				// Simplify graph by removing vertices and handling spills
-				Stack<Vertex> stack = new Stack<>();
+			// Simplify graph by removing vertices and handling spills
+			Stack<Vertex> stack = new Stack<>();
+			do {
+				// Remove vertices with num of neighbors < num of regs
+				boolean changed;
 				do {
-					// Remove vertices with num of neighbors < num of regs
-					boolean changed;
-					do {
-						changed = false;
-
-						for (Vertex vertex : graph.vertices()) {
-							if (vertex.neighbors.size() < nregs) {
-								graph.removeVertex(vertex.variable);
-								stack.push(vertex);
-								changed = true;
-							}
+					changed = false;
+
+					for (Vertex vertex : graph.vertices()) {
+						if (vertex.neighbors.size() < nregs) {
+							graph.removeVertex(vertex.variable);
+							stack.push(vertex);
+							changed = true;
 						}
-					} while (changed);
-
-					// Check for spills
-					if (graph.vertices.size() > 0) {
-						Vertex maxVertex = null;
-						int maxNeighbors = nregs;
-
-						// Find vertex with the greatest number of neighbors
-						for (Vertex vertex : graph.vertices()) {
-							if (vertex.neighbors.size() >= maxNeighbors) {
-								maxNeighbors = vertex.neighbors.size();
-								maxVertex = vertex;
-							}
+					}
+				} while (changed);
+
+				// Check for spills
+				if (graph.vertices.size() > 0) {
+					Vertex maxVertex = null;
+					int maxNeighbors = nregs;
+
+					// Find vertex with the greatest number of neighbors
+					for (Vertex vertex : graph.vertices()) {
+						if (vertex.neighbors.size() >= maxNeighbors) {
+							maxNeighbors = vertex.neighbors.size();
+							maxVertex = vertex;
 						}
+					}
 
-						if (maxVertex != null) {
-							// Remove the potential spill
-							graph.removeVertex(maxVertex.variable);
-							stack.push(maxVertex);
-						}
+					if (maxVertex != null) {
+						// Remove the potential spill
+						graph.removeVertex(maxVertex.variable);
+						stack.push(maxVertex);
 					}
-				} while (!graph.vertices.isEmpty());
+				}
+			} while (!graph.vertices.isEmpty());
 
-				// Try coloring all the vertices
-				ArrayList<Vertex> spills = new ArrayList<>();
-				while (!stack.empty()) {
-					Vertex vertex = stack.pop();
-					boolean[] colors = new boolean[nregs];
+			// Try coloring all the vertices
+			ArrayList<Vertex> spills = new ArrayList<>();
+			while (!stack.empty()) {
+				Vertex vertex = stack.pop();
+				boolean[] colors = new boolean[nregs];
 
-					// Re-add vertex to new graph
-					finalGraph.addVertex(vertex);
+				// Re-add vertex to new graph
+				finalGraph.addVertex(vertex);
 
-					// Re-add vertex's neighbors
-					HashSet<Vertex> newNeighbors = neighbors.get(vertex);
+				// Re-add vertex's neighbors
+				HashSet<Vertex> newNeighbors = neighbors.get(vertex);
 
-					// Check neighbors' colors
-					for (Vertex neighbor : newNeighbors) {
-						finalGraph.addNeighbors(vertex, neighbor);
+				// Check neighbors' colors
+				for (Vertex neighbor : newNeighbors) {
+					finalGraph.addNeighbors(vertex, neighbor);
 
-						if (neighbor.color >= 0) {
-							colors[neighbor.color] = true;
-						}
+					if (neighbor.color >= 0) {
+						colors[neighbor.color] = true;
 					}
+				}
 
-					// Pick first available color
-					for (int j = 0; j < colors.length; j++) {
-						if (!colors[j]) {
-							vertex.color = j;
-							break;
-						}
+				// Pick first available color
+				for (int j = 0; j < colors.length; j++) {
+					if (!colors[j]) {
+						vertex.color = j;
+						break;
 					}
+				}
 
-					// No available color
-					if (vertex.color == -1) {
-						vertex.spill = true;
-						spills.add(vertex);
-					}
+				// No available color
+				if (vertex.color == -1) {
+					vertex.spill = true;
+					spills.add(vertex);
 				}
+			}
 
-				// If there were no spills, the coloring was successful
-				if (spills.size() == 0) break;
+			// If there were no spills, the coloring was successful
+			if (spills.size() == 0) break;
+			numSpills += spills.size();
 
-				// Modify code for each spill
-				for (Vertex spill : spills) {
-					// Don't restructure temps that were made from spilled temps
-					//if (spilled.contains(spill.variable)) continue;
+			// Modify code for each spill
+			for (Vertex spill : spills) {
+				// Don't restructure temps that were made from spilled temps
+				//if (spilled.contains(spill.variable)) continue;
 
-					Vector<AsmInstr> instrs = new Vector<>();
-					long ptrSize = new SemPtr(new SemVoid()).size();
-					code.tempSize += ptrSize;
-					long offset = - code.frame.locsSize - code.tempSize - 2 * ptrSize;
+				Vector<AsmInstr> instrs = new Vector<>();
+				long ptrSize = SemTypeFactory.voidPtrType.size();
+				code.tempSize += ptrSize;
+				long offset = - code.frame.locsSize - code.tempSize - 2 * ptrSize;
 
-					for (AsmInstr instr : code.instrs) {
-						// Check if instruction uses or defines a spilled temporary variable
-						boolean usesSpill = instr.uses().contains(spill.variable);
-						boolean defsSpill = instr.defs().contains(spill.variable);
+				for (AsmInstr instr : code.instrs) {
+					// Check if instruction uses or defines a spilled temporary variable
+					boolean usesSpill = instr.uses().contains(spill.variable);
+					boolean defsSpill = instr.defs().contains(spill.variable);
 
-						if (!usesSpill && !defsSpill) instrs.add(instr);
+					if (!usesSpill && !defsSpill) instrs.add(instr);
 
-						if (usesSpill) {
-							// Get value and offset from memory
-							MemTemp newTemp = new MemTemp();
-							MemTemp offsetTemp = new MemTemp();
-							Vector<MemTemp> uses = new Vector<>(List.of(offsetTemp));
-							Vector<MemTemp> defs = new Vector<>(List.of(newTemp));
+					if (usesSpill) {
+						// Get value and offset from memory
+						MemTemp newTemp = new MemTemp();
+						MemTemp offsetTemp = new MemTemp();
+						Vector<MemTemp> uses = new Vector<>(List.of(offsetTemp));
+						Vector<MemTemp> defs = new Vector<>(List.of(newTemp));
 
-							instrs.addAll(loadOffset(uses, offset));
+						instrs.addAll(loadOffset(uses, offset));
 
-							// Load value from offset
-							instrs.add(new AsmOPER("LDO `d0,$253,`s0", uses, defs, null));
+						// Load value from offset
+						instrs.add(new AsmOPER("LDO `d0,$253,`s0", uses, defs, null));
 
-							// Replace old temp variable with new one if needed
-							Vector<MemTemp> newUses = new Vector<>();
-							for (MemTemp oldTemp : instr.uses()) {
-								newUses.add(oldTemp == spill.variable ? newTemp : oldTemp);
-							}
+						// Replace old temp variable with new one if needed
+						Vector<MemTemp> newUses = new Vector<>();
+						for (MemTemp oldTemp : instr.uses()) {
+							newUses.add(oldTemp == spill.variable ? newTemp : oldTemp);
+						}
 
-							// Add the new modified instruction to the list of instructions
-							instrs.add(new AsmOPER(((AsmOPER) instr).instr(), newUses, instr.defs(), instr.jumps()));
+						// Add the new modified instruction to the list of instructions
+						instrs.add(new AsmOPER(((AsmOPER) instr).instr(), newUses, instr.defs(), instr.jumps()));
 
-							// Store new temp and offset temp to prevent them from spilling
-							//spilled.addAll(List.of(newTemp, offsetTemp));
-						}
+						// Store new temp and offset temp to prevent them from spilling
+						//spilled.addAll(List.of(newTemp, offsetTemp));
+					}
 
-						if (defsSpill) {
-							// Get value and offset from memory
-							MemTemp newTemp = new MemTemp();
-							MemTemp offsetTemp = new MemTemp();
-							Vector<MemTemp> uses = new Vector<>(List.of(offsetTemp));
-							Vector<MemTemp> defs = new Vector<>(List.of(newTemp));
+					if (defsSpill) {
+						// Get value and offset from memory
+						MemTemp newTemp = new MemTemp();
+						MemTemp offsetTemp = new MemTemp();
+						Vector<MemTemp> uses = new Vector<>(List.of(offsetTemp));
+						Vector<MemTemp> defs = new Vector<>(List.of(newTemp));
 
-							// Add the new modified instruction to the list of instructions
-							instrs.add(new AsmOPER(((AsmOPER) instr).instr(), instr.uses(), defs, instr.jumps()));
+						// Add the new modified instruction to the list of instructions
+						instrs.add(new AsmOPER(((AsmOPER) instr).instr(), instr.uses(), defs, instr.jumps()));
 
-							instrs.addAll(loadOffset(uses, offset));
+						instrs.addAll(loadOffset(uses, offset));
 
-							// Store value to offset
-							uses = new Vector<>(List.of(newTemp, offsetTemp));
-							instrs.add(new AsmOPER("STO `s0,$253,`s1", uses, null, null));
+						// Store value to offset
+						uses = new Vector<>(List.of(newTemp, offsetTemp));
+						instrs.add(new AsmOPER("STO `s0,$253,`s1", uses, null, null));
 
-							// Store new temp and offset temp to prevent them from spilling
-							//spilled.addAll(List.of(newTemp, offsetTemp));
-						}
+						// Store new temp and offset temp to prevent them from spilling
+						//spilled.addAll(List.of(newTemp, offsetTemp));
 					}
-
-					// Replace instructions
-					code.instrs.clear();
-					code.instrs.addAll(instrs);
 				}
-			} while (true);
 
-			// Replace temporary variables with registers
-			tempToReg.put(code.frame.FP, 253);
-			for (Vertex vertex : finalGraph.vertices()) {
-				// Skip vertices that could not be moved to registers
-				if (vertex.color == -1) continue;
-
-				tempToReg.put(vertex.variable, vertex.color);
+				// Replace instructions
+				code.instrs.clear();
+				code.instrs.addAll(instrs);
 			}
+		} while (true);
+
+		// Replace temporary variables with registers
+		Allocation allocation = new Allocation(numRounds, numSpills);
+		allocation.tempToReg.put(code.frame.FP, 253);
+		for (Vertex vertex : finalGraph.vertices()) {
+			// Skip vertices that could not be moved to registers
+			if (vertex.color == -1) continue;
+
+			allocation.tempToReg.put(vertex.variable, vertex.color);
 		}
+		return allocation;
 	}
 
 	public void log() {
 		if (logger == null)
 			return;
-		for (Code code : AsmGen.codes) {
+		for (Code code : AsmGen.codes()) {
 			logger.begElement("code");
 			logger.addAttribute("entrylabel", code.entryLabel.name);
 			logger.addAttribute("exitlabel", code.exitLabel.name);
@@ -307,4 +338,25 @@ public class RegAll extends Phase {
 		}
 	}
 
+	/**
+	 * Registers allocated to temporary variables of a single function.
+	 */
+	private static class Allocation {
+
+		/** Mapping of temporary variables to registers. */
+		final HashMap<MemTemp, Integer> tempToReg = new HashMap<>();
+
+		/** The number of rounds of coloring. */
+		final int numRounds;
+
+		/** The number of spilled temporary variables. */
+		final int numSpills;
+
+		Allocation(int numRounds, int numSpills) {
+			this.numRounds = numRounds;
+			this.numSpills = numSpills;
+		}
+
+	}
+
 }
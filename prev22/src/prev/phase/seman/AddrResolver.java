@@ -37,10 +37,10 @@ public class AddrResolver extends AstFullVisitor<Object, Object> {
 	public Object visit(AstArrExpr arrExpr, Object mode) {
 		arrExpr.arr.accept(this, mode);
 		arrExpr.idx.accept(this, mode);
-		Boolean isAddr = SemAn.isAddr.get(arrExpr.arr);
+		Boolean isAddr = SemAn.isAddr().get(arrExpr.arr);
 
 		if (isAddr != null && isAddr) {
-			SemAn.isAddr.put(arrExpr, true);
+			SemAn.isAddr().put(arrExpr, true);
 		}
 
 		return null;
@@ -48,10 +48,10 @@ public class AddrResolver extends AstFullVisitor<Object, Object> {
 
 	@Override
 	public Object visit(AstNameExpr nameExpr, Object mode) {
-		AstDecl decl = SemAn.declaredAt.get(nameExpr);
+		AstDecl decl = SemAn.declaredAt().get(nameExpr);
 
 		if (decl instanceof AstVarDecl || decl instanceof AstParDecl) {
-			SemAn.isAddr.put(nameExpr, true);
+			SemAn.isAddr().put(nameExpr, true);
 		}
 
 		return null;
@@ -61,10 +61,10 @@ public class AddrResolver extends AstFullVisitor<Object, Object> {
 	public Object visit(AstRecExpr recExpr, Object mode) {
 		recExpr.rec.accept(this, mode);
 		recExpr.comp.accept(this, mode);
-		Boolean isAddr = SemAn.isAddr.get(recExpr.rec);
+		Boolean isAddr = SemAn.isAddr().get(recExpr.rec);
 
 		if (isAddr != null && isAddr) {
-			SemAn.isAddr.put(recExpr, true);
+			SemAn.isAddr().put(recExpr, true);
 		}
 
 		return null;
@@ -75,7 +75,7 @@ public class AddrResolver extends AstFullVisitor<Object, Object> {
 		SemType type = (SemType) sfxExpr.expr.accept(this, mode);
 
 		if (type instanceof SemPtr) {
-			SemAn.isAddr.put(sfxExpr, true);
+			SemAn.isAddr().put(sfxExpr, true);
 		}
 
 		return null;
@@ -88,7 +88,7 @@ public class AddrResolver extends AstFullVisitor<Object, Object> {
 		assignStmt.src.accept(this, mode);
 		assignStmt.dst.accept(this, mode);
 
-		Boolean isAddr = SemAn.isAddr.get(assignStmt.dst);
+		Boolean isAddr = SemAn.isAddr().get(assignStmt.dst);
 
 		if (isAddr == null || !isAddr) {
 			throw new Report.Error(assignStmt, "Type error: cannot assign to non-identifier");
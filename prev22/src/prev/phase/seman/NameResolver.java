@@ -29,7 +29,17 @@ public class NameResolver extends AstFullVisitor<Object, NameResolver.Mode> {
 	private final String TAG = "[NameResolver]: ";
 
 	// Global symbol table to check mismatches in declarations
-	private final SymbTable symbTable = new SymbTable();
+	private final SymbTable symbTable;
+
+	public NameResolver() {
+		symbTable = new SymbTable();
+	}
+
+	// Resolves further trees within the scope of the top-level declarations of another resolver (which is left
+	// untouched), e.g., bodies of top-level functions concurrently
+	public NameResolver(NameResolver globals) {
+		symbTable = new SymbTable(globals.symbTable);
+	}
 
 	// GENERAL PURPOSE
 
@@ -40,7 +50,7 @@ public class NameResolver extends AstFullVisitor<Object, NameResolver.Mode> {
 			String name = ((AstNameDecl) astDecl).name;
 
 			try {
-				symbTable.ins(name, astDecl);
+				symbTable.ins(((AstNameDecl) astDecl).symb, astDecl);
 			} catch (SymbTable.CannotInsNameException e) {
 				throw new Report.Error(astDecl, TAG + "'" + name + "' has already been declared");
 			}
@@ -86,7 +96,7 @@ public class NameResolver extends AstFullVisitor<Object, NameResolver.Mode> {
 		// 1st pass adds the function name to the symbol table and throws an error if the name was already declared
 		if (mode == Mode.HEAD) {
 			try {
-				symbTable.ins(funDecl.name, funDecl);
+				symbTable.ins(funDecl.symb, funDecl);
 			} catch (SymbTable.CannotInsNameException e) {
 				throw new Report.Error(funDecl, TAG + "'" + funDecl.name + "' has already been declared");
 			}
@@ -139,7 +149,7 @@ public class NameResolver extends AstFullVisitor<Object, NameResolver.Mode> {
 
 		// Wait until the 2nd pass to check if a function has been declared
 		try {
-			SemAn.declaredAt.put(callExpr, symbTable.fnd(callExpr.name));
+			SemAn.declaredAt().put(callExpr, symbTable.fnd(callExpr.symb));
 		} catch (SymbTable.CannotFndNameException e) {
 			throw new Report.Error(callExpr, TAG + "could not find call expression '" + callExpr.name + "'");
 		}
@@ -157,7 +167,7 @@ public class NameResolver extends AstFullVisitor<Object, NameResolver.Mode> {
 		if (mode != Mode.BODY) return null;
 
 		try {
-			SemAn.declaredAt.put(nameExpr, symbTable.fnd(nameExpr.name));
+			SemAn.declaredAt().put(nameExpr, symbTable.fnd(nameExpr.symb));
 		} catch (SymbTable.CannotFndNameException e) {
 			throw new Report.Error(nameExpr, TAG + "could not find name expression '" + nameExpr.name + "'");
 		}
@@ -197,7 +207,7 @@ public class NameResolver extends AstFullVisitor<Object, NameResolver.Mode> {
 
 		// Wait until the 2nd pass to check if the name has been declared
 		try {
-			SemAn.declaredAt.put(nameType, symbTable.fnd(nameType.name));
+			SemAn.declaredAt().put(nameType, symbTable.fnd(nameType.symb));
 		} catch (SymbTable.CannotFndNameException e) {
 			throw new Report.Error(nameType, TAG + "could not find name type '" + nameType.name + "'");
 		}
@@ -1,5 +1,12 @@
 package prev.phase.seman;
 
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.*;
+
+import prev.*;
+import prev.common.report.*;
 import prev.phase.*;
 import prev.data.ast.attribute.*;
 import prev.data.ast.tree.*;
@@ -13,24 +20,63 @@ import prev.data.typ.*;
  */
 public class SemAn extends Phase {
 
-	// === STATIC ===
+	// === SESSION ===
 
-	/** Maps names to declarations. */
-	public static final AstAttribute<AstName, AstDecl> declaredAt = new AstAttribute<AstName, AstDecl>(0);
+	/**
+	 * Constructs types.
+	 *
+	 * @return The type factory of the current compilation session.
+	 */
+	public static SemTypeFactory types() {
+		return CompilationSession.current().types;
+	}
 
-	/** Maps type declarations to semantic representations of types. */
-	public static final AstAttribute<AstTypeDecl, SemName> declaresType = new AstAttribute<AstTypeDecl, SemName>(0);
+	/**
+	 * Maps names to declarations.
+	 *
+	 * @return The attribute of the current compilation session.
+	 */
+	public static AstAttribute<AstName, AstDecl> declaredAt() {
+		return CompilationSession.current().declaredAt;
+	}
 
-	/** Maps syntax types to semantic representations of types. */
-	public static final AstAttribute<AstType, SemType> isType = new AstAttribute<AstType, SemType>(0);
+	/**
+	 * Maps type declarations to semantic representations of types.
+	 *
+	 * @return The attribute of the current compilation session.
+	 */
+	public static AstAttribute<AstTypeDecl, SemName> declaresType() {
+		return CompilationSession.current().declaresType;
+	}
 
-	/** Maps syntax expressions to semantic representations of types. */
-	public static final AstAttribute<AstExec, SemType> ofType = new AstAttribute<AstExec, SemType>(0);
+	/**
+	 * Maps syntax types to semantic representations of types.
+	 *
+	 * @return The attribute of the current compilation session.
+	 */
+	public static AstAttribute<AstType, SemType> isType() {
+		return CompilationSession.current().isType;
+	}
 
-	/** Indicates which syntax expressions denote lvalues. */
-	public static final AstAttribute<AstExpr, Boolean> isAddr = new AstAttribute<AstExpr, Boolean>(0);
+	/**
+	 * Maps syntax expressions to semantic representations of types.
+	 *
+	 * @return The attribute of the current compilation session.
+	 */
+	public static AstAttribute<AstExec, SemType> ofType() {
+		return CompilationSession.current().ofType;
+	}
+
+	/**
+	 * Indicates which syntax expressions denote lvalues.
+	 *
+	 * @return The attribute of the current compilation session.
+	 */
+	public static AstAttribute<AstExpr, Boolean> isAddr() {
+		return CompilationSession.current().isAddr;
+	}
 
-	// ==============
+	// ===============
 
 	/**
 	 * Phase construction.
@@ -39,4 +85,109 @@ public class SemAn extends Phase {
 		super("seman");
 	}
 
+	/**
+	 * Resolves names, types and lvalues of the program like {@link NameResolver},
+	 * {@link TypeResolver} and {@link AddrResolver} applied one after another,
+	 * but resolves the bodies of top-level declarations concurrently on the
+	 * common fork-join pool once their headers have been resolved. Errors are
+	 * reported as if the declarations were resolved one after another, i.e., the
+	 * error of the first resolver that fails at the first declaration it fails
+	 * at.
+	 */
+	public void resolveInParallel() {
+		AstTrees<?> trees = (AstTrees<?>) session.abstrTree;
+		Vector<AstAttribute<?, ?>> attributes = new Vector<AstAttribute<?, ?>>(
+				List.of(session.declaredAt, session.declaresType, session.isType, session.ofType, session.isAddr));
+		for (AstAttribute<?, ?> attribute : attributes)
+			attribute.beginConcurrent(session.numNodes());
+		try {
+			NameResolver nameResolver = new NameResolver();
+			nameResolver.visitTree(trees, NameResolver.Mode.HEAD);
+			resolveInChunks(trees, () -> {
+				NameResolver chunkResolver = new NameResolver(nameResolver);
+				return tree -> tree.accept(chunkResolver, NameResolver.Mode.BODY);
+			});
+
+			TypeResolver typeResolver = new TypeResolver();
+			typeResolver.visitHeads(trees);
+			resolveInChunks(trees, () -> {
+				TypeResolver chunkResolver = new TypeResolver(typeResolver);
+				return tree -> {
+					if (tree instanceof AstFunDecl)
+						tree.accept(chunkResolver, TypeResolver.Mode.BODY);
+				};
+			});
+
+			resolveInChunks(trees, () -> {
+				AddrResolver chunkResolver = new AddrResolver();
+				return tree -> tree.accept(chunkResolver, null);
+			});
+		} finally {
+			for (AstAttribute<?, ?> attribute : attributes)
+				attribute.endConcurrent();
+		}
+	}
+
+	/**
+	 * The result of resolving a chunk of top-level declarations.
+	 * 
+	 * @param messages The warnings and errors printed while resolving the chunk.
+	 * @param error    The error the chunk has failed with or {@code null}.
+	 */
+	private record Chunk(String messages, Throwable error) {
+	}
+
+	/**
+	 * Splits top-level declarations into chunks of consecutive declarations and
+	 * resolves the chunks concurrently. Each chunk stops at its first error. Once
+	 * all chunks have finished, their warnings and errors are printed out in the
+	 * order of chunks up to the first chunk that has failed, and its error is
+	 * rethrown.
+	 * 
+	 * @param trees    The top-level declarations.
+	 * @param resolver Provides a resolver of declarations for each chunk.
+	 */
+	private void resolveInChunks(AstTrees<?> trees, Supplier<Consumer<AstTree>> resolver) {
+		int numTrees = trees.size();
+		int numChunks = Math.min(numTrees, 4 * ForkJoinPool.getCommonPoolParallelism());
+		if (numChunks == 0)
+			return;
+		Vector<Chunk> chunks = session.forEachTask(numChunks, chunk -> {
+			ByteArrayOutputStream messages = new ByteArrayOutputStream();
+			Throwable error = Report.redirectErr(new PrintStream(messages, true), () -> {
+				Consumer<AstTree> resolve = resolver.get();
+				for (int index = chunk * numTrees / numChunks; index < (chunk + 1) * numTrees / numChunks; index++) {
+					try {
+						if (trees.get(index) != null)
+							resolve.accept(trees.get(index));
+					} catch (Report.Error | RuntimeException __) {
+						return __;
+					}
+				}
+				return null;
+			});
+			return new Chunk(messages.toString(), error);
+		});
+		for (Chunk chunk : chunks) {
+			session.err.print(chunk.messages());
+			if (chunk.error() instanceof Report.Error error)
+				throw error;
+			if (chunk.error() instanceof RuntimeException error)
+				throw error;
+		}
+	}
+
+	/**
+	 * Closes the phase and makes the attributes computed by semantic analysis read-only.
+	 */
+	@Override
+	public void close() {
+		session.declaredAt.freeze();
+		session.declaresType.freeze();
+		session.isType.freeze();
+		session.ofType.freeze();
+		session.isAddr.freeze();
+		super.close();
+	}
+
 }
@@ -30,7 +30,7 @@ public class SemLogger extends AstNullVisitor<Object, String> {
 	// DECLARATIONS
 
 	public Object visit(AstTypeDecl typeDecl, String arg) {
-		SemType type = SemAn.declaresType.get(typeDecl);
+		SemType type = SemAn.declaresType().get(typeDecl);
 		if (type != null) {
 			logger.begElement("declaresType");
 			type.log(logger);
@@ -42,13 +42,13 @@ public class SemLogger extends AstNullVisitor<Object, String> {
 	// EXPRESSIONS
 
 	public Object visit(AstArrExpr arrExpr, String arg) {
-		SemType type = SemAn.ofType.get(arrExpr);
+		SemType type = SemAn.ofType().get(arrExpr);
 		if (type != null) {
 			logger.begElement("ofType");
 			type.log(logger);
 			logger.endElement();
 		}
-		Boolean isAddr = SemAn.isAddr.get(arrExpr);
+		Boolean isAddr = SemAn.isAddr().get(arrExpr);
 		if ((isAddr != null) && (isAddr == true)) {
 			logger.begElement("lvalue");
 			logger.endElement();
@@ -58,13 +58,13 @@ public class SemLogger extends AstNullVisitor<Object, String> {
 
 	@Override
 	public Object visit(AstAtomExpr atomExpr, String arg) {
-		SemType type = SemAn.ofType.get(atomExpr);
+		SemType type = SemAn.ofType().get(atomExpr);
 		if (type != null) {
 			logger.begElement("ofType");
 			type.log(logger);
 			logger.endElement();
 		}
-		Boolean isAddr = SemAn.isAddr.get(atomExpr);
+		Boolean isAddr = SemAn.isAddr().get(atomExpr);
 		if ((isAddr != null) && (isAddr == true)) {
 			logger.begElement("lvalue");
 			logger.endElement();
@@ -74,13 +74,13 @@ public class SemLogger extends AstNullVisitor<Object, String> {
 
 	@Override
 	public Object visit(AstBinExpr binExpr, String arg) {
-		SemType type = SemAn.ofType.get(binExpr);
+		SemType type = SemAn.ofType().get(binExpr);
 		if (type != null) {
 			logger.begElement("ofType");
 			type.log(logger);
 			logger.endElement();
 		}
-		Boolean isAddr = SemAn.isAddr.get(binExpr);
+		Boolean isAddr = SemAn.isAddr().get(binExpr);
 		if ((isAddr != null) && (isAddr == true)) {
 			logger.begElement("lvalue");
 			logger.endElement();
@@ -90,20 +90,20 @@ public class SemLogger extends AstNullVisitor<Object, String> {
 
 	@Override
 	public Object visit(AstCallExpr callExpr, String arg) {
-		AstDecl decl = SemAn.declaredAt.get(callExpr);
+		AstDecl decl = SemAn.declaredAt().get(callExpr);
 		if (decl != null) {
 			logger.begElement("declaredAt");
 			logger.addAttribute("idx", Integer.toString(decl.id()));
 			logger.addAttribute("location", decl.location().toString());
 			logger.endElement();
 		}
-		SemType type = SemAn.ofType.get(callExpr);
+		SemType type = SemAn.ofType().get(callExpr);
 		if (type != null) {
 			logger.begElement("ofType");
 			type.log(logger);
 			logger.endElement();
 		}
-		Boolean isAddr = SemAn.isAddr.get(callExpr);
+		Boolean isAddr = SemAn.isAddr().get(callExpr);
 		if ((isAddr != null) && (isAddr == true)) {
 			logger.begElement("lvalue");
 			logger.endElement();
@@ -113,13 +113,13 @@ public class SemLogger extends AstNullVisitor<Object, String> {
 
 	@Override
 	public Object visit(AstCastExpr castExpr, String arg) {
-		SemType type = SemAn.ofType.get(castExpr);
+		SemType type = SemAn.ofType().get(castExpr);
 		if (type != null) {
 			logger.begElement("ofType");
 			type.log(logger);
 			logger.endElement();
 		}
-		Boolean isAddr = SemAn.isAddr.get(castExpr);
+		Boolean isAddr = SemAn.isAddr().get(castExpr);
 		if ((isAddr != null) && (isAddr == true)) {
 			logger.begElement("lvalue");
 			logger.endElement();
@@ -129,20 +129,20 @@ public class SemLogger extends AstNullVisitor<Object, String> {
 
 	@Override
 	public Object visit(AstNameExpr nameExpr, String arg) {
-		AstDecl decl = SemAn.declaredAt.get(nameExpr);
+		AstDecl decl = SemAn.declaredAt().get(nameExpr);
 		if (decl != null) {
 			logger.begElement("declaredAt");
 			logger.addAttribute("idx", Integer.toString(decl.id()));
 			logger.addAttribute("location", decl.location().toString());
 			logger.endElement();
 		}
-		SemType type = SemAn.ofType.get(nameExpr);
+		SemType type = SemAn.ofType().get(nameExpr);
 		if (type != null) {
 			logger.begElement("ofType");
 			type.log(logger);
 			logger.endElement();
 		}
-		Boolean isAddr = SemAn.isAddr.get(nameExpr);
+		Boolean isAddr = SemAn.isAddr().get(nameExpr);
 		if ((isAddr != null) && (isAddr == true)) {
 			logger.begElement("lvalue");
 			logger.endElement();
@@ -152,13 +152,13 @@ public class SemLogger extends AstNullVisitor<Object, String> {
 
 	@Override
 	public Object visit(AstPfxExpr pfxExpr, String arg) {
-		SemType type = SemAn.ofType.get(pfxExpr);
+		SemType type = SemAn.ofType().get(pfxExpr);
 		if (type != null) {
 			logger.begElement("ofType");
 			type.log(logger);
 			logger.endElement();
 		}
-		Boolean isAddr = SemAn.isAddr.get(pfxExpr);
+		Boolean isAddr = SemAn.isAddr().get(pfxExpr);
 		if ((isAddr != null) && (isAddr == true)) {
 			logger.begElement("lvalue");
 			logger.endElement();
@@ -168,13 +168,13 @@ public class SemLogger extends AstNullVisitor<Object, String> {
 
 	@Override
 	public Object visit(AstRecExpr recExpr, String arg) {
-		SemType type = SemAn.ofType.get(recExpr);
+		SemType type = SemAn.ofType().get(recExpr);
 		if (type != null) {
 			logger.begElement("ofType");
 			type.log(logger);
 			logger.endElement();
 		}
-		Boolean isAddr = SemAn.isAddr.get(recExpr);
+		Boolean isAddr = SemAn.isAddr().get(recExpr);
 		if ((isAddr != null) && (isAddr == true)) {
 			logger.begElement("lvalue");
 			logger.endElement();
@@ -184,13 +184,13 @@ public class SemLogger extends AstNullVisitor<Object, String> {
 
 	@Override
 	public Object visit(AstSfxExpr sfxExpr, String arg) {
-		SemType type = SemAn.ofType.get(sfxExpr);
+		SemType type = SemAn.ofType().get(sfxExpr);
 		if (type != null) {
 			logger.begElement("ofType");
 			type.log(logger);
 			logger.endElement();
 		}
-		Boolean isAddr = SemAn.isAddr.get(sfxExpr);
+		Boolean isAddr = SemAn.isAddr().get(sfxExpr);
 		if ((isAddr != null) && (isAddr == true)) {
 			logger.begElement("lvalue");
 			logger.endElement();
@@ -200,13 +200,13 @@ public class SemLogger extends AstNullVisitor<Object, String> {
 
 	@Override
 	public Object visit(AstStmtExpr stmtExpr, String arg) {
-		SemType type = SemAn.ofType.get(stmtExpr);
+		SemType type = SemAn.ofType().get(stmtExpr);
 		if (type != null) {
 			logger.begElement("ofType");
 			type.log(logger);
 			logger.endElement();
 		}
-		Boolean isAddr = SemAn.isAddr.get(stmtExpr);
+		Boolean isAddr = SemAn.isAddr().get(stmtExpr);
 		if ((isAddr != null) && (isAddr == true)) {
 			logger.begElement("lvalue");
 			logger.endElement();
@@ -216,13 +216,13 @@ public class SemLogger extends AstNullVisitor<Object, String> {
 
 	@Override
 	public Object visit(AstWhereExpr whereExpr, String arg) {
-		SemType type = SemAn.ofType.get(whereExpr);
+		SemType type = SemAn.ofType().get(whereExpr);
 		if (type != null) {
 			logger.begElement("ofType");
 			type.log(logger);
 			logger.endElement();
 		}
-		Boolean isAddr = SemAn.isAddr.get(whereExpr);
+		Boolean isAddr = SemAn.isAddr().get(whereExpr);
 		if ((isAddr != null) && (isAddr == true)) {
 			logger.begElement("lvalue");
 			logger.endElement();
@@ -234,7 +234,7 @@ public class SemLogger extends AstNullVisitor<Object, String> {
 
 	@Override
 	public Object visit(AstAssignStmt assignStmt, String arg) {
-		SemType type = SemAn.ofType.get(assignStmt);
+		SemType type = SemAn.ofType().get(assignStmt);
 		if (type != null) {
 			logger.begElement("ofType");
 			type.log(logger);
@@ -245,7 +245,7 @@ public class SemLogger extends AstNullVisitor<Object, String> {
 
 	@Override
 	public Object visit(AstExprStmt exprStmt, String arg) {
-		SemType type = SemAn.ofType.get(exprStmt);
+		SemType type = SemAn.ofType().get(exprStmt);
 		if (type != null) {
 			logger.begElement("ofType");
 			type.log(logger);
@@ -256,7 +256,7 @@ public class SemLogger extends AstNullVisitor<Object, String> {
 
 	@Override
 	public Object visit(AstIfStmt ifStmt, String arg) {
-		SemType type = SemAn.ofType.get(ifStmt);
+		SemType type = SemAn.ofType().get(ifStmt);
 		if (type != null) {
 			logger.begElement("ofType");
 			type.log(logger);
@@ -267,7 +267,7 @@ public class SemLogger extends AstNullVisitor<Object, String> {
 
 	@Override
 	public Object visit(AstWhileStmt whileStmt, String arg) {
-		SemType type = SemAn.ofType.get(whileStmt);
+		SemType type = SemAn.ofType().get(whileStmt);
 		if (type != null) {
 			logger.begElement("ofType");
 			type.log(logger);
@@ -280,7 +280,7 @@ public class SemLogger extends AstNullVisitor<Object, String> {
 
 	@Override
 	public Object visit(AstArrType arrType, String arg) {
-		SemType type = SemAn.isType.get(arrType);
+		SemType type = SemAn.isType().get(arrType);
 		if (type != null) {
 			logger.begElement("isType");
 			type.log(logger);
@@ -291,7 +291,7 @@ public class SemLogger extends AstNullVisitor<Object, String> {
 
 	@Override
 	public Object visit(AstAtomType atomType, String arg) {
-		SemType type = SemAn.isType.get(atomType);
+		SemType type = SemAn.isType().get(atomType);
 		if (type != null) {
 			logger.begElement("isType");
 			type.log(logger);
@@ -302,14 +302,14 @@ public class SemLogger extends AstNullVisitor<Object, String> {
 
 	@Override
 	public Object visit(AstNameType nameType, String arg) {
-		AstDecl decl = SemAn.declaredAt.get(nameType);
+		AstDecl decl = SemAn.declaredAt().get(nameType);
 		if (decl != null) {
 			logger.begElement("declaredAt");
 			logger.addAttribute("idx", Integer.toString(decl.id()));
 			logger.addAttribute("location", decl.location().toString());
 			logger.endElement();
 		}
-		SemType type = SemAn.isType.get(nameType);
+		SemType type = SemAn.isType().get(nameType);
 		if (type != null) {
 			logger.begElement("isType");
 			type.log(logger);
@@ -320,7 +320,7 @@ public class SemLogger extends AstNullVisitor<Object, String> {
 
 	@Override
 	public Object visit(AstPtrType ptrType, String arg) {
-		SemType type = SemAn.isType.get(ptrType);
+		SemType type = SemAn.isType().get(ptrType);
 		if (type != null) {
 			logger.begElement("isType");
 			type.log(logger);
@@ -331,7 +331,7 @@ public class SemLogger extends AstNullVisitor<Object, String> {
 
 	@Override
 	public Object visit(AstRecType recType, String arg) {
-		SemType type = SemAn.isType.get(recType);
+		SemType type = SemAn.isType().get(recType);
 		if (type != null) {
 			logger.begElement("isType");
 			type.log(logger);
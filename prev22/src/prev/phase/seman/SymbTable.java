@@ -10,45 +10,37 @@ import prev.data.ast.tree.decl.*;
 public class SymbTable {
 
 	/**
-	 * A symbol table record denoting a declaration of a name within a certain
-	 * scope.
+	 * The currently visible declarations of symbols. The declaration of symbol
+	 * {@code symb} is stored at index {@code symb - firstSymb}; {@code null}
+	 * denotes a symbol without a visible declaration.
 	 */
-	private class ScopedDecl {
-
-		/** The depth of the scope the declaration belongs to. */
-		public final int depth;
+	private AstDecl[] decls;
 
-		/** The declaration. */
-		public final AstDecl decl;
+	/** The depths of scopes the currently visible declarations belong to. */
+	private int[] depths;
 
-		/**
-		 * Constructs a new record denoting a declaration of a name within a certain
-		 * scope.
-		 * 
-		 * @param depth The depth of the scope the declaration belongs to.
-		 * @param decl  The declaration.
-		 */
-		public ScopedDecl(int depth, AstDecl decl) {
-			this.depth = depth;
-			this.decl = decl;
-		}
-
-	}
+	/** The symbol stored at index 0 of {@link #decls} and {@link #depths}. */
+	private int firstSymb;
 
 	/**
-	 * A mapping of names into lists of records denoting declarations at different
-	 * scopes. At each moment during the lifetime of a symbol table, the declaration
-	 * list corresponding to a particular name contains all declarations that name
-	 * within currently active scopes: the declaration at the inner most scope is
-	 * the first in the list and is visible, the other declarations are hidden.
+	 * The undo log: for each declaration inserted within the currently active
+	 * scopes, the symbol together with the declaration and the depth it has
+	 * hidden. The entries of the scope at depth {@code d} start at index
+	 * {@code scopes[d]}.
 	 */
-	private final HashMap<String, LinkedList<ScopedDecl>> allDeclsOfAllNames;
+	private int[] undoSymbs;
 
-	/**
-	 * The list of scopes. Each scope is represented by a list of names declared
-	 * within it.
-	 */
-	private final LinkedList<LinkedList<String>> scopes;
+	/** The declarations hidden by the inserted declarations (see {@link #undoSymbs}). */
+	private AstDecl[] undoDecls;
+
+	/** The depths of the hidden declarations (see {@link #undoSymbs}). */
+	private int[] undoDepths;
+
+	/** The number of entries in the undo log. */
+	private int undoSize;
+
+	/** The starts of scopes in the undo log indexed by depths of scopes. */
+	private int[] scopes;
 
 	/** The depth of the currently active scope. */
 	private int currDepth;
@@ -60,13 +52,38 @@ public class SymbTable {
 	 * Constructs a new symbol table.
 	 */
 	public SymbTable() {
-		allDeclsOfAllNames = new HashMap<String, LinkedList<ScopedDecl>>();
-		scopes = new LinkedList<LinkedList<String>>();
+		decls = new AstDecl[0];
+		depths = new int[0];
+		firstSymb = 0;
+		undoSymbs = new int[16];
+		undoDecls = new AstDecl[16];
+		undoDepths = new int[16];
+		undoSize = 0;
+		scopes = new int[8];
 		currDepth = 0;
 		lock = false;
 		newScope();
 	}
 
+	/**
+	 * Constructs a copy of a symbol table. The copy can be modified independently
+	 * of the original.
+	 * 
+	 * @param symbTable The symbol table.
+	 */
+	public SymbTable(SymbTable symbTable) {
+		decls = symbTable.decls.clone();
+		depths = symbTable.depths.clone();
+		firstSymb = symbTable.firstSymb;
+		undoSymbs = symbTable.undoSymbs.clone();
+		undoDecls = symbTable.undoDecls.clone();
+		undoDepths = symbTable.undoDepths.clone();
+		undoSize = symbTable.undoSize;
+		scopes = symbTable.scopes.clone();
+		currDepth = symbTable.currDepth;
+		lock = symbTable.lock;
+	}
+
 	/**
 	 * Returns the depth of the currently active scope.
 	 * 
@@ -82,29 +99,33 @@ public class SymbTable {
 	 * Once the symbol table is locked, any attempt to insert further declarations
 	 * results in an internal error.
 	 * 
-	 * @param name The name.
+	 * @param symb The symbol of the name (see
+	 *             {@link prev.CompilationSession#symbol}).
 	 * @param decl The declaration.
 	 * @throws CannotInsNameException Thrown if this name has already been declared
 	 *                                within the currently active scope.
 	 */
-	public void ins(String name, AstDecl decl) throws CannotInsNameException {
+	public void ins(int symb, AstDecl decl) throws CannotInsNameException {
 		if (lock)
 			throw new Report.InternalError();
 
-		LinkedList<ScopedDecl> allDeclsOfName = allDeclsOfAllNames.get(name);
-		if (allDeclsOfName == null) {
-			allDeclsOfName = new LinkedList<ScopedDecl>();
-			allDeclsOfAllNames.put(name, allDeclsOfName);
-		}
+		cover(symb);
+		int index = symb - firstSymb;
+		if ((decls[index] != null) && (depths[index] == currDepth))
+			throw new CannotInsNameException();
 
-		if (!allDeclsOfName.isEmpty()) {
-			ScopedDecl declOfName = allDeclsOfName.getFirst();
-			if (declOfName.depth == currDepth)
-				throw new CannotInsNameException();
+		if (undoSize == undoSymbs.length) {
+			undoSymbs = Arrays.copyOf(undoSymbs, 2 * undoSize);
+			undoDecls = Arrays.copyOf(undoDecls, 2 * undoSize);
+			undoDepths = Arrays.copyOf(undoDepths, 2 * undoSize);
 		}
+		undoSymbs[undoSize] = symb;
+		undoDecls[undoSize] = decls[index];
+		undoDepths[undoSize] = depths[index];
+		undoSize++;
 
-		allDeclsOfName.addFirst(new ScopedDecl(currDepth, decl));
-		scopes.getFirst().addFirst(name);
+		decls[index] = decl;
+		depths[index] = currDepth;
 	}
 
 	/**
@@ -113,21 +134,19 @@ public class SymbTable {
 	 * enclosing it. If no declaration of the name exists within these scopes, an
 	 * exception is thrown.
 	 * 
-	 * @param name The name.
+	 * @param symb The symbol of the name (see
+	 *             {@link prev.CompilationSession#symbol}).
 	 * @return The declaration.
 	 * @throws CannotFndNameException Thrown if the name is not declared within the
 	 *                                currently active scope or any scope enclosing
 	 *                                it.
 	 */
-	public AstDecl fnd(String name) throws CannotFndNameException {
-		LinkedList<ScopedDecl> allDeclsOfName = allDeclsOfAllNames.get(name);
-		if (allDeclsOfName == null)
+	public AstDecl fnd(int symb) throws CannotFndNameException {
+		int index = symb - firstSymb;
+		if ((index < 0) || (index >= decls.length) || (decls[index] == null))
 			throw new CannotFndNameException();
 
-		if (allDeclsOfName.isEmpty())
-			throw new CannotFndNameException();
-
-		return allDeclsOfName.getFirst().decl;
+		return decls[index];
 	}
 
 	/**
@@ -139,7 +158,9 @@ public class SymbTable {
 			throw new Report.InternalError();
 
 		currDepth++;
-		scopes.addFirst(new LinkedList<String>());
+		if (currDepth == scopes.length)
+			scopes = Arrays.copyOf(scopes, 2 * currDepth);
+		scopes[currDepth] = undoSize;
 	}
 
 	/**
@@ -154,13 +175,53 @@ public class SymbTable {
 		if (currDepth == 0)
 			throw new Report.InternalError();
 
-		for (String name : scopes.getFirst()) {
-			allDeclsOfAllNames.get(name).removeFirst();
+		while (undoSize > scopes[currDepth]) {
+			undoSize--;
+			int index = undoSymbs[undoSize] - firstSymb;
+			decls[index] = undoDecls[undoSize];
+			depths[index] = undoDepths[undoSize];
+			undoDecls[undoSize] = null;
 		}
-		scopes.removeFirst();
 		currDepth--;
 	}
 
+	/**
+	 * Extends the arrays of visible declarations so that they cover the specified
+	 * symbol. The arrays cover only the range of symbols inserted so far so that
+	 * small tables, e.g., those of record components, stay small.
+	 * 
+	 * @param symb The symbol.
+	 */
+	private void cover(int symb) {
+		if (decls.length == 0) {
+			decls = new AstDecl[1];
+			depths = new int[1];
+			firstSymb = symb;
+			return;
+		}
+		int lastSymb = firstSymb + decls.length - 1;
+		if ((symb >= firstSymb) && (symb <= lastSymb))
+			return;
+
+		int newFirstSymb;
+		int newLength;
+		if (symb > lastSymb) {
+			newFirstSymb = firstSymb;
+			newLength = Math.max(symb - firstSymb + 1, 2 * decls.length);
+		} else {
+			newFirstSymb = Math.max(0, Math.min(symb, lastSymb + 1 - 2 * decls.length));
+			newLength = lastSymb - newFirstSymb + 1;
+		}
+
+		AstDecl[] newDecls = new AstDecl[newLength];
+		int[] newDepths = new int[newLength];
+		System.arraycopy(decls, 0, newDecls, firstSymb - newFirstSymb, decls.length);
+		System.arraycopy(depths, 0, newDepths, firstSymb - newFirstSymb, depths.length);
+		decls = newDecls;
+		depths = newDepths;
+		firstSymb = newFirstSymb;
+	}
+
 	/**
 	 * Prevents further modifications of this symbol table.
 	 */
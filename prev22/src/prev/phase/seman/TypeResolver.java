@@ -1,6 +1,7 @@
 package prev.phase.seman;
 
 import java.util.*;
+import java.util.concurrent.*;
 
 import prev.common.report.*;
 import prev.data.ast.tree.*;
@@ -28,12 +29,31 @@ public class TypeResolver extends AstFullVisitor<SemType, TypeResolver.Mode> {
 
 	// Identifier for info reports
 	private final String TAG = "[TypeResolver]: ";
+	private final String CATEGORY = "seman";
 
-	// Stores symbol tables for records
-	private final HashMap<SemRec, SymbTable> recordMap = new HashMap<>();
+	// Interns pointer and array types
+	private final SemTypeFactory types = SemAn.types();
+
+	// Stores symbol tables for records (shared by resolvers working concurrently)
+	private final ConcurrentHashMap<SemRec, SymbTable> recordMap;
+
+	public TypeResolver() {
+		recordMap = new ConcurrentHashMap<>();
+	}
+
+	// Resolves further trees using the records of another resolver, e.g., bodies of top-level functions concurrently
+	public TypeResolver(TypeResolver heads) {
+		recordMap = heads.recordMap;
+	}
 
 	// GENERAL PURPOSE
 
+	// Checks whether a value of one type can be used where the other type is expected: identical types are
+	// the same instance, other types only need to be of the same kind (e.g., any two pointers)
+	public boolean compatible(SemType type1, SemType type2) {
+		return type1 == type2 || type1.getClass().equals(type2.getClass());
+	}
+
 	// Detect recursive types by adding them to a HashSet and then comparing new ones
 	public void detectRecursiveType(AstType type, HashSet<Integer> set) {
 		// Check if type is already in the set
@@ -46,7 +66,7 @@ public class TypeResolver extends AstFullVisitor<SemType, TypeResolver.Mode> {
 
 		// Cast based on the type
 		if (type instanceof AstNameType nameType) {
-			AstDecl decl = SemAn.declaredAt.get(nameType);
+			AstDecl decl = SemAn.declaredAt().get(nameType);
 
 			// We only need to check subtypes if the name is a type declaration
 			if (decl instanceof AstTypeDecl typeDecl) {
@@ -66,6 +86,20 @@ public class TypeResolver extends AstFullVisitor<SemType, TypeResolver.Mode> {
 
 	@Override
 	public SemType visit(AstTrees<? extends AstTree> trees, Mode mode) {
+		visitHeads(trees);
+
+		// Second pass resolves the expression (mode doesn't matter)
+		for (AstTree t : trees) {
+			if (t instanceof AstFunDecl) {
+				t.accept(this, Mode.BODY);
+			}
+		}
+
+		return null;
+	}
+
+	// Resolves everything but the expressions of functions
+	public void visitHeads(AstTrees<? extends AstTree> trees) {
 		// First pass checks for recursion and declares a new type
 		for (AstTree t : trees) {
 			if (t instanceof AstTypeDecl) {
@@ -100,15 +134,6 @@ public class TypeResolver extends AstFullVisitor<SemType, TypeResolver.Mode> {
 				t.accept(this, Mode.HEAD);
 			}
 		}
-
-		// Second pass resolves the expression (mode doesn't matter)
-		for (AstTree t : trees) {
-			if (t instanceof AstFunDecl) {
-				t.accept(this, Mode.BODY);
-			}
-		}
-
-		return null;
 	}
 
 	// DECLARATIONS
@@ -116,7 +141,7 @@ public class TypeResolver extends AstFullVisitor<SemType, TypeResolver.Mode> {
 	@Override
 	public SemType visit(AstCompDecl compDecl, Mode mode) {
 		SemType type = compDecl.type.accept(this, mode);
-		SemAn.isType.put(compDecl.type, type);
+		SemAn.isType().put(compDecl.type, type);
 		return type;
 	}
 	@Override
@@ -134,16 +159,16 @@ public class TypeResolver extends AstFullVisitor<SemType, TypeResolver.Mode> {
 				throw new Report.Error(funDecl, TAG + "invalid function type " + funType.getClass().getSimpleName());
 			}
 
-			SemAn.isType.put(funDecl.type, funType);
+			SemAn.isType().put(funDecl.type, funType);
 			return null;
 		}
 
 		// Second pass
 		if (funDecl.expr != null) {
 			SemType exprType = funDecl.expr.accept(this, mode).actualType();
-			SemType funType = SemAn.isType.get(funDecl.type).actualType();
+			SemType funType = SemAn.isType().get(funDecl.type).actualType();
 
-			if (exprType != null && !funType.getClass().equals(exprType.getClass())) {
+			if (exprType != null && !compatible(funType, exprType)) {
 				throw new Report.Error(funDecl, TAG + "mismatch between function expression and return types");
 			}
 		}
@@ -170,20 +195,20 @@ public class TypeResolver extends AstFullVisitor<SemType, TypeResolver.Mode> {
 		if (mode == Mode.HEAD) {
 			// First pass check for recursion and declares the name
 			detectRecursiveType(typeDecl.type, new HashSet<>());
-			SemAn.declaresType.put(typeDecl, new SemName(typeDecl.name));
+			SemAn.declaresType().put(typeDecl, new SemName(typeDecl.name));
 		} else if (mode == Mode.BODY && !(typeDecl.type instanceof AstRecType || typeDecl.type instanceof AstArrType)) {
 			// Second pass resolves all non-record and non-array types
 			SemType type = typeDecl.type.accept(this, mode);
-			SemAn.declaresType.get(typeDecl).define(type);
+			SemAn.declaresType().get(typeDecl).define(type);
 		} else if (mode == Mode.FEET) {
 			// Third pass resolves all types, but most importantly, arrays and records
 			SemType type = typeDecl.type.accept(this, mode);
 
-			Report.info(typeDecl, TAG + "type in feet: " + type);
+			Report.trace(typeDecl, CATEGORY, "%stype in feet: %s", TAG, type);
 
-			SemType declaredType = SemAn.declaresType.get(typeDecl).type();
+			SemType declaredType = SemAn.declaresType().get(typeDecl).type();
 			if (declaredType == null) {
-				SemAn.declaresType.get(typeDecl).define(type);
+				SemAn.declaresType().get(typeDecl).define(type);
 			}
 		}
 
@@ -194,12 +219,12 @@ public class TypeResolver extends AstFullVisitor<SemType, TypeResolver.Mode> {
 	public SemType visit(AstVarDecl varDecl, Mode mode) {
 		varDecl.type.accept(this, mode);
 
-		SemType semType = SemAn.isType.get(varDecl.type);
+		SemType semType = SemAn.isType().get(varDecl.type);
 		if (semType.actualType() instanceof SemVoid) {
 			throw new Report.Error(varDecl, TAG + "variable cannot be of type 'void'");
 		}
 
-		SemAn.isType.put(varDecl.type, semType);
+		SemAn.isType().put(varDecl.type, semType);
 		return semType;
 	}
 
@@ -210,8 +235,8 @@ public class TypeResolver extends AstFullVisitor<SemType, TypeResolver.Mode> {
 		arrExpr.arr.accept(this, mode);
 		arrExpr.idx.accept(this, mode);
 
-		SemType arrType = SemAn.ofType.get(arrExpr.arr);
-		SemType elemType = SemAn.ofType.get(arrExpr.idx);
+		SemType arrType = SemAn.ofType().get(arrExpr.arr);
+		SemType elemType = SemAn.ofType().get(arrExpr.idx);
 
 		if (!(arrType.actualType() instanceof SemArr && elemType.actualType() instanceof SemInt)) {
 			throw new Report.Error(arrExpr, TAG + "wrong array addressing (either not array or " +
@@ -219,23 +244,23 @@ public class TypeResolver extends AstFullVisitor<SemType, TypeResolver.Mode> {
 		}
 
 		SemType type = ((SemArr) arrType).elemType;
-		SemAn.isAddr.put(arrExpr, true);
-		SemAn.ofType.put(arrExpr, type);
+		SemAn.isAddr().put(arrExpr, true);
+		SemAn.ofType().put(arrExpr, type);
 		return type;
 	}
 
 	@Override
 	public SemType visit(AstAtomExpr atomExpr, Mode mode) {
 		SemType type = switch(atomExpr.type) {
-			case VOID -> new SemVoid();
-			case POINTER -> new SemPtr(new SemVoid());
-			case STRING -> new SemPtr(new SemChar());
-			case BOOL -> new SemBool();
-			case CHAR -> new SemChar();
-			case INT -> new SemInt();
+			case VOID -> SemTypeFactory.voidType;
+			case POINTER -> SemTypeFactory.voidPtrType;
+			case STRING -> types.ptr(SemTypeFactory.charType);
+			case BOOL -> SemTypeFactory.boolType;
+			case CHAR -> SemTypeFactory.charType;
+			case INT -> SemTypeFactory.intType;
 		};
 
-		SemAn.ofType.put(atomExpr, type);
+		SemAn.ofType().put(atomExpr, type);
 		return type;
 	}
 	@Override
@@ -251,7 +276,7 @@ public class TypeResolver extends AstFullVisitor<SemType, TypeResolver.Mode> {
 						"non-boolean expressions");
 				}
 
-				type = new SemBool();
+				type = SemTypeFactory.boolType;
 				break;
 
 			case ADD, SUB, MUL, DIV, MOD:
@@ -260,7 +285,7 @@ public class TypeResolver extends AstFullVisitor<SemType, TypeResolver.Mode> {
 						"'%' in non-integer expressions");
 				}
 
-				type = new SemInt();
+				type = SemTypeFactory.intType;
 				break;
 
 			case EQU, NEQ:
@@ -268,7 +293,7 @@ public class TypeResolver extends AstFullVisitor<SemType, TypeResolver.Mode> {
 					(fstExprType instanceof SemChar && sndExprType instanceof SemChar) ||
 					(fstExprType instanceof SemInt && sndExprType instanceof SemInt) ||
 					(fstExprType instanceof SemPtr && sndExprType instanceof SemPtr)) {
-					type = new SemBool();
+					type = SemTypeFactory.boolType;
 				} else {
 					throw new Report.Error(binExpr, TAG + "cannot use operators '==' and '!=' with " +
 						"a combination of expressions of type " + fstExprType.getClass().getSimpleName() + " and " +
@@ -280,7 +305,7 @@ public class TypeResolver extends AstFullVisitor<SemType, TypeResolver.Mode> {
 				if ((fstExprType instanceof SemChar && sndExprType instanceof SemChar) ||
 					(fstExprType instanceof SemInt && sndExprType instanceof SemInt) ||
 					(fstExprType instanceof SemPtr && sndExprType instanceof SemPtr)) {
-					type = new SemBool();
+					type = SemTypeFactory.boolType;
 				} else {
 					throw new Report.Error(binExpr, TAG + "cannot use operators '<=', '>=', '<' and " +
 						"'>' with a combination of expressions of type " + fstExprType.getClass().getSimpleName() +
@@ -289,13 +314,13 @@ public class TypeResolver extends AstFullVisitor<SemType, TypeResolver.Mode> {
 				break;
 		}
 
-		SemAn.ofType.put(binExpr, type);
+		SemAn.ofType().put(binExpr, type);
 		return type;
 	}
 
 	@Override
 	public SemType visit(AstCallExpr callExpr, Mode mode) {
-		AstDecl decl = SemAn.declaredAt.get(callExpr);
+		AstDecl decl = SemAn.declaredAt().get(callExpr);
 
 		if (!(decl instanceof AstFunDecl funDecl)) {
 			throw new Report.Error(callExpr, TAG + "not a function declaration");
@@ -312,16 +337,16 @@ public class TypeResolver extends AstFullVisitor<SemType, TypeResolver.Mode> {
 			arg.accept(this, mode);
 			parDecl.accept(this, mode);
 
-			SemType argType = SemAn.ofType.get(arg).actualType();
-			SemType parType = SemAn.isType.get(funDecl.pars.get(i).type).actualType();
+			SemType argType = SemAn.ofType().get(arg).actualType();
+			SemType parType = SemAn.isType().get(funDecl.pars.get(i).type).actualType();
 
-			if (!argType.getClass().equals(parType.getClass())) {
+			if (!compatible(argType, parType)) {
 				throw new Report.Error(arg, TAG + "mismatch between declared and called argument type");
 			}
 		}
 
-		SemType type = SemAn.isType.get(funDecl.type);
-		SemAn.ofType.put(callExpr, type);
+		SemType type = SemAn.isType().get(funDecl.type);
+		SemAn.ofType().put(callExpr, type);
 		return type;
 	}
 
@@ -330,25 +355,25 @@ public class TypeResolver extends AstFullVisitor<SemType, TypeResolver.Mode> {
 		castExpr.expr.accept(this, mode);
 		castExpr.type.accept(this, mode);
 
-		SemType exprType = SemAn.ofType.get(castExpr.expr).actualType();
-		SemType castType = SemAn.isType.get(castExpr.type);
+		SemType exprType = SemAn.ofType().get(castExpr.expr).actualType();
+		SemType castType = SemAn.isType().get(castExpr.type);
 		SemType actualCastType = castType.actualType();
 
-		Report.info(castExpr.expr, TAG + "expr type: " + exprType.getClass().getSimpleName());
-		Report.info(castExpr.type, TAG + "cast type: " + actualCastType.getClass().getSimpleName());
+		Report.trace(castExpr.expr, CATEGORY, "%sexpr type: %s", TAG, exprType.getClass().getSimpleName());
+		Report.trace(castExpr.type, CATEGORY, "%scast type: %s", TAG, actualCastType.getClass().getSimpleName());
 
 		if (!((exprType instanceof SemChar || exprType instanceof SemInt || exprType instanceof SemPtr) &&
 			(actualCastType instanceof SemChar || actualCastType instanceof SemInt || actualCastType instanceof SemPtr))) {
 			throw new Report.Error(castExpr, TAG + "invalid typecast expression");
 		}
 
-		SemAn.ofType.put(castExpr, castType);
+		SemAn.ofType().put(castExpr, castType);
 		return castType;
 	}
 
 	@Override
 	public SemType visit(AstNameExpr nameExpr, Mode mode) {
-		AstDecl decl = SemAn.declaredAt.get(nameExpr);
+		AstDecl decl = SemAn.declaredAt().get(nameExpr);
 		SemType type;
 
 		if (decl instanceof AstFunDecl) {
@@ -356,17 +381,17 @@ public class TypeResolver extends AstFullVisitor<SemType, TypeResolver.Mode> {
 				throw new Report.Error(nameExpr, TAG + "missing arguments for function call");
 			}
 
-			type = SemAn.isType.get(((AstFunDecl) decl).type);
+			type = SemAn.isType().get(((AstFunDecl) decl).type);
 		} else if (decl instanceof AstVarDecl) {
-			type = SemAn.isType.get(((AstVarDecl) decl).type);
+			type = SemAn.isType().get(((AstVarDecl) decl).type);
 		} else if (decl instanceof AstParDecl) {
-			type = SemAn.isType.get(((AstParDecl) decl).type);
+			type = SemAn.isType().get(((AstParDecl) decl).type);
 		} else {
 			throw new Report.Error(nameExpr, TAG + "you can only declare variables or parameters");
 		}
 
-		SemAn.isAddr.put(nameExpr, true);
-		SemAn.ofType.put(nameExpr, type);
+		SemAn.isAddr().put(nameExpr, true);
+		SemAn.ofType().put(nameExpr, type);
 		return type;
 	}
 
@@ -382,33 +407,33 @@ public class TypeResolver extends AstFullVisitor<SemType, TypeResolver.Mode> {
 					throw new Report.Error(pfxExpr, TAG + "cannot use negation with non-boolean expression");
 				}
 
-				type = new SemBool();
+				type = SemTypeFactory.boolType;
 			}
 			case ADD, SUB -> {
 				if (!(actualExprType instanceof SemInt)) {
 					throw new Report.Error(pfxExpr, TAG + "cannot add or subtract from non-integer expression");
 				}
 
-				type = new SemInt();
+				type = SemTypeFactory.intType;
 			}
-			case PTR -> type = new SemPtr(exprType);
+			case PTR -> type = types.ptr(exprType);
 			case NEW -> {
 				if (!(actualExprType instanceof SemInt)) {
 					throw new Report.Error(pfxExpr, TAG + "cannot use 'new' with non-integer expression");
 				}
 
-				type = new SemPtr(new SemVoid());
+				type = SemTypeFactory.voidPtrType;
 			}
 			case DEL -> {
 				if (!(actualExprType instanceof SemPtr)) {
 					throw new Report.Error(pfxExpr, TAG + "cannot use 'del' with non-pointer expression");
 				}
 
-				type = new SemVoid();
+				type = SemTypeFactory.voidType;
 			}
 		}
 
-		SemAn.ofType.put(pfxExpr, type);
+		SemAn.ofType().put(pfxExpr, type);
 		return type;
 	}
 
@@ -416,47 +441,47 @@ public class TypeResolver extends AstFullVisitor<SemType, TypeResolver.Mode> {
 	public SemType visit(AstRecExpr recExpr, Mode mode) {
 		recExpr.rec.accept(this, mode);
 
-		SemType recType = SemAn.ofType.get(recExpr.rec).actualType();
+		SemType recType = SemAn.ofType().get(recExpr.rec).actualType();
 		if (!(recType instanceof SemRec)) {
 			throw new Report.Error(recExpr, TAG + "not a record");
 		}
 
-		Report.info(recExpr, TAG + recType + ": " + recType);
-		Report.info(recExpr, TAG + "records: " + recordMap);
+		Report.trace(recExpr, CATEGORY, "%s%s: %s", TAG, recType, recType);
+		Report.trace(recExpr, CATEGORY, "%srecords: %s", TAG, recordMap);
 
 		SymbTable compNames = recordMap.get((SemRec) recType);
 
-		Report.info(recExpr, TAG + recordMap.get(recType));
-		Report.info(recExpr, TAG + recType);
+		Report.trace(recExpr, CATEGORY, "%s%s", TAG, recordMap.get(recType));
+		Report.trace(recExpr, CATEGORY, "%s%s", TAG, recType);
 
 		AstCompDecl compDecl;
 
 		try {
-			compDecl = (AstCompDecl) compNames.fnd(recExpr.comp.name);
+			compDecl = (AstCompDecl) compNames.fnd(recExpr.comp.symb);
 		} catch (SymbTable.CannotFndNameException e) {
 			throw new Report.Error(recExpr, TAG + "not a component of this record");
 		}
 
-		SemType compType = SemAn.isType.get(compDecl.type);
-		SemAn.isAddr.put(recExpr, true);
-		SemAn.ofType.put(recExpr, compType);
-		SemAn.declaredAt.put(recExpr.comp, compDecl);
+		SemType compType = SemAn.isType().get(compDecl.type);
+		SemAn.isAddr().put(recExpr, true);
+		SemAn.ofType().put(recExpr, compType);
+		SemAn.declaredAt().put(recExpr.comp, compDecl);
 		return compType;
 	}
 
 	@Override
 	public SemType visit(AstSfxExpr sfxExpr, Mode mode) {
 		sfxExpr.expr.accept(this, mode);
-		SemType exprType = SemAn.ofType.get(sfxExpr.expr).actualType();
-		Report.info(sfxExpr, TAG + "sfxExpr: " + sfxExpr.expr.getClass().getSimpleName());
+		SemType exprType = SemAn.ofType().get(sfxExpr.expr).actualType();
+		Report.trace(sfxExpr, CATEGORY, "%ssfxExpr: %s", TAG, sfxExpr.expr.getClass().getSimpleName());
 
 		if (!(exprType instanceof SemPtr)) {
 			throw new Report.Error(sfxExpr, TAG + sfxExpr.expr + " is not a pointer");
 		}
 
 		SemType type = ((SemPtr) exprType).baseType;
-		SemAn.isAddr.put(sfxExpr, true);
-		SemAn.ofType.put(sfxExpr, type);
+		SemAn.isAddr().put(sfxExpr, true);
+		SemAn.ofType().put(sfxExpr, type);
 		return type;
 	}
 
@@ -468,7 +493,7 @@ public class TypeResolver extends AstFullVisitor<SemType, TypeResolver.Mode> {
 			type = stmt.accept(this, mode);
 		}
 
-		SemAn.ofType.put(stmtExpr, type);
+		SemAn.ofType().put(stmtExpr, type);
 		return type;
 	}
 
@@ -477,8 +502,8 @@ public class TypeResolver extends AstFullVisitor<SemType, TypeResolver.Mode> {
 		whereExpr.decls.accept(this, mode);
 		whereExpr.expr.accept(this, mode);
 
-		SemType semType = SemAn.ofType.get(whereExpr.expr);
-		SemAn.ofType.put(whereExpr, semType);
+		SemType semType = SemAn.ofType().get(whereExpr.expr);
+		SemAn.ofType().put(whereExpr, semType);
 		return semType;
 	}
 
@@ -489,8 +514,8 @@ public class TypeResolver extends AstFullVisitor<SemType, TypeResolver.Mode> {
 		SemType srcType = assignStmt.src.accept(this, mode).actualType();
 		SemType dstType = assignStmt.dst.accept(this, mode).actualType();
 
-		//SemType dstType = SemAn.ofType.get(assignStmt.dst).actualType();
-		//SemType srcType = SemAn.ofType.get(assignStmt.src).actualType();
+		//SemType dstType = SemAn.ofType().get(assignStmt.dst).actualType();
+		//SemType srcType = SemAn.ofType().get(assignStmt.src).actualType();
 
 		if (!((dstType instanceof SemBool && srcType instanceof SemBool) ||
 			(dstType instanceof SemChar && srcType instanceof SemChar) ||
@@ -499,15 +524,15 @@ public class TypeResolver extends AstFullVisitor<SemType, TypeResolver.Mode> {
 			throw new Report.Error(assignStmt, TAG + "invalid types in assignment");
 		}
 
-		SemType type = new SemVoid();
-		SemAn.ofType.put(assignStmt, type);
+		SemType type = SemTypeFactory.voidType;
+		SemAn.ofType().put(assignStmt, type);
 		return type;
 	}
 
 	@Override
 	public SemType visit(AstExprStmt exprStmt, Mode mode) {
 		SemType type = exprStmt.expr.accept(this, mode);
-		SemAn.ofType.put(exprStmt, type);
+		SemAn.ofType().put(exprStmt, type);
 		return type;
 	}
 
@@ -515,7 +540,7 @@ public class TypeResolver extends AstFullVisitor<SemType, TypeResolver.Mode> {
 	public SemType visit(AstIfStmt ifStmt, Mode mode) {
 		SemType condType = ifStmt.cond.accept(this, mode);
 
-		Report.info(ifStmt, TAG + "condition type: " + condType);
+		Report.trace(ifStmt, CATEGORY, "%scondition type: %s", TAG, condType);
 
 		if (!(condType.actualType() instanceof SemBool)) {
 			throw new Report.Error(ifStmt, TAG + "if statement condition must be a boolean expression");
@@ -524,8 +549,8 @@ public class TypeResolver extends AstFullVisitor<SemType, TypeResolver.Mode> {
 		ifStmt.thenStmt.accept(this, mode);
 		ifStmt.elseStmt.accept(this, mode);
 
-		SemType semType = new SemVoid();
-		SemAn.ofType.put(ifStmt, semType);
+		SemType semType = SemTypeFactory.voidType;
+		SemAn.ofType().put(ifStmt, semType);
 		return semType;
 	}
 
@@ -534,12 +559,12 @@ public class TypeResolver extends AstFullVisitor<SemType, TypeResolver.Mode> {
 		whileStmt.cond.accept(this, mode);
 		whileStmt.bodyStmt.accept(this, mode);
 
-		if (!(SemAn.ofType.get(whileStmt.cond).actualType() instanceof SemBool)) {
+		if (!(SemAn.ofType().get(whileStmt.cond).actualType() instanceof SemBool)) {
 			throw new Report.Error(whileStmt, TAG + "while statement condition must be a boolean expression");
 		}
 
-		SemType semType = new SemVoid();
-		SemAn.ofType.put(whileStmt, semType);
+		SemType semType = SemTypeFactory.voidType;
+		SemAn.ofType().put(whileStmt, semType);
 		return semType;
 	}
 
@@ -573,35 +598,35 @@ public class TypeResolver extends AstFullVisitor<SemType, TypeResolver.Mode> {
 			throw new Report.Error(arrType, TAG + "array index cannot be negative");
 		}
 
-		SemType type = new SemArr(elemType, numElems);
-		SemAn.isType.put(arrType, type);
+		SemType type = types.arr(elemType, numElems);
+		SemAn.isType().put(arrType, type);
 		return type;
 	}
 
 	@Override
 	public SemType visit(AstAtomType atomType, Mode mode) {
 		SemType type = switch (atomType.type) {
-			case VOID -> new SemVoid();
-			case CHAR -> new SemChar();
-			case INT -> new SemInt();
-			case BOOL -> new SemBool();
+			case VOID -> SemTypeFactory.voidType;
+			case CHAR -> SemTypeFactory.charType;
+			case INT -> SemTypeFactory.intType;
+			case BOOL -> SemTypeFactory.boolType;
 		};
 
-		SemAn.isType.put(atomType, type);
+		SemAn.isType().put(atomType, type);
 		return type;
 	}
 
 	@Override
 	public SemType visit(AstNameType nameType, Mode mode) {
 		// Get declaration from name
-		AstDecl nameDecl = SemAn.declaredAt.get(nameType);
+		AstDecl nameDecl = SemAn.declaredAt().get(nameType);
 		if (!(nameDecl instanceof AstTypeDecl)) {
 			throw new Report.Error(nameType, TAG + "undeclared type");
 		}
 
 		// Get semantic name from type declaration
-		SemType type = SemAn.declaresType.get((AstTypeDecl) nameDecl);
-		SemAn.isType.put(nameType, type);
+		SemType type = SemAn.declaresType().get((AstTypeDecl) nameDecl);
+		SemAn.isType().put(nameType, type);
 		return type;
 	}
 
@@ -612,8 +637,8 @@ public class TypeResolver extends AstFullVisitor<SemType, TypeResolver.Mode> {
 			throw new Report.Error(ptrType, TAG + "undeclared pointer type");
 		}
 
-		SemType type = new SemPtr(baseType);
-		SemAn.isType.put(ptrType, type);
+		SemType type = types.ptr(baseType);
+		SemAn.isType().put(ptrType, type);
 		return type;
 	}
 
@@ -630,17 +655,18 @@ public class TypeResolver extends AstFullVisitor<SemType, TypeResolver.Mode> {
 			}
 
 			try {
-				compNames.ins(comp.name, comp);
+				compNames.ins(comp.symb, comp);
 			} catch (SymbTable.CannotInsNameException e) {
 				throw new Report.Error(comp, TAG + "could not insert component name into symbol table");
 			}
 
-			compTypes.add(SemAn.isType.get(comp.type));
+			compTypes.add(SemAn.isType().get(comp.type));
 		}
 
+		// The record must be known before its type is visible to other resolvers
 		SemRec rec = new SemRec(compTypes);
-		SemAn.isType.put(recType, rec);
 		recordMap.put(rec, compNames);
+		SemAn.isType().put(recType, rec);
 		return rec;
 	}
 }
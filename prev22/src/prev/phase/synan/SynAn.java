@@ -1,8 +1,13 @@
 package prev.phase.synan;
 
+import java.io.*;
+
 import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.atn.*;
+import org.antlr.v4.runtime.misc.*;
 import org.antlr.v4.runtime.tree.*;
 
+import prev.*;
 import prev.common.report.*;
 import prev.data.sym.Token;
 import prev.phase.*;
@@ -13,34 +18,119 @@ import prev.phase.lexan.*;
  */
 public class SynAn extends Phase {
 
-	// === STATIC ===
+	private final String CATEGORY = "synan";
+
+	// === SESSION ===
 
 	/**
-	 * The parse tree.
+	 * Returns the parse tree.
+	 *
+	 * @return The parse tree of the current compilation session.
 	 */
-	public static PrevParser.SourceContext tree;
+	public static PrevParser.SourceContext tree() {
+		return CompilationSession.current().synanTree;
+	}
 
-	// ==============
+	// ===============
 
 	/**
 	 * The ANTLR parser that actually performs syntax analysis.
 	 */
 	public final PrevParser parser;
 
+	/** The lexical analysis phase producing tokens. */
+	private final LexAn lexan;
+
 	/**
-	 * Phase construction: sets up logging and the ANTLR lexer and parser.
+	 * Whether tokens are streamed, i.e., kept only as long as the parser might
+	 * look at them again, rather than buffered (see {@code --stream-tokens}).
+	 */
+	public final boolean streaming;
+
+	/** The source of the tokens being parsed if they are streamed. */
+	private StreamedTokenSource tokens;
+
+	/** Reports syntax errors. */
+	private final ANTLRErrorListener errorListener = new BaseErrorListener() {
+		public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line,
+		                        int charPositionInLine, String msg, RecognitionException e) {
+			throw new Report.Error(new Location(line, charPositionInLine),
+				"Unexpected symbol '" + ((Token) offendingSymbol).getText() + "'.");
+		}
+	};
+
+	/**
+	 * Phase construction: sets up logging and the ANTLR lexer and parser. The
+	 * parse tree is built only if it is logged; otherwise only the abstract syntax
+	 * tree is built by the parser's actions. Tokens are streamed if requested and
+	 * if the source can be lexed again should it have to be parsed again.
 	 */
 	public SynAn(LexAn lexan) {
 		super("synan");
-		parser = new PrevParser(new CommonTokenStream(lexan.lexer));
+		this.lexan = lexan;
+		streaming = (session.cmdLineArgValue("--stream-tokens") != null) && lexan.canLexAgain();
+		if (streaming) {
+			tokens = new StreamedTokenSource(lexan.lexer, 0);
+			parser = new PrevParser(new UnbufferedTokenStream<Token>(tokens));
+		} else
+			parser = new PrevParser(new CommonTokenStream(lexan.lexer));
+		parser.setBuildParseTree(logger != null);
 		parser.removeErrorListeners();
-		parser.addErrorListener(new BaseErrorListener() {
-			public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line,
-			                        int charPositionInLine, String msg, RecognitionException e) {
-				throw new Report.Error(new Location(line, charPositionInLine),
-					"Unexpected symbol '" + ((Token) offendingSymbol).getText() + "'.");
+		parser.addErrorListener(errorListener);
+	}
+
+	/**
+	 * Parses the source. The source is parsed in the SLL prediction mode first,
+	 * which is faster and suffices for almost all sources; only if it fails, the
+	 * source is parsed again in the full LL prediction mode, which also reports
+	 * syntax errors.
+	 *
+	 * If tokens are streamed, the source is lexed again for parsing in the full LL
+	 * prediction mode and the tokens are buffered, so that syntax errors are
+	 * reported exactly as if tokens had been buffered all along.
+	 *
+	 * @return The parse tree (without children unless it is logged).
+	 */
+	public PrevParser.SourceContext parse() {
+		int numNodes = session.numNodes();
+		parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+		parser.setErrorHandler(new BailErrorStrategy() {
+			@Override
+			public void reportError(Parser recognizer, RecognitionException e) {
+				// Errors are reported by parsing again.
 			}
 		});
+		parser.removeErrorListeners();
+		try {
+			return parser.source();
+		} catch (ParseCancellationException __) {
+			Report.trace(CATEGORY, "SLL parsing failed, parsing again in the LL mode");
+			session.stats.count("llParses", 1);
+			// Abstract syntax tree nodes built so far are discarded.
+			session.discardNodeIds(numNodes);
+			if (streaming) {
+				tokens = new StreamedTokenSource(lexan.newLexer(), tokens.numTokens);
+				parser.setTokenStream(new CommonTokenStream(tokens));
+			} else
+				parser.getTokenStream().seek(0);
+			parser.reset();
+			parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+			parser.setErrorHandler(new DefaultErrorStrategy());
+			parser.addErrorListener(errorListener);
+			return parser.source();
+		}
+	}
+
+	/**
+	 * Returns the number of tokens parsed (not counting the end of file) if tokens
+	 * are streamed.
+	 *
+	 * @return The number of tokens parsed.
+	 */
+	public int numTokens() {
+		if (!streaming)
+			throw new Report.InternalError();
+		return tokens.numTokens - 1;
 	}
 
 	/**
@@ -67,4 +157,75 @@ public class SynAn extends Phase {
 		}
 	}
 
+	/**
+	 * A token source counting the tokens produced by a lexer. Lexical errors are
+	 * not reported for the tokens that have already been produced by another
+	 * lexer lexing the same source before.
+	 */
+	private static class StreamedTokenSource implements TokenSource {
+
+		/** The lexer producing tokens. */
+		private final TokenSource lexer;
+
+		/** The number of tokens lexical errors have already been reported for. */
+		private final int numReportedTokens;
+
+		/** The number of tokens produced so far (including the end of file). */
+		private int numTokens = 0;
+
+		/** Discards lexical errors reported again. */
+		private static final PrintStream discardedErr = new PrintStream(OutputStream.nullOutputStream());
+
+		/**
+		 * Constructs a new token source.
+		 *
+		 * @param lexer             The lexer producing tokens.
+		 * @param numReportedTokens The number of tokens lexical errors have already
+		 *                          been reported for.
+		 */
+		StreamedTokenSource(TokenSource lexer, int numReportedTokens) {
+			this.lexer = lexer;
+			this.numReportedTokens = numReportedTokens;
+		}
+
+		@Override
+		public org.antlr.v4.runtime.Token nextToken() {
+			numTokens++;
+			if (numTokens <= numReportedTokens)
+				return Report.redirectErr(discardedErr, lexer::nextToken);
+			return lexer.nextToken();
+		}
+
+		@Override
+		public int getLine() {
+			return lexer.getLine();
+		}
+
+		@Override
+		public int getCharPositionInLine() {
+			return lexer.getCharPositionInLine();
+		}
+
+		@Override
+		public CharStream getInputStream() {
+			return lexer.getInputStream();
+		}
+
+		@Override
+		public String getSourceName() {
+			return lexer.getSourceName();
+		}
+
+		@Override
+		public void setTokenFactory(TokenFactory<?> factory) {
+			lexer.setTokenFactory(factory);
+		}
+
+		@Override
+		public TokenFactory<?> getTokenFactory() {
+			return lexer.getTokenFactory();
+		}
+
+	}
+
 }